@@ -19,6 +19,7 @@ package org.ow2.authzforce.core.pdp.impl;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 
 import org.ow2.authzforce.core.pdp.api.EvaluationContext;
 import org.ow2.authzforce.core.pdp.api.IndeterminateEvaluationException;
@@ -34,7 +35,7 @@ import oasis.names.tc.xacml._3_0.core.schema.wd_17.Match;
  *
  * @version $Id: $
  */
-public final class AllOfEvaluator
+public final class AllOfEvaluator implements EqualityMatchTarget.Indexable
 {
 	private static final Logger LOGGER = LoggerFactory.getLogger(AllOfEvaluator.class);
 
@@ -46,6 +47,8 @@ public final class AllOfEvaluator
 	// during evaluation
 	private final transient List<MatchEvaluator> evaluatableMatchList;
 
+	private final transient EvaluationTracer tracer = EvaluationTracers.getInstance(LOGGER);
+
 	/**
 	 * Instantiates AllOf (evaluator) from XACML-Schema-derived
 	 * <code>AllOf</code>.
@@ -89,6 +92,15 @@ public final class AllOfEvaluator
 		}
 	}
 
+	@Override
+	public Optional<EqualityMatchTarget> getEqualityMatchTarget()
+	{
+		/*
+		 * Equivalent to the Match if only one
+		 */
+		return evaluatableMatchList.size() == 1 ? evaluatableMatchList.get(0).getEqualityMatchTarget() : Optional.empty();
+	}
+
 	/**
 	 * Determines whether this <code>AllOf</code> matches the input request
 	 * (whether it is applicable).Here is the table shown in the specification:
@@ -126,20 +138,16 @@ public final class AllOfEvaluator
 			try
 			{
 				isMatched = matchEvaluator.match(context);
-				if (LOGGER.isDebugEnabled())
+				if (tracer.isEnabled())
 				{
-					// Beware of autoboxing which causes call to
-					// Boolean.valueOf(...), Integer.valueOf(...)
-					LOGGER.debug("AllOf/Match#{} -> {}", childIndex, isMatched);
+					tracer.trace("AllOf/Match#{} -> {}", childIndex, isMatched);
 				}
 			}
 			catch (final IndeterminateEvaluationException e)
 			{
-				if (LOGGER.isDebugEnabled())
+				if (tracer.isEnabled())
 				{
-					// Beware of autoboxing which causes call to
-					// Integer.valueOf(...)
-					LOGGER.debug("AllOf/Match#{} -> Indeterminate", childIndex, e);
+					tracer.trace("AllOf/Match#{} -> Indeterminate", childIndex, e);
 				}
 				lastIndeterminate = e;
 				lastIndeterminateChildIndex = childIndex;
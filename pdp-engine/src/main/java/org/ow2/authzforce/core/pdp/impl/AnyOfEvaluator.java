@@ -22,6 +22,7 @@ package org.ow2.authzforce.core.pdp.impl;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 
 import org.ow2.authzforce.core.pdp.api.EvaluationContext;
 import org.ow2.authzforce.core.pdp.api.IndeterminateEvaluationException;
@@ -37,7 +38,7 @@ import oasis.names.tc.xacml._3_0.core.schema.wd_17.AllOf;
  *
  * @version $Id: $
  */
-public final class AnyOfEvaluator
+public final class AnyOfEvaluator implements EqualityMatchTarget.Indexable
 {
 	private static final Logger LOGGER = LoggerFactory.getLogger(AnyOfEvaluator.class);
 
@@ -49,6 +50,8 @@ public final class AnyOfEvaluator
 	// during evaluation
 	private final transient List<AllOfEvaluator> evaluatableAllOfList;
 
+	private final transient EvaluationTracer tracer = EvaluationTracers.getInstance(LOGGER);
+
 	/**
 	 * Constructor that creates a new <code>AnyOf</code> evaluator based on the
 	 * given XACML-schema-derived JAXB AnyOf.
@@ -92,6 +95,15 @@ public final class AnyOfEvaluator
 		}
 	}
 
+	@Override
+	public Optional<EqualityMatchTarget> getEqualityMatchTarget()
+	{
+		/*
+		 * Equivalent to the AllOf if only one
+		 */
+		return evaluatableAllOfList.size() == 1 ? evaluatableAllOfList.get(0).getEqualityMatchTarget() : Optional.empty();
+	}
+
 	/**
 	 * Determines whether this <code>AnyOf</code> matches the input request
 	 * (whether it is applicable). If all the AllOf values is No_Match so it's a
@@ -132,20 +144,16 @@ public final class AnyOfEvaluator
 			try
 			{
 				isMatched = allOfEvaluator.match(context);
-				if (LOGGER.isDebugEnabled())
+				if (tracer.isEnabled())
 				{
-					// Beware of autoboxing which causes call to
-					// Boolean.valueOf(...), Integer.valueOf(...)
-					LOGGER.debug("AnyOf/AllOf#{} -> {}", childIndex, isMatched);
+					tracer.trace("AnyOf/AllOf#{} -> {}", childIndex, isMatched);
 				}
 			}
 			catch (final IndeterminateEvaluationException e)
 			{
-				if (LOGGER.isDebugEnabled())
+				if (tracer.isEnabled())
 				{
-					// Beware of autoboxing which causes call to
-					// Integer.valueOf(...)
-					LOGGER.debug("AnyOf/AllOf#{} -> Indeterminate", childIndex, e);
+					tracer.trace("AnyOf/AllOf#{} -> Indeterminate", childIndex, e);
 				}
 				lastIndeterminate = e;
 				lastIndeterminateChildIndex = childIndex;
@@ -0,0 +1,104 @@
+/**
+ * Copyright 2012-2018 Thales Services SAS.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.ow2.authzforce.core.pdp.api.AttributeFqn;
+
+/**
+ * Registry of dense integer slots assigned to the named attributes ({@link AttributeFqn}s) used by the AttributeDesignators compiled by the same expression factory (see
+ * {@link org.ow2.authzforce.core.pdp.impl.expression.DepthLimitingExpressionFactory#getAttributeFqnSlots()}). The {@link IndividualDecisionRequestContext}s created by a PDP engine with this factory
+ * cache the values of these attributes in an array indexed by slot, filled on first lookup, so that further evaluations of AttributeDesignators of the same attribute are an array load instead of a
+ * hash map lookup. The number of slots is bounded by the number of distinct named attributes used by the policies compiled by the factory, and by a maximum slot count: attributes beyond it get no
+ * slot ({@link #NO_SLOT}) and are looked up in the context's map.
+ */
+public final class AttributeFqnSlots
+{
+	/**
+	 * Slot returned for attributes without slot, i.e. when the maximum slot count is reached
+	 */
+	public static final int NO_SLOT = -1;
+
+	/**
+	 * Default maximum number of slots
+	 */
+	public static final int DEFAULT_MAX_SLOT_COUNT = 1024;
+
+	private final ConcurrentMap<AttributeFqn, Integer> slotsByAttribute = new ConcurrentHashMap<>();
+	private final AtomicInteger slotCount = new AtomicInteger(0);
+	private final int maxSlotCount;
+
+	/**
+	 * Creates instance with a maximum number of slots
+	 * 
+	 * @param maxSlotCount
+	 *            maximum number of slots (and size of the slot arrays of {@link IndividualDecisionRequestContext}s)
+	 * @throws IllegalArgumentException
+	 *             if {@code maxSlotCount < 0}
+	 */
+	public AttributeFqnSlots(final int maxSlotCount)
+	{
+		if (maxSlotCount < 0)
+		{
+			throw new IllegalArgumentException("Invalid maximum slot count: " + maxSlotCount + " (expected: >= 0)");
+		}
+
+		this.maxSlotCount = maxSlotCount;
+	}
+
+	/**
+	 * Creates instance with the default maximum number of slots ({@value #DEFAULT_MAX_SLOT_COUNT})
+	 */
+	public AttributeFqnSlots()
+	{
+		this(DEFAULT_MAX_SLOT_COUNT);
+	}
+
+	/**
+	 * Get the slot assigned to an attribute, assigning a new one if none yet (for policy compilation)
+	 * 
+	 * @param attributeFqn
+	 *            attribute name
+	 * @return slot; {@link #NO_SLOT} if the attribute has no slot and the maximum slot count is reached
+	 */
+	public int getOrAssign(final AttributeFqn attributeFqn)
+	{
+		assert attributeFqn != null;
+		final Integer slot = slotsByAttribute.computeIfAbsent(attributeFqn, k -> {
+			final int newSlot = slotCount.getAndUpdate(n -> n < maxSlotCount ? n + 1 : n);
+			/*
+			 * null: no mapping
+			 */
+			return newSlot < maxSlotCount ? newSlot : null;
+		});
+		return slot == null ? NO_SLOT : slot;
+	}
+
+	/**
+	 * Get the number of slots assigned so far, i.e. the upper bound (exclusive) of slots
+	 * 
+	 * @return slot count (not greater than the maximum slot count)
+	 */
+	public int count()
+	{
+		return slotCount.get();
+	}
+}
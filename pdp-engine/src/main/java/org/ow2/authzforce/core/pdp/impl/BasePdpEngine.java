@@ -22,11 +22,14 @@ import java.util.AbstractMap.SimpleImmutableEntry;
 import java.util.ArrayDeque;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.GregorianCalendar;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Predicate;
 
 import javax.xml.datatype.XMLGregorianCalendar;
 
@@ -52,6 +55,9 @@ import org.ow2.authzforce.core.pdp.api.value.DateTimeValue;
 import org.ow2.authzforce.core.pdp.api.value.DateValue;
 import org.ow2.authzforce.core.pdp.api.value.StandardDatatypes;
 import org.ow2.authzforce.core.pdp.api.value.TimeValue;
+import org.ow2.authzforce.core.pdp.impl.expression.CommonSubexpressions;
+import org.ow2.authzforce.core.pdp.impl.expression.DepthLimitingExpressionFactory;
+import org.ow2.authzforce.core.pdp.impl.policy.FlattenedPolicyTree;
 import org.ow2.authzforce.core.pdp.impl.policy.RootPolicyEvaluator;
 import org.ow2.authzforce.core.pdp.impl.policy.RootPolicyEvaluators;
 import org.ow2.authzforce.core.xmlns.pdp.StandardEnvironmentAttributeSource;
@@ -60,6 +66,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableSet;
 
 import net.sf.saxon.s9api.XdmNode;
 
@@ -72,8 +79,14 @@ public final class BasePdpEngine implements CloseablePdpEngine
 {
 	private static final String NULL_STD_ENV_ATTRIBUTE_SOURCE_ARG = "Undefined stdEnvAttributeSource arg (source of standard curent-* environment attributes)";
 
+	private static final String NULL_TRACE_FILTER_ARG = "Undefined traceFilter arg";
+
+	private static final String NULL_UNKNOWN_ATTRIBUTE_CATEGORIES_ARG = "Undefined unknownAttributeCategories arg";
+
 	private static final IllegalArgumentException NULL_REQUEST_ARGUMENT_EXCEPTION = new IllegalArgumentException("No input Decision Request");
 
+	private static final IllegalArgumentException NULL_OPTIONS_ARGUMENT_EXCEPTION = new IllegalArgumentException("Undefined PDP engine options");
+
 	private interface StandardEnvironmentAttributeIssuer
 	{
 		Map<AttributeFqn, AttributeBag<?>> get();
@@ -305,6 +318,16 @@ public final class BasePdpEngine implements CloseablePdpEngine
 
 		private final RootPolicyEvaluator rootPolicyEvaluator;
 		private final RequestAndPdpIssuedNamedAttributesMerger reqAndPdpIssuedAttributesMerger;
+		// null if none
+		private final PolicyEvaluationListener policyEvaluationListener;
+		// null if none
+		private final CombinedElementOrderListener combinedElementOrderListener;
+		// null if none
+		private final PdpEngineMetrics metrics;
+		// null if none
+		private final AttributeFqnSlots attributeFqnSlots;
+		// null if none
+		private final CommonSubexpressions commonSubexpressions;
 
 		/**
 		 * Creates an evaluator
@@ -327,13 +350,33 @@ public final class BasePdpEngine implements CloseablePdpEngine
 		 *            these attributes are not present in the decision request, then their values MUST be supplied by the context handler " but it does NOT say "If AND ONLY IF values..." So this
 		 *            option could still be considered XACML compliant in a strict sense.</li>
 		 *            </ul>
+		 * @param policyEvaluationListener
+		 *            (optional) listener registered in every new evaluation context
+		 * @param metrics
+		 *            (optional) PDP engine metrics, where decision cache lookups are recorded
+		 * @param attributeFqnSlots
+		 *            slots of the attributes used by the policies, passed to every new evaluation context; null if none
+		 * @param commonSubexpressions
+		 *            common subexpressions of the policies, whose results are memoized in every new evaluation context; null if none
 		 * @throws IllegalArgumentException
 		 *             if {@code stdEnvAttributeSource} is null or not supported
 		 */
-		protected IndividualDecisionRequestEvaluator(final RootPolicyEvaluator rootPolicyEvaluator, final StandardEnvironmentAttributeSource stdEnvAttributeSource) throws IllegalArgumentException
+		protected IndividualDecisionRequestEvaluator(final RootPolicyEvaluator rootPolicyEvaluator, final StandardEnvironmentAttributeSource stdEnvAttributeSource,
+				final Optional<PolicyEvaluationListener> policyEvaluationListener, final Optional<PdpEngineMetrics> metrics, final AttributeFqnSlots attributeFqnSlots,
+				final CommonSubexpressions commonSubexpressions)
+				throws IllegalArgumentException
 		{
-			assert rootPolicyEvaluator != null && stdEnvAttributeSource != null;
+			assert rootPolicyEvaluator != null && stdEnvAttributeSource != null && policyEvaluationListener != null && metrics != null;
 			this.rootPolicyEvaluator = rootPolicyEvaluator;
+			this.attributeFqnSlots = attributeFqnSlots;
+			this.commonSubexpressions = commonSubexpressions;
+			this.policyEvaluationListener = policyEvaluationListener.orElse(null);
+			/*
+			 * Registered separately so that the engine-level listener gets the new orders of combined elements even if the PolicyEvaluationListener is replaced in the context (decision trace,
+			 * partial evaluation), without getting attribute events twice
+			 */
+			this.combinedElementOrderListener = this.policyEvaluationListener == null ? null : this.policyEvaluationListener::combinedElementsReordered;
+			this.metrics = metrics.orElse(null);
 			switch (stdEnvAttributeSource)
 			{
 				case PDP_ONLY:
@@ -356,10 +399,37 @@ public final class BasePdpEngine implements CloseablePdpEngine
 		}
 
 		protected final EvaluationContext newEvaluationContext(final DecisionRequest request, final Map<AttributeFqn, AttributeBag<?>> pdpIssuedAttributes)
+		{
+			return newEvaluationContext(request, pdpIssuedAttributes, Collections.emptySet());
+		}
+
+		private EvaluationContext newEvaluationContext(final DecisionRequest request, final Map<AttributeFqn, AttributeBag<?>> pdpIssuedAttributes, final Set<String> unknownAttributeCategories)
 		{
 			assert request != null;
 			final Map<AttributeFqn, AttributeBag<?>> mergedNamedAttributes = reqAndPdpIssuedAttributesMerger.merge(pdpIssuedAttributes, request.getNamedAttributes());
-			return new IndividualDecisionRequestContext(mergedNamedAttributes, request.getExtraContentsByCategory(), request.isApplicablePolicyIdListReturned());
+			final EvaluationContext evalCtx = new IndividualDecisionRequestContext(mergedNamedAttributes, request.getExtraContentsByCategory(), request.isApplicablePolicyIdListReturned(),
+					unknownAttributeCategories, attributeFqnSlots, commonSubexpressions);
+			if (policyEvaluationListener != null)
+			{
+				evalCtx.putListener(PolicyEvaluationListener.class, policyEvaluationListener);
+				evalCtx.putListener(CombinedElementOrderListener.class, combinedElementOrderListener);
+			}
+
+			return evalCtx;
+		}
+
+		/**
+		 * Records a decision cache lookup in the PDP engine metrics (if any)
+		 *
+		 * @param isHit
+		 *            true iff a result was found in cache
+		 */
+		protected final void recordDecisionCacheLookup(final boolean isHit)
+		{
+			if (metrics != null)
+			{
+				metrics.recordDecisionCacheLookup(isHit);
+			}
 		}
 
 		protected final DecisionResult evaluateInNewContext(final DecisionRequest request, final Map<AttributeFqn, AttributeBag<?>> pdpIssuedAttributes)
@@ -369,6 +439,53 @@ public final class BasePdpEngine implements CloseablePdpEngine
 			return rootPolicyEvaluator.findAndEvaluate(evalCtx);
 		}
 
+		/**
+		 * Evaluates an Individual Decision Request in a new request context, capturing the decision trace. The decision cache (if any) is bypassed, so that the trace reflects an actual evaluation.
+		 *
+		 * @param request
+		 *            individual decision request
+		 * @param pdpIssuedAttributes
+		 *            PDP-issued attributes (standard environment attributes)
+		 * @return decision result and trace
+		 */
+		protected final Entry<DecisionResult, Optional<DecisionTrace>> evaluateInNewContextWithTrace(final DecisionRequest request, final Map<AttributeFqn, AttributeBag<?>> pdpIssuedAttributes)
+		{
+			assert request != null;
+			final EvaluationContext evalCtx = newEvaluationContext(request, pdpIssuedAttributes);
+			/*
+			 * Replaces the engine-level listener (if any) in this context, which is why events are forwarded to it
+			 */
+			final DecisionTraceRecorder traceRecorder = new DecisionTraceRecorder(Optional.ofNullable(policyEvaluationListener));
+			evalCtx.putListener(PolicyEvaluationListener.class, traceRecorder);
+			final DecisionResult result = rootPolicyEvaluator.findAndEvaluate(evalCtx);
+			return new SimpleImmutableEntry<>(result, Optional.of(traceRecorder.getTrace()));
+		}
+
+		/**
+		 * Evaluates an Individual Decision Request partially, i.e. with attributes of some categories unknown, in a new request context. The decision cache (if any) is bypassed.
+		 *
+		 * @param request
+		 *            individual decision request with known attributes only
+		 * @param pdpIssuedAttributes
+		 *            PDP-issued attributes (standard environment attributes)
+		 * @param unknownAttributeCategories
+		 *            categories of unknown attributes
+		 * @return partial decision
+		 */
+		protected final PartialDecision evaluatePartiallyInNewContext(final DecisionRequest request, final Map<AttributeFqn, AttributeBag<?>> pdpIssuedAttributes,
+				final Set<String> unknownAttributeCategories)
+		{
+			assert request != null && unknownAttributeCategories != null;
+			final EvaluationContext evalCtx = newEvaluationContext(request, pdpIssuedAttributes, unknownAttributeCategories);
+			/*
+			 * Replaces the engine-level listener (if any) in this context, which is why events are forwarded to it
+			 */
+			final PartialEvaluationRecorder recorder = new PartialEvaluationRecorder(unknownAttributeCategories, Optional.ofNullable(policyEvaluationListener));
+			evalCtx.putListener(PolicyEvaluationListener.class, recorder);
+			final DecisionResult result = rootPolicyEvaluator.findAndEvaluate(evalCtx);
+			return recorder.getPartialDecision(result);
+		}
+
 		/**
 		 * <p>
 		 * Evaluate Individual Decision Request in an existing request context
@@ -418,19 +535,23 @@ public final class BasePdpEngine implements CloseablePdpEngine
 	{
 		private static final Logger LOGGER = LoggerFactory.getLogger(NonCachingIndividualDecisionRequestEvaluator.class);
 
+		private final EvaluationTracer tracer = EvaluationTracers.getInstance(LOGGER);
+
 		private static final RuntimeException NULL_INDIVIDUAL_DECISION_REQUEST_EXCEPTION = new RuntimeException(
 				"One of the individual decision requests returned by the request filter is invalid (null).");
 
-		private NonCachingIndividualDecisionRequestEvaluator(final RootPolicyEvaluator rootPolicyEvaluator, final StandardEnvironmentAttributeSource stdEnvAttributeSource)
+		private NonCachingIndividualDecisionRequestEvaluator(final RootPolicyEvaluator rootPolicyEvaluator, final StandardEnvironmentAttributeSource stdEnvAttributeSource,
+				final Optional<PolicyEvaluationListener> policyEvaluationListener, final Optional<PdpEngineMetrics> metrics, final AttributeFqnSlots attributeFqnSlots,
+				final CommonSubexpressions commonSubexpressions)
 		{
-			super(rootPolicyEvaluator, stdEnvAttributeSource);
+			super(rootPolicyEvaluator, stdEnvAttributeSource, policyEvaluationListener, metrics, attributeFqnSlots, commonSubexpressions);
 		}
 
 		@Override
 		protected DecisionResult evaluate(DecisionRequest request, StandardEnvironmentAttributeIssuer pdpStdEnvAttributeIssuer)
 		{
 			assert request != null;
-			LOGGER.debug("Evaluating Individual Decision Request: {}", request);
+			tracer.trace("Evaluating Individual Decision Request: {}", request);
 			return evaluateInNewContext(request, pdpStdEnvAttributeIssuer.get());
 		}
 
@@ -462,15 +583,18 @@ public final class BasePdpEngine implements CloseablePdpEngine
 	{
 		private static final Logger LOGGER = LoggerFactory.getLogger(IndividualRequestEvaluatorWithCacheIgnoringEvaluationContext.class);
 
+		private final EvaluationTracer tracer = EvaluationTracers.getInstance(LOGGER);
+
 		private static final IndeterminateEvaluationException INDETERMINATE_EVALUATION_EXCEPTION = new IndeterminateEvaluationException("Internal error in decision cache: null result",
 				XacmlStatusCode.PROCESSING_ERROR.value());
 
 		private final DecisionCache decisionCache;
 
 		private IndividualRequestEvaluatorWithCacheIgnoringEvaluationContext(final RootPolicyEvaluator rootPolicyEvaluator, final StandardEnvironmentAttributeSource stdEnvAttributeSource,
-				final DecisionCache decisionCache)
+				final DecisionCache decisionCache, final Optional<PolicyEvaluationListener> policyEvaluationListener, final Optional<PdpEngineMetrics> metrics, final AttributeFqnSlots attributeFqnSlots,
+				final CommonSubexpressions commonSubexpressions)
 		{
-			super(rootPolicyEvaluator, stdEnvAttributeSource);
+			super(rootPolicyEvaluator, stdEnvAttributeSource, policyEvaluationListener, metrics, attributeFqnSlots, commonSubexpressions);
 			assert decisionCache != null;
 			this.decisionCache = decisionCache;
 		}
@@ -479,18 +603,19 @@ public final class BasePdpEngine implements CloseablePdpEngine
 		protected DecisionResult evaluate(DecisionRequest individualDecisionRequest, StandardEnvironmentAttributeIssuer pdpStdEnvAttributeIssuer)
 		{
 			assert individualDecisionRequest != null;
-			LOGGER.debug("Evaluating Individual Decision Request: {}", individualDecisionRequest);
+			tracer.trace("Evaluating Individual Decision Request: {}", individualDecisionRequest);
 			final DecisionResult cachedResult = decisionCache.get(individualDecisionRequest, null);
+			recordDecisionCacheLookup(cachedResult != null);
 			if (cachedResult == null)
 			{
-				LOGGER.debug("No result found in cache for Individual Decision Request: {}. Computing new result from policy evaluation...", individualDecisionRequest);
+				tracer.trace("No result found in cache for Individual Decision Request: {}. Computing new result from policy evaluation...", individualDecisionRequest);
 				final DecisionResult newResult = evaluateInNewContext(individualDecisionRequest, pdpStdEnvAttributeIssuer.get());
-				LOGGER.debug("Caching new Result for Individual Decision Request: {} -> {}", individualDecisionRequest, newResult);
+				tracer.trace("Caching new Result for Individual Decision Request: {} -> {}", individualDecisionRequest, newResult);
 				decisionCache.put(individualDecisionRequest, newResult, null);
 				return newResult;
 			}
 
-			LOGGER.debug("Result found in cache for Individual Decision Request: {} -> {}", individualDecisionRequest, cachedResult);
+			tracer.trace("Result found in cache for Individual Decision Request: {} -> {}", individualDecisionRequest, cachedResult);
 			return cachedResult;
 		}
 
@@ -516,23 +641,24 @@ public final class BasePdpEngine implements CloseablePdpEngine
 			final Map<INDIVIDUAL_DECISION_REQ_T, DecisionResult> newResultsByRequest = HashCollections.newUpdatableMap(individualDecisionRequests.size());
 			for (final INDIVIDUAL_DECISION_REQ_T individualDecisionRequest : individualDecisionRequests)
 			{
-				LOGGER.debug("Evaluating Individual Decision Request: {}", individualDecisionRequest);
+				tracer.trace("Evaluating Individual Decision Request: {}", individualDecisionRequest);
 				final DecisionResult finalResult;
 				/*
 				 * Check whether there is any decision result in cache for this request
 				 */
 				final DecisionResult cachedResult = cachedResultsByRequest.get(individualDecisionRequest);
+				recordDecisionCacheLookup(cachedResult != null);
 				if (cachedResult == null)
 				{
-					LOGGER.debug("No result found in cache for Individual Decision Request: {}. Computing new result from policy evaluation...", individualDecisionRequest);
+					tracer.trace("No result found in cache for Individual Decision Request: {}. Computing new result from policy evaluation...", individualDecisionRequest);
 					finalResult = evaluateInNewContext(individualDecisionRequest, pdpIssuedAttributes);
-					LOGGER.debug("Caching new Result for Individual Decision Request: {} -> {}", individualDecisionRequest, finalResult);
+					tracer.trace("Caching new Result for Individual Decision Request: {} -> {}", individualDecisionRequest, finalResult);
 					newResultsByRequest.put(individualDecisionRequest, finalResult);
 				}
 				else
 				{
 
-					LOGGER.debug("Result found in cache for Individual Decision Request: {} -> {}", individualDecisionRequest, cachedResult);
+					tracer.trace("Result found in cache for Individual Decision Request: {} -> {}", individualDecisionRequest, cachedResult);
 					finalResult = cachedResult;
 				}
 
@@ -553,12 +679,15 @@ public final class BasePdpEngine implements CloseablePdpEngine
 	{
 		private static final Logger LOGGER = LoggerFactory.getLogger(IndividualRequestEvaluatorWithCacheUsingEvaluationContext.class);
 
+		private final EvaluationTracer tracer = EvaluationTracers.getInstance(LOGGER);
+
 		private final DecisionCache decisionCache;
 
 		private IndividualRequestEvaluatorWithCacheUsingEvaluationContext(final RootPolicyEvaluator rootPolicyEvaluator, final StandardEnvironmentAttributeSource validStdEnvAttrSrc,
-				final DecisionCache decisionCache)
+				final DecisionCache decisionCache, final Optional<PolicyEvaluationListener> policyEvaluationListener, final Optional<PdpEngineMetrics> metrics, final AttributeFqnSlots attributeFqnSlots,
+				final CommonSubexpressions commonSubexpressions)
 		{
-			super(rootPolicyEvaluator, validStdEnvAttrSrc);
+			super(rootPolicyEvaluator, validStdEnvAttrSrc, policyEvaluationListener, metrics, attributeFqnSlots, commonSubexpressions);
 			assert decisionCache != null;
 			this.decisionCache = decisionCache;
 		}
@@ -567,22 +696,23 @@ public final class BasePdpEngine implements CloseablePdpEngine
 				final Map<AttributeFqn, AttributeBag<?>> pdpIssuedAttributes)
 		{
 			assert individualDecisionRequest != null;
-			LOGGER.debug("Evaluating Individual Decision Request: {}", individualDecisionRequest);
+			tracer.trace("Evaluating Individual Decision Request: {}", individualDecisionRequest);
 			/*
 			 * Check whether there is any decision result in cache for this request
 			 */
 			final EvaluationContext evalCtx = newEvaluationContext(individualDecisionRequest, pdpIssuedAttributes);
 			final DecisionResult cachedResult = decisionCache.get(individualDecisionRequest, evalCtx);
+			recordDecisionCacheLookup(cachedResult != null);
 			if (cachedResult == null)
 			{
-				LOGGER.debug("No result found in cache for Individual Decision Request: {}. Computing new result from policy evaluation...", individualDecisionRequest);
+				tracer.trace("No result found in cache for Individual Decision Request: {}. Computing new result from policy evaluation...", individualDecisionRequest);
 				final DecisionResult finalResult = evaluateReusingContext(evalCtx);
-				LOGGER.debug("Caching new Result for Individual Decision Request: {} -> {}", individualDecisionRequest, finalResult);
+				tracer.trace("Caching new Result for Individual Decision Request: {} -> {}", individualDecisionRequest, finalResult);
 				decisionCache.put(individualDecisionRequest, finalResult, evalCtx);
 				return finalResult;
 			}
 
-			LOGGER.debug("Result found in cache for Individual Decision Request: {} -> {}", individualDecisionRequest, cachedResult);
+			tracer.trace("Result found in cache for Individual Decision Request: {} -> {}", individualDecisionRequest, cachedResult);
 			return cachedResult;
 		}
 
@@ -615,36 +745,85 @@ public final class BasePdpEngine implements CloseablePdpEngine
 
 	}
 
+	/**
+	 * Options of {@link BasePdpEngine} that are not part of the {@link PdpEngineConfiguration}, created with {@link Options.Builder}. PDP engine metrics are not options of the engine, since they are
+	 * also updated by the Attribute Providers, which are created with the configuration (see {@link PdpEngineConfiguration#getMetrics()}).
+	 */
+	public static final class Options
+	{
+		/**
+		 * Builder of {@link Options}
+		 */
+		public static final class Builder
+		{
+			// null if none
+			private PolicyEvaluationListener policyEvaluationListener = null;
+
+			/**
+			 * Sets the Policy/Rule evaluation listener registered in the evaluation context of every request, e.g. {@link PolicyEvaluationMetricsListener} to collect evaluation metrics
+			 * 
+			 * @param listener
+			 *            Policy/Rule evaluation listener (must be thread-safe); null if none (default)
+			 * @return this builder
+			 */
+			public Builder setPolicyEvaluationListener(final PolicyEvaluationListener listener)
+			{
+				this.policyEvaluationListener = listener;
+				return this;
+			}
+
+			/**
+			 * Creates the options
+			 * 
+			 * @return PDP engine options
+			 */
+			public Options build()
+			{
+				return new Options(Optional.ofNullable(policyEvaluationListener));
+			}
+		}
+
+		/**
+		 * Default options: no Policy/Rule evaluation listener
+		 */
+		public static final Options DEFAULT = new Builder().build();
+
+		private final Optional<PolicyEvaluationListener> policyEvaluationListener;
+
+		private Options(final Optional<PolicyEvaluationListener> policyEvaluationListener)
+		{
+			this.policyEvaluationListener = policyEvaluationListener;
+		}
+
+		/**
+		 * Get the Policy/Rule evaluation listener
+		 * 
+		 * @return Policy/Rule evaluation listener registered in the evaluation context of every request, if any
+		 */
+		public Optional<PolicyEvaluationListener> getPolicyEvaluationListener()
+		{
+			return policyEvaluationListener;
+		}
+	}
+
 	private final boolean strictAttributeIssuerMatch;
 	private final IndividualDecisionRequestEvaluator individualReqEvaluator;
 	private final DecisionCache decisionCache;
 	private final RootPolicyEvaluator rootPolicyEvaluator;
 	private final StandardEnvironmentAttributeIssuer pdpStdEnvAttributeIssuer;
+	private final Optional<Set<String>> xpathContentCategories;
+	// null if none
+	private final PdpEngineMetrics metrics;
 
-	/**
-	 * Constructs a new PDP engine with the given configuration information.
-	 *
-	 * @param xacmlExpressionFactory
-	 *            XACML Expression parser/factory - mandatory
-	 * @param rootPolicyProvider
-	 *            Root Policy Provider - mandatory
-	 * @param decisionCache
-	 *            (optional) decision response cache
-	 * @param strictAttributeIssuerMatch
-	 *            true iff strict Attribute Issuer matching is enabled, i.e. AttributeDesignators without Issuer only match request Attributes without Issuer (and same AttributeId, Category...). This
-	 *            mode is not fully compliant with XACML 3.0, §5.29, in the case that the Issuer is indeed not present on a AttributeDesignator; but it performs better and is recommended when all
-	 *            AttributeDesignators have an Issuer (best practice). Reminder: the XACML 3.0 specification for AttributeDesignator evaluation (5.29) says: "If the Issuer is not present in the
-	 *            attribute designator, then the matching of the attribute to the named attribute SHALL be governed by AttributeId and DataType attributes alone."
-	 * @param stdEnvAttributeSource
-	 *            (mandatory) source for standard environment current-time/current-date/current-dateTime attribute values (request or PDP, etc.).
-	 * @throws java.lang.IllegalArgumentException
-	 *             if one of the mandatory arguments is null ({@code xacmlExpressionFactory}, {@code rootPolicyProvider})
-	 * @throws java.io.IOException
-	 *             error closing the root policy Provider when static resolution is to be used
-	 */
-	public BasePdpEngine(final ExpressionFactory xacmlExpressionFactory, final RootPolicyProvider rootPolicyProvider, final boolean strictAttributeIssuerMatch,
-			final StandardEnvironmentAttributeSource stdEnvAttributeSource, final Optional<DecisionCache> decisionCache) throws IllegalArgumentException, IOException
+	private BasePdpEngine(final ExpressionFactory xacmlExpressionFactory, final RootPolicyProvider rootPolicyProvider, final boolean strictAttributeIssuerMatch,
+			final StandardEnvironmentAttributeSource stdEnvAttributeSource, final Optional<DecisionCache> decisionCache, final Optional<PdpEngineMetrics> metrics, final Options options)
+			throws IllegalArgumentException, IOException
 	{
+		if (options == null)
+		{
+			throw NULL_OPTIONS_ARGUMENT_EXCEPTION;
+		}
+
 		final RootPolicyEvaluators.Base candidateRootPolicyEvaluator = new RootPolicyEvaluators.Base(xacmlExpressionFactory, rootPolicyProvider);
 		// Use static resolution if possible
 		final RootPolicyEvaluator staticRootPolicyEvaluator = candidateRootPolicyEvaluator.toStatic();
@@ -657,24 +836,77 @@ public final class BasePdpEngine implements CloseablePdpEngine
 			this.rootPolicyEvaluator = staticRootPolicyEvaluator;
 		}
 
+		/*
+		 * Content categories used by the policies are known only if all policies have been loaded at this point (static resolution)
+		 */
+		this.xpathContentCategories = staticRootPolicyEvaluator != null && xacmlExpressionFactory instanceof DepthLimitingExpressionFactory
+				? ((DepthLimitingExpressionFactory) xacmlExpressionFactory).getXPathContentCategories() : Optional.empty();
+
 		this.strictAttributeIssuerMatch = strictAttributeIssuerMatch;
 
 		Preconditions.checkNotNull(stdEnvAttributeSource, NULL_STD_ENV_ATTRIBUTE_SOURCE_ARG);
 		this.pdpStdEnvAttributeIssuer = stdEnvAttributeSource == StandardEnvironmentAttributeSource.REQUEST_ONLY ? NULL_STD_ENV_ATTRIBUTE_ISSUER : DEFAULT_TZ_BASED_STD_ENV_ATTRIBUTE_ISSUER;
 
+		/*
+		 * Attribute slots and common subexpressions are scoped to the expression factory that compiled the policies
+		 */
+		final AttributeFqnSlots attributeFqnSlots;
+		final CommonSubexpressions commonSubexpressions;
+		if (xacmlExpressionFactory instanceof DepthLimitingExpressionFactory)
+		{
+			attributeFqnSlots = ((DepthLimitingExpressionFactory) xacmlExpressionFactory).getAttributeFqnSlots();
+			commonSubexpressions = ((DepthLimitingExpressionFactory) xacmlExpressionFactory).getCommonSubexpressions();
+		}
+		else
+		{
+			attributeFqnSlots = null;
+			commonSubexpressions = null;
+		}
+
+		this.metrics = metrics.orElse(null);
+		final Optional<PolicyEvaluationListener> policyEvaluationListener = options.getPolicyEvaluationListener();
 		this.decisionCache = decisionCache.orElse(null);
 		if (this.decisionCache == null)
 		{
-			this.individualReqEvaluator = new NonCachingIndividualDecisionRequestEvaluator(rootPolicyEvaluator, stdEnvAttributeSource);
+			this.individualReqEvaluator = new NonCachingIndividualDecisionRequestEvaluator(rootPolicyEvaluator, stdEnvAttributeSource, policyEvaluationListener, metrics, attributeFqnSlots, commonSubexpressions);
 		}
 		else
 		{
 			this.individualReqEvaluator = this.decisionCache.isEvaluationContextRequired()
-					? new IndividualRequestEvaluatorWithCacheUsingEvaluationContext(rootPolicyEvaluator, stdEnvAttributeSource, this.decisionCache)
-					: new IndividualRequestEvaluatorWithCacheIgnoringEvaluationContext(rootPolicyEvaluator, stdEnvAttributeSource, this.decisionCache);
+					? new IndividualRequestEvaluatorWithCacheUsingEvaluationContext(rootPolicyEvaluator, stdEnvAttributeSource, this.decisionCache, policyEvaluationListener, metrics,
+							attributeFqnSlots, commonSubexpressions)
+					: new IndividualRequestEvaluatorWithCacheIgnoringEvaluationContext(rootPolicyEvaluator, stdEnvAttributeSource, this.decisionCache, policyEvaluationListener, metrics,
+							attributeFqnSlots, commonSubexpressions);
 		}
 	}
 
+	/**
+	 * Constructs a new PDP engine with the given configuration information.
+	 *
+	 * @param xacmlExpressionFactory
+	 *            XACML Expression parser/factory - mandatory
+	 * @param rootPolicyProvider
+	 *            Root Policy Provider - mandatory
+	 * @param decisionCache
+	 *            (optional) decision response cache
+	 * @param strictAttributeIssuerMatch
+	 *            true iff strict Attribute Issuer matching is enabled, i.e. AttributeDesignators without Issuer only match request Attributes without Issuer (and same AttributeId, Category...). This
+	 *            mode is not fully compliant with XACML 3.0, §5.29, in the case that the Issuer is indeed not present on a AttributeDesignator; but it performs better and is recommended when all
+	 *            AttributeDesignators have an Issuer (best practice). Reminder: the XACML 3.0 specification for AttributeDesignator evaluation (5.29) says: "If the Issuer is not present in the
+	 *            attribute designator, then the matching of the attribute to the named attribute SHALL be governed by AttributeId and DataType attributes alone."
+	 * @param stdEnvAttributeSource
+	 *            (mandatory) source for standard environment current-time/current-date/current-dateTime attribute values (request or PDP, etc.).
+	 * @throws java.lang.IllegalArgumentException
+	 *             if one of the mandatory arguments is null ({@code xacmlExpressionFactory}, {@code rootPolicyProvider})
+	 * @throws java.io.IOException
+	 *             error closing the root policy Provider when static resolution is to be used
+	 */
+	public BasePdpEngine(final ExpressionFactory xacmlExpressionFactory, final RootPolicyProvider rootPolicyProvider, final boolean strictAttributeIssuerMatch,
+			final StandardEnvironmentAttributeSource stdEnvAttributeSource, final Optional<DecisionCache> decisionCache) throws IllegalArgumentException, IOException
+	{
+		this(xacmlExpressionFactory, rootPolicyProvider, strictAttributeIssuerMatch, stdEnvAttributeSource, decisionCache, Optional.empty(), Options.DEFAULT);
+	}
+
 	/**
 	 * Constructs a new PDP engine with the given configuration information.
 	 *
@@ -687,9 +919,27 @@ public final class BasePdpEngine implements CloseablePdpEngine
 	 *             error closing {@code configuration.getRootPolicyProvider()} when static resolution is to be used
 	 */
 	public BasePdpEngine(final PdpEngineConfiguration configuration) throws IllegalArgumentException, IOException
+	{
+		this(configuration, Options.DEFAULT);
+	}
+
+	/**
+	 * Constructs a new PDP engine with the given configuration information and options. The engine updates the configuration's PDP engine metrics, if any.
+	 *
+	 * @param configuration
+	 *            PDP engine configuration
+	 * @param options
+	 *            PDP engine options, e.g. {@code new BasePdpEngine.Options.Builder().setPolicyEvaluationListener(listener).build()}
+	 *
+	 * @throws java.lang.IllegalArgumentException
+	 *             if {@code configuration.getXacmlExpressionFactory() == null || configuration.getRootPolicyProvider() == null || options == null}
+	 * @throws java.io.IOException
+	 *             error closing {@code configuration.getRootPolicyProvider()} when static resolution is to be used
+	 */
+	public BasePdpEngine(final PdpEngineConfiguration configuration, final Options options) throws IllegalArgumentException, IOException
 	{
 		this(configuration.getXacmlExpressionFactory(), configuration.getRootPolicyProvider(), configuration.isStrictAttributeIssuerMatchEnabled(), configuration.getStdEnvAttributeSource(),
-				configuration.getDecisionCache());
+				configuration.getDecisionCache(), configuration.getMetrics(), options);
 	}
 
 	@Override
@@ -698,6 +948,44 @@ public final class BasePdpEngine implements CloseablePdpEngine
 		return this.rootPolicyEvaluator.getStaticApplicablePolicies();
 	}
 
+	/**
+	 * Get the named attributes that may be required to evaluate the root policy, i.e. the union of AttributeDesignators (and AttributeSelectors' ContextSelectorIds) found in Targets, Conditions,
+	 * VariableDefinitions and Obligation/Advice expressions of the root policy and all (directly or indirectly) referenced policies, as determined by static analysis at initialization time. PEPs may
+	 * use it to send only the attributes that matter, and attribute providers to fetch only those.
+	 *
+	 * @return required attributes; empty if the root policy is not statically resolved
+	 */
+	public Optional<Set<AttributeFqn>> getRequiredAttributes()
+	{
+		final FlattenedPolicyTree staticApplicablePolicies = this.rootPolicyEvaluator.getStaticApplicablePolicies();
+		return staticApplicablePolicies == null ? Optional.empty() : staticApplicablePolicies.getRequiredAttributes();
+	}
+
+	/**
+	 * Get the named attributes that may be required to evaluate a given policy among the {@link #getApplicablePolicies()} (including the policies it references directly or indirectly)
+	 *
+	 * @param policy
+	 *            applicable policy
+	 * @return required attributes; empty if the root policy is not statically resolved or {@code policy} is not applicable
+	 */
+	public Optional<Set<AttributeFqn>> getRequiredAttributes(final PrimaryPolicyMetadata policy)
+	{
+		final FlattenedPolicyTree staticApplicablePolicies = this.rootPolicyEvaluator.getStaticApplicablePolicies();
+		return staticApplicablePolicies == null ? Optional.empty() : staticApplicablePolicies.getRequiredAttributes(policy);
+	}
+
+	/**
+	 * Get the attribute categories whose Content (Attributes/Content in XACML) may be used by the policies for XPath evaluation (AttributeSelectors, xpathExpression values), as determined by static
+	 * analysis at initialization time. Request preprocessors may skip parsing the Content of any other category.
+	 *
+	 * @return Content categories (empty set if no Content is used at all); or empty if not known statically, e.g. the root policy is not statically resolved or some policy uses an
+	 *         AttributeDesignator of xpathExpression datatype.
+	 */
+	public Optional<Set<String>> getXPathContentCategories()
+	{
+		return this.xpathContentCategories;
+	}
+
 	@Override
 	public DecisionRequestBuilder<?> newRequestBuilder(final int expectedNumOfAttributeCategories, final int expectedTotalNumOfAttributes)
 	{
@@ -721,7 +1009,80 @@ public final class BasePdpEngine implements CloseablePdpEngine
 		 * "If values for these attributes are not present in the decision request, then their values MUST be supplied by the context handler" . These current date/time values must be set here once
 		 * before an individual request is evaluated to make sure it uses the same value for current-time/current-date/current-dateTime during the entire evaluation, if they use the one from PDP.
 		 */
-		return individualReqEvaluator.evaluate(individualDecisionRequest, this.pdpStdEnvAttributeIssuer);
+		if (metrics == null)
+		{
+			return individualReqEvaluator.evaluate(individualDecisionRequest, this.pdpStdEnvAttributeIssuer);
+		}
+
+		final long startNanos = System.nanoTime();
+		final DecisionResult result = individualReqEvaluator.evaluate(individualDecisionRequest, this.pdpStdEnvAttributeIssuer);
+		metrics.recordIndividualRequest(result, System.nanoTime() - startNanos);
+		return result;
+	}
+
+	/**
+	 * Evaluates an individual decision request and captures the decision trace (policies and rules evaluated, Target/Condition results, attribute values used) if {@code traceFilter} accepts the
+	 * request, for example if the request is flagged for debugging or sampled, e.g. {@code request -> ThreadLocalRandom.current().nextInt(1000) == 0} for 0.1% of requests. Requests not
+	 * accepted by the filter are evaluated like with {@link #evaluate(DecisionRequest)}, without any tracing overhead, whereas traced requests bypass the decision cache (if any).
+	 *
+	 * @param individualDecisionRequest
+	 *            individual decision request
+	 * @param traceFilter
+	 *            selects the requests to be traced
+	 * @return decision result, and decision trace if and only if the request is accepted by {@code traceFilter}
+	 */
+	public Entry<DecisionResult, Optional<DecisionTrace>> evaluate(final DecisionRequest individualDecisionRequest, final Predicate<? super DecisionRequest> traceFilter)
+	{
+		if (individualDecisionRequest == null)
+		{
+			throw NULL_REQUEST_ARGUMENT_EXCEPTION;
+		}
+
+		Preconditions.checkNotNull(traceFilter, NULL_TRACE_FILTER_ARG);
+
+		if (!traceFilter.test(individualDecisionRequest))
+		{
+			return new SimpleImmutableEntry<>(evaluate(individualDecisionRequest), Optional.empty());
+		}
+
+		final long startNanos = metrics == null ? 0 : System.nanoTime();
+		final Entry<DecisionResult, Optional<DecisionTrace>> tracedResult = individualReqEvaluator.evaluateInNewContextWithTrace(individualDecisionRequest, this.pdpStdEnvAttributeIssuer.get());
+		if (metrics != null)
+		{
+			metrics.recordIndividualRequest(tracedResult.getKey(), System.nanoTime() - startNanos);
+		}
+
+		return tracedResult;
+	}
+
+	/**
+	 * Evaluates a decision request partially, i.e. with the attributes of some categories unknown, typically with subject/action attributes known and resource attributes unknown, in order to get the
+	 * decision for all resources at once: either a definite decision (Permit/Deny/NotApplicable) that does not depend on the unknown attributes, or a residual, i.e. the Policy(Set) Targets and Rules
+	 * whose evaluation depends on the unknown attributes, with the enclosing Policy(Set)s' combining algorithms and skipped elements, which the caller may turn into a filter on resources (e.g. database
+	 * query) if {@link PartialDecision#isFilterable()}, instead of requesting a decision per resource. Attributes of the unknown categories that are not in the request are neither requested from
+	 * attribute providers. The decision cache (if any) is bypassed, and so are PolicySet flattening, the first-applicable Rule result cache and Variable/subexpression result caching, so that every
+	 * element depending on unknown attributes is in the residual.
+	 * <p>
+	 * Constant sub-expressions are already pre-evaluated at policy initialization (see {@link org.ow2.authzforce.core.pdp.api.expression.Expression#getValue()}), so the residual Rules are the ones
+	 * actually depending on the request.
+	 *
+	 * @param knownAttributesRequest
+	 *            individual decision request with the known attributes
+	 * @param unknownAttributeCategories
+	 *            categories of unknown attributes, e.g. {@code urn:oasis:names:tc:xacml:3.0:attribute-category:resource}
+	 * @return partial decision
+	 * @throws IllegalArgumentException
+	 *             if {@code knownAttributesRequest == null || unknownAttributeCategories == null}
+	 */
+	public PartialDecision evaluatePartially(final DecisionRequest knownAttributesRequest, final Set<String> unknownAttributeCategories) throws IllegalArgumentException
+	{
+		if (knownAttributesRequest == null)
+		{
+			throw NULL_REQUEST_ARGUMENT_EXCEPTION;
+		}
+
+		Preconditions.checkArgument(unknownAttributeCategories != null, NULL_UNKNOWN_ATTRIBUTE_CATEGORIES_ARG);
+		return individualReqEvaluator.evaluatePartiallyInNewContext(knownAttributesRequest, this.pdpStdEnvAttributeIssuer.get(), ImmutableSet.copyOf(unknownAttributeCategories));
 	}
 
 	/** {@inheritDoc} */
@@ -739,7 +1100,15 @@ public final class BasePdpEngine implements CloseablePdpEngine
 		 * "If values for these attributes are not present in the decision request, then their values MUST be supplied by the context handler" . These current date/time values must be set here once
 		 * before every individual request is evaluated to make sure they all use the same value for current-time/current-date/current-dateTime, if they use the one from PDP.
 		 */
-		return individualReqEvaluator.evaluate(individualDecisionRequests, this.pdpStdEnvAttributeIssuer);
+		if (metrics == null)
+		{
+			return individualReqEvaluator.evaluate(individualDecisionRequests, this.pdpStdEnvAttributeIssuer);
+		}
+
+		final long startNanos = System.nanoTime();
+		final Collection<Entry<INDIVIDUAL_DECISION_REQ_T, ? extends DecisionResult>> resultsByRequest = individualReqEvaluator.evaluate(individualDecisionRequests, this.pdpStdEnvAttributeIssuer);
+		metrics.recordMultipleRequest(resultsByRequest, System.nanoTime() - startNanos);
+		return resultsByRequest;
 	}
 
 	/** {@inheritDoc} */
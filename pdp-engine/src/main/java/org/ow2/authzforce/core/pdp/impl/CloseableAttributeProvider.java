@@ -21,6 +21,7 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 
 import org.ow2.authzforce.core.pdp.api.AttributeFqn;
@@ -115,15 +116,15 @@ public final class CloseableAttributeProvider extends ModularAttributeProvider i
 	private final Set<ModuleAdapter> moduleClosers;
 
 	private CloseableAttributeProvider(final ImmutableListMultimap<AttributeFqn, NamedAttributeProvider> modulesByAttributeId, final Set<ModuleAdapter> moduleClosers,
-	        final boolean strictAttributeIssuerMatch)
+	        final boolean strictAttributeIssuerMatch, final Optional<PdpEngineMetrics> metrics)
 	{
-		super(modulesByAttributeId, null, strictAttributeIssuerMatch);
+		super(modulesByAttributeId, null, strictAttributeIssuerMatch, metrics);
 		assert moduleClosers != null;
 		this.moduleClosers = moduleClosers;
 	}
 
 	private static final CloseableAttributeProvider EVALUATION_CONTEXT_ONLY_SCOPED_CLOSEABLE_ATTRIBUTE_PROVIDER = new CloseableAttributeProvider(ImmutableListMultimap.of(),
-	        Collections.<ModuleAdapter>emptySet(), true);
+	        Collections.<ModuleAdapter>emptySet(), true, Optional.empty());
 
 	/**
 	 * Instantiates attribute Provider that tries to find attribute values in evaluation context, then, if not there, query the {@code module} providing the requested attribute ID, if any.
@@ -146,6 +147,33 @@ public final class CloseableAttributeProvider extends ModularAttributeProvider i
 	public static CloseableAttributeProvider getInstance(final List<CloseableNamedAttributeProvider.DependencyAwareFactory> attributeProviderFactories,
 	        final AttributeValueFactoryRegistry attributeFactory, final boolean strictAttributeIssuerMatch) throws IOException
 	{
+		return getInstance(attributeProviderFactories, attributeFactory, strictAttributeIssuerMatch, Optional.empty());
+	}
+
+	/**
+	 * Instantiates attribute Provider that tries to find attribute values in evaluation context, then, if not there, query the {@code module} providing the requested attribute ID, if any; and
+	 * records the calls to the modules in PDP engine metrics.
+	 *
+	 * @param attributeFactory
+	 *            (mandatory) attribute value factory
+	 * @param attributeProviderFactories
+	 *            Attribute Provider factories (Attribute Providers resolve values of attributes absent from the request context). Empty if none.
+	 * @param strictAttributeIssuerMatch
+	 *            true iff it is required that AttributeDesignator without Issuer only match request Attributes without Issuer (see
+	 *            {@link #getInstance(List, AttributeValueFactoryRegistry, boolean)})
+	 * @param metrics
+	 *            (optional) PDP engine metrics where calls to Attribute Provider modules (made to resolve AttributeDesignators) are recorded. Calls made by modules to resolve their own dependencies
+	 *            are part of the enclosing call, therefore not recorded separately.
+	 * @return instance of this class
+	 * @throws java.lang.IllegalArgumentException
+	 *             If any Attribute Provider created from {@code attributeProviderFactories} does not provide any attribute.
+	 * @throws java.io.IOException
+	 *             error closing the Attribute Providers created from {@code attributeProviderFactories}, when a {@link IllegalArgumentException} is raised
+	 */
+	public static CloseableAttributeProvider getInstance(final List<CloseableNamedAttributeProvider.DependencyAwareFactory> attributeProviderFactories,
+	        final AttributeValueFactoryRegistry attributeFactory, final boolean strictAttributeIssuerMatch, final Optional<PdpEngineMetrics> metrics) throws IOException
+	{
+		assert metrics != null;
 		if (attributeProviderFactories == null || attributeProviderFactories.isEmpty())
 		{
 			return EVALUATION_CONTEXT_ONLY_SCOPED_CLOSEABLE_ATTRIBUTE_PROVIDER;
@@ -200,7 +228,7 @@ public final class CloseableAttributeProvider extends ModularAttributeProvider i
 			return EVALUATION_CONTEXT_ONLY_SCOPED_CLOSEABLE_ATTRIBUTE_PROVIDER;
 		}
 
-		return new CloseableAttributeProvider(ImmutableListMultimap.copyOf(modulesByAttributeId), HashCollections.newImmutableSet(mutableModuleCloserSet), strictAttributeIssuerMatch);
+		return new CloseableAttributeProvider(ImmutableListMultimap.copyOf(modulesByAttributeId), HashCollections.newImmutableSet(mutableModuleCloserSet), strictAttributeIssuerMatch, metrics);
 	}
 
 	/** {@inheritDoc} */
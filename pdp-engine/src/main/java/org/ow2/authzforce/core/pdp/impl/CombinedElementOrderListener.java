@@ -0,0 +1,74 @@
+/**
+ * Copyright 2012-2018 Thales Services SAS.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.ow2.authzforce.core.pdp.api.AttributeFqn;
+import org.ow2.authzforce.core.pdp.api.EvaluationContext;
+import org.ow2.authzforce.core.pdp.api.expression.AttributeSelectorExpression;
+import org.ow2.authzforce.core.pdp.api.policy.PrimaryPolicyMetadata;
+import org.ow2.authzforce.core.pdp.api.value.AttributeBag;
+import org.ow2.authzforce.core.pdp.api.value.Bag;
+import org.ow2.authzforce.core.pdp.api.value.XPathValue;
+
+/**
+ * Listener of changes of the evaluation order of combined elements by adaptive combining algorithm evaluators (deny-unless-permit, permit-unless-deny), registered in every new
+ * {@link EvaluationContext} with {@code context.putListener(CombinedElementOrderListener.class, listener)} by {@link BasePdpEngine} if it has an engine-level {@link PolicyEvaluationListener}, so
+ * that the new order is always reported to the latter, even if a request-specific {@link PolicyEvaluationListener} (e.g. a decision trace recorder) replaces it in the context.
+ * <p>
+ * Attribute production/consumption events are ignored.
+ */
+public interface CombinedElementOrderListener extends EvaluationContext.Listener
+{
+	/**
+	 * Called when an adaptive combining algorithm evaluator changes the evaluation order of its combined elements
+	 *
+	 * @param enclosingPolicy
+	 *            Policy(Set) whose combining algorithm evaluator changed the evaluation order of its combined elements
+	 * @param combinedElementsInEvaluationOrder
+	 *            combined elements (Policies, PolicySets or Rules) in the new evaluation order
+	 */
+	void combinedElementsReordered(PrimaryPolicyMetadata enclosingPolicy, List<String> combinedElementsInEvaluationOrder);
+
+	@Override
+	default void namedAttributeValueProduced(final AttributeFqn attributeFQN, final AttributeBag<?> value)
+	{
+		// ignored
+	}
+
+	@Override
+	default void namedAttributeValueConsumed(final AttributeFqn attributeFQN, final AttributeBag<?> value)
+	{
+		// ignored
+	}
+
+	@Override
+	default void attributeSelectorResultProduced(final AttributeSelectorExpression<?> attributeSelector, final Optional<AttributeBag<XPathValue>> contextSelectorValue, final Bag<?> result)
+	{
+		// ignored
+	}
+
+	@Override
+	default void attributeSelectorResultConsumed(final AttributeSelectorExpression<?> attributeSelector, final Bag<?> result)
+	{
+		// ignored
+	}
+
+}
@@ -0,0 +1,81 @@
+/**
+ * Copyright 2012-2018 Thales Services SAS.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
+import net.sf.saxon.s9api.SaxonApiException;
+import net.sf.saxon.s9api.XPathCompiler;
+import net.sf.saxon.s9api.XPathExecutable;
+
+/**
+ * Shared bounded cache of compiled XPath expressions, for XPath expressions only known at evaluation time (e.g. given by the ContextSelectorId attribute of an AttributeSelector), which tend to be the
+ * same few ones from one request to the other.
+ * <p>
+ * Compiled expressions are cached per {@link XPathCompiler}, which holds the static context of compilation, i.e. the XPath version and namespace context (from the enclosing Policy(Set)'s
+ * PolicyDefaults and namespace declarations). Therefore the cache key is equivalent to (XPath expression, namespace context, XPath version), as long as the {@link XPathCompiler} is not modified after
+ * policy initialization (which is the case in this PDP engine). Compilers are weakly referenced, so that the cache entries go away with the policies (e.g. after PDP reloading). Since
+ * {@link XPathExecutable} is immutable and thread-safe, cached instances may be used by concurrent evaluations.
+ */
+public final class CompiledXPathCache
+{
+	/**
+	 * Max number of compiled XPath expressions cached per {@link XPathCompiler}
+	 */
+	public static final int MAX_SIZE_PER_XPATH_COMPILER = 256;
+
+	private static final LoadingCache<XPathCompiler, Cache<String, XPathExecutable>> CACHES_BY_XPATH_COMPILER = CacheBuilder.newBuilder().weakKeys()
+			.build(CacheLoader.from(xPathCompiler -> CacheBuilder.newBuilder().maximumSize(MAX_SIZE_PER_XPATH_COMPILER).build()));
+
+	private CompiledXPathCache()
+	{
+		// prevent instantiation
+	}
+
+	/**
+	 * Compiles an XPath expression, or gets the result of a previous compilation of the same expression with the same compiler from the cache
+	 * 
+	 * @param xPathCompiler
+	 *            XPath compiler
+	 * @param xpathExpression
+	 *            XPath expression
+	 * @return compiled XPath expression
+	 * @throws SaxonApiException
+	 *             if {@code xpathExpression} is not a valid XPath expression for {@code xPathCompiler}
+	 */
+	public static XPathExecutable compile(final XPathCompiler xPathCompiler, final String xpathExpression) throws SaxonApiException
+	{
+		assert xPathCompiler != null && xpathExpression != null;
+		final Cache<String, XPathExecutable> cache = CACHES_BY_XPATH_COMPILER.getUnchecked(xPathCompiler);
+		final XPathExecutable cachedXPathExecutable = cache.getIfPresent(xpathExpression);
+		if (cachedXPathExecutable != null)
+		{
+			return cachedXPathExecutable;
+		}
+
+		/*
+		 * Concurrent compilations of the same expression may happen, the result is the same anyway.
+		 */
+		final XPathExecutable xPathExecutable = xPathCompiler.compile(xpathExpression);
+		cache.put(xpathExpression, xPathExecutable);
+		return xPathExecutable;
+	}
+}
@@ -0,0 +1,186 @@
+/**
+ * Copyright 2012-2018 Thales Services SAS.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.ow2.authzforce.core.pdp.api.AttributeFqn;
+import org.ow2.authzforce.core.pdp.api.AttributeSelectorId;
+import org.ow2.authzforce.core.pdp.api.policy.PrimaryPolicyMetadata;
+import org.ow2.authzforce.core.pdp.api.value.Bag;
+import org.ow2.authzforce.core.pdp.impl.PolicyEvaluationListener.ConditionResult;
+import org.ow2.authzforce.core.pdp.impl.PolicyEvaluationListener.TargetMatchResult;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.DecisionType;
+
+/**
+ * Compact trace of a decision request evaluation: Policies and Rules evaluated (in order of evaluation completion, i.e. child elements before their parent Policy(Set)) with Target/Condition results
+ * and decisions, and attribute values used for the evaluation. Captured by {@link DecisionTraceRecorder}, which disables the optimizations that would skip some elements (see
+ * {@link PolicyEvaluationListener#isFullTraceRequired()}), so that every element involved in the decision is in the trace, as declared in the policies. A Policy(Set) whose result is reused from an
+ * earlier evaluation in the same request (e.g. Policy(Set) referenced more than once) is in the trace again, marked as such (see {@link ElementEvaluation#isResultReused()}).
+ */
+public final class DecisionTrace
+{
+	/**
+	 * Evaluation of a Policy(Set) or Rule
+	 */
+	public static final class ElementEvaluation
+	{
+		private final String element;
+		private final Optional<PrimaryPolicyMetadata> enclosingPolicy;
+		private final TargetMatchResult targetResult;
+		private final Optional<ConditionResult> conditionResult;
+		private final DecisionType decision;
+		private final boolean isResultReused;
+
+		ElementEvaluation(final String element, final Optional<PrimaryPolicyMetadata> enclosingPolicy, final TargetMatchResult targetResult, final Optional<ConditionResult> conditionResult,
+				final DecisionType decision, final boolean isResultReused)
+		{
+			assert element != null && enclosingPolicy != null && targetResult != null && conditionResult != null && decision != null;
+			this.element = element;
+			this.enclosingPolicy = enclosingPolicy;
+			this.targetResult = targetResult;
+			this.conditionResult = conditionResult;
+			this.decision = decision;
+			this.isResultReused = isResultReused;
+		}
+
+		/**
+		 * Get evaluated element
+		 *
+		 * @return evaluated element, e.g. "Rule['rule1']", "PolicySet['policySet1' v1.0]"
+		 */
+		public String getElement()
+		{
+			return element;
+		}
+
+		/**
+		 * Get the Policy enclosing the evaluated Rule, since a RuleId is only unique within a Policy
+		 *
+		 * @return enclosing Policy (Rules only)
+		 */
+		public Optional<PrimaryPolicyMetadata> getEnclosingPolicy()
+		{
+			return enclosingPolicy;
+		}
+
+		/**
+		 * Get Target evaluation result
+		 *
+		 * @return Target result
+		 */
+		public TargetMatchResult getTargetResult()
+		{
+			return targetResult;
+		}
+
+		/**
+		 * Get Condition evaluation result
+		 *
+		 * @return Condition result (Rules only)
+		 */
+		public Optional<ConditionResult> getConditionResult()
+		{
+			return conditionResult;
+		}
+
+		/**
+		 * Get evaluation decision
+		 *
+		 * @return decision
+		 */
+		public DecisionType getDecision()
+		{
+			return decision;
+		}
+
+		/**
+		 * Whether the result is reused from an earlier evaluation of the same Policy(Set) for this request (request-scoped cache), in which case the Target result is
+		 * {@link TargetMatchResult#NOT_EVALUATED}
+		 *
+		 * @return true iff the result is reused
+		 */
+		public boolean isResultReused()
+		{
+			return isResultReused;
+		}
+
+		@Override
+		public String toString()
+		{
+			return (enclosingPolicy.isPresent() ? enclosingPolicy.get() + "/" : "") + element + (isResultReused ? ": (result reused)" : ": Target=" + targetResult + (conditionResult.isPresent() ? ", Condition=" + conditionResult.get() : "")) + " -> " + decision;
+		}
+	}
+
+	private final List<ElementEvaluation> elementEvaluations;
+	private final Map<AttributeFqn, Bag<?>> namedAttributes;
+	private final Map<AttributeSelectorId, Bag<?>> attributeSelectorResults;
+
+	DecisionTrace(final List<ElementEvaluation> elementEvaluations, final Map<AttributeFqn, Bag<?>> namedAttributes, final Map<AttributeSelectorId, Bag<?>> attributeSelectorResults)
+	{
+		this.elementEvaluations = ImmutableList.copyOf(elementEvaluations);
+		this.namedAttributes = ImmutableMap.copyOf(namedAttributes);
+		this.attributeSelectorResults = ImmutableMap.copyOf(attributeSelectorResults);
+	}
+
+	/**
+	 * Get evaluated Policies and Rules
+	 *
+	 * @return Policy/Rule evaluations in order of completion
+	 */
+	public List<ElementEvaluation> getElementEvaluations()
+	{
+		return elementEvaluations;
+	}
+
+	/**
+	 * Get named attribute values used (provided or consumed) during evaluation
+	 *
+	 * @return attribute values by name, in order of first use
+	 */
+	public Map<AttributeFqn, Bag<?>> getNamedAttributes()
+	{
+		return namedAttributes;
+	}
+
+	/**
+	 * Get AttributeSelector results used (produced or consumed) during evaluation
+	 *
+	 * @return AttributeSelector results, in order of first use
+	 */
+	public Map<AttributeSelectorId, Bag<?>> getAttributeSelectorResults()
+	{
+		return attributeSelectorResults;
+	}
+
+	@Override
+	public String toString()
+	{
+		final StringBuilder sb = new StringBuilder("DecisionTrace[");
+		elementEvaluations.forEach(e -> sb.append(System.lineSeparator()).append('\t').append(e));
+		namedAttributes.forEach((fqn, values) -> sb.append(System.lineSeparator()).append('\t').append(fqn).append(" = ").append(values));
+		attributeSelectorResults.forEach((id, values) -> sb.append(System.lineSeparator()).append('\t').append(id).append(" = ").append(values));
+		return sb.append(System.lineSeparator()).append(']').toString();
+	}
+}
@@ -0,0 +1,159 @@
+/**
+ * Copyright 2012-2018 Thales Services SAS.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.ow2.authzforce.core.pdp.api.AttributeFqn;
+import org.ow2.authzforce.core.pdp.api.AttributeSelectorId;
+import org.ow2.authzforce.core.pdp.api.DecisionResult;
+import org.ow2.authzforce.core.pdp.api.expression.AttributeSelectorExpression;
+import org.ow2.authzforce.core.pdp.api.policy.PrimaryPolicyMetadata;
+import org.ow2.authzforce.core.pdp.api.value.AttributeBag;
+import org.ow2.authzforce.core.pdp.api.value.Bag;
+import org.ow2.authzforce.core.pdp.api.value.XPathValue;
+import org.ow2.authzforce.core.pdp.impl.DecisionTrace.ElementEvaluation;
+
+/**
+ * {@link PolicyEvaluationListener} capturing a {@link DecisionTrace} of the evaluation of a single request. Not thread-safe: a new instance must be registered in each traced request's evaluation
+ * context. Events may be forwarded to another listener, e.g. the PDP engine's metrics listener, since only one {@link PolicyEvaluationListener} may be registered per context.
+ * <p>
+ * This listener requires a full trace (see {@link #isFullTraceRequired()}), therefore nested PolicySets are not flattened and the first-applicable Rule result cache is bypassed in the traced
+ * request's evaluation.
+ */
+public final class DecisionTraceRecorder implements PolicyEvaluationListener
+{
+	private final List<ElementEvaluation> elementEvaluations = new ArrayList<>();
+	private final Map<AttributeFqn, Bag<?>> namedAttributes = new LinkedHashMap<>();
+	private final Map<AttributeSelectorId, Bag<?>> attributeSelectorResults = new LinkedHashMap<>();
+
+	// null if none
+	private final PolicyEvaluationListener nextListener;
+
+	/**
+	 * Creates recorder
+	 *
+	 * @param nextListener
+	 *            (optional) listener to which all events are forwarded
+	 */
+	public DecisionTraceRecorder(final Optional<PolicyEvaluationListener> nextListener)
+	{
+		this.nextListener = nextListener.orElse(null);
+	}
+
+	@Override
+	public void policyEvaluated(final PrimaryPolicyMetadata policy, final TargetMatchResult targetResult, final DecisionResult result, final long elapsedNanos)
+	{
+		elementEvaluations.add(new ElementEvaluation(policy.toString(), Optional.empty(), targetResult, Optional.empty(), result.getDecision(), false));
+		if (nextListener != null)
+		{
+			nextListener.policyEvaluated(policy, targetResult, result, elapsedNanos);
+		}
+	}
+
+	@Override
+	public void ruleEvaluated(final PrimaryPolicyMetadata enclosingPolicy, final String ruleId, final TargetMatchResult targetResult, final ConditionResult conditionResult,
+			final DecisionResult result, final long elapsedNanos)
+	{
+		elementEvaluations.add(new ElementEvaluation("Rule['" + ruleId + "']", Optional.of(enclosingPolicy), targetResult, Optional.of(conditionResult), result.getDecision(), false));
+		if (nextListener != null)
+		{
+			nextListener.ruleEvaluated(enclosingPolicy, ruleId, targetResult, conditionResult, result, elapsedNanos);
+		}
+	}
+
+	@Override
+	public void policyTargetEvaluated(final PrimaryPolicyMetadata policy, final TargetMatchResult targetResult, final String combiningAlgId, final List<String> combinedElementIds)
+	{
+		if (nextListener != null)
+		{
+			nextListener.policyTargetEvaluated(policy, targetResult, combiningAlgId, combinedElementIds);
+		}
+	}
+
+	@Override
+	public void policyResultReused(final PrimaryPolicyMetadata policy, final DecisionResult result)
+	{
+		elementEvaluations.add(new ElementEvaluation(policy.toString(), Optional.empty(), TargetMatchResult.NOT_EVALUATED, Optional.empty(), result.getDecision(), true));
+		if (nextListener != null)
+		{
+			nextListener.policyResultReused(policy, result);
+		}
+	}
+
+	@Override
+	public boolean isFullTraceRequired()
+	{
+		return true;
+	}
+
+	@Override
+	public void namedAttributeValueProduced(final AttributeFqn attributeFQN, final AttributeBag<?> value)
+	{
+		namedAttributes.putIfAbsent(attributeFQN, value);
+		if (nextListener != null)
+		{
+			nextListener.namedAttributeValueProduced(attributeFQN, value);
+		}
+	}
+
+	@Override
+	public void namedAttributeValueConsumed(final AttributeFqn attributeFQN, final AttributeBag<?> value)
+	{
+		namedAttributes.putIfAbsent(attributeFQN, value);
+		if (nextListener != null)
+		{
+			nextListener.namedAttributeValueConsumed(attributeFQN, value);
+		}
+	}
+
+	@Override
+	public void attributeSelectorResultProduced(final AttributeSelectorExpression<?> attributeSelector, final Optional<AttributeBag<XPathValue>> contextSelectorValue, final Bag<?> result)
+	{
+		attributeSelectorResults.putIfAbsent(attributeSelector.getAttributeSelectorId(), result);
+		if (nextListener != null)
+		{
+			nextListener.attributeSelectorResultProduced(attributeSelector, contextSelectorValue, result);
+		}
+	}
+
+	@Override
+	public void attributeSelectorResultConsumed(final AttributeSelectorExpression<?> attributeSelector, final Bag<?> result)
+	{
+		attributeSelectorResults.putIfAbsent(attributeSelector.getAttributeSelectorId(), result);
+		if (nextListener != null)
+		{
+			nextListener.attributeSelectorResultConsumed(attributeSelector, result);
+		}
+	}
+
+	/**
+	 * Get the trace captured so far
+	 *
+	 * @return decision trace
+	 */
+	public DecisionTrace getTrace()
+	{
+		return new DecisionTrace(elementEvaluations, namedAttributes, attributeSelectorResults);
+	}
+
+}
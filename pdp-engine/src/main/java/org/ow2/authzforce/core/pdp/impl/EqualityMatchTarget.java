@@ -0,0 +1,123 @@
+/**
+ * Copyright 2012-2018 Thales Services SAS.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import org.ow2.authzforce.core.pdp.api.expression.AttributeDesignatorExpression;
+import org.ow2.authzforce.core.pdp.api.expression.Expression;
+import org.ow2.authzforce.core.pdp.api.value.AttributeValue;
+import org.ow2.authzforce.core.pdp.impl.func.StandardFunction;
+
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Target made of a single Match comparing an AttributeDesignator to a constant AttributeValue with an equality function whose semantics is the same as {@link AttributeValue#equals(Object)}
+ * (string-equal, boolean-equal, integer-equal, anyURI-equal). Such a Target matches iff the AttributeDesignator's bag contains the constant value, therefore Targets of this kind on the same
+ * AttributeDesignator may be indexed by value, e.g. to find the applicable policy among many others in one lookup (only-one-applicable algorithm).
+ */
+public final class EqualityMatchTarget
+{
+	/**
+	 * Element (e.g. Policy(Set) evaluator) whose Target may be an {@link EqualityMatchTarget}, or Target/AnyOf/AllOf/Match evaluator that may be equivalent to one
+	 */
+	public interface Indexable
+	{
+		/**
+		 * Get the Target (or equivalent Target) if it is an {@link EqualityMatchTarget}
+		 * 
+		 * @return Target as {@link EqualityMatchTarget}; empty if the Target is not of this kind
+		 */
+		Optional<EqualityMatchTarget> getEqualityMatchTarget();
+	}
+
+	private static final Set<String> EQUALITY_MATCH_FUNCTION_IDS = ImmutableSet.of(StandardFunction.STRING_EQUAL.getId(), StandardFunction.BOOLEAN_EQUAL.getId(),
+	        StandardFunction.INTEGER_EQUAL.getId(), StandardFunction.ANYURI_EQUAL.getId());
+
+	private final AttributeDesignatorExpression<?> attributeDesignator;
+	private final AttributeValue value;
+	private final List<Object> indexKey;
+
+	private EqualityMatchTarget(final AttributeDesignatorExpression<?> attributeDesignator, final AttributeValue value)
+	{
+		this.attributeDesignator = attributeDesignator;
+		this.value = value;
+		this.indexKey = Arrays.asList(attributeDesignator.getAttributeFQN(), attributeDesignator.getReturnType(), attributeDesignator.isNonEmptyBagRequired());
+	}
+
+	/**
+	 * Get the Match - as compiled by {@link MatchEvaluator} - as {@link EqualityMatchTarget} if it is of this kind, i.e. equivalent to a Target made of this Match only
+	 * 
+	 * @param matchFunctionId
+	 *            MatchId
+	 * @param bagExpression
+	 *            compiled AttributeDesignator/AttributeSelector of the Match
+	 * @param valueExpression
+	 *            compiled AttributeValue of the Match
+	 * @return Match as {@link EqualityMatchTarget}; empty if the Match is not of this kind
+	 */
+	static Optional<EqualityMatchTarget> getInstance(final String matchFunctionId, final Expression<?> bagExpression, final Expression<? extends AttributeValue> valueExpression)
+	{
+		if (!(bagExpression instanceof AttributeDesignatorExpression) || !EQUALITY_MATCH_FUNCTION_IDS.contains(matchFunctionId))
+		{
+			return Optional.empty();
+		}
+
+		final Optional<? extends AttributeValue> value = valueExpression.getValue();
+		if (!value.isPresent())
+		{
+			return Optional.empty();
+		}
+
+		return Optional.of(new EqualityMatchTarget((AttributeDesignatorExpression<?>) bagExpression, value.get()));
+	}
+
+	/**
+	 * Get the AttributeDesignator compared to the constant value
+	 * 
+	 * @return AttributeDesignator
+	 */
+	public AttributeDesignatorExpression<?> getAttributeDesignator()
+	{
+		return attributeDesignator;
+	}
+
+	/**
+	 * Get the constant value
+	 * 
+	 * @return the constant AttributeValue
+	 */
+	public AttributeValue getValue()
+	{
+		return value;
+	}
+
+	/**
+	 * Get the key of the index this Target may be part of, i.e. identifying the AttributeDesignator (name, datatype, MustBePresent). {@link EqualityMatchTarget}s with the same index key may be
+	 * indexed by {@link #getValue()}.
+	 * 
+	 * @return index key
+	 */
+	public List<Object> getIndexKey()
+	{
+		return indexKey;
+	}
+}
@@ -0,0 +1,54 @@
+/**
+ * Copyright 2012-2018 Thales Services SAS.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl;
+
+/**
+ * Tracer of evaluation steps (Target/Condition/combining algorithm results...) on the evaluation hot path. Evaluators get their tracer once for all at initialization time with
+ * {@link EvaluationTracers#getInstance(org.slf4j.Logger)}, so that tracing costs nothing when disabled (no-op tracer) instead of checking the logging level on every call.
+ */
+public interface EvaluationTracer
+{
+	/**
+	 * Is tracing enabled? To be used to avoid computing (e.g. autoboxing) trace arguments when tracing is disabled
+	 *
+	 * @return true iff tracing enabled
+	 */
+	boolean isEnabled();
+
+	/**
+	 * Traces an evaluation step
+	 *
+	 * @param format
+	 *            message format (SLF4J style)
+	 * @param arg
+	 *            message argument
+	 */
+	void trace(String format, Object arg);
+
+	/**
+	 * Traces an evaluation step
+	 *
+	 * @param format
+	 *            message format (SLF4J style)
+	 * @param arg1
+	 *            first message argument
+	 * @param arg2
+	 *            second message argument, or exception to be logged with the message
+	 */
+	void trace(String format, Object arg1, Object arg2);
+}
@@ -0,0 +1,101 @@
+/**
+ * Copyright 2012-2018 Thales Services SAS.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl;
+
+import org.slf4j.Logger;
+
+/**
+ * {@link EvaluationTracer} factory
+ *
+ */
+public final class EvaluationTracers
+{
+
+	/**
+	 * Disabled (no-op) tracer
+	 */
+	public static final EvaluationTracer DISABLED = new EvaluationTracer()
+	{
+
+		@Override
+		public boolean isEnabled()
+		{
+			return false;
+		}
+
+		@Override
+		public void trace(final String format, final Object arg)
+		{
+			// disabled
+		}
+
+		@Override
+		public void trace(final String format, final Object arg1, final Object arg2)
+		{
+			// disabled
+		}
+
+	};
+
+	private static final class DebugLoggingTracer implements EvaluationTracer
+	{
+		private final Logger logger;
+
+		private DebugLoggingTracer(final Logger logger)
+		{
+			assert logger != null;
+			this.logger = logger;
+		}
+
+		@Override
+		public boolean isEnabled()
+		{
+			return true;
+		}
+
+		@Override
+		public void trace(final String format, final Object arg)
+		{
+			logger.debug(format, arg);
+		}
+
+		@Override
+		public void trace(final String format, final Object arg1, final Object arg2)
+		{
+			logger.debug(format, arg1, arg2);
+		}
+	}
+
+	/**
+	 * Gets tracer according to the logging level at the time of the call. Meant to be called when initializing evaluators, i.e. when the PDP engine is (re)loaded, therefore enabling/disabling
+	 * tracing (debug level) afterwards requires reloading the PDP engine.
+	 *
+	 * @param logger
+	 *            logger of the evaluator class
+	 * @return tracer logging at debug level if debug level enabled for {@code logger}, else {@link #DISABLED}
+	 */
+	public static EvaluationTracer getInstance(final Logger logger)
+	{
+		return logger.isDebugEnabled() ? new DebugLoggingTracer(logger) : DISABLED;
+	}
+
+	private EvaluationTracers()
+	{
+		// prevent instantiation
+	}
+}
@@ -0,0 +1,157 @@
+/**
+ * Copyright 2012-2018 Thales Services SAS.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.ow2.authzforce.core.pdp.api.IndeterminateEvaluationException;
+import org.slf4j.Logger;
+
+/**
+ * Rate-limited reporting of Indeterminate evaluation results (e.g. missing attributes), in structured form (evaluated element, status code, message and root cause message). Such results are
+ * evaluation errors but not critical application errors, and may occur for every request (e.g. attribute missing from all requests), therefore the number of reports (at info level) is limited to
+ * {@code maxReportsPerInterval} per interval, and the number of reports suppressed in the meantime is given with the next report. The exception stacktrace is only logged at debug level (no rate
+ * limit in this case).
+ */
+public final class IndeterminateEvaluationReporter
+{
+	private static final IllegalArgumentException NULL_LOGGER_ARGUMENT_EXCEPTION = new IllegalArgumentException("Undefined logger");
+
+	private static final IllegalArgumentException INVALID_RATE_ARGUMENT_EXCEPTION = new IllegalArgumentException("Invalid rate: maxReportsPerInterval and intervalMillis must be > 0");
+
+	/**
+	 * Default max number of reports per interval
+	 */
+	public static final int DEFAULT_MAX_REPORTS_PER_INTERVAL = 10;
+
+	/**
+	 * Default interval duration (ms)
+	 */
+	public static final long DEFAULT_INTERVAL_MILLIS = 1000;
+
+	private static String getRootCauseMessage(final Throwable t)
+	{
+		Throwable rootCause = t;
+		while (rootCause.getCause() != null && rootCause.getCause() != rootCause)
+		{
+			rootCause = rootCause.getCause();
+		}
+
+		return rootCause.getMessage();
+	}
+
+	private final Logger logger;
+	private final int maxReportsPerInterval;
+	private final long intervalMillis;
+
+	private final AtomicLong intervalStartMillis = new AtomicLong(0);
+	private final AtomicInteger reportCountInInterval = new AtomicInteger(0);
+	private final LongAdder suppressedReportCount = new LongAdder();
+
+	/**
+	 * Creates reporter with max {@value #DEFAULT_MAX_REPORTS_PER_INTERVAL} reports per {@value #DEFAULT_INTERVAL_MILLIS} ms
+	 *
+	 * @param logger
+	 *            logger used for reporting
+	 * @throws IllegalArgumentException
+	 *             if {@code logger == null}
+	 */
+	public IndeterminateEvaluationReporter(final Logger logger) throws IllegalArgumentException
+	{
+		this(logger, DEFAULT_MAX_REPORTS_PER_INTERVAL, DEFAULT_INTERVAL_MILLIS);
+	}
+
+	/**
+	 * Creates reporter
+	 *
+	 * @param logger
+	 *            logger used for reporting
+	 * @param maxReportsPerInterval
+	 *            max number of reports per interval
+	 * @param intervalMillis
+	 *            interval duration in milliseconds
+	 * @throws IllegalArgumentException
+	 *             if {@code logger == null || maxReportsPerInterval <= 0 || intervalMillis <= 0}
+	 */
+	public IndeterminateEvaluationReporter(final Logger logger, final int maxReportsPerInterval, final long intervalMillis) throws IllegalArgumentException
+	{
+		if (logger == null)
+		{
+			throw NULL_LOGGER_ARGUMENT_EXCEPTION;
+		}
+
+		if (maxReportsPerInterval <= 0 || intervalMillis <= 0)
+		{
+			throw INVALID_RATE_ARGUMENT_EXCEPTION;
+		}
+
+		this.logger = logger;
+		this.maxReportsPerInterval = maxReportsPerInterval;
+		this.intervalMillis = intervalMillis;
+	}
+
+	private boolean tryAcquire()
+	{
+		final long now = System.currentTimeMillis();
+		final long start = intervalStartMillis.get();
+		if (now - start >= intervalMillis && intervalStartMillis.compareAndSet(start, now))
+		{
+			// new interval
+			reportCountInInterval.set(0);
+		}
+
+		return reportCountInInterval.incrementAndGet() <= maxReportsPerInterval;
+	}
+
+	/**
+	 * Reports an Indeterminate evaluation result
+	 *
+	 * @param evaluatedElement
+	 *            evaluated element, e.g. Policy or Rule evaluator (its string representation is used)
+	 * @param evaluatedPart
+	 *            part of {@code evaluatedElement} that was Indeterminate, e.g. "Target", "Condition"
+	 * @param cause
+	 *            Indeterminate cause
+	 */
+	public void report(final Object evaluatedElement, final String evaluatedPart, final IndeterminateEvaluationException cause)
+	{
+		if (logger.isDebugEnabled())
+		{
+			// full stacktrace for debugging
+			logger.debug("{}/{} -> Indeterminate", evaluatedElement, evaluatedPart, cause);
+			return;
+		}
+
+		if (!logger.isInfoEnabled())
+		{
+			return;
+		}
+
+		if (!tryAcquire())
+		{
+			suppressedReportCount.increment();
+			return;
+		}
+
+		final long suppressedCount = suppressedReportCount.sumThenReset();
+		logger.info("{}/{} -> Indeterminate: statusCode={}, message=\"{}\", rootCause=\"{}\", suppressedSinceLastReport={}", evaluatedElement, evaluatedPart, cause.getStatusCode(),
+				cause.getMessage(), getRootCauseMessage(cause), suppressedCount);
+	}
+}
@@ -17,6 +17,7 @@
  */
 package org.ow2.authzforce.core.pdp.impl;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.Map;
@@ -41,6 +42,7 @@ import org.ow2.authzforce.core.pdp.api.value.Datatype;
 import org.ow2.authzforce.core.pdp.api.value.StandardDatatypes;
 import org.ow2.authzforce.core.pdp.api.value.Value;
 import org.ow2.authzforce.core.pdp.api.value.XPathValue;
+import org.ow2.authzforce.core.pdp.impl.expression.CommonSubexpressions;
 import org.ow2.authzforce.xacml.identifiers.XacmlStatusCode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -67,6 +69,17 @@ public final class IndividualDecisionRequestContext implements EvaluationContext
 
 	private final Map<AttributeFqn, AttributeBag<?>> namedAttributes;
 
+	/*
+	 * Slots of the attributes used by the policies evaluated in this context (see AttributeFqnSlots). Null if none.
+	 */
+	private final AttributeFqnSlots attributeFqnSlots;
+
+	/*
+	 * Values of the named attributes that have a slot, indexed by slot, filled on first lookup by slot (also in namedAttributes). Null until first lookup by slot. Sized from the number of slots
+	 * assigned at allocation time (bounded, see AttributeFqnSlots), grown if a slot assigned afterwards is looked up.
+	 */
+	private AttributeBag<?>[] namedAttributesBySlot = null;
+
 	/*
 	 * Corresponds to Attributes/Content (by attribute category) marshalled to XPath data model for XPath evaluation: AttributeSelector evaluation, XPath-based functions, etc. This may be empty if no
 	 * Content in Request or no feature requiring XPath evaluation against Content is supported/enabled.
@@ -83,10 +96,26 @@ public final class IndividualDecisionRequestContext implements EvaluationContext
 
 	private final Map<String, Object> mutableProperties = HashCollections.newMutableMap();
 
+	/*
+	 * Common subexpressions of the policies evaluated in this context, i.e. the ones of the expression factory that compiled them. Null if none.
+	 */
+	private final CommonSubexpressions commonSubexpressions;
+
+	/*
+	 * Results (value or IndeterminateEvaluationException) of common subexpressions evaluated so far, indexed by subexpression ID. Null until first needed. Sized from the number of subexpressions
+	 * actually shared at allocation time, grown if a subexpression shared afterwards is memoized.
+	 */
+	private Object[] memoizedResults = null;
+
 	private final boolean returnApplicablePolicyIdList;
 
 	private final ClassToInstanceMap<Listener> listeners = MutableClassToInstanceMap.create();
 
+	/*
+	 * Categories of attributes deliberately left unknown for partial evaluation (not requested from attribute providers). Empty if none.
+	 */
+	private final Set<String> unknownAttributeCategories;
+
 	/**
 	 * Constructs a new <code>IndividualDecisionRequestContext</code> based on the given request attributes and extra contents with support for XPath evaluation against Content element in Attributes
 	 *
@@ -100,6 +129,35 @@ public final class IndividualDecisionRequestContext implements EvaluationContext
 	 */
 	public IndividualDecisionRequestContext(final Map<AttributeFqn, AttributeBag<?>> namedAttributeMap, final Map<String, XdmNode> extraContentsByCategory, final boolean returnApplicablePolicyIdList)
 	{
+		this(namedAttributeMap, extraContentsByCategory, returnApplicablePolicyIdList, Collections.emptySet(), null, null);
+	}
+
+	/**
+	 * Constructs a new <code>IndividualDecisionRequestContext</code> for partial evaluation, i.e. where attributes in some categories are unknown. Any attribute of these categories that is not in
+	 * {@code namedAttributeMap} is considered unknown: {@link #getNamedAttributeValue(AttributeFqn, Datatype)} throws an {@link IndeterminateEvaluationException} (missing-attribute) instead of
+	 * returning null, so that the attribute is not requested from any attribute provider either.
+	 *
+	 * @param namedAttributeMap
+	 *            updatable named attribute map (attribute key and value pairs) from the original Request; null iff none.
+	 * @param extraContentsByCategory
+	 *            extra contents by attribute category (equivalent to XACML Attributes/Content elements); null iff no Content in the attribute category.
+	 * @param returnApplicablePolicyIdList
+	 *            true iff list of IDs of policies matched during evaluation must be returned
+	 * @param unknownAttributeCategories
+	 *            categories of unknown attributes (not null, empty if none)
+	 * @param attributeFqnSlots
+	 *            slots of the attributes used by the policies evaluated in this context, i.e. the slots of the expression factory that compiled them; null if none
+	 * @param commonSubexpressions
+	 *            common subexpressions of the policies evaluated in this context, i.e. the ones of the expression factory that compiled them, whose results are memoized in this context; null if
+	 *            none
+	 */
+	public IndividualDecisionRequestContext(final Map<AttributeFqn, AttributeBag<?>> namedAttributeMap, final Map<String, XdmNode> extraContentsByCategory, final boolean returnApplicablePolicyIdList,
+			final Set<String> unknownAttributeCategories, final AttributeFqnSlots attributeFqnSlots, final CommonSubexpressions commonSubexpressions)
+	{
+		assert unknownAttributeCategories != null;
+		this.unknownAttributeCategories = unknownAttributeCategories;
+		this.attributeFqnSlots = attributeFqnSlots;
+		this.commonSubexpressions = commonSubexpressions;
 		this.namedAttributes = namedAttributeMap == null ? HashCollections.<AttributeFqn, AttributeBag<?>>newUpdatableMap()
 				: HashCollections.<AttributeFqn, AttributeBag<?>>newUpdatableMap(namedAttributeMap);
 		this.returnApplicablePolicyIdList = returnApplicablePolicyIdList;
@@ -114,6 +172,25 @@ public final class IndividualDecisionRequestContext implements EvaluationContext
 		}
 	}
 
+	private <AV extends AttributeValue> AttributeBag<AV> checkAndConsume(final AttributeFqn attributeFqn, final Datatype<AV> datatype, final AttributeBag<?> bagResult)
+			throws IndeterminateEvaluationException
+	{
+		if (bagResult.getElementDatatype() != datatype && !bagResult.getElementDatatype().equals(datatype))
+		{
+			throw new IndeterminateEvaluationException("Datatype (" + bagResult.getElementDatatype() + ") of AttributeDesignator " + attributeFqn + " in context is different from expected/requested ("
+					+ datatype
+					+ "). May be caused by refering to the same Attribute Category/Id/Issuer with different Datatypes in different policy elements and/or attribute providers, which is not allowed.",
+					XacmlStatusCode.SYNTAX_ERROR.value());
+		}
+
+		/*
+		 * If datatype classes match, bagResult should have same type as datatypeClass.
+		 */
+		final AttributeBag<AV> result = (AttributeBag<AV>) bagResult;
+		this.listeners.forEach((lt, l) -> l.namedAttributeValueConsumed(attributeFqn, result));
+		return result;
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public <AV extends AttributeValue> AttributeBag<AV> getNamedAttributeValue(final AttributeFqn attributeFqn, final Datatype<AV> datatype) throws IndeterminateEvaluationException
@@ -121,23 +198,73 @@ public final class IndividualDecisionRequestContext implements EvaluationContext
 		final AttributeBag<?> bagResult = namedAttributes.get(attributeFqn);
 		if (bagResult == null)
 		{
+			if (!unknownAttributeCategories.isEmpty() && unknownAttributeCategories.contains(attributeFqn.getCategory()))
+			{
+				throw new IndeterminateEvaluationException("Unknown attribute (partial evaluation): " + attributeFqn, XacmlStatusCode.MISSING_ATTRIBUTE.value());
+			}
+
 			return null;
 		}
 
-		if (!bagResult.getElementDatatype().equals(datatype))
+		return checkAndConsume(attributeFqn, datatype, bagResult);
+	}
+
+	/**
+	 * Same as {@link #getNamedAttributeValue(AttributeFqn, Datatype)} but looks the attribute up by slot first (array load), for AttributeDesignators compiled with a slot. The slot is filled on the
+	 * first lookup, therefore only the attributes actually used cost a hash map lookup, once per context.
+	 * 
+	 * @param slots
+	 *            slots in which {@code slot} was assigned. If not the ones of this context (e.g. expression compiled by a different factory), the slot is ignored.
+	 * @param slot
+	 *            slot assigned to {@code attributeFqn} in {@code slots}
+	 * @param attributeFqn
+	 *            attribute name
+	 * @param datatype
+	 *            expected attribute datatype
+	 * @return attribute value(s), null iff attribute unknown (not set) in this context
+	 * @throws IndeterminateEvaluationException
+	 *             if datatype of attribute in context does not match {@code datatype}, or attribute unknown in partial evaluation
+	 */
+	public <AV extends AttributeValue> AttributeBag<AV> getNamedAttributeValue(final AttributeFqnSlots slots, final int slot, final AttributeFqn attributeFqn, final Datatype<AV> datatype)
+			throws IndeterminateEvaluationException
+	{
+		assert slot >= 0;
+		if (slots != attributeFqnSlots)
 		{
-			throw new IndeterminateEvaluationException("Datatype (" + bagResult.getElementDatatype() + ") of AttributeDesignator " + attributeFqn + " in context is different from expected/requested ("
-					+ datatype
-					+ "). May be caused by refering to the same Attribute Category/Id/Issuer with different Datatypes in different policy elements and/or attribute providers, which is not allowed.",
-					XacmlStatusCode.SYNTAX_ERROR.value());
+			return getNamedAttributeValue(attributeFqn, datatype);
+		}
+
+		if (namedAttributesBySlot == null)
+		{
+			/*
+			 * slot already assigned, therefore slot < count
+			 */
+			namedAttributesBySlot = new AttributeBag<?>[attributeFqnSlots.count()];
+		} else if (slot >= namedAttributesBySlot.length)
+		{
+			/*
+			 * Slot assigned after allocation (still < count, bounded by the maximum slot count)
+			 */
+			namedAttributesBySlot = Arrays.copyOf(namedAttributesBySlot, attributeFqnSlots.count());
+		} else
+		{
+			final AttributeBag<?> slotBagResult = namedAttributesBySlot[slot];
+			if (slotBagResult != null)
+			{
+				return checkAndConsume(attributeFqn, datatype, slotBagResult);
+			}
 		}
 
 		/*
-		 * If datatype classes match, bagResult should have same type as datatypeClass.
+		 * Slot not filled yet
 		 */
-		final AttributeBag<AV> result = (AttributeBag<AV>) bagResult;
-		this.listeners.forEach((lt, l) -> l.namedAttributeValueConsumed(attributeFqn, result));
-		return result;
+		final AttributeBag<AV> bagResult = getNamedAttributeValue(attributeFqn, datatype);
+		if (bagResult != null)
+		{
+			namedAttributesBySlot[slot] = bagResult;
+		}
+
+		return bagResult;
 	}
 
 	@Override
@@ -240,10 +367,20 @@ public final class IndividualDecisionRequestContext implements EvaluationContext
 		}
 	}
 
-	/** {@inheritDoc} */
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Ignored in partial evaluation (unknown attribute categories), like memoization (see {@link #getMemoizedResult(CommonSubexpressions, int)}), so that every Rule referring to a Variable depending on unknown attributes
+	 * is notified of them.
+	 */
 	@Override
 	public boolean putVariableIfAbsent(final String variableId, final Value value)
 	{
+		if (!unknownAttributeCategories.isEmpty())
+		{
+			return false;
+		}
+
 		if (varValsById.putIfAbsent(variableId, value) != null)
 		{
 			LOGGER.error("Attempt to override value of Variable '{}' already set in evaluation context. Overriding value: {}", variableId, value);
@@ -260,6 +397,68 @@ public final class IndividualDecisionRequestContext implements EvaluationContext
 		return varValsById.remove(variableId);
 	}
 
+	/**
+	 * Is this context used for partial evaluation, i.e. are attributes of some categories deliberately unknown?
+	 * 
+	 * @return true iff some attribute categories are unknown
+	 */
+	public boolean isPartial()
+	{
+		return !unknownAttributeCategories.isEmpty();
+	}
+
+	/**
+	 * Get the memoized result of a common subexpression, i.e. subexpression shared by multiple policy elements and evaluated at most once per request. Memoization is disabled in partial evaluation
+	 * (unknown attribute categories), to make sure every policy element depending on unknown attributes is notified of them.
+	 * 
+	 * @param subexpressions
+	 *            common subexpressions in which the subexpression was registered. If not the ones of this context (e.g. expression compiled by a different factory), there is no memoized result.
+	 * @param subexpressionId
+	 *            (non-negative) subexpression ID in {@code subexpressions}
+	 * @return result of the subexpression: value or {@link IndeterminateEvaluationException}; null if not evaluated yet in this context or memoization disabled
+	 */
+	public Object getMemoizedResult(final CommonSubexpressions subexpressions, final int subexpressionId)
+	{
+		assert subexpressionId >= 0;
+		return subexpressions != commonSubexpressions || memoizedResults == null || subexpressionId >= memoizedResults.length ? null : memoizedResults[subexpressionId];
+	}
+
+	/**
+	 * Memoize the result of a common subexpression (see {@link #getMemoizedResult(CommonSubexpressions, int)}). Ignored if memoization is disabled.
+	 * 
+	 * @param subexpressions
+	 *            common subexpressions in which the subexpression was registered. If not the ones of this context, the result is not memoized.
+	 * @param subexpressionId
+	 *            (non-negative) subexpression ID in {@code subexpressions}
+	 * @param result
+	 *            result of the subexpression: value or {@link IndeterminateEvaluationException}
+	 */
+	public void putMemoizedResult(final CommonSubexpressions subexpressions, final int subexpressionId, final Object result)
+	{
+		assert subexpressionId >= 0 && result != null;
+		if (subexpressions != commonSubexpressions || !unknownAttributeCategories.isEmpty())
+		{
+			return;
+		}
+
+		if (memoizedResults == null)
+		{
+			/*
+			 * subexpression already shared, therefore subexpressionId < count
+			 */
+			memoizedResults = new Object[commonSubexpressions.count()];
+		}
+		else if (subexpressionId >= memoizedResults.length)
+		{
+			/*
+			 * Shared after allocation (still < count)
+			 */
+			memoizedResults = Arrays.copyOf(memoizedResults, commonSubexpressions.count());
+		}
+
+		memoizedResults[subexpressionId] = result;
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public Object getOther(final String key)
@@ -0,0 +1,373 @@
+/**
+ * Copyright 2012-2018 Thales Services SAS.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.DecisionType;
+
+/**
+ * {@link PdpEngineMetricsExporter} registering the metrics as an MXBean ({@link MetricsMXBean}) in the platform MBean server, e.g. for JConsole or a JMX-based monitoring agent. Latencies are given
+ * in nanoseconds. Metrics are read on demand, therefore there is no overhead when nobody is reading.
+ */
+public final class JmxPdpEngineMetricsExporter implements PdpEngineMetricsExporter
+{
+	/**
+	 * Default MBean name
+	 */
+	public static final String DEFAULT_OBJECT_NAME = "org.ow2.authzforce.core.pdp:type=PdpEngineMetrics";
+
+	private static final IllegalArgumentException NULL_OBJECT_NAME_ARGUMENT_EXCEPTION = new IllegalArgumentException("Undefined MBean name");
+
+	private static final IllegalArgumentException NULL_METRICS_ARGUMENT_EXCEPTION = new IllegalArgumentException("Undefined metrics");
+
+	/**
+	 * Management interface of PDP engine metrics
+	 */
+	public interface MetricsMXBean
+	{
+		/**
+		 * @return see {@link PdpEngineMetrics#getIndividualRequestCount()}
+		 */
+		long getIndividualRequestCount();
+
+		/**
+		 * @return see {@link PdpEngineMetrics#getMultipleRequestCount()}
+		 */
+		long getMultipleRequestCount();
+
+		/**
+		 * @return number of Permit decisions
+		 */
+		long getPermitCount();
+
+		/**
+		 * @return number of Deny decisions
+		 */
+		long getDenyCount();
+
+		/**
+		 * @return number of NotApplicable decisions
+		 */
+		long getNotApplicableCount();
+
+		/**
+		 * @return number of Indeterminate decisions
+		 */
+		long getIndeterminateCount();
+
+		/**
+		 * @return see {@link PdpEngineMetrics#getIndeterminateCountsByStatusCode()}
+		 */
+		Map<String, Long> getIndeterminateCountsByStatusCode();
+
+		/**
+		 * @return see {@link PdpEngineMetrics#getDecisionCacheHitCount()}
+		 */
+		long getDecisionCacheHitCount();
+
+		/**
+		 * @return see {@link PdpEngineMetrics#getDecisionCacheMissCount()}
+		 */
+		long getDecisionCacheMissCount();
+
+		/**
+		 * @return see {@link PdpEngineMetrics#getAttributeProviderCallCount()}
+		 */
+		long getAttributeProviderCallCount();
+
+		/**
+		 * @return see {@link PdpEngineMetrics#getAttributeProviderErrorCount()}
+		 */
+		long getAttributeProviderErrorCount();
+
+		/**
+		 * @return median latency of Individual Decision Requests (ns)
+		 */
+		long getIndividualRequestLatency50thPercentile();
+
+		/**
+		 * @return 99th percentile latency of Individual Decision Requests (ns)
+		 */
+		long getIndividualRequestLatency99thPercentile();
+
+		/**
+		 * @return 99.9th percentile latency of Individual Decision Requests (ns)
+		 */
+		long getIndividualRequestLatency999thPercentile();
+
+		/**
+		 * @return max latency of Individual Decision Requests (ns)
+		 */
+		long getIndividualRequestLatencyMax();
+
+		/**
+		 * @return 99th percentile latency of Multiple Decision Requests (ns)
+		 */
+		long getMultipleRequestLatency99thPercentile();
+
+		/**
+		 * @return median latency of calls to attribute provider modules (ns)
+		 */
+		long getAttributeProviderLatency50thPercentile();
+
+		/**
+		 * @return 99th percentile latency of calls to attribute provider modules (ns)
+		 */
+		long getAttributeProviderLatency99thPercentile();
+
+		/**
+		 * @return max latency of calls to attribute provider modules (ns)
+		 */
+		long getAttributeProviderLatencyMax();
+
+		/**
+		 * Resets all metrics
+		 */
+		void reset();
+	}
+
+	private static final class MetricsMXBeanImpl implements MetricsMXBean
+	{
+		private final PdpEngineMetrics metrics;
+
+		private MetricsMXBeanImpl(final PdpEngineMetrics metrics)
+		{
+			assert metrics != null;
+			this.metrics = metrics;
+		}
+
+		@Override
+		public long getIndividualRequestCount()
+		{
+			return metrics.getIndividualRequestCount();
+		}
+
+		@Override
+		public long getMultipleRequestCount()
+		{
+			return metrics.getMultipleRequestCount();
+		}
+
+		@Override
+		public long getPermitCount()
+		{
+			return metrics.getDecisionCount(DecisionType.PERMIT);
+		}
+
+		@Override
+		public long getDenyCount()
+		{
+			return metrics.getDecisionCount(DecisionType.DENY);
+		}
+
+		@Override
+		public long getNotApplicableCount()
+		{
+			return metrics.getDecisionCount(DecisionType.NOT_APPLICABLE);
+		}
+
+		@Override
+		public long getIndeterminateCount()
+		{
+			return metrics.getDecisionCount(DecisionType.INDETERMINATE);
+		}
+
+		@Override
+		public Map<String, Long> getIndeterminateCountsByStatusCode()
+		{
+			return metrics.getIndeterminateCountsByStatusCode();
+		}
+
+		@Override
+		public long getDecisionCacheHitCount()
+		{
+			return metrics.getDecisionCacheHitCount();
+		}
+
+		@Override
+		public long getDecisionCacheMissCount()
+		{
+			return metrics.getDecisionCacheMissCount();
+		}
+
+		@Override
+		public long getAttributeProviderCallCount()
+		{
+			return metrics.getAttributeProviderCallCount();
+		}
+
+		@Override
+		public long getAttributeProviderErrorCount()
+		{
+			return metrics.getAttributeProviderErrorCount();
+		}
+
+		@Override
+		public long getIndividualRequestLatency50thPercentile()
+		{
+			return metrics.getIndividualRequestLatency().getValueAtPercentile(50);
+		}
+
+		@Override
+		public long getIndividualRequestLatency99thPercentile()
+		{
+			return metrics.getIndividualRequestLatency().getValueAtPercentile(99);
+		}
+
+		@Override
+		public long getIndividualRequestLatency999thPercentile()
+		{
+			return metrics.getIndividualRequestLatency().getValueAtPercentile(99.9);
+		}
+
+		@Override
+		public long getIndividualRequestLatencyMax()
+		{
+			return metrics.getIndividualRequestLatency().getMax();
+		}
+
+		@Override
+		public long getMultipleRequestLatency99thPercentile()
+		{
+			return metrics.getMultipleRequestLatency().getValueAtPercentile(99);
+		}
+
+		@Override
+		public long getAttributeProviderLatency50thPercentile()
+		{
+			return metrics.getAttributeProviderLatency().getValueAtPercentile(50);
+		}
+
+		@Override
+		public long getAttributeProviderLatency99thPercentile()
+		{
+			return metrics.getAttributeProviderLatency().getValueAtPercentile(99);
+		}
+
+		@Override
+		public long getAttributeProviderLatencyMax()
+		{
+			return metrics.getAttributeProviderLatency().getMax();
+		}
+
+		@Override
+		public void reset()
+		{
+			metrics.reset();
+		}
+	}
+
+	private static ObjectName newObjectName(final String name)
+	{
+		try
+		{
+			return new ObjectName(name);
+		}
+		catch (final MalformedObjectNameException e)
+		{
+			throw new IllegalArgumentException("Invalid MBean name: " + name, e);
+		}
+	}
+
+	private final MBeanServer mbeanServer;
+	private final ObjectName objectName;
+	// guarded by this
+	private boolean isRegistered = false;
+
+	/**
+	 * Creates exporter registering the MBean with name {@value #DEFAULT_OBJECT_NAME} in the platform MBean server
+	 */
+	public JmxPdpEngineMetricsExporter()
+	{
+		this(newObjectName(DEFAULT_OBJECT_NAME));
+	}
+
+	/**
+	 * Creates exporter registering the MBean with a given name in the platform MBean server, e.g. to export metrics of multiple PDP engines in the same JVM
+	 *
+	 * @param objectName
+	 *            MBean name
+	 * @throws IllegalArgumentException
+	 *             if {@code objectName == null}
+	 */
+	public JmxPdpEngineMetricsExporter(final ObjectName objectName) throws IllegalArgumentException
+	{
+		if (objectName == null)
+		{
+			throw NULL_OBJECT_NAME_ARGUMENT_EXCEPTION;
+		}
+
+		this.mbeanServer = ManagementFactory.getPlatformMBeanServer();
+		this.objectName = objectName;
+	}
+
+	@Override
+	public synchronized void start(final PdpEngineMetrics metrics) throws IOException
+	{
+		if (metrics == null)
+		{
+			throw NULL_METRICS_ARGUMENT_EXCEPTION;
+		}
+
+		try
+		{
+			mbeanServer.registerMBean(new StandardMBean(new MetricsMXBeanImpl(metrics), MetricsMXBean.class, true), objectName);
+		}
+		catch (final JMException e)
+		{
+			throw new IOException("Failed to register PDP engine metrics MBean: " + objectName, e);
+		}
+
+		isRegistered = true;
+	}
+
+	@Override
+	public synchronized void close() throws IOException
+	{
+		if (!isRegistered)
+		{
+			return;
+		}
+
+		try
+		{
+			mbeanServer.unregisterMBean(objectName);
+		}
+		catch (final JMException e)
+		{
+			throw new IOException("Failed to unregister PDP engine metrics MBean: " + objectName, e);
+		}
+
+		isRegistered = false;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "JmxPdpEngineMetricsExporter[" + objectName + "]";
+	}
+}
@@ -0,0 +1,199 @@
+/**
+ * Copyright 2012-2018 Thales Services SAS.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram in the style of HdrHistogram: values (nanoseconds) are counted in log-linear buckets, i.e. each power-of-two range is split in {@value #SUB_BUCKET_COUNT} linear
+ * sub-buckets, so that the relative error of the value at a given percentile is at most 1/{@value #SUB_BUCKET_COUNT} (6.25%), over the whole range of {@code long} values, with a fixed memory
+ * footprint. Bucket counts are striped counters ({@link LongAdder}), which scale well under contention from concurrent request evaluations.
+ * <p>
+ * Reads are not atomic with respect to concurrent recordings, which is acceptable for monitoring.
+ */
+public final class LatencyHistogram
+{
+	private static final int SUB_BUCKET_BITS = 4;
+	private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+	private static final int SUB_BUCKET_MASK = SUB_BUCKET_COUNT - 1;
+
+	/*
+	 * Values lower than SUB_BUCKET_COUNT have their own bucket, then SUB_BUCKET_COUNT buckets for each power of two from 2^SUB_BUCKET_BITS to 2^62
+	 */
+	private static final int BUCKET_COUNT = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+	private static final IllegalArgumentException INVALID_PERCENTILE_ARGUMENT_EXCEPTION = new IllegalArgumentException("Invalid percentile: expected value in range [0, 100]");
+
+	private static int getBucketIndex(final long value)
+	{
+		if (value < SUB_BUCKET_COUNT)
+		{
+			return (int) value;
+		}
+
+		final int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+		final int subBucketIndex = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & SUB_BUCKET_MASK;
+		return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + subBucketIndex;
+	}
+
+	/*
+	 * Highest value counted in a given bucket
+	 */
+	private static long getBucketHighestValue(final int bucketIndex)
+	{
+		if (bucketIndex < SUB_BUCKET_COUNT)
+		{
+			return bucketIndex;
+		}
+
+		final int exponent = bucketIndex / SUB_BUCKET_COUNT + SUB_BUCKET_BITS - 1;
+		final long subBucketIndex = bucketIndex & SUB_BUCKET_MASK;
+		final int shift = exponent - SUB_BUCKET_BITS;
+		return ((SUB_BUCKET_COUNT + subBucketIndex) << shift) + (1L << shift) - 1;
+	}
+
+	private final LongAdder[] bucketCounts = new LongAdder[BUCKET_COUNT];
+	private final LongAdder totalCount = new LongAdder();
+	private final LongAdder totalValue = new LongAdder();
+	private final LongAccumulator maxValue = new LongAccumulator(Math::max, 0);
+
+	/**
+	 * Creates empty histogram
+	 */
+	public LatencyHistogram()
+	{
+		for (int i = 0; i < BUCKET_COUNT; i++)
+		{
+			bucketCounts[i] = new LongAdder();
+		}
+	}
+
+	/**
+	 * Records a value
+	 *
+	 * @param nanos
+	 *            latency in nanoseconds (negative values are recorded as 0)
+	 */
+	public void record(final long nanos)
+	{
+		final long value = Math.max(nanos, 0);
+		bucketCounts[getBucketIndex(value)].increment();
+		totalCount.increment();
+		totalValue.add(value);
+		maxValue.accumulate(value);
+	}
+
+	/**
+	 * Get number of recorded values
+	 *
+	 * @return count
+	 */
+	public long getCount()
+	{
+		return totalCount.sum();
+	}
+
+	/**
+	 * Get mean of recorded values
+	 *
+	 * @return mean in nanoseconds, 0 if no value recorded
+	 */
+	public double getMean()
+	{
+		final long count = totalCount.sum();
+		return count == 0 ? 0 : (double) totalValue.sum() / count;
+	}
+
+	/**
+	 * Get max recorded value
+	 *
+	 * @return max in nanoseconds, 0 if no value recorded
+	 */
+	public long getMax()
+	{
+		return maxValue.get();
+	}
+
+	/**
+	 * Get the value at a given percentile, i.e. the (highest equivalent) value that is greater than or equal to {@code percentile}% of the recorded values
+	 *
+	 * @param percentile
+	 *            percentile in range [0, 100], e.g. 99.9
+	 * @return value at the percentile in nanoseconds, 0 if no value recorded
+	 * @throws IllegalArgumentException
+	 *             if {@code percentile} is not in range [0, 100]
+	 */
+	public long getValueAtPercentile(final double percentile) throws IllegalArgumentException
+	{
+		if (!(percentile >= 0 && percentile <= 100))
+		{
+			throw INVALID_PERCENTILE_ARGUMENT_EXCEPTION;
+		}
+
+		final long[] counts = new long[BUCKET_COUNT];
+		long count = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++)
+		{
+			counts[i] = bucketCounts[i].sum();
+			count += counts[i];
+		}
+
+		if (count == 0)
+		{
+			return 0;
+		}
+
+		final long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+		long cumulativeCount = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++)
+		{
+			cumulativeCount += counts[i];
+			if (cumulativeCount >= rank)
+			{
+				/*
+				 * The bucket's highest value may exceed the actual max
+				 */
+				return Math.min(getBucketHighestValue(i), maxValue.get());
+			}
+		}
+
+		return maxValue.get();
+	}
+
+	/**
+	 * Resets the histogram
+	 */
+	public void reset()
+	{
+		for (final LongAdder bucketCount : bucketCounts)
+		{
+			bucketCount.reset();
+		}
+
+		totalCount.reset();
+		totalValue.reset();
+		maxValue.reset();
+	}
+
+	@Override
+	public String toString()
+	{
+		return "{count=" + getCount() + ", p50=" + getValueAtPercentile(50) + ", p99=" + getValueAtPercentile(99) + ", p99.9=" + getValueAtPercentile(99.9) + ", max=" + getMax() + "}";
+	}
+}
@@ -19,6 +19,7 @@ package org.ow2.authzforce.core.pdp.impl;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
 
 import net.sf.saxon.s9api.XPathCompiler;
 import oasis.names.tc.xacml._3_0.core.schema.wd_17.AttributeDesignatorType;
@@ -42,7 +43,7 @@ import org.ow2.authzforce.core.pdp.impl.func.StandardFunction;
  *
  * @version $Id: $
  */
-public final class MatchEvaluator
+public final class MatchEvaluator implements EqualityMatchTarget.Indexable
 {
 
 	private static final IllegalArgumentException NULL_XACML_MATCH_ARGUMENT_EXCEPTION = new IllegalArgumentException("Undefined input XACML Match element");
@@ -55,6 +56,11 @@ public final class MatchEvaluator
 	 */
 	private final transient FunctionCall<BooleanValue> anyOfFuncCall;
 
+	/*
+	 * This Match as Target (made of this Match only) indexable by value. Empty if not of this kind.
+	 */
+	private final Optional<EqualityMatchTarget> equalityMatchTarget;
+
 	/**
 	 * Instantiates Match evaluator from XACML-Schema-derived JAXB Match
 	 *
@@ -124,6 +130,14 @@ public final class MatchEvaluator
 		{
 			throw new IllegalArgumentException("Invalid inputs (Expressions) to the Match (validated using the equivalent standard 'any-of' function definition): " + anyOfFuncInputs, e);
 		}
+
+		this.equalityMatchTarget = EqualityMatchTarget.getInstance(matchId, bagExpression, attrValueExpr);
+	}
+
+	@Override
+	public Optional<EqualityMatchTarget> getEqualityMatchTarget()
+	{
+		return this.equalityMatchTarget;
 	}
 
 	/**
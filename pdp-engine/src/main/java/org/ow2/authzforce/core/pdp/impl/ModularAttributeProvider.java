@@ -89,10 +89,20 @@ public class ModularAttributeProvider implements AttributeProvider
 
 	private final IssuedToNonIssuedAttributeCopyMode issuedToNonIssuedAttributeCopyMode;
 
+	// null if none
+	private final PdpEngineMetrics metrics;
+
 	protected ModularAttributeProvider(final ImmutableListMultimap<AttributeFqn, NamedAttributeProvider> attributeProviderModulesByAttributeId,
 	        final Set<AttributeDesignatorType> selectedAttributeSupport, final boolean strictAttributeIssuerMatch)
 	{
-		assert attributeProviderModulesByAttributeId != null;
+		this(attributeProviderModulesByAttributeId, selectedAttributeSupport, strictAttributeIssuerMatch, Optional.empty());
+	}
+
+	protected ModularAttributeProvider(final ImmutableListMultimap<AttributeFqn, NamedAttributeProvider> attributeProviderModulesByAttributeId,
+	        final Set<AttributeDesignatorType> selectedAttributeSupport, final boolean strictAttributeIssuerMatch, final Optional<PdpEngineMetrics> metrics)
+	{
+		assert attributeProviderModulesByAttributeId != null && metrics != null;
+		this.metrics = metrics.orElse(null);
 
 		if (selectedAttributeSupport == null)
 		{
@@ -151,6 +161,18 @@ public class ModularAttributeProvider implements AttributeProvider
 		return new ModularAttributeProvider(attributeProviderModulesByAttributeId, selectedAttributeSupport, strictAttributeIssuerMatch);
 	}
 
+	/**
+	 * Says whether an attribute may be resolved by some Attribute Provider module if not found in the evaluation context, which is usually much more expensive than resolving it from the request
+	 *
+	 * @param attributeFqn
+	 *            attribute name
+	 * @return true iff some Attribute Provider module provides the attribute {@code attributeFqn}
+	 */
+	public final boolean isProvidedByModule(final AttributeFqn attributeFqn)
+	{
+		return designatorModsByAttrId.containsKey(attributeFqn);
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public final <AV extends AttributeValue> AttributeBag<AV> get(final AttributeFqn attributeFqn, final Datatype<AV> datatype, final EvaluationContext context) throws IndeterminateEvaluationException
@@ -178,17 +200,34 @@ public class ModularAttributeProvider implements AttributeProvider
 				        XacmlStatusCode.MISSING_ATTRIBUTE.value());
 			}
 
+			final long startNanos = metrics == null ? 0 : System.nanoTime();
 			AttributeBag<AV> result = null;
-			/*
-			 * Try all modules supporting this attribute until value found
-			 */
-			for (final NamedAttributeProvider attrProvider : attrProviders)
+			try
 			{
-				result = attrProvider.get(attributeFqn, datatype, context);
-				if (result != null && !result.isEmpty())
+				/*
+				 * Try all modules supporting this attribute until value found
+				 */
+				for (final NamedAttributeProvider attrProvider : attrProviders)
 				{
-					break;
+					result = attrProvider.get(attributeFqn, datatype, context);
+					if (result != null && !result.isEmpty())
+					{
+						break;
+					}
 				}
+			} catch (final IndeterminateEvaluationException e)
+			{
+				if (metrics != null)
+				{
+					metrics.recordAttributeProviderCall(System.nanoTime() - startNanos, true);
+				}
+
+				throw e;
+			}
+
+			if (metrics != null)
+			{
+				metrics.recordAttributeProviderCall(System.nanoTime() - startNanos, false);
 			}
 
 			if (result == null)
@@ -0,0 +1,311 @@
+/**
+ * Copyright 2012-2018 Thales Services SAS.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import org.ow2.authzforce.core.pdp.api.AttributeFqn;
+import org.ow2.authzforce.core.pdp.api.DecisionResult;
+import org.ow2.authzforce.core.pdp.api.policy.PrimaryPolicyMetadata;
+import org.ow2.authzforce.core.pdp.impl.PolicyEvaluationListener.TargetMatchResult;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.DecisionType;
+
+/**
+ * Result of a partial evaluation, i.e. evaluation of a decision request where attributes of some categories (e.g. resource) are unknown, see {@link BasePdpEngine#evaluatePartially(
+ * org.ow2.authzforce.core.pdp.api.DecisionRequest, Set)}. Either the decision is definite, i.e. the evaluation did not depend on any unknown attribute, therefore the decision is the same whatever the
+ * values of the unknown attributes; or the result is a residual: the Policy(Set) Targets and Rules whose evaluation depended on unknown attributes, with the unknown attributes involved, and the
+ * enclosing Policy(Set)s with their combining algorithm and the combined elements skipped by the combining algorithm. If {@link #isFilterable()}, the residual may be used by the caller to build a
+ * filter (e.g. a database query) from the corresponding Targets/Conditions, instead of evaluating one request per resource.
+ */
+public final class PartialDecision
+{
+	/**
+	 * Rule whose evaluation depended on unknown attributes
+	 */
+	public static final class ResidualRule
+	{
+		private final Optional<PrimaryPolicyMetadata> enclosingPolicy;
+		private final String ruleId;
+		private final DecisionType decision;
+		private final Set<AttributeFqn> unknownAttributes;
+
+		ResidualRule(final Optional<PrimaryPolicyMetadata> enclosingPolicy, final String ruleId, final DecisionType decision, final Set<AttributeFqn> unknownAttributes)
+		{
+			assert enclosingPolicy != null && ruleId != null && decision != null && unknownAttributes != null;
+			this.enclosingPolicy = enclosingPolicy;
+			this.ruleId = ruleId;
+			this.decision = decision;
+			this.unknownAttributes = ImmutableSet.copyOf(unknownAttributes);
+		}
+
+		/**
+		 * Get the Policy enclosing the Rule
+		 *
+		 * @return enclosing Policy; empty if the Policy evaluation was not notified (should not happen)
+		 */
+		public Optional<PrimaryPolicyMetadata> getEnclosingPolicy()
+		{
+			return enclosingPolicy;
+		}
+
+		/**
+		 * Get the RuleId
+		 *
+		 * @return RuleId
+		 */
+		public String getRuleId()
+		{
+			return ruleId;
+		}
+
+		/**
+		 * Get the Rule's decision with unknown attributes considered missing (i.e. empty bags)
+		 *
+		 * @return decision with unknown attributes missing
+		 */
+		public DecisionType getDecision()
+		{
+			return decision;
+		}
+
+		/**
+		 * Get the unknown attributes requested for the Rule evaluation (Target and Condition)
+		 *
+		 * @return unknown attributes
+		 */
+		public Set<AttributeFqn> getUnknownAttributes()
+		{
+			return unknownAttributes;
+		}
+
+		@Override
+		public String toString()
+		{
+			return (enclosingPolicy.isPresent() ? enclosingPolicy.get() + "/" : "") + "Rule['" + ruleId + "']: unknownAttributes=" + unknownAttributes + " -> " + decision;
+		}
+	}
+
+	/**
+	 * Policy(Set) whose evaluation depended on unknown attributes, through its Target, its combined elements (Rules or Policy(Set)s) or other parts (Obligation/Advice, combining algorithm)
+	 */
+	public static final class ResidualPolicy
+	{
+		private final PrimaryPolicyMetadata policy;
+		private final String combiningAlgId;
+		private final TargetMatchResult targetResult;
+		private final Set<AttributeFqn> targetUnknownAttributes;
+		private final Set<AttributeFqn> otherUnknownAttributes;
+		private final List<String> skippedCombinedElementIds;
+		private final DecisionType decision;
+
+		ResidualPolicy(final PrimaryPolicyMetadata policy, final String combiningAlgId, final TargetMatchResult targetResult, final Set<AttributeFqn> targetUnknownAttributes,
+				final Set<AttributeFqn> otherUnknownAttributes, final List<String> skippedCombinedElementIds, final DecisionType decision)
+		{
+			assert policy != null && combiningAlgId != null && targetResult != null && targetUnknownAttributes != null && otherUnknownAttributes != null && skippedCombinedElementIds != null
+					&& decision != null;
+			this.policy = policy;
+			this.combiningAlgId = combiningAlgId;
+			this.targetResult = targetResult;
+			this.targetUnknownAttributes = ImmutableSet.copyOf(targetUnknownAttributes);
+			this.otherUnknownAttributes = ImmutableSet.copyOf(otherUnknownAttributes);
+			this.skippedCombinedElementIds = ImmutableList.copyOf(skippedCombinedElementIds);
+			this.decision = decision;
+		}
+
+		/**
+		 * Get the Policy(Set)
+		 *
+		 * @return Policy(Set)
+		 */
+		public PrimaryPolicyMetadata getPolicy()
+		{
+			return policy;
+		}
+
+		/**
+		 * Get the rule/policy-combining algorithm of the Policy(Set), to combine the residual elements
+		 *
+		 * @return combining algorithm ID
+		 */
+		public String getCombiningAlgId()
+		{
+			return combiningAlgId;
+		}
+
+		/**
+		 * Get the Target result with unknown attributes considered missing (i.e. empty bags)
+		 *
+		 * @return Target result; {@link TargetMatchResult#NOT_EVALUATED} if the Target was evaluated by the enclosing PolicySet's combining algorithm (only-one-applicable)
+		 */
+		public TargetMatchResult getTargetResult()
+		{
+			return targetResult;
+		}
+
+		/**
+		 * Get the unknown attributes requested for the Target evaluation. If not empty, the Target is part of the residual: it may match or not depending on the unknown attributes.
+		 *
+		 * @return unknown attributes requested by the Target
+		 */
+		public Set<AttributeFqn> getTargetUnknownAttributes()
+		{
+			return targetUnknownAttributes;
+		}
+
+		/**
+		 * Get the unknown attributes requested for the evaluation of other parts of the Policy(Set) than its Target and Rules, i.e. the Obligation/Advice expressions, or the Targets of the combined
+		 * Policy(Set)s evaluated by the combining algorithm (only-one-applicable). If not empty, the residual is not filterable.
+		 *
+		 * @return other unknown attributes
+		 */
+		public Set<AttributeFqn> getOtherUnknownAttributes()
+		{
+			return otherUnknownAttributes;
+		}
+
+		/**
+		 * Get the combined elements that were not evaluated, e.g. because of the combining algorithm's short-circuit (first-applicable stopping on an Indeterminate Rule) or because the Target did
+		 * not match. Their result may depend on unknown attributes as well, therefore they are part of the residual.
+		 *
+		 * @return IDs of skipped combined elements in order of declaration: RuleIds for a Policy, PolicyIds/PolicySetIds for a PolicySet
+		 */
+		public List<String> getSkippedCombinedElementIds()
+		{
+			return skippedCombinedElementIds;
+		}
+
+		/**
+		 * Get the Policy(Set)'s decision with unknown attributes considered missing (i.e. empty bags)
+		 *
+		 * @return decision with unknown attributes missing
+		 */
+		public DecisionType getDecision()
+		{
+			return decision;
+		}
+
+		@Override
+		public String toString()
+		{
+			return policy + ": combiningAlg=" + combiningAlgId + ", Target=" + targetResult + ", targetUnknownAttributes=" + targetUnknownAttributes + ", otherUnknownAttributes="
+					+ otherUnknownAttributes + ", skipped=" + skippedCombinedElementIds + " -> " + decision;
+		}
+	}
+
+	private final DecisionResult result;
+	private final List<ResidualPolicy> residualPolicies;
+	private final List<ResidualRule> residualRules;
+	private final Set<AttributeFqn> unknownAttributes;
+	private final boolean isFilterable;
+
+	PartialDecision(final DecisionResult result, final List<ResidualPolicy> residualPolicies, final List<ResidualRule> residualRules, final Set<AttributeFqn> unknownAttributes,
+			final boolean isFilterable)
+	{
+		assert result != null && residualPolicies != null && residualRules != null && unknownAttributes != null;
+		this.result = result;
+		this.residualPolicies = ImmutableList.copyOf(residualPolicies);
+		this.residualRules = ImmutableList.copyOf(residualRules);
+		this.unknownAttributes = ImmutableSet.copyOf(unknownAttributes);
+		this.isFilterable = isFilterable;
+	}
+
+	/**
+	 * Is the decision definite, i.e. independent from the unknown attributes?
+	 *
+	 * @return true iff no unknown attribute was requested during evaluation
+	 */
+	public boolean isDefinite()
+	{
+		return unknownAttributes.isEmpty();
+	}
+
+	/**
+	 * Get the decision result. If {@link #isDefinite()}, this is the final decision whatever the values of the unknown attributes; else this is the decision with unknown attributes considered missing
+	 * (typically Indeterminate or NotApplicable), and the actual decision depends on the {@link #getResidualRules()}.
+	 *
+	 * @return decision result
+	 */
+	public DecisionResult getResult()
+	{
+		return result;
+	}
+
+	/**
+	 * Is the residual filterable, i.e. was every unknown attribute requested by a Policy(Set)'s Target or a Rule? If not, some unknown attributes were requested by other parts of the policies
+	 * (Obligation/Advice expressions, only-one-applicable combining algorithm), which the residual does not describe precisely enough to build a filter; the caller must fall back to evaluating one
+	 * request per resource.
+	 *
+	 * @return true iff the residual Targets and Rules (with the enclosing Policy(Set)s' combining algorithms and skipped elements) are sufficient to build a filter; true if {@link #isDefinite()}
+	 */
+	public boolean isFilterable()
+	{
+		return isFilterable;
+	}
+
+	/**
+	 * Get the Policy(Set)s whose evaluation depended on unknown attributes, directly (Target) or through their descendants, in order of evaluation completion (child Policy(Set)s before their parent).
+	 * A Policy(Set) evaluated several times in the same request (e.g. referenced more than once) is included only once.
+	 *
+	 * @return residual Policy(Set)s (empty if {@link #isDefinite()})
+	 */
+	public List<ResidualPolicy> getResidualPolicies()
+	{
+		return residualPolicies;
+	}
+
+	/**
+	 * Get the Rules whose evaluation depended on unknown attributes, in order of evaluation. Rules not evaluated because of the combining algorithm's short-circuit (e.g. first-applicable stopping on an
+	 * Indeterminate Rule) are not included but listed as skipped by the enclosing {@link ResidualPolicy}.
+	 *
+	 * @return residual Rules
+	 */
+	public List<ResidualRule> getResidualRules()
+	{
+		return residualRules;
+	}
+
+	/**
+	 * Get all unknown attributes requested during evaluation
+	 *
+	 * @return unknown attributes (empty iff {@link #isDefinite()})
+	 */
+	public Set<AttributeFqn> getUnknownAttributes()
+	{
+		return unknownAttributes;
+	}
+
+	@Override
+	public String toString()
+	{
+		if (isDefinite())
+		{
+			return "PartialDecision[definite: " + result + "]";
+		}
+
+		final StringBuilder sb = new StringBuilder("PartialDecision[residual").append(isFilterable ? "" : " (not filterable)").append(": ").append(result);
+		residualRules.forEach(r -> sb.append(System.lineSeparator()).append('\t').append(r));
+		residualPolicies.forEach(p -> sb.append(System.lineSeparator()).append('\t').append(p));
+		return sb.append(System.lineSeparator()).append(']').toString();
+	}
+}
@@ -0,0 +1,307 @@
+/**
+ * Copyright 2012-2018 Thales Services SAS.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import org.ow2.authzforce.core.pdp.api.AttributeFqn;
+import org.ow2.authzforce.core.pdp.api.DecisionResult;
+import org.ow2.authzforce.core.pdp.api.policy.PrimaryPolicyMetadata;
+import org.ow2.authzforce.core.pdp.api.value.AttributeBag;
+import org.ow2.authzforce.core.pdp.impl.PartialDecision.ResidualPolicy;
+import org.ow2.authzforce.core.pdp.impl.PartialDecision.ResidualRule;
+
+/**
+ * {@link PolicyEvaluationListener} recording the Policy(Set) Targets and Rules whose evaluation depended on unknown attributes, for partial evaluation. Unknown attributes are detected when they are
+ * put in the evaluation context (as empty bags, since the context refuses to provide them) or read from it. Each unknown attribute is assigned to the next element evaluation event: a Policy(Set)'s
+ * Target ({@link #policyTargetEvaluated(PrimaryPolicyMetadata, TargetMatchResult, String, List)}), a Rule ({@link #ruleEvaluated(PrimaryPolicyMetadata, String, TargetMatchResult, ConditionResult,
+ * DecisionResult, long)}), or the Policy(Set) being evaluated for the attributes requested after its last child element (Obligation/Advice). Since the Target event precedes the evaluation of the
+ * combined elements and the Policy(Set) evaluation event follows it, Policy(Set) evaluations are tracked with a stack, which gives the enclosing Policy(Set) of each element and the combined elements
+ * skipped by the combining algorithm.
+ * <p>
+ * Requires a full trace (see {@link #isFullTraceRequired()}), since flattened PolicySets would be missing from the residual. Not thread-safe: a new instance must be registered in each evaluation
+ * context. Events may be forwarded to another listener, e.g. the PDP engine's metrics listener, since only one {@link PolicyEvaluationListener} may be registered per context.
+ */
+final class PartialEvaluationRecorder implements PolicyEvaluationListener
+{
+	private static final class PolicyEvaluationFrame
+	{
+		private final PrimaryPolicyMetadata policy;
+		private final TargetMatchResult targetResult;
+		private final String combiningAlgId;
+		private final List<String> combinedElementIds;
+		private final Set<AttributeFqn> targetUnknownAttributes;
+		private final Set<AttributeFqn> otherUnknownAttributes = new LinkedHashSet<>();
+		private final Set<String> evaluatedCombinedElementIds = new HashSet<>();
+		private boolean isAnyCombinedElementResidual = false;
+
+		private PolicyEvaluationFrame(final PrimaryPolicyMetadata policy, final TargetMatchResult targetResult, final String combiningAlgId, final List<String> combinedElementIds,
+				final Set<AttributeFqn> targetUnknownAttributes)
+		{
+			this.policy = policy;
+			this.targetResult = targetResult;
+			this.combiningAlgId = combiningAlgId;
+			this.combinedElementIds = combinedElementIds;
+			this.targetUnknownAttributes = targetUnknownAttributes;
+		}
+
+		private boolean isResidual()
+		{
+			return isAnyCombinedElementResidual || !targetUnknownAttributes.isEmpty() || !otherUnknownAttributes.isEmpty();
+		}
+
+		private List<String> getSkippedCombinedElementIds()
+		{
+			final List<String> skippedIds = new ArrayList<>(combinedElementIds.size());
+			for (final String combinedElementId : combinedElementIds)
+			{
+				if (!evaluatedCombinedElementIds.contains(combinedElementId))
+				{
+					skippedIds.add(combinedElementId);
+				}
+			}
+
+			return skippedIds;
+		}
+	}
+
+	private final Set<String> unknownAttributeCategories;
+
+	// null if none
+	private final PolicyEvaluationListener nextListener;
+
+	private final Set<AttributeFqn> allUnknownAttributes = new LinkedHashSet<>();
+	private Set<AttributeFqn> unknownAttributesSinceLastEvent = new LinkedHashSet<>();
+	/*
+	 * Unknown attributes requested out of any Policy(Set) evaluation (should not happen)
+	 */
+	private final Set<AttributeFqn> unassignedUnknownAttributes = new LinkedHashSet<>();
+	private final Deque<PolicyEvaluationFrame> policyEvaluationStack = new ArrayDeque<>();
+	private final List<ResidualRule> residualRules = new ArrayList<>();
+	private final List<ResidualPolicy> residualPolicies = new ArrayList<>();
+	private final Set<PrimaryPolicyMetadata> residualPolicySet = new HashSet<>();
+	private boolean isFilterable = true;
+
+	PartialEvaluationRecorder(final Set<String> unknownAttributeCategories, final Optional<PolicyEvaluationListener> nextListener)
+	{
+		assert unknownAttributeCategories != null && nextListener != null;
+		this.unknownAttributeCategories = unknownAttributeCategories;
+		this.nextListener = nextListener.orElse(null);
+	}
+
+	private void onAttribute(final AttributeFqn attributeFQN)
+	{
+		if (unknownAttributeCategories.contains(attributeFQN.getCategory()))
+		{
+			unknownAttributesSinceLastEvent.add(attributeFQN);
+			allUnknownAttributes.add(attributeFQN);
+		}
+	}
+
+	/*
+	 * Assign the unknown attributes requested since the last event to the Policy(Set) being evaluated as "other" unknown attributes (not from its Target or Rules)
+	 */
+	private void assignUnknownAttributesToCurrentPolicy()
+	{
+		if (unknownAttributesSinceLastEvent.isEmpty())
+		{
+			return;
+		}
+
+		final PolicyEvaluationFrame currentFrame = policyEvaluationStack.peek();
+		if (currentFrame == null)
+		{
+			unassignedUnknownAttributes.addAll(unknownAttributesSinceLastEvent);
+		} else
+		{
+			currentFrame.otherUnknownAttributes.addAll(unknownAttributesSinceLastEvent);
+		}
+
+		unknownAttributesSinceLastEvent = new LinkedHashSet<>();
+	}
+
+	@Override
+	public void namedAttributeValueProduced(final AttributeFqn attributeFQN, final AttributeBag<?> value)
+	{
+		onAttribute(attributeFQN);
+		if (nextListener != null)
+		{
+			nextListener.namedAttributeValueProduced(attributeFQN, value);
+		}
+	}
+
+	@Override
+	public void namedAttributeValueConsumed(final AttributeFqn attributeFQN, final AttributeBag<?> value)
+	{
+		onAttribute(attributeFQN);
+		if (nextListener != null)
+		{
+			nextListener.namedAttributeValueConsumed(attributeFQN, value);
+		}
+	}
+
+	@Override
+	public void policyTargetEvaluated(final PrimaryPolicyMetadata policy, final TargetMatchResult targetResult, final String combiningAlgId, final List<String> combinedElementIds)
+	{
+		final PolicyEvaluationFrame parentFrame = policyEvaluationStack.peek();
+		if (parentFrame != null)
+		{
+			parentFrame.evaluatedCombinedElementIds.add(policy.getId());
+		}
+
+		final Set<AttributeFqn> targetUnknownAttributes;
+		if (targetResult == TargetMatchResult.NOT_EVALUATED)
+		{
+			/*
+			 * Target evaluated by the parent's combining algorithm (only-one-applicable), along with its other children's Targets
+			 */
+			assignUnknownAttributesToCurrentPolicy();
+			targetUnknownAttributes = new LinkedHashSet<>();
+		} else
+		{
+			targetUnknownAttributes = unknownAttributesSinceLastEvent;
+			unknownAttributesSinceLastEvent = new LinkedHashSet<>();
+		}
+
+		policyEvaluationStack.push(new PolicyEvaluationFrame(policy, targetResult, combiningAlgId, combinedElementIds, targetUnknownAttributes));
+		if (nextListener != null)
+		{
+			nextListener.policyTargetEvaluated(policy, targetResult, combiningAlgId, combinedElementIds);
+		}
+	}
+
+	@Override
+	public void ruleEvaluated(final PrimaryPolicyMetadata enclosingPolicy, final String ruleId, final TargetMatchResult targetResult, final ConditionResult conditionResult,
+			final DecisionResult result, final long elapsedNanos)
+	{
+		final PolicyEvaluationFrame currentFrame = policyEvaluationStack.peek();
+		if (currentFrame != null)
+		{
+			currentFrame.evaluatedCombinedElementIds.add(ruleId);
+		}
+
+		if (!unknownAttributesSinceLastEvent.isEmpty())
+		{
+			residualRules.add(new ResidualRule(Optional.ofNullable(currentFrame == null ? null : currentFrame.policy), ruleId, result.getDecision(), unknownAttributesSinceLastEvent));
+			unknownAttributesSinceLastEvent = new LinkedHashSet<>();
+			if (currentFrame == null)
+			{
+				isFilterable = false;
+			} else
+			{
+				currentFrame.isAnyCombinedElementResidual = true;
+			}
+		}
+
+		if (nextListener != null)
+		{
+			nextListener.ruleEvaluated(enclosingPolicy, ruleId, targetResult, conditionResult, result, elapsedNanos);
+		}
+	}
+
+	@Override
+	public void policyEvaluated(final PrimaryPolicyMetadata policy, final TargetMatchResult targetResult, final DecisionResult result, final long elapsedNanos)
+	{
+		/*
+		 * Unknown attributes requested after the last child element evaluation, i.e. by Obligation/Advice expressions
+		 */
+		assignUnknownAttributesToCurrentPolicy();
+		final PolicyEvaluationFrame frame = policyEvaluationStack.peek();
+		if (frame == null || !frame.policy.equals(policy))
+		{
+			/*
+			 * No matching Target event (should not happen)
+			 */
+			isFilterable = false;
+		} else
+		{
+			policyEvaluationStack.pop();
+			if (frame.isResidual())
+			{
+				residualPolicies.add(new ResidualPolicy(policy, frame.combiningAlgId, frame.targetResult, frame.targetUnknownAttributes, frame.otherUnknownAttributes,
+						frame.getSkippedCombinedElementIds(), result.getDecision()));
+				residualPolicySet.add(policy);
+				if (!frame.otherUnknownAttributes.isEmpty())
+				{
+					isFilterable = false;
+				}
+
+				final PolicyEvaluationFrame parentFrame = policyEvaluationStack.peek();
+				if (parentFrame != null)
+				{
+					parentFrame.isAnyCombinedElementResidual = true;
+				}
+			}
+		}
+
+		if (nextListener != null)
+		{
+			nextListener.policyEvaluated(policy, targetResult, result, elapsedNanos);
+		}
+	}
+
+	@Override
+	public void policyResultReused(final PrimaryPolicyMetadata policy, final DecisionResult result)
+	{
+		/*
+		 * Unknown attributes requested before reusing the result (skipTarget=true) come from the parent's combining algorithm
+		 */
+		assignUnknownAttributesToCurrentPolicy();
+		final PolicyEvaluationFrame parentFrame = policyEvaluationStack.peek();
+		if (parentFrame != null)
+		{
+			parentFrame.evaluatedCombinedElementIds.add(policy.getId());
+			if (residualPolicySet.contains(policy))
+			{
+				parentFrame.isAnyCombinedElementResidual = true;
+			}
+		}
+
+		if (nextListener != null)
+		{
+			nextListener.policyResultReused(policy, result);
+		}
+	}
+
+	@Override
+	public boolean isFullTraceRequired()
+	{
+		return true;
+	}
+
+	/**
+	 * Get the partial decision
+	 *
+	 * @param result
+	 *            decision result of the evaluation
+	 * @return partial decision
+	 */
+	PartialDecision getPartialDecision(final DecisionResult result)
+	{
+		unassignedUnknownAttributes.addAll(unknownAttributesSinceLastEvent);
+		return new PartialDecision(result, residualPolicies, residualRules, allUnknownAttributes, isFilterable && unassignedUnknownAttributes.isEmpty() && policyEvaluationStack.isEmpty());
+	}
+
+}
@@ -167,6 +167,8 @@ public final class PdpEngineConfiguration
 
 	private final Optional<DecisionCache> decisionCache;
 
+	private final Optional<PdpEngineMetrics> metrics;
+
 	private final Map<Class<?>, Entry<DecisionRequestPreprocessor<?, ?>, DecisionResultPostprocessor<?, ?>>> ioProcChainsByInputType;
 
 	private final int clientReqErrVerbosityLevel;
@@ -288,7 +290,8 @@ public final class PdpEngineConfiguration
 			final AttributeValueFactory<?> intValFactory = attValFactoryRegistry.getExtension(StandardDatatypes.INTEGER.getId());
 			assert intValFactory != null && intValFactory.getDatatype() == StandardDatatypes.INTEGER && intValFactory instanceof StringParseableValue.Factory;
 
-			final FunctionRegistry stdRegistry = StandardFunction.getRegistry(enableXPath, (StringParseableValue.Factory<IntegerValue>) intValFactory);
+			final FunctionRegistry stdRegistry = StandardFunction.getRegistry(enableXPath, (StringParseableValue.Factory<IntegerValue>) intValFactory,
+			        pdpJaxbConf.isReorderLogicalFunctionArgsByCost());
 			if (nonGenericFunctionExtensionIdentifiers.isEmpty())
 			{
 				functionRegistry = stdRegistry;
@@ -328,12 +331,13 @@ public final class PdpEngineConfiguration
 		final CombiningAlgRegistry combiningAlgRegistry;
 		if (pdpJaxbConf.isUseStandardCombiningAlgorithms())
 		{
+			final CombiningAlgRegistry stdRegistry = StandardCombiningAlgorithm.getRegistry(pdpJaxbConf.isAdaptiveCombinedElementOrder());
 			if (algExtensions.isEmpty())
 			{
-				combiningAlgRegistry = StandardCombiningAlgorithm.REGISTRY;
+				combiningAlgRegistry = stdRegistry;
 			} else
 			{
-				combiningAlgRegistry = new ImmutableCombiningAlgRegistry(HashCollections.newImmutableSet(StandardCombiningAlgorithm.REGISTRY.getExtensions(), algExtensions));
+				combiningAlgRegistry = new ImmutableCombiningAlgRegistry(HashCollections.newImmutableSet(stdRegistry.getExtensions(), algExtensions));
 			}
 		} else
 		{
@@ -353,10 +357,16 @@ public final class PdpEngineConfiguration
 			throw new IllegalArgumentException("Invalid maxPolicyRefDepth: " + bigMaxPolicyRefDepth, e);
 		}
 
+		/*
+		 * PDP engine metrics, also updated by the Attribute Providers (through the expression factory)
+		 */
+		metrics = pdpJaxbConf.isEnableMetrics() ? Optional.of(new PdpEngineMetrics()) : Optional.empty();
+
 		/*
 		 * XACML Expression factory/parser
 		 */
-		xacmlExpressionFactory = new DepthLimitingExpressionFactory(attValFactoryRegistry, functionRegistry, attProviderFactories, maxVarRefDepth, enableXPath, strictAttributeIssuerMatch);
+		xacmlExpressionFactory = new DepthLimitingExpressionFactory(attValFactoryRegistry, functionRegistry, attProviderFactories, maxVarRefDepth, enableXPath, strictAttributeIssuerMatch,
+		        metrics);
 
 		/*
 		 * Policy Reference processing - Policy-by-reference Provider
@@ -792,6 +802,17 @@ public final class PdpEngineConfiguration
 		return decisionCache;
 	}
 
+	/**
+	 * Returns the PDP engine-wide metrics (requests, decisions, decision cache, attribute providers, latencies), updated by the Attribute Providers of this configuration and by the PDP engines
+	 * created from it, e.g. to be exported with {@link JmxPdpEngineMetricsExporter}
+	 * 
+	 * @return the PDP engine metrics; empty iff disabled ('enableMetrics' configuration parameter)
+	 */
+	public Optional<PdpEngineMetrics> getMetrics()
+	{
+		return metrics;
+	}
+
 	/**
 	 * Returns the processor chains that can be applied to PDP engine input/output, by input type
 	 * 
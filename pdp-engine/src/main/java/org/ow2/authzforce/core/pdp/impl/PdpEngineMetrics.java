@@ -0,0 +1,303 @@
+/**
+ * Copyright 2012-2018 Thales Services SAS.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.ow2.authzforce.core.pdp.api.DecisionResult;
+import org.ow2.authzforce.core.pdp.api.HashCollections;
+
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.DecisionType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.Status;
+
+/**
+ * PDP engine-wide metrics: decision requests, decisions by type, Indeterminate decisions by status code, decision cache hits/misses, attribute provider module calls, and latency histograms
+ * ({@link LatencyHistogram}). Created by the {@link PdpEngineConfiguration} if enabled (see {@link PdpEngineConfiguration#getMetrics()}), and populated by the {@link BasePdpEngine}s created from
+ * this configuration and by its {@link ModularAttributeProvider}, to which the metrics are passed at creation time. Counters are striped ({@link LongAdder}), which scale well under contention from
+ * concurrent request evaluations.
+ * <p>
+ * Metrics may be read directly with the getters, or exported with a {@link PdpEngineMetricsExporter}, e.g. {@link JmxPdpEngineMetricsExporter}.
+ */
+public final class PdpEngineMetrics
+{
+	/**
+	 * Key of Indeterminate decisions without status code in {@link #getIndeterminateCountsByStatusCode()}
+	 */
+	public static final String UNDEFINED_STATUS_CODE = "undefined";
+
+	private static String getStatusCode(final DecisionResult result)
+	{
+		final Status status = result.getStatus();
+		return status == null || status.getStatusCode() == null ? UNDEFINED_STATUS_CODE : status.getStatusCode().getValue();
+	}
+
+	private final LongAdder individualRequestCount = new LongAdder();
+	private final LongAdder multipleRequestCount = new LongAdder();
+	private final LongAdder[] decisionCounts = new LongAdder[DecisionType.values().length];
+	private final ConcurrentMap<String, LongAdder> indeterminateCountsByStatusCode = new ConcurrentHashMap<>();
+	private final LongAdder decisionCacheHitCount = new LongAdder();
+	private final LongAdder decisionCacheMissCount = new LongAdder();
+	private final LongAdder attributeProviderCallCount = new LongAdder();
+	private final LongAdder attributeProviderErrorCount = new LongAdder();
+	private final LatencyHistogram individualRequestLatency = new LatencyHistogram();
+	private final LatencyHistogram multipleRequestLatency = new LatencyHistogram();
+	private final LatencyHistogram attributeProviderLatency = new LatencyHistogram();
+
+	/**
+	 * Creates empty metrics
+	 */
+	public PdpEngineMetrics()
+	{
+		for (int i = 0; i < decisionCounts.length; i++)
+		{
+			decisionCounts[i] = new LongAdder();
+		}
+	}
+
+	private void recordDecision(final DecisionResult result)
+	{
+		final DecisionType decision = result.getDecision();
+		decisionCounts[decision.ordinal()].increment();
+		if (decision == DecisionType.INDETERMINATE)
+		{
+			final String statusCode = getStatusCode(result);
+			/*
+			 * get() first to avoid computeIfAbsent() locking once the entry exists (most frequent case)
+			 */
+			LongAdder count = indeterminateCountsByStatusCode.get(statusCode);
+			if (count == null)
+			{
+				count = indeterminateCountsByStatusCode.computeIfAbsent(statusCode, k -> new LongAdder());
+			}
+
+			count.increment();
+		}
+	}
+
+	/**
+	 * Records the evaluation of an Individual Decision Request
+	 *
+	 * @param result
+	 *            decision result
+	 * @param elapsedNanos
+	 *            evaluation time in nanoseconds
+	 */
+	void recordIndividualRequest(final DecisionResult result, final long elapsedNanos)
+	{
+		individualRequestCount.increment();
+		recordDecision(result);
+		individualRequestLatency.record(elapsedNanos);
+	}
+
+	/**
+	 * Records the evaluation of multiple Individual Decision Requests at once (Multiple Decision Profile)
+	 *
+	 * @param resultsByRequest
+	 *            individual decision request-result pairs
+	 * @param elapsedNanos
+	 *            evaluation time of all requests in nanoseconds
+	 */
+	void recordMultipleRequest(final Collection<? extends Entry<?, ? extends DecisionResult>> resultsByRequest, final long elapsedNanos)
+	{
+		multipleRequestCount.increment();
+		individualRequestCount.add(resultsByRequest.size());
+		resultsByRequest.forEach(resultByRequest -> recordDecision(resultByRequest.getValue()));
+		multipleRequestLatency.record(elapsedNanos);
+	}
+
+	/**
+	 * Records a decision cache lookup
+	 *
+	 * @param isHit
+	 *            true iff a result was found in cache
+	 */
+	void recordDecisionCacheLookup(final boolean isHit)
+	{
+		(isHit ? decisionCacheHitCount : decisionCacheMissCount).increment();
+	}
+
+	/**
+	 * Records a call to the attribute provider modules (attribute not found in evaluation context)
+	 *
+	 * @param elapsedNanos
+	 *            time spent in the attribute provider modules, in nanoseconds
+	 * @param isError
+	 *            true iff the call failed (Indeterminate)
+	 */
+	void recordAttributeProviderCall(final long elapsedNanos, final boolean isError)
+	{
+		attributeProviderCallCount.increment();
+		if (isError)
+		{
+			attributeProviderErrorCount.increment();
+		}
+
+		attributeProviderLatency.record(elapsedNanos);
+	}
+
+	/**
+	 * Get number of Individual Decision Requests evaluated, including the ones evaluated as part of a Multiple Decision Request
+	 *
+	 * @return request count
+	 */
+	public long getIndividualRequestCount()
+	{
+		return individualRequestCount.sum();
+	}
+
+	/**
+	 * Get number of (batches of) multiple Individual Decision Requests evaluated at once
+	 *
+	 * @return multiple request count
+	 */
+	public long getMultipleRequestCount()
+	{
+		return multipleRequestCount.sum();
+	}
+
+	/**
+	 * Get number of decisions of a given type
+	 *
+	 * @param decision
+	 *            decision type
+	 * @return decision count
+	 */
+	public long getDecisionCount(final DecisionType decision)
+	{
+		return decisionCounts[decision.ordinal()].sum();
+	}
+
+	/**
+	 * Get snapshot of Indeterminate decision counts by status code
+	 *
+	 * @return counts by status code ({@link #UNDEFINED_STATUS_CODE} if none)
+	 */
+	public Map<String, Long> getIndeterminateCountsByStatusCode()
+	{
+		final Map<String, Long> countsByStatusCode = HashCollections.newUpdatableMap(indeterminateCountsByStatusCode.size());
+		indeterminateCountsByStatusCode.forEach((statusCode, count) -> countsByStatusCode.put(statusCode, count.sum()));
+		return countsByStatusCode;
+	}
+
+	/**
+	 * Get number of decision results found in the decision cache
+	 *
+	 * @return cache hit count
+	 */
+	public long getDecisionCacheHitCount()
+	{
+		return decisionCacheHitCount.sum();
+	}
+
+	/**
+	 * Get number of decision results not found in the decision cache
+	 *
+	 * @return cache miss count
+	 */
+	public long getDecisionCacheMissCount()
+	{
+		return decisionCacheMissCount.sum();
+	}
+
+	/**
+	 * Get number of calls to attribute provider modules (attributes not found in the evaluation context)
+	 *
+	 * @return call count
+	 */
+	public long getAttributeProviderCallCount()
+	{
+		return attributeProviderCallCount.sum();
+	}
+
+	/**
+	 * Get number of failed calls to attribute provider modules
+	 *
+	 * @return error count
+	 */
+	public long getAttributeProviderErrorCount()
+	{
+		return attributeProviderErrorCount.sum();
+	}
+
+	/**
+	 * Get latency histogram of Individual Decision Requests evaluated on their own
+	 *
+	 * @return latency histogram
+	 */
+	public LatencyHistogram getIndividualRequestLatency()
+	{
+		return individualRequestLatency;
+	}
+
+	/**
+	 * Get latency histogram of Multiple Decision Requests (all Individual Decision Requests evaluated at once)
+	 *
+	 * @return latency histogram
+	 */
+	public LatencyHistogram getMultipleRequestLatency()
+	{
+		return multipleRequestLatency;
+	}
+
+	/**
+	 * Get latency histogram of calls to attribute provider modules
+	 *
+	 * @return latency histogram
+	 */
+	public LatencyHistogram getAttributeProviderLatency()
+	{
+		return attributeProviderLatency;
+	}
+
+	/**
+	 * Resets all metrics
+	 */
+	public void reset()
+	{
+		individualRequestCount.reset();
+		multipleRequestCount.reset();
+		for (final LongAdder decisionCount : decisionCounts)
+		{
+			decisionCount.reset();
+		}
+
+		indeterminateCountsByStatusCode.clear();
+		decisionCacheHitCount.reset();
+		decisionCacheMissCount.reset();
+		attributeProviderCallCount.reset();
+		attributeProviderErrorCount.reset();
+		individualRequestLatency.reset();
+		multipleRequestLatency.reset();
+		attributeProviderLatency.reset();
+	}
+
+	@Override
+	public String toString()
+	{
+		return "{individualRequests=" + getIndividualRequestCount() + ", multipleRequests=" + getMultipleRequestCount() + ", permits=" + getDecisionCount(DecisionType.PERMIT) + ", denies="
+				+ getDecisionCount(DecisionType.DENY) + ", notApplicables=" + getDecisionCount(DecisionType.NOT_APPLICABLE) + ", indeterminates=" + getIndeterminateCountsByStatusCode()
+				+ ", decisionCacheHits=" + getDecisionCacheHitCount() + ", decisionCacheMisses=" + getDecisionCacheMissCount() + ", attributeProviderCalls=" + getAttributeProviderCallCount()
+				+ ", attributeProviderErrors=" + getAttributeProviderErrorCount() + ", individualRequestLatency=" + individualRequestLatency + ", multipleRequestLatency=" + multipleRequestLatency
+				+ ", attributeProviderLatency=" + attributeProviderLatency + "}";
+	}
+}
@@ -0,0 +1,44 @@
+/**
+ * Copyright 2012-2018 Thales Services SAS.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Exporter of {@link PdpEngineMetrics} to a monitoring system, e.g. {@link JmxPdpEngineMetricsExporter}. Implement this interface to plug in a specific monitoring system or metrics library. Exporters
+ * should read the metrics on demand (pull) or periodically, never on the evaluation path.
+ */
+public interface PdpEngineMetricsExporter extends Closeable
+{
+	/**
+	 * Starts exporting metrics, e.g. registers an MBean or starts a reporting thread
+	 *
+	 * @param metrics
+	 *            PDP engine metrics to be exported
+	 * @throws IOException
+	 *             error starting the export
+	 */
+	void start(PdpEngineMetrics metrics) throws IOException;
+
+	/**
+	 * Stops exporting metrics
+	 */
+	@Override
+	void close() throws IOException;
+}
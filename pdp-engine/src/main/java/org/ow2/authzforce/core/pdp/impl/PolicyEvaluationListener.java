@@ -0,0 +1,211 @@
+/**
+ * Copyright 2012-2018 Thales Services SAS.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.ow2.authzforce.core.pdp.api.AttributeFqn;
+import org.ow2.authzforce.core.pdp.api.DecisionResult;
+import org.ow2.authzforce.core.pdp.api.EvaluationContext;
+import org.ow2.authzforce.core.pdp.api.expression.AttributeSelectorExpression;
+import org.ow2.authzforce.core.pdp.api.policy.PrimaryPolicyMetadata;
+import org.ow2.authzforce.core.pdp.api.value.AttributeBag;
+import org.ow2.authzforce.core.pdp.api.value.Bag;
+import org.ow2.authzforce.core.pdp.api.value.XPathValue;
+
+/**
+ * Listener of Policy(Set) and Rule evaluation events, notified by the Policy(Set) and Rule evaluators if registered in the {@link EvaluationContext} with
+ * {@code context.putListener(PolicyEvaluationListener.class, listener)}, or for all requests with
+ * {@link BasePdpEngine#BasePdpEngine(PdpEngineConfiguration, BasePdpEngine.Options)}.
+ * <p>
+ * Evaluators look the listener up once per evaluation and do not call {@link System#nanoTime()} if there is none, so there is no measurable overhead when no listener is registered. Implementations
+ * must be thread-safe if the same instance is shared by concurrent evaluation contexts (e.g. registered at the engine level).
+ * <p>
+ * Attribute production/consumption events are ignored by default.
+ */
+public interface PolicyEvaluationListener extends EvaluationContext.Listener
+{
+	/**
+	 * Result of Target evaluation
+	 */
+	enum TargetMatchResult
+	{
+		/**
+		 * Target matched the request (including empty Target)
+		 */
+		MATCH,
+
+		/**
+		 * Target did not match the request
+		 */
+		NO_MATCH,
+
+		/**
+		 * Target evaluation was Indeterminate
+		 */
+		INDETERMINATE,
+
+		/**
+		 * Target evaluation skipped, e.g. because it has already been evaluated by the enclosing combining algorithm (only-one-applicable)
+		 */
+		NOT_EVALUATED
+	}
+
+	/**
+	 * Result of Rule's Condition evaluation
+	 */
+	enum ConditionResult
+	{
+		/**
+		 * Condition is True (including undefined Condition)
+		 */
+		TRUE,
+
+		/**
+		 * Condition is False
+		 */
+		FALSE,
+
+		/**
+		 * Condition evaluation was Indeterminate
+		 */
+		INDETERMINATE,
+
+		/**
+		 * Condition not evaluated because the Target did not match or was Indeterminate
+		 */
+		NOT_EVALUATED
+	}
+
+	/**
+	 * Called after a Policy(Set) has been evaluated (results reused from the request-scoped cache are notified with {@link #policyResultReused(PrimaryPolicyMetadata, DecisionResult)} instead)
+	 *
+	 * @param policy
+	 *            evaluated Policy(Set)
+	 * @param targetResult
+	 *            result of the Policy(Set)'s Target evaluation
+	 * @param result
+	 *            decision result
+	 * @param elapsedNanos
+	 *            time spent evaluating the Policy(Set), including its child elements, in nanoseconds
+	 */
+	void policyEvaluated(PrimaryPolicyMetadata policy, TargetMatchResult targetResult, DecisionResult result, long elapsedNanos);
+
+	/**
+	 * Called after a Rule has been evaluated
+	 *
+	 * @param enclosingPolicy
+	 *            Policy enclosing the evaluated Rule (RuleId is only unique within a Policy)
+	 * @param ruleId
+	 *            evaluated Rule's RuleId
+	 * @param targetResult
+	 *            result of the Rule's Target evaluation
+	 * @param conditionResult
+	 *            result of the Rule's Condition evaluation
+	 * @param result
+	 *            decision result
+	 * @param elapsedNanos
+	 *            time spent evaluating the Rule, in nanoseconds
+	 */
+	void ruleEvaluated(PrimaryPolicyMetadata enclosingPolicy, String ruleId, TargetMatchResult targetResult, ConditionResult conditionResult, DecisionResult result, long elapsedNanos);
+
+	/**
+	 * Called after a Policy(Set)'s Target has been evaluated (or skipped), before its combined elements are evaluated, therefore before the corresponding
+	 * {@link #policyEvaluated(PrimaryPolicyMetadata, TargetMatchResult, DecisionResult, long)}. Called even if the Target does not match. Ignored by default.
+	 *
+	 * @param policy
+	 *            Policy(Set) being evaluated
+	 * @param targetResult
+	 *            result of the Policy(Set)'s Target evaluation
+	 * @param combiningAlgId
+	 *            Policy(Set)'s rule/policy-combining algorithm ID
+	 * @param combinedElementIds
+	 *            IDs of the combined elements in order of declaration: RuleIds for a Policy, PolicyIds/PolicySetIds for a PolicySet
+	 */
+	default void policyTargetEvaluated(final PrimaryPolicyMetadata policy, final TargetMatchResult targetResult, final String combiningAlgId, final List<String> combinedElementIds)
+	{
+		// ignored by default
+	}
+
+	/**
+	 * Called when the result of a Policy(Set) already evaluated for the same request is reused from the request-scoped cache, e.g. when the Policy(Set) is referenced more than once. Ignored by
+	 * default.
+	 *
+	 * @param policy
+	 *            Policy(Set) whose result is reused
+	 * @param result
+	 *            reused decision result
+	 */
+	default void policyResultReused(final PrimaryPolicyMetadata policy, final DecisionResult result)
+	{
+		// ignored by default
+	}
+
+	/**
+	 * Whether this listener must be notified of the evaluation of every Policy(Set) and Rule as declared in the policies. If true, evaluators skip the optimizations that evaluate some of them without
+	 * notification, i.e. the flattening of nested PolicySets and the first-applicable Rule result cache, in the evaluation contexts where this listener is registered. False by default, for
+	 * listeners that may be registered for all requests, such as {@link PolicyEvaluationMetricsListener}.
+	 *
+	 * @return true iff every Policy(Set) and Rule evaluation must be notified
+	 */
+	default boolean isFullTraceRequired()
+	{
+		return false;
+	}
+
+	/**
+	 * Called when an adaptive combining algorithm evaluator (deny-unless-permit, permit-unless-deny) changes the evaluation order of its combined elements, to evaluate first the ones that most
+	 * often return the terminating decision. Only called on the listener registered for all requests at the engine level (through {@link CombinedElementOrderListener}), since the order is shared
+	 * by all requests. Ignored by default.
+	 *
+	 * @param enclosingPolicy
+	 *            Policy(Set) whose combining algorithm evaluator changed the evaluation order of its combined elements
+	 * @param combinedElementsInEvaluationOrder
+	 *            combined elements (Policies, PolicySets or Rules) in the new evaluation order
+	 */
+	default void combinedElementsReordered(final PrimaryPolicyMetadata enclosingPolicy, final List<String> combinedElementsInEvaluationOrder)
+	{
+		// ignored by default
+	}
+
+	@Override
+	default void namedAttributeValueProduced(final AttributeFqn attributeFQN, final AttributeBag<?> value)
+	{
+		// ignored by default
+	}
+
+	@Override
+	default void namedAttributeValueConsumed(final AttributeFqn attributeFQN, final AttributeBag<?> value)
+	{
+		// ignored by default
+	}
+
+	@Override
+	default void attributeSelectorResultProduced(final AttributeSelectorExpression<?> attributeSelector, final Optional<AttributeBag<XPathValue>> contextSelectorValue, final Bag<?> result)
+	{
+		// ignored by default
+	}
+
+	@Override
+	default void attributeSelectorResultConsumed(final AttributeSelectorExpression<?> attributeSelector, final Bag<?> result)
+	{
+		// ignored by default
+	}
+
+}
@@ -0,0 +1,72 @@
+/**
+ * Copyright 2012-2018 Thales Services SAS.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl;
+
+import java.util.List;
+
+import org.ow2.authzforce.core.pdp.api.DecisionResult;
+import org.ow2.authzforce.core.pdp.api.policy.PrimaryPolicyMetadata;
+
+/**
+ * {@link PolicyEvaluationListener} recording evaluation counts, Target match results and evaluation times in a {@link PolicyEvaluationMetricsRegistry}. This listener is stateless, therefore the same
+ * instance may be shared by all evaluation contexts (as long as the registry is thread-safe).
+ */
+public final class PolicyEvaluationMetricsListener implements PolicyEvaluationListener
+{
+	private static final IllegalArgumentException NULL_REGISTRY_ARGUMENT_EXCEPTION = new IllegalArgumentException("Undefined metrics registry");
+
+	private final PolicyEvaluationMetricsRegistry registry;
+
+	/**
+	 * Creates listener recording in a given registry
+	 *
+	 * @param registry
+	 *            metrics registry
+	 * @throws IllegalArgumentException
+	 *             if {@code registry == null}
+	 */
+	public PolicyEvaluationMetricsListener(final PolicyEvaluationMetricsRegistry registry) throws IllegalArgumentException
+	{
+		if (registry == null)
+		{
+			throw NULL_REGISTRY_ARGUMENT_EXCEPTION;
+		}
+
+		this.registry = registry;
+	}
+
+	@Override
+	public void policyEvaluated(final PrimaryPolicyMetadata policy, final TargetMatchResult targetResult, final DecisionResult result, final long elapsedNanos)
+	{
+		registry.recordPolicyEvaluation(policy, targetResult, elapsedNanos);
+	}
+
+	@Override
+	public void ruleEvaluated(final PrimaryPolicyMetadata enclosingPolicy, final String ruleId, final TargetMatchResult targetResult, final ConditionResult conditionResult,
+			final DecisionResult result, final long elapsedNanos)
+	{
+		registry.recordRuleEvaluation(enclosingPolicy, ruleId, targetResult, elapsedNanos);
+	}
+
+	@Override
+	public void combinedElementsReordered(final PrimaryPolicyMetadata enclosingPolicy, final List<String> combinedElementsInEvaluationOrder)
+	{
+		registry.recordCombinedElementOrder(enclosingPolicy, combinedElementsInEvaluationOrder);
+	}
+
+}
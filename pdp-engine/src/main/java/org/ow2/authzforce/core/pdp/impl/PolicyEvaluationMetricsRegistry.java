@@ -0,0 +1,71 @@
+/**
+ * Copyright 2012-2018 Thales Services SAS.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl;
+
+import java.util.List;
+
+import org.ow2.authzforce.core.pdp.api.policy.PrimaryPolicyMetadata;
+import org.ow2.authzforce.core.pdp.impl.PolicyEvaluationListener.TargetMatchResult;
+
+/**
+ * Registry of Policy(Set) and Rule evaluation metrics, fed by {@link PolicyEvaluationMetricsListener}. Implement this interface to plug in a specific metrics library, or use the default
+ * {@link StripedCounterPolicyEvaluationMetricsRegistry}.
+ * <p>
+ * Implementations must be thread-safe and cheap to call since they are called on the evaluation path.
+ */
+public interface PolicyEvaluationMetricsRegistry
+{
+	/**
+	 * Records a Policy(Set) evaluation
+	 *
+	 * @param policy
+	 *            evaluated Policy(Set)
+	 * @param targetResult
+	 *            result of the Policy(Set)'s Target evaluation
+	 * @param elapsedNanos
+	 *            evaluation time in nanoseconds
+	 */
+	void recordPolicyEvaluation(PrimaryPolicyMetadata policy, TargetMatchResult targetResult, long elapsedNanos);
+
+	/**
+	 * Records a Rule evaluation
+	 *
+	 * @param enclosingPolicy
+	 *            Policy enclosing the evaluated Rule
+	 * @param ruleId
+	 *            evaluated Rule's RuleId
+	 * @param targetResult
+	 *            result of the Rule's Target evaluation
+	 * @param elapsedNanos
+	 *            evaluation time in nanoseconds
+	 */
+	void recordRuleEvaluation(PrimaryPolicyMetadata enclosingPolicy, String ruleId, TargetMatchResult targetResult, long elapsedNanos);
+
+	/**
+	 * Records the new evaluation order of the elements combined by an adaptive combining algorithm evaluator (deny-unless-permit, permit-unless-deny). Ignored by default.
+	 *
+	 * @param enclosingPolicy
+	 *            Policy(Set) whose combining algorithm evaluator changed the evaluation order of its combined elements
+	 * @param combinedElementsInEvaluationOrder
+	 *            combined elements in the new evaluation order
+	 */
+	default void recordCombinedElementOrder(final PrimaryPolicyMetadata enclosingPolicy, final List<String> combinedElementsInEvaluationOrder)
+	{
+		// ignored by default
+	}
+}
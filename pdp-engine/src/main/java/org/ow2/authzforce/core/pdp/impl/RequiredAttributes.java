@@ -0,0 +1,220 @@
+/**
+ * Copyright 2012-2018 Thales Services SAS.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import javax.xml.bind.JAXBElement;
+
+import org.ow2.authzforce.core.pdp.api.AttributeFqn;
+import org.ow2.authzforce.core.pdp.api.AttributeFqns;
+
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.AdviceExpression;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.AdviceExpressions;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.AllOf;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.AnyOf;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.ApplyType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.AttributeAssignmentExpression;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.AttributeDesignatorType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.AttributeSelectorType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.Condition;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.ExpressionType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.Match;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.ObligationExpression;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.ObligationExpressions;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.Rule;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.Target;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.VariableDefinition;
+
+/**
+ * This class consists exclusively of static methods that collect the named attributes (i.e. {@link AttributeFqn}s of AttributeDesignators, and ContextSelectorIds of AttributeSelectors) that may be
+ * required to evaluate XACML policy elements. This is a static analysis done once for all when policies are loaded.
+ */
+public final class RequiredAttributes
+{
+	private RequiredAttributes()
+	{
+		// prevent instantiation
+	}
+
+	private static void add(final AttributeDesignatorType designator, final Set<AttributeFqn> requiredAttributes)
+	{
+		requiredAttributes.add(AttributeFqns.newInstance(designator.getCategory(), Optional.ofNullable(designator.getIssuer()), designator.getAttributeId()));
+	}
+
+	private static void add(final AttributeSelectorType selector, final Set<AttributeFqn> requiredAttributes)
+	{
+		/*
+		 * The Path applies to the Content of the selector's category, which is not a named attribute; only the ContextSelectorId (optional) refers to a named attribute (in the same category)
+		 */
+		final String contextSelectorId = selector.getContextSelectorId();
+		if (contextSelectorId != null)
+		{
+			requiredAttributes.add(AttributeFqns.newInstance(selector.getCategory(), Optional.empty(), contextSelectorId));
+		}
+	}
+
+	/**
+	 * Adds the named attributes required by an expression (recursively for Apply)
+	 *
+	 * @param expression
+	 *            expression
+	 * @param requiredAttributes
+	 *            (updatable) set of required attributes to be completed
+	 */
+	public static void addFromExpression(final ExpressionType expression, final Set<AttributeFqn> requiredAttributes)
+	{
+		if (expression instanceof AttributeDesignatorType)
+		{
+			add((AttributeDesignatorType) expression, requiredAttributes);
+		} else if (expression instanceof AttributeSelectorType)
+		{
+			add((AttributeSelectorType) expression, requiredAttributes);
+		} else if (expression instanceof ApplyType)
+		{
+			for (final JAXBElement<? extends ExpressionType> argExpression : ((ApplyType) expression).getExpressions())
+			{
+				addFromExpression(argExpression.getValue(), requiredAttributes);
+			}
+		}
+
+		/*
+		 * AttributeValue, Function: no attribute. VariableReference: VariableDefinitions are analyzed separately (see addFromVariableDefinition(...)).
+		 */
+	}
+
+	/**
+	 * Adds the named attributes required by a Target
+	 *
+	 * @param target
+	 *            Target (null is considered empty)
+	 * @param requiredAttributes
+	 *            (updatable) set of required attributes to be completed
+	 */
+	public static void addFromTarget(final Target target, final Set<AttributeFqn> requiredAttributes)
+	{
+		if (target == null)
+		{
+			return;
+		}
+
+		for (final AnyOf anyOf : target.getAnyOves())
+		{
+			for (final AllOf allOf : anyOf.getAllOves())
+			{
+				for (final Match match : allOf.getMatches())
+				{
+					final AttributeDesignatorType designator = match.getAttributeDesignator();
+					if (designator != null)
+					{
+						add(designator, requiredAttributes);
+					} else if (match.getAttributeSelector() != null)
+					{
+						add(match.getAttributeSelector(), requiredAttributes);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Adds the named attributes required by Obligation/Advice expressions
+	 *
+	 * @param obligationExps
+	 *            ObligationExpressions (null if none)
+	 * @param adviceExps
+	 *            AdviceExpressions (null if none)
+	 * @param requiredAttributes
+	 *            (updatable) set of required attributes to be completed
+	 */
+	public static void addFromPepActionExpressions(final List<ObligationExpression> obligationExps, final List<AdviceExpression> adviceExps, final Set<AttributeFqn> requiredAttributes)
+	{
+		if (obligationExps != null)
+		{
+			for (final ObligationExpression obligationExp : obligationExps)
+			{
+				addFromAttributeAssignmentExpressions(obligationExp.getAttributeAssignmentExpressions(), requiredAttributes);
+			}
+		}
+
+		if (adviceExps != null)
+		{
+			for (final AdviceExpression adviceExp : adviceExps)
+			{
+				addFromAttributeAssignmentExpressions(adviceExp.getAttributeAssignmentExpressions(), requiredAttributes);
+			}
+		}
+	}
+
+	private static void addFromAttributeAssignmentExpressions(final List<AttributeAssignmentExpression> attributeAssignmentExps, final Set<AttributeFqn> requiredAttributes)
+	{
+		for (final AttributeAssignmentExpression attributeAssignmentExp : attributeAssignmentExps)
+		{
+			addFromExpression(attributeAssignmentExp.getExpression().getValue(), requiredAttributes);
+		}
+	}
+
+	/**
+	 * Adds the named attributes required by a Rule: Target, Condition, Obligation/Advice expressions. Attributes required by variables referenced from the Rule are not included, since
+	 * VariableDefinitions are part of the enclosing Policy.
+	 *
+	 * @param rule
+	 *            Rule
+	 * @param requiredAttributes
+	 *            (updatable) set of required attributes to be completed
+	 */
+	public static void addFromRule(final Rule rule, final Set<AttributeFqn> requiredAttributes)
+	{
+		addFromTarget(rule.getTarget(), requiredAttributes);
+		final Condition condition = rule.getCondition();
+		if (condition != null)
+		{
+			addFromExpression(condition.getExpression().getValue(), requiredAttributes);
+		}
+
+		final ObligationExpressions obligationExps = rule.getObligationExpressions();
+		final AdviceExpressions adviceExps = rule.getAdviceExpressions();
+		addFromPepActionExpressions(obligationExps == null ? null : obligationExps.getObligationExpressions(), adviceExps == null ? null : adviceExps.getAdviceExpressions(),
+				requiredAttributes);
+	}
+
+	/**
+	 * Adds the named attributes required by the Rules and VariableDefinitions of a Policy
+	 *
+	 * @param policyChoiceElements
+	 *            Policy's Rules, VariableDefinitions and (Rule)CombinerParameters (the latter are ignored)
+	 * @param requiredAttributes
+	 *            (updatable) set of required attributes to be completed
+	 */
+	public static void addFromPolicyChoiceElements(final List<Serializable> policyChoiceElements, final Set<AttributeFqn> requiredAttributes)
+	{
+		for (final Serializable policyChildElt : policyChoiceElements)
+		{
+			if (policyChildElt instanceof Rule)
+			{
+				addFromRule((Rule) policyChildElt, requiredAttributes);
+			} else if (policyChildElt instanceof VariableDefinition)
+			{
+				addFromExpression(((VariableDefinition) policyChildElt).getExpression().getValue(), requiredAttributes);
+			}
+		}
+	}
+}
@@ -0,0 +1,247 @@
+/**
+ * Copyright 2012-2018 Thales Services SAS.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.ow2.authzforce.core.pdp.api.HashCollections;
+import org.ow2.authzforce.core.pdp.api.policy.PrimaryPolicyMetadata;
+import org.ow2.authzforce.core.pdp.impl.PolicyEvaluationListener.TargetMatchResult;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Default {@link PolicyEvaluationMetricsRegistry} keeping metrics in memory with striped counters ({@link LongAdder}), which scale well under contention from concurrent request evaluations. Metrics
+ * are read with {@link #getPolicyMetrics()} and {@link #getRuleMetrics()}. The latest evaluation orders of adaptive combining algorithm evaluators are read with {@link #getCombinedElementOrders()}.
+ * <p>
+ * Rule metrics are grouped by enclosing Policy, since a RuleId is only unique within a Policy.
+ */
+public final class StripedCounterPolicyEvaluationMetricsRegistry implements PolicyEvaluationMetricsRegistry
+{
+	/**
+	 * Snapshot of evaluation metrics of a Policy(Set) or Rule
+	 */
+	public static final class ElementMetrics
+	{
+		private final long evaluationCount;
+		private final long targetMatchCount;
+		private final long targetNoMatchCount;
+		private final long targetIndeterminateCount;
+		private final long cumulativeNanos;
+
+		private ElementMetrics(final long evaluationCount, final long targetMatchCount, final long targetNoMatchCount, final long targetIndeterminateCount, final long cumulativeNanos)
+		{
+			this.evaluationCount = evaluationCount;
+			this.targetMatchCount = targetMatchCount;
+			this.targetNoMatchCount = targetNoMatchCount;
+			this.targetIndeterminateCount = targetIndeterminateCount;
+			this.cumulativeNanos = cumulativeNanos;
+		}
+
+		/**
+		 * Get number of evaluations
+		 *
+		 * @return number of evaluations
+		 */
+		public long getEvaluationCount()
+		{
+			return evaluationCount;
+		}
+
+		/**
+		 * Get number of evaluations where the Target matched
+		 *
+		 * @return number of Target matches
+		 */
+		public long getTargetMatchCount()
+		{
+			return targetMatchCount;
+		}
+
+		/**
+		 * Get number of evaluations where the Target did not match
+		 *
+		 * @return number of Target no-matches
+		 */
+		public long getTargetNoMatchCount()
+		{
+			return targetNoMatchCount;
+		}
+
+		/**
+		 * Get number of evaluations where the Target was Indeterminate
+		 *
+		 * @return number of Indeterminate Targets
+		 */
+		public long getTargetIndeterminateCount()
+		{
+			return targetIndeterminateCount;
+		}
+
+		/**
+		 * Get cumulative evaluation time
+		 *
+		 * @return cumulative evaluation time in nanoseconds
+		 */
+		public long getCumulativeNanos()
+		{
+			return cumulativeNanos;
+		}
+
+		@Override
+		public String toString()
+		{
+			return "{evaluations=" + evaluationCount + ", targetMatches=" + targetMatchCount + ", targetNoMatches=" + targetNoMatchCount + ", targetIndeterminates=" + targetIndeterminateCount
+					+ ", cumulativeNanos=" + cumulativeNanos + "}";
+		}
+	}
+
+	private static final class Counters
+	{
+		private final LongAdder evaluationCount = new LongAdder();
+		private final LongAdder targetMatchCount = new LongAdder();
+		private final LongAdder targetNoMatchCount = new LongAdder();
+		private final LongAdder targetIndeterminateCount = new LongAdder();
+		private final LongAdder cumulativeNanos = new LongAdder();
+
+		private void record(final TargetMatchResult targetResult, final long elapsedNanos)
+		{
+			evaluationCount.increment();
+			switch (targetResult)
+			{
+				case MATCH:
+					targetMatchCount.increment();
+					break;
+				case NO_MATCH:
+					targetNoMatchCount.increment();
+					break;
+				case INDETERMINATE:
+					targetIndeterminateCount.increment();
+					break;
+				default:
+					// NOT_EVALUATED
+					break;
+			}
+
+			cumulativeNanos.add(elapsedNanos);
+		}
+
+		private ElementMetrics snapshot()
+		{
+			return new ElementMetrics(evaluationCount.sum(), targetMatchCount.sum(), targetNoMatchCount.sum(), targetIndeterminateCount.sum(), cumulativeNanos.sum());
+		}
+	}
+
+	private static <K> Map<K, ElementMetrics> snapshot(final ConcurrentMap<K, Counters> countersByKey)
+	{
+		final Map<K, ElementMetrics> metricsByKey = HashCollections.newUpdatableMap(countersByKey.size());
+		countersByKey.forEach((k, counters) -> metricsByKey.put(k, counters.snapshot()));
+		return metricsByKey;
+	}
+
+	private final ConcurrentMap<PrimaryPolicyMetadata, Counters> policyCounters = new ConcurrentHashMap<>();
+	private final ConcurrentMap<PrimaryPolicyMetadata, ConcurrentMap<String, Counters>> ruleCounters = new ConcurrentHashMap<>();
+	private final ConcurrentMap<PrimaryPolicyMetadata, List<String>> combinedElementOrders = new ConcurrentHashMap<>();
+
+	@Override
+	public void recordPolicyEvaluation(final PrimaryPolicyMetadata policy, final TargetMatchResult targetResult, final long elapsedNanos)
+	{
+		/*
+		 * get() first to avoid computeIfAbsent() locking once the entry exists (most frequent case)
+		 */
+		Counters counters = policyCounters.get(policy);
+		if (counters == null)
+		{
+			counters = policyCounters.computeIfAbsent(policy, k -> new Counters());
+		}
+
+		counters.record(targetResult, elapsedNanos);
+	}
+
+	@Override
+	public void recordRuleEvaluation(final PrimaryPolicyMetadata enclosingPolicy, final String ruleId, final TargetMatchResult targetResult, final long elapsedNanos)
+	{
+		ConcurrentMap<String, Counters> countersByRuleId = ruleCounters.get(enclosingPolicy);
+		if (countersByRuleId == null)
+		{
+			countersByRuleId = ruleCounters.computeIfAbsent(enclosingPolicy, k -> new ConcurrentHashMap<>());
+		}
+
+		Counters counters = countersByRuleId.get(ruleId);
+		if (counters == null)
+		{
+			counters = countersByRuleId.computeIfAbsent(ruleId, k -> new Counters());
+		}
+
+		counters.record(targetResult, elapsedNanos);
+	}
+
+	@Override
+	public void recordCombinedElementOrder(final PrimaryPolicyMetadata enclosingPolicy, final List<String> combinedElementsInEvaluationOrder)
+	{
+		combinedElementOrders.put(enclosingPolicy, ImmutableList.copyOf(combinedElementsInEvaluationOrder));
+	}
+
+	/**
+	 * Get snapshot of Policy(Set) metrics
+	 *
+	 * @return metrics by Policy(Set)
+	 */
+	public Map<PrimaryPolicyMetadata, ElementMetrics> getPolicyMetrics()
+	{
+		return snapshot(policyCounters);
+	}
+
+	/**
+	 * Get snapshot of Rule metrics
+	 *
+	 * @return metrics by enclosing Policy, then by RuleId
+	 */
+	public Map<PrimaryPolicyMetadata, Map<String, ElementMetrics>> getRuleMetrics()
+	{
+		final Map<PrimaryPolicyMetadata, Map<String, ElementMetrics>> metricsByPolicy = HashCollections.newUpdatableMap(ruleCounters.size());
+		ruleCounters.forEach((policy, countersByRuleId) -> metricsByPolicy.put(policy, snapshot(countersByRuleId)));
+		return metricsByPolicy;
+	}
+
+	/**
+	 * Get latest evaluation orders of adaptive combining algorithm evaluators (only those which changed their evaluation order since the last reset)
+	 *
+	 * @return combined elements in evaluation order, by enclosing Policy(Set)
+	 */
+	public Map<PrimaryPolicyMetadata, List<String>> getCombinedElementOrders()
+	{
+		return ImmutableMap.copyOf(combinedElementOrders);
+	}
+
+	/**
+	 * Resets all metrics
+	 */
+	public void reset()
+	{
+		policyCounters.clear();
+		ruleCounters.clear();
+		combinedElementOrders.clear();
+	}
+
+}
@@ -19,6 +19,7 @@ package org.ow2.authzforce.core.pdp.impl;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 
 import org.ow2.authzforce.core.pdp.api.EvaluationContext;
 import org.ow2.authzforce.core.pdp.api.IndeterminateEvaluationException;
@@ -52,18 +53,19 @@ public final class TargetEvaluators
 		@Override
 		public boolean evaluate(final EvaluationContext context) throws IndeterminateEvaluationException
 		{
-			LOGGER.debug("Target null/empty -> True");
 			return true;
 		}
 	};
 
-	private static final class NonEmptyTargetEvaluator implements BooleanEvaluator
+	private static final class NonEmptyTargetEvaluator implements BooleanEvaluator, EqualityMatchTarget.Indexable
 	{
 		// Have a copy of AnyOf evaluators to avoid cast from JAXB AnyOf in
 		// super JAXB type
 		// non-null
 		private final List<AnyOfEvaluator> anyOfEvaluatorList;
 
+		private final EvaluationTracer tracer = EvaluationTracers.getInstance(LOGGER);
+
 		private NonEmptyTargetEvaluator(final List<AnyOf> jaxbAnyOfList, final XPathCompiler xPathCompiler,
 				final ExpressionFactory expFactory) throws IllegalArgumentException
 		{
@@ -88,6 +90,15 @@ public final class TargetEvaluators
 			}
 		}
 
+		@Override
+		public Optional<EqualityMatchTarget> getEqualityMatchTarget()
+		{
+			/*
+			 * Equivalent to the AnyOf if only one
+			 */
+			return anyOfEvaluatorList.size() == 1 ? anyOfEvaluatorList.get(0).getEqualityMatchTarget() : Optional.empty();
+		}
+
 		/**
 		 * Determines whether this <code>Target</code> matches the input request
 		 * (whether it is applicable). If any of the AnyOf doesn't match the
@@ -129,20 +140,16 @@ public final class TargetEvaluators
 				try
 				{
 					isMatched = anyOfEvaluator.match(context);
-					if (LOGGER.isDebugEnabled())
+					if (tracer.isEnabled())
 					{
-						// Beware of autoboxing which causes call to
-						// Boolean.valueOf(...), Integer.valueOf(...)
-						LOGGER.debug("Target/AnyOf#{} -> {}", childIndex, isMatched);
+						tracer.trace("Target/AnyOf#{} -> {}", childIndex, isMatched);
 					}
 				}
 				catch (final IndeterminateEvaluationException e)
 				{
-					if (LOGGER.isDebugEnabled())
+					if (tracer.isEnabled())
 					{
-						// Beware of autoboxing which causes call to
-						// Integer.valueOf(...)
-						LOGGER.debug("Target/AnyOf#{} -> Indeterminate", childIndex, e);
+						tracer.trace("Target/AnyOf#{} -> Indeterminate", childIndex, e);
 					}
 					lastIndeterminate = e;
 					lastIndeterminateChildIndex = childIndex;
@@ -188,7 +195,7 @@ public final class TargetEvaluators
 	 *            XPath version
 	 * @param expressionFactory
 	 *            Expression factory for parsing XACML Expressions
-	 * @return instance of Target evaluator
+	 * @return instance of Target evaluator, implementing {@link EqualityMatchTarget.Indexable} if the Target is not empty
 	 * @throws java.lang.IllegalArgumentException
 	 *             if target is not null/empty AND: either ({@code expFactory}
 	 *             is null OR one of the Match elements in one of the
@@ -0,0 +1,187 @@
+/**
+ * Copyright 2012-2018 Thales Services SAS.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl.combining;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.ow2.authzforce.core.pdp.api.Decidable;
+import org.ow2.authzforce.core.pdp.api.EvaluationContext;
+import org.ow2.authzforce.core.pdp.api.policy.PrimaryPolicyMetadata;
+import org.ow2.authzforce.core.pdp.impl.CombinedElementOrderListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Adaptive evaluation order of the elements combined by a combining algorithm whose result does not depend on the evaluation order, as long as the combined elements do not return PEP actions
+ * (deny-unless-permit, permit-unless-deny): the elements that most often return the terminating decision (overriding Effect) are evaluated first, so that the evaluation terminates as early as
+ * possible.
+ * <p>
+ * The number of terminating decisions of each element is counted with {@link LongAdder}s (cheap under contention), and the evaluation order is recomputed every {@value #REORDER_INTERVAL} terminating
+ * decisions on average (random sampling avoids a shared counter). Counts are halved at each recomputation so that the order follows changes of the request profile. New orders are reported to the
+ * {@link CombinedElementOrderListener} if any, with the enclosing Policy(Set) as identifier, e.g. to expose the order as a metric.
+ *
+ * @param <E>
+ *            combined element type
+ */
+final class AdaptiveElementOrder<E extends Decidable>
+{
+	private static final Logger LOGGER = LoggerFactory.getLogger(AdaptiveElementOrder.class);
+
+	private static final int REORDER_INTERVAL = 1024;
+
+	private final PrimaryPolicyMetadata enclosingPolicy;
+	private final String description;
+	private final ImmutableList<E> elements;
+	private final LongAdder[] recentTerminationCounts;
+
+	// guarded by this
+	private final long[] decayedTerminationCounts;
+
+	/*
+	 * Indexes of elements (in declaration order) in evaluation order
+	 */
+	private volatile int[] evaluationOrder;
+
+	/**
+	 * Creates instance with declaration order as initial evaluation order
+	 * 
+	 * @param enclosingPolicy
+	 *            Policy(Set) enclosing the combined elements
+	 * @param algId
+	 *            combining algorithm ID
+	 * @param elements
+	 *            combined elements (at least 2)
+	 */
+	AdaptiveElementOrder(final PrimaryPolicyMetadata enclosingPolicy, final String algId, final Collection<? extends E> elements)
+	{
+		assert enclosingPolicy != null && elements != null && elements.size() > 1;
+		this.enclosingPolicy = enclosingPolicy;
+		this.elements = ImmutableList.copyOf(elements);
+		this.description = enclosingPolicy + "/" + algId;
+		final int size = this.elements.size();
+		this.recentTerminationCounts = new LongAdder[size];
+		this.decayedTerminationCounts = new long[size];
+		final int[] declarationOrder = new int[size];
+		for (int i = 0; i < size; i++)
+		{
+			recentTerminationCounts[i] = new LongAdder();
+			declarationOrder[i] = i;
+		}
+
+		this.evaluationOrder = declarationOrder;
+	}
+
+	/**
+	 * Get the current evaluation order
+	 * 
+	 * @return indexes of the combined elements (in declaration order) in evaluation order
+	 */
+	int[] getEvaluationOrder()
+	{
+		return evaluationOrder;
+	}
+
+	/**
+	 * Get combined element
+	 * 
+	 * @param index
+	 *            element index in declaration order
+	 * @return combined element
+	 */
+	E get(final int index)
+	{
+		return elements.get(index);
+	}
+
+	/**
+	 * Records the terminating decision of an element, and recomputes the evaluation order from time to time
+	 * 
+	 * @param index
+	 *            index (in declaration order) of the element that returned the terminating decision
+	 * @param context
+	 *            evaluation context
+	 */
+	void recordTermination(final int index, final EvaluationContext context)
+	{
+		recentTerminationCounts[index].increment();
+		if (ThreadLocalRandom.current().nextInt(REORDER_INTERVAL) == 0)
+		{
+			reorder(context);
+		}
+	}
+
+	private synchronized void reorder(final EvaluationContext context)
+	{
+		final int size = elements.size();
+		final Integer[] newOrder = new Integer[size];
+		for (int i = 0; i < size; i++)
+		{
+			decayedTerminationCounts[i] = decayedTerminationCounts[i] / 2 + recentTerminationCounts[i].sumThenReset();
+			newOrder[i] = i;
+		}
+
+		/*
+		 * Stable sort: elements with the same count remain in declaration order
+		 */
+		Arrays.sort(newOrder, (i, j) -> Long.compare(decayedTerminationCounts[j], decayedTerminationCounts[i]));
+		final int[] oldOrder = this.evaluationOrder;
+		boolean isChanged = false;
+		for (int i = 0; i < size; i++)
+		{
+			if (newOrder[i] != oldOrder[i])
+			{
+				isChanged = true;
+				break;
+			}
+		}
+
+		if (!isChanged)
+		{
+			return;
+		}
+
+		final int[] newEvaluationOrder = new int[size];
+		final List<String> elementsInNewOrder = new ArrayList<>(size);
+		for (int i = 0; i < size; i++)
+		{
+			newEvaluationOrder[i] = newOrder[i];
+			elementsInNewOrder.add(elements.get(newOrder[i]).toString());
+		}
+
+		this.evaluationOrder = newEvaluationOrder;
+		LOGGER.debug("{}: new evaluation order of combined elements: {}", description, elementsInNewOrder);
+		final CombinedElementOrderListener listener = context.getListener(CombinedElementOrderListener.class);
+		if (listener != null)
+		{
+			listener.combinedElementsReordered(enclosingPolicy, elementsInNewOrder);
+		}
+	}
+
+	@Override
+	public String toString()
+	{
+		return description;
+	}
+}
@@ -27,6 +27,7 @@ import org.ow2.authzforce.core.pdp.api.EvaluationContext;
 import org.ow2.authzforce.core.pdp.api.ExtendedDecision;
 import org.ow2.authzforce.core.pdp.api.ExtendedDecisions;
 import org.ow2.authzforce.core.pdp.api.PepAction;
+import org.ow2.authzforce.core.pdp.api.UpdatableCollections;
 import org.ow2.authzforce.core.pdp.api.UpdatableList;
 import org.ow2.authzforce.core.pdp.api.combining.CombiningAlg;
 import org.ow2.authzforce.core.pdp.api.policy.PrimaryPolicyMetadata;
@@ -48,6 +49,12 @@ final class CombiningAlgEvaluators
 	{
 	}
 
+	/**
+	 * Shared empty list of PEP actions (ignoring additions), used instead of a new list as long as combined elements return no PEP action, i.e. always if the combined elements have no
+	 * Obligation/Advice. Compare by reference.
+	 */
+	static final UpdatableList<PepAction> NO_PEP_ACTIONS = UpdatableCollections.emptyList();
+
 	private static abstract class ConstantDecisionEvaluator implements CombiningAlg.Evaluator
 	{
 
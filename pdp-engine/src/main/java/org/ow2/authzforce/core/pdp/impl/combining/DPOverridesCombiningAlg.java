@@ -119,10 +119,10 @@ final class DPOverridesCombiningAlg<T extends Decidable> extends BaseCombiningAl
 			void addSubResultDP(final DecisionResult result)
 			{
 				combinedApplicablePolicyIdList.addAll(result.getApplicablePolicies());
-				if (combinedPepActions == null)
+				if (combinedPepActions == null || combinedPepActions == CombiningAlgEvaluators.NO_PEP_ACTIONS && !result.getPepActions().isEmpty())
 				{
-					// first Permit
-					combinedPepActions = UpdatableCollections.newUpdatableList();
+					// first Permit, or first PEP actions: allocate a new list only if necessary
+					combinedPepActions = result.getPepActions().isEmpty() ? CombiningAlgEvaluators.NO_PEP_ACTIONS : UpdatableCollections.<PepAction>newUpdatableList();
 				}
 
 				combinedPepActions.addAll(result.getPepActions());
@@ -501,9 +501,9 @@ final class DPOverridesCombiningAlg<T extends Decidable> extends BaseCombiningAl
 				if (decision == overriddenEffectAsDecision)
 				{
 					// Permit/Deny
-					if (combinedPepActions == null)
+					if (combinedPepActions == null || combinedPepActions == CombiningAlgEvaluators.NO_PEP_ACTIONS && !evalResult.getPepActions().isEmpty())
 					{
-						combinedPepActions = UpdatableCollections.newUpdatableList();
+						combinedPepActions = evalResult.getPepActions().isEmpty() ? CombiningAlgEvaluators.NO_PEP_ACTIONS : UpdatableCollections.<PepAction>newUpdatableList();
 					}
 
 					combinedPepActions.addAll(evalResult.getPepActions());
@@ -34,6 +34,7 @@ import org.ow2.authzforce.core.pdp.api.combining.BaseCombiningAlg;
 import org.ow2.authzforce.core.pdp.api.combining.CombiningAlg;
 import org.ow2.authzforce.core.pdp.api.combining.CombiningAlgParameter;
 import org.ow2.authzforce.core.pdp.api.policy.PrimaryPolicyMetadata;
+import org.ow2.authzforce.core.pdp.impl.policy.PolicyEvaluators;
 import org.ow2.authzforce.core.pdp.impl.rule.RuleEvaluator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -48,7 +49,7 @@ import oasis.names.tc.xacml._3_0.core.schema.wd_17.EffectType;
  *
  * @version $Id: $
  */
-final class DPUnlessPDCombiningAlg<T extends Decidable> extends BaseCombiningAlg<T>
+final class DPUnlessPDCombiningAlg<T extends Decidable> extends BaseCombiningAlg<T> implements EnclosingPolicyAwareCombiningAlg<T>
 {
 
 	private static final class Evaluator extends BaseCombiningAlg.Evaluator<Decidable>
@@ -58,9 +59,18 @@ final class DPUnlessPDCombiningAlg<T extends Decidable> extends BaseCombiningAlg
 		private final DecisionType overriddenEffectAsDecision;
 		private final ExtendedDecision overriddenEffectAsExtDecision;
 
-		private Evaluator(final Iterable<? extends Decidable> combinedElements, final EffectType overridingEffect)
+		/*
+		 * Adaptive evaluation order of combined elements, null if disabled by configuration or because some combined element may return PEP actions (the PEP actions returned would depend on
+		 * the evaluation order)
+		 */
+		private final AdaptiveElementOrder<Decidable> adaptiveOrder;
+
+		private Evaluator(final PrimaryPolicyMetadata enclosingPolicy, final String algId, final ImmutableList<? extends Decidable> combinedElements, final EffectType overridingEffect,
+		        final boolean enableAdaptiveOrder)
 		{
 			super(combinedElements);
+			this.adaptiveOrder = enableAdaptiveOrder && enclosingPolicy != null && combinedElements.size() > 1 && !combinedElements.stream().anyMatch(PolicyEvaluators::mayReturnPepActions)
+			        ? new AdaptiveElementOrder<>(enclosingPolicy, algId, combinedElements) : null;
 			if (overridingEffect == EffectType.DENY)
 			{
 				// permit-unless-deny
@@ -82,6 +92,25 @@ final class DPUnlessPDCombiningAlg<T extends Decidable> extends BaseCombiningAlg
 		public ExtendedDecision evaluate(final EvaluationContext context, final UpdatableList<PepAction> outPepActions, final UpdatableList<PrimaryPolicyMetadata> outApplicablePolicyIdList)
 		{
 			assert outPepActions != null;
+			/*
+			 * Adaptive evaluation order not used if the applicable policies are requested, since they are returned in evaluation order
+			 */
+			if (adaptiveOrder != null && outApplicablePolicyIdList == null)
+			{
+				for (final int i : adaptiveOrder.getEvaluationOrder())
+				{
+					final DecisionResult result = adaptiveOrder.get(i).evaluate(context);
+					if (result.getDecision() == this.overridingEffectAsDecision)
+					{
+						adaptiveOrder.recordTermination(i, context);
+						return this.overridingEffectAsExtDecision;
+					}
+				}
+
+				// no PEP action in overridden Effect either
+				return this.overriddenEffectAsExtDecision;
+			}
+
 			/*
 			 * The final decision cannot be NotApplicable so we can add all applicable policies straight to outApplicablePolicyIdList
 			 */
@@ -113,9 +142,9 @@ final class DPUnlessPDCombiningAlg<T extends Decidable> extends BaseCombiningAlg
 				 */
 				if (decision == this.overriddenEffectAsDecision)
 				{
-					if (pepActionsInOverriddenEffect == null)
+					if (pepActionsInOverriddenEffect == null || pepActionsInOverriddenEffect == CombiningAlgEvaluators.NO_PEP_ACTIONS && !result.getPepActions().isEmpty())
 					{
-						pepActionsInOverriddenEffect = UpdatableCollections.newUpdatableList();
+						pepActionsInOverriddenEffect = result.getPepActions().isEmpty() ? CombiningAlgEvaluators.NO_PEP_ACTIONS : UpdatableCollections.<PepAction>newUpdatableList();
 					}
 
 					pepActionsInOverriddenEffect.addAll(result.getPepActions());
@@ -155,6 +184,12 @@ final class DPUnlessPDCombiningAlg<T extends Decidable> extends BaseCombiningAlg
 		}
 
 		private final ImmutableList<RuleEvaluator> rulesWithOverridingEffect;
+
+		/*
+		 * Adaptive evaluation order of rulesWithOverridingEffect, null if disabled by configuration or because some of them have PEP actions (the PEP actions returned would depend on the
+		 * evaluation order)
+		 */
+		private final AdaptiveElementOrder<RuleEvaluator> adaptiveOrder;
 		private final DecisionType overridingEffectAsDecision;
 		private final ImmutableList<RuleEvaluator> otherRulesWithPepActions;
 		private final DecisionType overriddenEffectAsDecision;
@@ -163,12 +198,19 @@ final class DPUnlessPDCombiningAlg<T extends Decidable> extends BaseCombiningAlg
 		/**
 		 * Constructor
 		 * 
+		 * @param enclosingPolicy
+		 *            Policy enclosing the Rules; null if unknown (adaptive order disabled)
+		 * @param algId
+		 *            combining algorithm ID
 		 * @param rulesWithOverridingEffect
 		 *            combined Rules with overriding Effect. Must be non-null and non-empty.
 		 * @param otherRulesWithPepActions
 		 *            combined Rules with opposite/overridden Effect and PEP actions. Must be non-null and non-empty.
+		 * @param enableAdaptiveOrder
+		 *            true iff the evaluation order of {@code rulesWithOverridingEffect} may be adapted at runtime (if none of them has PEP actions)
 		 */
-		OverridingEffectFirstRuleCombiningAlgEvaluator(final Collection<RuleEvaluator> rulesWithOverridingEffect, final Collection<RuleEvaluator> otherRulesWithPepActions)
+		OverridingEffectFirstRuleCombiningAlgEvaluator(final PrimaryPolicyMetadata enclosingPolicy, final String algId, final Collection<RuleEvaluator> rulesWithOverridingEffect,
+		        final Collection<RuleEvaluator> otherRulesWithPepActions, final boolean enableAdaptiveOrder)
 		{
 			assert rulesWithOverridingEffect != null && !rulesWithOverridingEffect.isEmpty() && otherRulesWithPepActions != null;
 
@@ -195,6 +237,8 @@ final class DPUnlessPDCombiningAlg<T extends Decidable> extends BaseCombiningAlg
 			assert verifyRuleEffectsAndPepActions(overriddenEffect, otherRulesWithPepActions, true);
 
 			this.rulesWithOverridingEffect = ImmutableList.copyOf(rulesWithOverridingEffect);
+			this.adaptiveOrder = enableAdaptiveOrder && enclosingPolicy != null && this.rulesWithOverridingEffect.size() > 1
+			        && !this.rulesWithOverridingEffect.stream().anyMatch(RuleEvaluator::hasAnyPepAction) ? new AdaptiveElementOrder<>(enclosingPolicy, algId, this.rulesWithOverridingEffect) : null;
 			this.otherRulesWithPepActions = ImmutableList.copyOf(otherRulesWithPepActions);
 		}
 
@@ -202,17 +246,33 @@ final class DPUnlessPDCombiningAlg<T extends Decidable> extends BaseCombiningAlg
 		public ExtendedDecision evaluate(final EvaluationContext context, final UpdatableList<PepAction> updatablePepActions,
 		        final UpdatableList<PrimaryPolicyMetadata> updatableApplicablePolicyIdList)
 		{
-			for (final RuleEvaluator rule : rulesWithOverridingEffect)
+			if (adaptiveOrder != null)
 			{
-				final DecisionResult evalResult = rule.evaluate(context);
-				final DecisionType decision = evalResult.getDecision();
-				if (decision == this.overridingEffectAsDecision)
+				for (final int i : adaptiveOrder.getEvaluationOrder())
 				{
-					updatablePepActions.addAll(evalResult.getPepActions());
-					return evalResult;
+					final DecisionResult evalResult = adaptiveOrder.get(i).evaluate(context);
+					if (evalResult.getDecision() == this.overridingEffectAsDecision)
+					{
+						adaptiveOrder.recordTermination(i, context);
+						return evalResult;
+					}
+
+					// Decision is NotApplicable or Indeterminate -> ignore
 				}
+			} else
+			{
+				for (final RuleEvaluator rule : rulesWithOverridingEffect)
+				{
+					final DecisionResult evalResult = rule.evaluate(context);
+					final DecisionType decision = evalResult.getDecision();
+					if (decision == this.overridingEffectAsDecision)
+					{
+						updatablePepActions.addAll(evalResult.getPepActions());
+						return evalResult;
+					}
 
-				// Decision is NotApplicable or Indeterminate -> ignore
+					// Decision is NotApplicable or Indeterminate -> ignore
+				}
 			}
 
 			/*
@@ -240,6 +300,7 @@ final class DPUnlessPDCombiningAlg<T extends Decidable> extends BaseCombiningAlg
 	private final EffectType overriddenEffect;
 	private final CombiningAlg.Evaluator constantOverridingEffectDecisionEvaluator;
 	private final CombiningAlg.Evaluator constantOverriddenEffectDecisionEvaluator;
+	private final boolean enableAdaptiveOrder;
 
 	/**
 	 * Constructor
@@ -248,11 +309,15 @@ final class DPUnlessPDCombiningAlg<T extends Decidable> extends BaseCombiningAlg
 	 *            combining algorithm ID
 	 * @param overridingEffect
 	 *            overriding Effect, e.g. Permit if algId is "deny-unless-permit"
+	 * @param enableAdaptiveOrder
+	 *            true iff evaluators may change the evaluation order of the combined elements at runtime (see {@link AdaptiveElementOrder}), provided that none may return PEP actions and the
+	 *            enclosing Policy(Set) is known (see {@link #getInstance(PrimaryPolicyMetadata, Iterable, Iterable)})
 	 */
-	DPUnlessPDCombiningAlg(final String algId, final Class<T> combinedType, final EffectType overridingEffect)
+	DPUnlessPDCombiningAlg(final String algId, final Class<T> combinedType, final EffectType overridingEffect, final boolean enableAdaptiveOrder)
 	{
 		super(algId, combinedType);
 		this.overridingEffect = overridingEffect;
+		this.enableAdaptiveOrder = enableAdaptiveOrder;
 		if (overridingEffect == EffectType.DENY)
 		{
 			overriddenEffect = EffectType.PERMIT;
@@ -267,10 +332,22 @@ final class DPUnlessPDCombiningAlg<T extends Decidable> extends BaseCombiningAlg
 		}
 	}
 
-	/** {@inheritDoc} */
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * The enclosing Policy(Set) is unknown, therefore the evaluation order of the combined elements is not adaptive.
+	 */
 	@Override
 	public CombiningAlg.Evaluator getInstance(final Iterable<CombiningAlgParameter<? extends T>> params, final Iterable<? extends T> combinedElements)
 	        throws UnsupportedOperationException, IllegalArgumentException
+	{
+		return getInstance(null, params, combinedElements);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public CombiningAlg.Evaluator getInstance(final PrimaryPolicyMetadata enclosingPolicy, final Iterable<CombiningAlgParameter<? extends T>> params, final Iterable<? extends T> combinedElements)
+	        throws UnsupportedOperationException, IllegalArgumentException
 	{
 		// if no element combined -> decision is overridden Effect
 		if (combinedElements == null)
@@ -292,7 +369,7 @@ final class DPUnlessPDCombiningAlg<T extends Decidable> extends BaseCombiningAlg
 		 */
 		if (!RuleEvaluator.class.isAssignableFrom(getCombinedElementType()))
 		{
-			return new Evaluator(combinedElements, this.overridingEffect);
+			return new Evaluator(enclosingPolicy, this.getId(), ImmutableList.copyOf(combinedElements), this.overridingEffect, this.enableAdaptiveOrder);
 		}
 
 		// combined elements are Rules, we can optimize
@@ -372,7 +449,7 @@ final class DPUnlessPDCombiningAlg<T extends Decidable> extends BaseCombiningAlg
 		LOGGER.debug(
 		        "{}: 'children may be processed in any order' (XACML). This implementation will process Rules with overriding Effect first, then the others (with PEP actions only, others without are ignored)",
 		        this);
-		return new OverridingEffectFirstRuleCombiningAlgEvaluator(nonEmptyRulesWithOverridingEffect, rulesWithOverriddenEffectAndPepActions);
+		return new OverridingEffectFirstRuleCombiningAlgEvaluator(enclosingPolicy, this.getId(), nonEmptyRulesWithOverridingEffect, rulesWithOverriddenEffectAndPepActions, this.enableAdaptiveOrder);
 	}
 
 }
@@ -0,0 +1,53 @@
+/**
+ * Copyright 2012-2018 Thales Services SAS.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl.combining;
+
+import org.ow2.authzforce.core.pdp.api.Decidable;
+import org.ow2.authzforce.core.pdp.api.combining.CombiningAlg;
+import org.ow2.authzforce.core.pdp.api.combining.CombiningAlgParameter;
+import org.ow2.authzforce.core.pdp.api.policy.PrimaryPolicyMetadata;
+
+/**
+ * Combining algorithm whose evaluators may use the Policy(Set) enclosing the combined elements, e.g. to identify themselves when reporting their adaptive evaluation order (see
+ * {@link org.ow2.authzforce.core.pdp.impl.CombinedElementOrderListener}). Policy(Set) evaluators create combining algorithm evaluators with
+ * {@link #getInstance(PrimaryPolicyMetadata, Iterable, Iterable)} if the algorithm is of this kind.
+ *
+ * @param <T>
+ *            type of combined element
+ */
+public interface EnclosingPolicyAwareCombiningAlg<T extends Decidable> extends CombiningAlg<T>
+{
+	/**
+	 * Creates combining algorithm evaluator for the elements combined by a given Policy(Set)
+	 * 
+	 * @param enclosingPolicy
+	 *            Policy(Set) enclosing the combined elements, i.e. whose combining algorithm is this
+	 * @param params
+	 *            combining algorithm parameters
+	 * @param combinedElements
+	 *            combined elements
+	 * @return evaluator
+	 * @throws UnsupportedOperationException
+	 *             if this implementation does not support some parameters in {@code params}, or if no implementation of this algorithm supports {@code combinedElements} of type T
+	 * @throws IllegalArgumentException
+	 *             if {@code params} are invalid for this algorithm
+	 * @see CombiningAlg#getInstance(Iterable, Iterable)
+	 */
+	CombiningAlg.Evaluator getInstance(PrimaryPolicyMetadata enclosingPolicy, Iterable<CombiningAlgParameter<? extends T>> params, Iterable<? extends T> combinedElements)
+	        throws UnsupportedOperationException, IllegalArgumentException;
+}
@@ -18,28 +18,59 @@
 package org.ow2.authzforce.core.pdp.impl.combining;
 
 import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Deque;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 import org.ow2.authzforce.core.pdp.api.Decidable;
 import org.ow2.authzforce.core.pdp.api.DecisionResult;
 import org.ow2.authzforce.core.pdp.api.EvaluationContext;
 import org.ow2.authzforce.core.pdp.api.ExtendedDecision;
 import org.ow2.authzforce.core.pdp.api.ExtendedDecisions;
+import org.ow2.authzforce.core.pdp.api.IndeterminateEvaluationException;
 import org.ow2.authzforce.core.pdp.api.PepAction;
 import org.ow2.authzforce.core.pdp.api.UpdatableList;
 import org.ow2.authzforce.core.pdp.api.combining.BaseCombiningAlg;
 import org.ow2.authzforce.core.pdp.api.combining.CombiningAlg;
 import org.ow2.authzforce.core.pdp.api.combining.CombiningAlgParameter;
+import org.ow2.authzforce.core.pdp.api.combining.ParameterAssignment;
+import org.ow2.authzforce.core.pdp.api.expression.AttributeDesignatorExpression;
 import org.ow2.authzforce.core.pdp.api.policy.PrimaryPolicyMetadata;
+import org.ow2.authzforce.core.pdp.api.value.AttributeValue;
+import org.ow2.authzforce.core.pdp.api.value.Bag;
+import org.ow2.authzforce.core.pdp.api.value.IntegerValue;
+import org.ow2.authzforce.core.pdp.impl.IndividualDecisionRequestContext;
+import org.ow2.authzforce.core.pdp.impl.PolicyEvaluationListener;
 import org.ow2.authzforce.core.pdp.impl.rule.RuleEvaluator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMultiset;
+
 import oasis.names.tc.xacml._3_0.core.schema.wd_17.DecisionType;
 
 /**
  * This is the standard First-Applicable policy/rule combining algorithm. It looks through the set of policies/rules, finds the first one that applies, and returns that evaluation result.
+ * <p>
+ * Rule-combining only: if the Policy has a CombinerParameter (not associated with a particular Rule) named {@value #RULE_RESULT_CACHE_SIZE_PARAMETER_NAME} with a positive integer value, and the
+ * decision of every Rule depends only on the values of some AttributeDesignators (see {@link RuleEvaluator#getAttributeDependencies()}), the combined decision is cached (up to this number of
+ * entries, least recently used evicted first) by the values of these AttributeDesignators, so that requests with the same values skip Rule evaluation. Indeterminate results are not cached. Values
+ * are compared by datatype and lexical form (XML content and attributes), not by {@link AttributeValue#equals(Object)}, because equal values may still give different decisions, e.g. the same
+ * dateTime instant in different timezones (string-from-dateTime), or -0.0 and 0.0 doubles.
+ * <p>
+ * Cost: the cache key is made of the values of all these AttributeDesignators, therefore all of them are evaluated before the Rules on every evaluation of the Policy, including the ones that Rule
+ * evaluation would not have needed (e.g. AttributeDesignators of Rules after the first applicable one). On a cache miss, they are requested from the Attribute Providers if not in the request, which
+ * may be more expensive than evaluating the Rules. Therefore the cache is only worth enabling if these attributes are mostly in the requests, or cheap to provide, and their combinations of values
+ * repeat across requests. Rule evaluation events are not notified to {@link PolicyEvaluationListener}s when the result comes from the cache, therefore the cache is bypassed if the listener requires a full trace (see
+ * {@link PolicyEvaluationListener#isFullTraceRequired()}), e.g. for traced requests.
  *
  * @version $Id: $
  */
@@ -103,8 +134,156 @@ final class FirstApplicableCombiningAlg<T extends Decidable> extends BaseCombini
 
 	}
 
+	/**
+	 * Evaluator caching the decision by the values of the AttributeDesignators the combined Rules depend on
+	 */
+	private static final class RuleResultCachingEvaluator implements CombiningAlg.Evaluator
+	{
+		private final Evaluator ruleCombiningEvaluator;
+		private final List<AttributeDesignatorExpression<?>> attributeDependencies;
+		private final Cache<List<Object>, ExtendedDecision> resultCache;
+
+		private RuleResultCachingEvaluator(final Evaluator ruleCombiningEvaluator, final List<AttributeDesignatorExpression<?>> attributeDependencies, final int maxCacheSize)
+		{
+			this.ruleCombiningEvaluator = ruleCombiningEvaluator;
+			this.attributeDependencies = attributeDependencies;
+			this.resultCache = CacheBuilder.newBuilder().maximumSize(maxCacheSize).build();
+		}
+
+		/*
+		 * Returns null if the result may not be cached for this context. Evaluates all the attribute dependencies up front (see class description for the cost), since the key must contain all of
+		 * them. The values are kept in the context, so Rule evaluation gets them for free afterwards.
+		 */
+		private List<Object> getCacheKey(final EvaluationContext context)
+		{
+			/*
+			 * In partial evaluation, rules must be evaluated to find out which ones depend on unknown attributes
+			 */
+			if (context instanceof IndividualDecisionRequestContext && ((IndividualDecisionRequestContext) context).isPartial())
+			{
+				return null;
+			}
+
+			/*
+			 * Rules skipped because of a cache hit would be missing from the trace
+			 */
+			final PolicyEvaluationListener listener = context.getListener(PolicyEvaluationListener.class);
+			if (listener != null && listener.isFullTraceRequired())
+			{
+				return null;
+			}
+
+			final List<Object> key = new ArrayList<>(2 * attributeDependencies.size());
+			for (final AttributeDesignatorExpression<?> attributeDependency : attributeDependencies)
+			{
+				final Bag<? extends AttributeValue> bag;
+				try
+				{
+					bag = attributeDependency.evaluate(context);
+				} catch (final IndeterminateEvaluationException e)
+				{
+					return null;
+				}
+
+				/*
+				 * Empty because of an error (e.g. attribute provider failure) -> may not be the same next time
+				 */
+				if (bag.isEmpty() && bag.getReasonWhyEmpty() != null)
+				{
+					return null;
+				}
+
+				/*
+				 * (datatype, lexical forms)
+				 */
+				key.add(bag.getElementDatatype().getId());
+				final ImmutableMultiset.Builder<List<Object>> lexicalFormsBuilder = ImmutableMultiset.builder();
+				for (final AttributeValue value : bag)
+				{
+					lexicalFormsBuilder.add(Arrays.asList(value.getContent(), value.getXmlAttributes()));
+				}
+
+				key.add(lexicalFormsBuilder.build());
+			}
+
+			return key;
+		}
+
+		@Override
+		public ExtendedDecision evaluate(final EvaluationContext context, final UpdatableList<PepAction> outPepActions, final UpdatableList<PrimaryPolicyMetadata> outApplicablePolicyIdList)
+		{
+			final List<Object> cacheKey = getCacheKey(context);
+			if (cacheKey == null)
+			{
+				return ruleCombiningEvaluator.evaluate(context, outPepActions, outApplicablePolicyIdList);
+			}
+
+			final ExtendedDecision cachedResult = resultCache.getIfPresent(cacheKey);
+			if (cachedResult != null)
+			{
+				/*
+				 * Rules have no PEP action, and Rules are not applicable policies, so there is nothing to add to outPepActions/outApplicablePolicyIdList
+				 */
+				return cachedResult;
+			}
+
+			final ExtendedDecision result = ruleCombiningEvaluator.evaluate(context, outPepActions, outApplicablePolicyIdList);
+			if (result.getDecision() != DecisionType.INDETERMINATE)
+			{
+				resultCache.put(cacheKey, result);
+			}
+
+			return result;
+		}
+	}
+
 	private static final Logger LOGGER = LoggerFactory.getLogger(FirstApplicableCombiningAlg.class);
 
+	/**
+	 * Name of the Policy's CombinerParameter enabling the Rule result cache, with the max cache size as value (integer)
+	 */
+	static final String RULE_RESULT_CACHE_SIZE_PARAMETER_NAME = "urn:ow2:authzforce:feature:pdp:combining-alg:first-applicable:rule-result-cache-size";
+
+	private int getRuleResultCacheSize(final Iterable<CombiningAlgParameter<? extends T>> params) throws IllegalArgumentException
+	{
+		if (params == null)
+		{
+			return 0;
+		}
+
+		for (final CombiningAlgParameter<? extends T> param : params)
+		{
+			if (param.getCombinedElement() != null)
+			{
+				continue;
+			}
+
+			for (final ParameterAssignment paramAssignment : param.getParameters())
+			{
+				if (!RULE_RESULT_CACHE_SIZE_PARAMETER_NAME.equals(paramAssignment.getParameterName()))
+				{
+					continue;
+				}
+
+				final AttributeValue paramValue = paramAssignment.getValue();
+				if (!(paramValue instanceof IntegerValue))
+				{
+					throw new IllegalArgumentException(this + ": invalid value of CombinerParameter '" + RULE_RESULT_CACHE_SIZE_PARAMETER_NAME + "' (expected: integer): " + paramValue);
+				}
+
+				try
+				{
+					return ((IntegerValue) paramValue).intValueExact();
+				} catch (final ArithmeticException e)
+				{
+					throw new IllegalArgumentException(this + ": value of CombinerParameter '" + RULE_RESULT_CACHE_SIZE_PARAMETER_NAME + "' is too big: " + paramValue, e);
+				}
+			}
+		}
+
+		return 0;
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public CombiningAlg.Evaluator getInstance(final Iterable<CombiningAlgParameter<? extends T>> params, final Iterable<? extends T> combinedElements)
@@ -155,7 +334,34 @@ final class FirstApplicableCombiningAlg<T extends Decidable> extends BaseCombini
 		/*
 		 * if(combinedEltIterator.hasNext()), combinedElements has more elements than finalRules, so finalRules is a subset of combinedElements; else they have the same elements
 		 */
-		return new Evaluator(combinedEltIterator.hasNext() ? finalRules : combinedElements);
+		final Evaluator ruleCombiningEvaluator = new Evaluator(combinedEltIterator.hasNext() ? finalRules : combinedElements);
+		final int ruleResultCacheSize = getRuleResultCacheSize(params);
+		if (ruleResultCacheSize <= 0)
+		{
+			return ruleCombiningEvaluator;
+		}
+
+		/*
+		 * Rule result cache enabled: the combined decision must depend only on AttributeDesignators, without duplicates
+		 */
+		final Map<List<Object>, AttributeDesignatorExpression<?>> attributeDependencies = new LinkedHashMap<>();
+		for (final RuleEvaluator rule : finalRules)
+		{
+			final Optional<List<AttributeDesignatorExpression<?>>> ruleAttributeDependencies = rule.getAttributeDependencies();
+			if (!ruleAttributeDependencies.isPresent())
+			{
+				LOGGER.warn("{}: {} may depend on something else than AttributeDesignators (VariableReference, AttributeSelector, XPath expression, custom function, Obligation/Advice) -> rule result cache disabled",
+				        this, rule);
+				return ruleCombiningEvaluator;
+			}
+
+			for (final AttributeDesignatorExpression<?> attributeDependency : ruleAttributeDependencies.get())
+			{
+				attributeDependencies.putIfAbsent(Arrays.asList(attributeDependency.getAttributeFQN(), attributeDependency.getReturnType()), attributeDependency);
+			}
+		}
+
+		return new RuleResultCachingEvaluator(ruleCombiningEvaluator, ImmutableList.copyOf(attributeDependencies.values()), ruleResultCacheSize);
 	}
 
 	FirstApplicableCombiningAlg(final String algId, final Class<T> combinedType)
@@ -17,26 +17,46 @@
  */
 package org.ow2.authzforce.core.pdp.impl.combining;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
 import org.ow2.authzforce.core.pdp.api.DecisionResult;
 import org.ow2.authzforce.core.pdp.api.EvaluationContext;
 import org.ow2.authzforce.core.pdp.api.ExtendedDecision;
 import org.ow2.authzforce.core.pdp.api.ExtendedDecisions;
+import org.ow2.authzforce.core.pdp.api.HashCollections;
 import org.ow2.authzforce.core.pdp.api.IndeterminateEvaluationException;
 import org.ow2.authzforce.core.pdp.api.PepAction;
 import org.ow2.authzforce.core.pdp.api.UpdatableList;
 import org.ow2.authzforce.core.pdp.api.combining.BaseCombiningAlg;
 import org.ow2.authzforce.core.pdp.api.combining.CombiningAlg;
 import org.ow2.authzforce.core.pdp.api.combining.CombiningAlgParameter;
+import org.ow2.authzforce.core.pdp.api.expression.AttributeDesignatorExpression;
 import org.ow2.authzforce.core.pdp.api.policy.PolicyEvaluator;
 import org.ow2.authzforce.core.pdp.api.policy.PrimaryPolicyMetadata;
+import org.ow2.authzforce.core.pdp.api.value.AttributeValue;
+import org.ow2.authzforce.core.pdp.api.value.Bag;
+import org.ow2.authzforce.core.pdp.impl.EqualityMatchTarget;
+import org.ow2.authzforce.core.pdp.impl.IndeterminateEvaluationReporter;
 import org.ow2.authzforce.xacml.identifiers.XacmlStatusCode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.collect.ImmutableList;
+
 import oasis.names.tc.xacml._3_0.core.schema.wd_17.DecisionType;
 
 /**
  * This is the standard only-one-applicable policy combining algorithm.
+ * <p>
+ * Optimization: if several combined policies have a Target made of a single equality Match on the same AttributeDesignator (see {@link EqualityMatchTarget}), these policies are indexed by the Match's
+ * AttributeValue, so that the applicable one is found with one lookup per value of the AttributeDesignator, instead of evaluating each Target in turn. Other policies are evaluated as usual. As a
+ * result, in case of more than one Indeterminate or applicable policy, the returned Indeterminate result (status) may be different from the one given by a sequential evaluation in order of
+ * declaration.
  *
  * @version $Id: $
  */
@@ -47,13 +67,82 @@ final class OnlyOneApplicableCombiningAlg extends BaseCombiningAlg<PolicyEvaluat
 	{
 		private static final Logger LOGGER = LoggerFactory.getLogger(Evaluator.class);
 
+		private static final IndeterminateEvaluationReporter INDETERMINATE_REPORTER = new IndeterminateEvaluationReporter(LOGGER);
+
 		private final ExtendedDecision tooManyApplicablePoliciesIndeterminateResult;
 
+		/*
+		 * AttributeDesignator of the equality-match Targets of the indexed policies, null if no index
+		 */
+		private final AttributeDesignatorExpression<?> indexedAttributeDesignator;
+
+		/*
+		 * Indexed policies by the value of their equality-match Target (empty if no index)
+		 */
+		private final Map<AttributeValue, List<PolicyEvaluator>> indexedPoliciesByTargetValue;
+
+		/*
+		 * Policies not indexed, in order of declaration, evaluated as usual (Target by Target)
+		 */
+		private final List<PolicyEvaluator> nonIndexedPolicies;
+
 		private Evaluator(final String algId, final Iterable<? extends PolicyEvaluator> policyElements)
 		{
 			super(policyElements);
 			this.tooManyApplicablePoliciesIndeterminateResult = ExtendedDecisions.newIndeterminate(DecisionType.INDETERMINATE,
 			        new IndeterminateEvaluationException("Too many (more than one) applicable policies for algorithm: " + algId, XacmlStatusCode.PROCESSING_ERROR.value()));
+
+			/*
+			 * Find the largest group of policies with equality-match Targets on the same AttributeDesignator: these are indexed by Target value
+			 */
+			final Map<List<Object>, List<EqualityMatchTarget>> targetsByIndexKey = new HashMap<>();
+			List<EqualityMatchTarget> largestTargetGroup = Collections.emptyList();
+			for (final PolicyEvaluator policy : policyElements)
+			{
+				if (policy instanceof EqualityMatchTarget.Indexable)
+				{
+					final Optional<EqualityMatchTarget> equalityMatchTarget = ((EqualityMatchTarget.Indexable) policy).getEqualityMatchTarget();
+					if (equalityMatchTarget.isPresent())
+					{
+						final List<EqualityMatchTarget> targetGroup = targetsByIndexKey.computeIfAbsent(equalityMatchTarget.get().getIndexKey(), k -> new ArrayList<>());
+						targetGroup.add(equalityMatchTarget.get());
+						if (targetGroup.size() > largestTargetGroup.size())
+						{
+							largestTargetGroup = targetGroup;
+						}
+					}
+				}
+			}
+
+			if (largestTargetGroup.size() < 2)
+			{
+				// indexing not worth it
+				this.indexedAttributeDesignator = null;
+				this.indexedPoliciesByTargetValue = Collections.emptyMap();
+				this.nonIndexedPolicies = ImmutableList.copyOf(policyElements);
+				return;
+			}
+
+			final List<Object> indexKey = largestTargetGroup.get(0).getIndexKey();
+			this.indexedAttributeDesignator = largestTargetGroup.get(0).getAttributeDesignator();
+			final Map<AttributeValue, List<PolicyEvaluator>> mutablePoliciesByTargetValue = HashCollections.newUpdatableMap(largestTargetGroup.size());
+			final List<PolicyEvaluator> mutableNonIndexedPolicies = new ArrayList<>();
+			for (final PolicyEvaluator policy : policyElements)
+			{
+				final Optional<EqualityMatchTarget> equalityMatchTarget = policy instanceof EqualityMatchTarget.Indexable ? ((EqualityMatchTarget.Indexable) policy).getEqualityMatchTarget()
+				        : Optional.empty();
+				if (equalityMatchTarget.isPresent() && equalityMatchTarget.get().getIndexKey().equals(indexKey))
+				{
+					mutablePoliciesByTargetValue.computeIfAbsent(equalityMatchTarget.get().getValue(), k -> new ArrayList<>(1)).add(policy);
+				} else
+				{
+					mutableNonIndexedPolicies.add(policy);
+				}
+			}
+
+			this.indexedPoliciesByTargetValue = HashCollections.newImmutableMap(mutablePoliciesByTargetValue);
+			this.nonIndexedPolicies = ImmutableList.copyOf(mutableNonIndexedPolicies);
+			LOGGER.debug("{}: indexed {} policies by Target value of {} ({} policies not indexed)", algId, largestTargetGroup.size(), indexedAttributeDesignator, nonIndexedPolicies.size());
 		}
 
 		@Override
@@ -64,7 +153,42 @@ final class OnlyOneApplicableCombiningAlg extends BaseCombiningAlg<PolicyEvaluat
 			// atLeastOne == true iff selectedPolicy != null
 			PolicyEvaluator selectedPolicy = null;
 
-			for (final PolicyEvaluator policy : getCombinedElements())
+			if (indexedAttributeDesignator != null)
+			{
+				/*
+				 * The equality-match Targets of the indexed policies are evaluated at once by looking up each value of the AttributeDesignator in the index
+				 */
+				final Bag<?> attributeBag;
+				try
+				{
+					attributeBag = indexedAttributeDesignator.evaluate(context);
+				} catch (final IndeterminateEvaluationException e)
+				{
+					INDETERMINATE_REPORTER.report(indexedAttributeDesignator, "Target", e);
+					return ExtendedDecisions.newIndeterminate(DecisionType.INDETERMINATE, e);
+				}
+
+				for (final AttributeValue attributeValue : attributeBag)
+				{
+					final List<PolicyEvaluator> candidatePolicies = indexedPoliciesByTargetValue.get(attributeValue);
+					if (candidatePolicies == null)
+					{
+						continue;
+					}
+
+					/*
+					 * The same value may occur more than once in the bag, therefore the same policy may be found more than once
+					 */
+					if (candidatePolicies.size() > 1 || selectedPolicy != null && selectedPolicy != candidatePolicies.get(0))
+					{
+						return tooManyApplicablePoliciesIndeterminateResult;
+					}
+
+					selectedPolicy = candidatePolicies.get(0);
+				}
+			}
+
+			for (final PolicyEvaluator policy : nonIndexedPolicies)
 			{
 				// see if the policy applies to the context
 				final boolean isApplicableByTarget;
@@ -73,7 +197,7 @@ final class OnlyOneApplicableCombiningAlg extends BaseCombiningAlg<PolicyEvaluat
 					isApplicableByTarget = policy.isApplicableByTarget(context);
 				} catch (final IndeterminateEvaluationException e)
 				{
-					LOGGER.info("Error checking whether {} is applicable", policy, e);
+					INDETERMINATE_REPORTER.report(policy, "Target", e);
 					return ExtendedDecisions.newIndeterminate(DecisionType.INDETERMINATE, e);
 				}
 
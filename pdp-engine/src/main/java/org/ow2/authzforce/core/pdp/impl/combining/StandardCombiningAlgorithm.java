@@ -182,12 +182,7 @@ public enum StandardCombiningAlgorithm
 
 	private static final PdpExtensionComparator<CombiningAlg<?>> COMPARATOR = new PdpExtensionComparator<>();
 
-	/**
-	 * Singleton immutable instance of combining algorithm registry for standard algorithms
-	 */
-	public static final CombiningAlgRegistry REGISTRY;
-
-	static
+	private static CombiningAlgRegistry newRegistry(final boolean enableAdaptiveCombinedElementOrder)
 	{
 		final Set<CombiningAlg<? extends Decidable>> standardAlgorithms = HashCollections.newUpdatableSet(StandardCombiningAlgorithm.values().length);
 		// XACML 3.0 algorithms
@@ -206,12 +201,12 @@ public enum StandardCombiningAlgorithm
 		standardAlgorithms.add(new DPOverridesCombiningAlg<>(StandardCombiningAlgorithm.XACML_3_0_RULE_COMBINING_ORDERED_PERMIT_OVERRIDES.id, RuleEvaluator.class, EffectType.PERMIT, true));
 
 		// deny-unless-permit
-		standardAlgorithms.add(new DPUnlessPDCombiningAlg<>(StandardCombiningAlgorithm.XACML_3_0_POLICY_COMBINING_DENY_UNLESS_PERMIT.id, PolicyEvaluator.class, EffectType.PERMIT));
-		standardAlgorithms.add(new DPUnlessPDCombiningAlg<>(StandardCombiningAlgorithm.XACML_3_0_RULE_COMBINING_DENY_UNLESS_PERMIT.id, RuleEvaluator.class, EffectType.PERMIT));
+		standardAlgorithms.add(new DPUnlessPDCombiningAlg<>(StandardCombiningAlgorithm.XACML_3_0_POLICY_COMBINING_DENY_UNLESS_PERMIT.id, PolicyEvaluator.class, EffectType.PERMIT, enableAdaptiveCombinedElementOrder));
+		standardAlgorithms.add(new DPUnlessPDCombiningAlg<>(StandardCombiningAlgorithm.XACML_3_0_RULE_COMBINING_DENY_UNLESS_PERMIT.id, RuleEvaluator.class, EffectType.PERMIT, enableAdaptiveCombinedElementOrder));
 
 		// permit-unless-deny
-		standardAlgorithms.add(new DPUnlessPDCombiningAlg<>(StandardCombiningAlgorithm.XACML_3_0_POLICY_COMBINING_PERMIT_UNLESS_DENY.id, PolicyEvaluator.class, EffectType.DENY));
-		standardAlgorithms.add(new DPUnlessPDCombiningAlg<>(StandardCombiningAlgorithm.XACML_3_0_RULE_COMBINING_PERMIT_UNLESS_DENY.id, RuleEvaluator.class, EffectType.DENY));
+		standardAlgorithms.add(new DPUnlessPDCombiningAlg<>(StandardCombiningAlgorithm.XACML_3_0_POLICY_COMBINING_PERMIT_UNLESS_DENY.id, PolicyEvaluator.class, EffectType.DENY, enableAdaptiveCombinedElementOrder));
+		standardAlgorithms.add(new DPUnlessPDCombiningAlg<>(StandardCombiningAlgorithm.XACML_3_0_RULE_COMBINING_PERMIT_UNLESS_DENY.id, RuleEvaluator.class, EffectType.DENY, enableAdaptiveCombinedElementOrder));
 
 		// first-applicable
 		standardAlgorithms.add(new FirstApplicableCombiningAlg<>(StandardCombiningAlgorithm.XACML_1_0_POLICY_COMBINING_FIRST_APPLICABLE.id, PolicyEvaluator.class));
@@ -236,13 +231,35 @@ public enum StandardCombiningAlgorithm
 			standardAlgorithms.add(new LegacyPermitOverridesCombiningAlg(alg.id));
 		}
 
-		REGISTRY = new ImmutableCombiningAlgRegistry(standardAlgorithms);
 		if (LOGGER.isDebugEnabled())
 		{
 			final TreeSet<CombiningAlg<?>> sortedAlgorithms = new TreeSet<>(COMPARATOR);
 			sortedAlgorithms.addAll(standardAlgorithms);
-			LOGGER.debug("Loaded XACML standard combining algorithms: {}", sortedAlgorithms);
+			LOGGER.debug("Loaded XACML standard combining algorithms (adaptive order of combined elements: {}): {}", enableAdaptiveCombinedElementOrder, sortedAlgorithms);
 		}
+
+		return new ImmutableCombiningAlgRegistry(standardAlgorithms);
+	}
+
+	/**
+	 * Singleton immutable instance of combining algorithm registry for standard algorithms, with adaptive evaluation order of combined elements enabled (see {@link #getRegistry(boolean)})
+	 */
+	public static final CombiningAlgRegistry REGISTRY = newRegistry(true);
+
+	private static final CombiningAlgRegistry NON_ADAPTIVE_REGISTRY = newRegistry(false);
+
+	/**
+	 * Get the combining algorithm registry for standard algorithms
+	 * 
+	 * @param enableAdaptiveCombinedElementOrder
+	 *            true iff the deny-unless-permit and permit-unless-deny algorithms may change the evaluation order of the combined elements at runtime, to evaluate first the ones that most often
+	 *            return the overriding Effect (only if none of them may return PEP actions, since the PEP actions returned would depend on the order). False to always evaluate them in order of
+	 *            declaration.
+	 * @return standard combining algorithm registry ({@link #REGISTRY} if {@code enableAdaptiveCombinedElementOrder})
+	 */
+	public static CombiningAlgRegistry getRegistry(final boolean enableAdaptiveCombinedElementOrder)
+	{
+		return enableAdaptiveCombinedElementOrder ? REGISTRY : NON_ADAPTIVE_REGISTRY;
 	}
 
 	private static final Map<String, StandardCombiningAlgorithm> ID_TO_STD_ALG_MAP = Maps.uniqueIndex(Arrays.asList(StandardCombiningAlgorithm.values()),
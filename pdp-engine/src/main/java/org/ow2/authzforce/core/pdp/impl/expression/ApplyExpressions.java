@@ -66,14 +66,22 @@ public final class ApplyExpressions
 
 	}
 
-	private static final class VariableApplyExpression<V extends Value> implements Expression<V>
+	private static final class VariableApplyExpression<V extends Value> implements Expression<V>, ExpressionCosts.Estimated
 	{
 
 		private final FunctionCall<V> functionCall;
+		private final int estimatedCost;
 
-		private VariableApplyExpression(final FunctionCall<V> funcCall)
+		private VariableApplyExpression(final FunctionCall<V> funcCall, final int estimatedCost)
 		{
 			this.functionCall = funcCall;
+			this.estimatedCost = estimatedCost;
+		}
+
+		@Override
+		public int getEstimatedCost()
+		{
+			return estimatedCost;
 		}
 
 		@Override
@@ -101,7 +109,7 @@ public final class ApplyExpressions
 
 	private static final IllegalArgumentException NULL_XACML_APPLY_ELEMENT_EXCEPTION = new IllegalArgumentException("Undefined argument: XACML Apply element");
 
-	private static <V extends Value> Expression<V> newInstance(final FunctionCall<V> functionCall, final String description)
+	private static <V extends Value> Expression<V> newInstance(final FunctionCall<V> functionCall, final String description, final int estimatedCost)
 	{
 		/*
 		 * Check whether the Apply Expression is constant -> try to pre-evaluate the result statically (out of context, i.e. in null context), to prevent useless re-evaluation of the same thing
@@ -116,7 +124,7 @@ public final class ApplyExpressions
 			LOGGER.debug("Apply[Description = " + description + "]: static evaluation failed -> expression is not constant -> not optimizing");
 		}
 
-		return staticEvalResult == null ? new VariableApplyExpression<>(functionCall) : new ConstantApplyExpression<>(functionCall.getReturnType(), staticEvalResult);
+		return staticEvalResult == null ? new VariableApplyExpression<>(functionCall, estimatedCost) : new ConstantApplyExpression<>(functionCall.getReturnType(), staticEvalResult);
 	}
 
 	/**
@@ -225,7 +233,16 @@ public final class ApplyExpressions
 			throw new IllegalArgumentException("Invalid Apply[Description = " + applyDesc + "]: Invalid args for function " + function, e);
 		}
 
-		return newInstance(funcCall, applyDesc);
+		/*
+		 * A function call costs at least as much as its most expensive argument
+		 */
+		int estimatedCost = ExpressionCosts.FUNCTION_CALL;
+		for (final Expression<?> funcInput : funcInputs)
+		{
+			estimatedCost = Math.max(estimatedCost, ExpressionCosts.estimate(funcInput));
+		}
+
+		return newInstance(funcCall, applyDesc, estimatedCost);
 	}
 
 }
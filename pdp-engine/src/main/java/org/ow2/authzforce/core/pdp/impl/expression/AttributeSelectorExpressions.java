@@ -37,16 +37,26 @@ import org.ow2.authzforce.core.pdp.api.AttributeSelectorId;
 import org.ow2.authzforce.core.pdp.api.EvaluationContext;
 import org.ow2.authzforce.core.pdp.api.IndeterminateEvaluationException;
 import org.ow2.authzforce.core.pdp.api.expression.AttributeSelectorExpression;
+import org.ow2.authzforce.core.pdp.api.value.AnyUriValue;
 import org.ow2.authzforce.core.pdp.api.value.AttributeValue;
 import org.ow2.authzforce.core.pdp.api.value.AttributeValueFactory;
 import org.ow2.authzforce.core.pdp.api.value.Bag;
 import org.ow2.authzforce.core.pdp.api.value.BagDatatype;
 import org.ow2.authzforce.core.pdp.api.value.Bags;
+import org.ow2.authzforce.core.pdp.api.value.BooleanValue;
 import org.ow2.authzforce.core.pdp.api.value.Datatype;
+import org.ow2.authzforce.core.pdp.api.value.DateTimeValue;
+import org.ow2.authzforce.core.pdp.api.value.DateValue;
+import org.ow2.authzforce.core.pdp.api.value.IntegerValue;
 import org.ow2.authzforce.core.pdp.api.value.StandardDatatypes;
+import org.ow2.authzforce.core.pdp.api.value.StringValue;
+import org.ow2.authzforce.core.pdp.api.value.TimeValue;
 import org.ow2.authzforce.core.pdp.api.value.XPathValue;
+import org.ow2.authzforce.core.pdp.impl.CompiledXPathCache;
 import org.ow2.authzforce.xacml.identifiers.XacmlStatusCode;
 
+import com.google.common.collect.ImmutableMap;
+
 import net.sf.saxon.s9api.SaxonApiException;
 import net.sf.saxon.s9api.XPathCompiler;
 import net.sf.saxon.s9api.XPathExecutable;
@@ -54,6 +64,7 @@ import net.sf.saxon.s9api.XPathSelector;
 import net.sf.saxon.s9api.XdmAtomicValue;
 import net.sf.saxon.s9api.XdmItem;
 import net.sf.saxon.s9api.XdmNode;
+import net.sf.saxon.s9api.XdmNodeKind;
 import net.sf.saxon.s9api.XdmValue;
 import oasis.names.tc.xacml._3_0.core.schema.wd_17.AttributeSelectorType;
 import oasis.names.tc.xacml._3_0.core.schema.wd_17.AttributeValueType;
@@ -69,6 +80,62 @@ public final class AttributeSelectorExpressions
 		// hide constructor
 	}
 
+	/**
+	 * Factory creating an AttributeValue directly from an XPath evaluation result item (atomic value, or text/attribute node), without going through the generic JAXB-based
+	 * {@link AttributeValueFactory#getInstance(List, Map, XPathCompiler)}
+	 */
+	private interface DirectAttributeValueFactory
+	{
+		/**
+		 * Creates attribute value
+		 * 
+		 * @param item
+		 *            XPath evaluation result item (XdmAtomicValue or XdmNode of kind ATTRIBUTE or TEXT)
+		 * @return attribute value, or null if {@code item} cannot be converted directly, in which case the generic conversion must be used
+		 * @throws IllegalArgumentException
+		 *             if {@code item} is not a valid value of the factory's datatype
+		 */
+		AttributeValue getInstance(XdmItem item) throws IllegalArgumentException;
+	}
+
+	/*
+	 * Direct factories for the most common datatypes of AttributeSelector results: for these, the lexical form of the XDM item (string value) or its Java value (atomic value) is used as is.
+	 */
+	private static final Map<String, DirectAttributeValueFactory> DIRECT_ATTRIBUTE_VALUE_FACTORIES_BY_DATATYPE_ID = ImmutableMap.<String, DirectAttributeValueFactory>builder()
+			.put(StandardDatatypes.STRING.getId(), item -> new StringValue(item.getStringValue())) //
+			.put(StandardDatatypes.ANYURI.getId(), item -> new AnyUriValue(item.getStringValue())) //
+			.put(StandardDatatypes.BOOLEAN.getId(), item -> {
+				if (item instanceof XdmAtomicValue)
+				{
+					final Object javaValue = ((XdmAtomicValue) item).getValue();
+					if (javaValue instanceof Boolean)
+					{
+						return BooleanValue.valueOf(((Boolean) javaValue).booleanValue());
+					}
+				}
+
+				return null;
+			}) //
+			.put(StandardDatatypes.INTEGER.getId(), item -> {
+				if (item instanceof XdmAtomicValue)
+				{
+					final Object javaValue = ((XdmAtomicValue) item).getValue();
+					/*
+					 * Saxon returns a Long for xs:integer values in the long range (else BigInteger, handled by the generic conversion)
+					 */
+					if (javaValue instanceof Long)
+					{
+						return IntegerValue.valueOf(((Long) javaValue).longValue());
+					}
+				}
+
+				return null;
+			}) //
+			.put(StandardDatatypes.DATE.getId(), item -> new DateValue(item.getStringValue())) //
+			.put(StandardDatatypes.TIME.getId(), item -> new TimeValue(item.getStringValue())) //
+			.put(StandardDatatypes.DATETIME.getId(), item -> new DateTimeValue(item.getStringValue())) //
+			.build();
+
 	/**
 	 * Extensible AttributeSelector evaluator, that may be extended to support ContextSelectorId, and which uses SAXON parser to evaluate XPath expressions. The AttributeSelector feature in optional
 	 * in the XACML core specification, and this implementation is experimental (not to be used in production).
@@ -114,6 +181,9 @@ public final class AttributeSelectorExpressions
 			return String.format(NODE_DESCRIPTION_FORMAT, node.getNodeKind(), node.getNodeName(), node.getStringValue());
 		}
 
+		/*
+		 * Suffix appended to error messages about XPath evaluation against the Content of the attribute category, e.g. mentioning the ContextSelectorId if any
+		 */
 		protected abstract String getXPathEvalExceptionMsgSuffix();
 
 		private static final AttributeValueType xdmToJaxbAttributeValue(final String attrDatatype, final XdmNode node) throws IllegalArgumentException
@@ -177,7 +247,10 @@ public final class AttributeSelectorExpressions
 		protected final AttributeSelectorId attributeSelectorId;
 		private final boolean mustBePresent;
 		private final AttributeValueFactory<?> attrFactory;
+		// null if no direct conversion from XDM item for the datatype
+		private final transient DirectAttributeValueFactory directAttrFactory;
 		private final transient Bag.Validator mustBePresentEnforcer;
+		// compiler of the Path, and of XPath expressions only known at evaluation time, e.g. from ContextSelectorId attribute
 		protected final transient XPathCompiler xPathCompiler;
 		private final transient XPathExecutable xPathEvaluator;
 		private final transient BagDatatype<AV> returnType;
@@ -230,6 +303,7 @@ public final class AttributeSelectorExpressions
 
 			this.attributeSelectorId = new AttributeSelectorId(attrSelectorElement);
 			this.attrFactory = attrFactory;
+			this.directAttrFactory = DIRECT_ATTRIBUTE_VALUE_FACTORIES_BY_DATATYPE_ID.get(attrFactory.getDatatype().getId());
 			this.returnType = attrFactory.getDatatype().getBagDatatype();
 
 			final String attributeCategory = attributeSelectorId.getCategory();
@@ -237,7 +311,7 @@ public final class AttributeSelectorExpressions
 			final String missingAttributeMessage = this + " not found in context";
 
 			this.xPathEvalExceptionMessage = this + ": Error evaluating XPath against XML node from Content of Attributes Category='" + attributeCategory + "'" + getXPathEvalExceptionMsgSuffix();
-			this.xPathCompiler = null;
+			this.xPathCompiler = xPathCompiler;
 
 			try
 			{
@@ -362,6 +436,34 @@ public final class AttributeSelectorExpressions
 			int xpathEvalResultItemIndex = 0;
 			for (final XdmItem xpathEvalResultItem : xpathEvalResult)
 			{
+				/*
+				 * Fast path: AttributeValue created directly from the atomic value or text/attribute node, without intermediate JAXB AttributeValue
+				 */
+				if (directAttrFactory != null && (xpathEvalResultItem instanceof XdmAtomicValue || xpathEvalResultItem instanceof XdmNode
+						&& (((XdmNode) xpathEvalResultItem).getNodeKind() == XdmNodeKind.ATTRIBUTE || ((XdmNode) xpathEvalResultItem).getNodeKind() == XdmNodeKind.TEXT)))
+				{
+					final AttributeValue directAttrVal;
+					try
+					{
+						directAttrVal = directAttrFactory.getInstance(xpathEvalResultItem);
+					}
+					catch (final IllegalArgumentException e)
+					{
+						throw new IndeterminateEvaluationException(
+								this + ": Error creating attribute value of type '" + attributeDatatype + "' from result #" + xpathEvalResultItemIndex
+										+ " of evaluating XPath against XML node from Content of Attributes Category='" + attributeSelectorId.getCategory() + "'"
+										+ getXPathEvalExceptionMsgSuffix() + ": " + xpathEvalResultItem,
+								XacmlStatusCode.SYNTAX_ERROR.value(), e);
+					}
+
+					if (directAttrVal != null)
+					{
+						resultBag.add(attributeDatatype.cast(directAttrVal));
+						xpathEvalResultItemIndex++;
+						continue;
+					}
+				}
+
 				final AttributeValueType jaxbAttrVal;
 				if (xpathEvalResultItem instanceof XdmAtomicValue)
 				{
@@ -376,20 +478,18 @@ public final class AttributeSelectorExpressions
 					}
 					catch (final IllegalArgumentException e)
 					{
-						final Optional<String> contextSelectorId = attributeSelectorId.getContextSelectorId();
 						throw new IndeterminateEvaluationException(
 								this + ": Error creating attribute value of type '" + attributeDatatype + "' from result #" + xpathEvalResultItemIndex
-										+ " of evaluating XPath against XML node from Content of Attributes Category='" + attributeSelectorId.getCategory()
-										+ (contextSelectorId == null ? "" : "' selected by ContextSelectorId='" + contextSelectorId + "'") + ": " + xpathEvalResultItem,
+										+ " of evaluating XPath against XML node from Content of Attributes Category='" + attributeSelectorId.getCategory() + "'"
+										+ getXPathEvalExceptionMsgSuffix() + ": " + xpathEvalResultItem,
 								XacmlStatusCode.SYNTAX_ERROR.value(), e);
 					}
 				}
 				else
 				{
-					final Optional<String> contextSelectorId = attributeSelectorId.getContextSelectorId();
 					throw new IndeterminateEvaluationException(this + ": Invalid type of result #" + xpathEvalResultItemIndex
-							+ " from evaluating XPath against XML node from Content of Attributes Category='" + attributeSelectorId.getCategory()
-							+ (contextSelectorId == null ? "" : "' selected by ContextSelectorId='" + contextSelectorId + "'") + xpathEvalResultItem.getClass().getName(),
+							+ " from evaluating XPath against XML node from Content of Attributes Category='" + attributeSelectorId.getCategory() + "'"
+							+ getXPathEvalExceptionMsgSuffix() + ": " + xpathEvalResultItem.getClass().getName(),
 							XacmlStatusCode.SYNTAX_ERROR.value());
 				}
 
@@ -400,11 +500,10 @@ public final class AttributeSelectorExpressions
 				}
 				catch (final IllegalArgumentException e)
 				{
-					final Optional<String> contextSelectorId = attributeSelectorId.getContextSelectorId();
 					throw new IndeterminateEvaluationException(
 							this + ": Error creating attribute value of type '" + attributeDatatype + "' from result #" + xpathEvalResultItemIndex
 									+ " of evaluating XPath against XML node from Content of Attributes Category='" + attributeSelectorId.getCategory() + "'"
-									+ (contextSelectorId == null ? "" : " selected by ContextSelectorId='" + contextSelectorId + "'") + ": " + xpathEvalResultItem,
+									+ getXPathEvalExceptionMsgSuffix() + ": " + xpathEvalResultItem,
 							XacmlStatusCode.SYNTAX_ERROR.value(), e);
 				}
 
@@ -520,12 +619,12 @@ public final class AttributeSelectorExpressions
 
 			try
 			{
-				return xPathCompiler.compile(xpathExpression);
+				return CompiledXPathCache.compile(xPathCompiler, xpathExpression);
 			}
 			catch (final SaxonApiException e)
 			{
-				throw new IllegalArgumentException("Input value given as context selector value is not a valid XPath " + xPathCompiler.getLanguageVersion() + " expression: '" + xpathExpression + "'",
-						e);
+				throw new IllegalArgumentException(
+						"Input value given as context selector value is not a valid XPath " + xPathCompiler.getLanguageVersion() + " expression: '" + xpathExpression + "'", e);
 			}
 
 		}
@@ -622,7 +721,7 @@ public final class AttributeSelectorExpressions
 		@Override
 		protected String getXPathEvalExceptionMsgSuffix()
 		{
-			return "' selected by ContextSelectorId='" + this.attributeSelectorId.getContextSelectorId() + "'";
+			return " selected by ContextSelectorId='" + this.attributeSelectorId.getContextSelectorId().get() + "'";
 		}
 
 		private AttributeSelectorExpressionWithContextSelector(final AttributeSelectorType attrSelectorElement, final XPathCompiler xPathCompiler, final AttributeValueFactory<AV> attrFactory,
@@ -664,7 +763,12 @@ public final class AttributeSelectorExpressions
 			final XdmItem contextNode;
 			try
 			{
-				contextNode = xPathCompiler.evaluateSingle(contextSelectorPath, contentElement);
+				/*
+				 * Same few context XPaths used from one request to the other, therefore compiled once
+				 */
+				final XPathSelector contextSelector = CompiledXPathCache.compile(xPathCompiler, contextSelectorPath).load();
+				contextSelector.setContextItem(contentElement);
+				contextNode = contextSelector.evaluateSingle();
 			}
 			catch (final SaxonApiException e)
 			{
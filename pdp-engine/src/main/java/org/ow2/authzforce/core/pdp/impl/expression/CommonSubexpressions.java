@@ -0,0 +1,317 @@
+/**
+ * Copyright 2012-2018 Thales Services SAS.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl.expression;
+
+import java.io.Serializable;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.xml.bind.JAXBElement;
+
+import org.ow2.authzforce.core.pdp.api.EvaluationContext;
+import org.ow2.authzforce.core.pdp.api.IndeterminateEvaluationException;
+import org.ow2.authzforce.core.pdp.api.expression.Expression;
+import org.ow2.authzforce.core.pdp.api.value.Datatype;
+import org.ow2.authzforce.core.pdp.api.value.StandardDatatypes;
+import org.ow2.authzforce.core.pdp.api.value.Value;
+import org.ow2.authzforce.core.pdp.impl.IndividualDecisionRequestContext;
+
+import com.google.common.collect.MapMaker;
+
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.ApplyType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.AttributeDesignatorType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.AttributeValueType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.ExpressionType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.FunctionType;
+
+/**
+ * Registry of common subexpressions, i.e. Apply expressions that occur multiple times (structurally equal) in the policies compiled by the same expression factory, possibly in different Rules and
+ * Policies. Each distinct such subexpression is compiled once and shared, and its result is memoized in the request context ({@link IndividualDecisionRequestContext#getMemoizedResult(CommonSubexpressions, int)})
+ * as soon as it is shared, so that it is evaluated at most once per request.
+ * <p>
+ * Subexpression IDs are assigned from 0 by each registry, i.e. each expression factory, and only to the subexpressions actually shared (compiled a second time), so that request contexts may size
+ * their memoization array from {@link #count()}, the number of shared subexpressions. The registry only holds weak references to the subexpressions, therefore releases them with the policies using
+ * them.
+ * <p>
+ * Only Apply expressions whose arguments are Apply, AttributeDesignator, AttributeValue (except xpathExpression) or Function expressions may be shared. Expressions depending on the enclosing policy
+ * (VariableReferences, AttributeSelectors and xpathExpressions that depend on the policy's XPath namespace context) are not.
+ */
+public final class CommonSubexpressions
+{
+	private static final int NO_ID = -1;
+
+	/**
+	 * Apply expression that may be shared by multiple policy elements, memoizing its result once shared
+	 */
+	private static final class MemoizingExpression<V extends Value> implements Expression<V>, ExpressionCosts.Estimated
+	{
+		private final CommonSubexpressions registry;
+		private final Expression<V> expression;
+
+		/*
+		 * Assigned (and memoization enabled) only when the expression is actually shared. NO_ID until then.
+		 */
+		private volatile int id = NO_ID;
+
+		private MemoizingExpression(final CommonSubexpressions registry, final Expression<V> expression)
+		{
+			this.registry = registry;
+			this.expression = expression;
+		}
+
+		private void share()
+		{
+			if (id == NO_ID)
+			{
+				synchronized (this)
+				{
+					if (id == NO_ID)
+					{
+						id = registry.sharedSubexpressionCount.getAndIncrement();
+					}
+				}
+			}
+		}
+
+		@Override
+		public Datatype<V> getReturnType()
+		{
+			return expression.getReturnType();
+		}
+
+		@Override
+		public Optional<V> getValue()
+		{
+			return expression.getValue();
+		}
+
+		@Override
+		public int getEstimatedCost()
+		{
+			return ExpressionCosts.estimate(expression);
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public V evaluate(final EvaluationContext context) throws IndeterminateEvaluationException
+		{
+			final int sharedId = this.id;
+			if (sharedId == NO_ID || !(context instanceof IndividualDecisionRequestContext))
+			{
+				return expression.evaluate(context);
+			}
+
+			final IndividualDecisionRequestContext memoizingContext = (IndividualDecisionRequestContext) context;
+			final Object memoizedResult = memoizingContext.getMemoizedResult(registry, sharedId);
+			if (memoizedResult instanceof IndeterminateEvaluationException)
+			{
+				throw (IndeterminateEvaluationException) memoizedResult;
+			}
+
+			if (memoizedResult != null)
+			{
+				/*
+				 * Memoized by this expression, therefore of type V
+				 */
+				return (V) memoizedResult;
+			}
+
+			final V result;
+			try
+			{
+				result = expression.evaluate(context);
+			}
+			catch (final IndeterminateEvaluationException e)
+			{
+				memoizingContext.putMemoizedResult(registry, sharedId, e);
+				throw e;
+			}
+
+			memoizingContext.putMemoizedResult(registry, sharedId, result);
+			return result;
+		}
+
+		@Override
+		public String toString()
+		{
+			return expression.toString();
+		}
+	}
+
+	/*
+	 * Length-prefixed tokens so that the key is not ambiguous whatever the characters in the token
+	 */
+	private static StringBuilder appendToken(final StringBuilder key, final Object token)
+	{
+		if (token == null)
+		{
+			return key.append("-;");
+		}
+
+		final String tokenString = token.toString();
+		return key.append(tokenString.length()).append(':').append(tokenString).append(';');
+	}
+
+	private static boolean appendKey(final ExpressionType expression, final StringBuilder key)
+	{
+		if (expression instanceof ApplyType)
+		{
+			final ApplyType apply = (ApplyType) expression;
+			appendToken(key.append("Apply("), apply.getFunctionId());
+			for (final JAXBElement<? extends ExpressionType> arg : apply.getExpressions())
+			{
+				if (!appendKey(arg.getValue(), key))
+				{
+					return false;
+				}
+			}
+
+			key.append(')');
+			return true;
+		}
+
+		if (expression instanceof AttributeDesignatorType)
+		{
+			final AttributeDesignatorType designator = (AttributeDesignatorType) expression;
+			key.append("AttributeDesignator(");
+			appendToken(key, designator.getCategory());
+			appendToken(key, designator.getAttributeId());
+			appendToken(key, designator.getIssuer());
+			appendToken(key, designator.getDataType());
+			appendToken(key, designator.isMustBePresent()).append(')');
+			return true;
+		}
+
+		if (expression instanceof AttributeValueType)
+		{
+			final AttributeValueType value = (AttributeValueType) expression;
+			if (value.getDataType().equals(StandardDatatypes.XPATH.getId()) || !value.getOtherAttributes().isEmpty())
+			{
+				return false;
+			}
+
+			appendToken(key.append("AttributeValue("), value.getDataType());
+			for (final Serializable contentItem : value.getContent())
+			{
+				if (!(contentItem instanceof String))
+				{
+					return false;
+				}
+
+				appendToken(key, contentItem);
+			}
+
+			key.append(')');
+			return true;
+		}
+
+		if (expression instanceof FunctionType)
+		{
+			appendToken(key.append("Function("), ((FunctionType) expression).getFunctionId()).append(')');
+			return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Get the structural key of an Apply expression
+	 * 
+	 * @param apply
+	 *            Apply expression
+	 * @return key such that two Apply expressions with the same key are equivalent; or null if {@code apply} may not be shared
+	 */
+	static String getKey(final ApplyType apply)
+	{
+		final StringBuilder key = new StringBuilder();
+		return appendKey(apply, key) ? key.toString() : null;
+	}
+
+	private final AtomicInteger sharedSubexpressionCount = new AtomicInteger(0);
+
+	/*
+	 * Weak values: entries are removed once the subexpressions are no longer used by any policy
+	 */
+	private final ConcurrentMap<String, MemoizingExpression<?>> expressionsByKey = new MapMaker().weakValues().makeMap();
+
+	private <V extends Value> MemoizingExpression<V> newMemoizingExpression(final Expression<V> expression)
+	{
+		return new MemoizingExpression<>(this, expression);
+	}
+
+	/**
+	 * Get the number of subexpression IDs assigned so far, i.e. the number of subexpressions actually shared, and the upper bound (exclusive) of subexpression IDs
+	 * 
+	 * @return shared subexpression count
+	 */
+	public int count()
+	{
+		return sharedSubexpressionCount.get();
+	}
+
+	/**
+	 * Get the shared expression previously registered with a given key, marking it as actually shared (memoization enabled)
+	 * 
+	 * @param key
+	 *            subexpression key (see {@link #getKey(ApplyType)})
+	 * @return shared expression; null if none
+	 */
+	Expression<?> getShared(final String key)
+	{
+		final MemoizingExpression<?> sharedExpression = expressionsByKey.get(key);
+		if (sharedExpression == null)
+		{
+			return null;
+		}
+
+		sharedExpression.share();
+		return sharedExpression;
+	}
+
+	/**
+	 * Register a new compiled (non-constant) Apply expression, to be shared by further structurally equal ones
+	 * 
+	 * @param key
+	 *            subexpression key (see {@link #getKey(ApplyType)})
+	 * @param expression
+	 *            compiled Apply expression
+	 * @return expression to be used instead of {@code expression}
+	 */
+	Expression<?> register(final String key, final Expression<?> expression)
+	{
+		final MemoizingExpression<?> newExpression = newMemoizingExpression(expression);
+		final MemoizingExpression<?> previousExpression = expressionsByKey.putIfAbsent(key, newExpression);
+		if (previousExpression == null)
+		{
+			return newExpression;
+		}
+
+		// registered concurrently
+		previousExpression.share();
+		return previousExpression;
+	}
+
+	/**
+	 * Unregister all subexpressions, e.g. when the expression factory is closed. Subexpressions already compiled remain valid.
+	 */
+	void clear()
+	{
+		expressionsByKey.clear();
+	}
+}
@@ -23,6 +23,10 @@ import java.util.Deque;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.xml.namespace.QName;
 
 import org.ow2.authzforce.core.pdp.api.CloseableNamedAttributeProvider;
 import org.ow2.authzforce.core.pdp.api.EvaluationContext;
@@ -38,13 +42,19 @@ import org.ow2.authzforce.core.pdp.api.value.AttributeValue;
 import org.ow2.authzforce.core.pdp.api.value.AttributeValueFactory;
 import org.ow2.authzforce.core.pdp.api.value.AttributeValueFactoryRegistry;
 import org.ow2.authzforce.core.pdp.api.value.Datatype;
+import org.ow2.authzforce.core.pdp.api.value.StandardDatatypes;
 import org.ow2.authzforce.core.pdp.api.value.Value;
+import org.ow2.authzforce.core.pdp.impl.AttributeFqnSlots;
 import org.ow2.authzforce.core.pdp.impl.CloseableAttributeProvider;
+import org.ow2.authzforce.core.pdp.impl.IndividualDecisionRequestContext;
+import org.ow2.authzforce.core.pdp.impl.PdpEngineMetrics;
 import org.ow2.authzforce.core.pdp.impl.func.FunctionRegistry;
 import org.ow2.authzforce.xacml.identifiers.XacmlStatusCode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.collect.ImmutableSet;
+
 import net.sf.saxon.s9api.XPathCompiler;
 import oasis.names.tc.xacml._3_0.core.schema.wd_17.ApplyType;
 import oasis.names.tc.xacml._3_0.core.schema.wd_17.AttributeDesignatorType;
@@ -179,7 +189,7 @@ public final class DepthLimitingExpressionFactory implements ExpressionFactory
 		}
 	}
 
-	private static final class DynamicVariableReference<V extends Value> extends BaseVariableReference<V>
+	private static final class DynamicVariableReference<V extends Value> extends BaseVariableReference<V> implements ExpressionCosts.Estimated
 	{
 		private final transient Expression<V> expression;
 		private final transient IndeterminateEvaluationException nullContextException;
@@ -228,6 +238,12 @@ public final class DepthLimitingExpressionFactory implements ExpressionFactory
 			return Optional.empty();
 		}
 
+		@Override
+		public int getEstimatedCost()
+		{
+			return ExpressionCosts.estimate(expression);
+		}
+
 		/**
 		 * {@inheritDoc}
 		 *
@@ -271,6 +287,8 @@ public final class DepthLimitingExpressionFactory implements ExpressionFactory
 
 	private static final int UNLIMITED_MAX_VARIABLE_REF_DEPTH = -1;
 
+	private static final QName XPATH_CATEGORY_ATTRIBUTE_QNAME = new QName("XPathCategory");
+
 	private final AttributeValueFactoryRegistry datatypeFactoryRegistry;
 	private final FunctionRegistry functionRegistry;
 	private final CloseableAttributeProvider attributeProvider;
@@ -281,6 +299,55 @@ public final class DepthLimitingExpressionFactory implements ExpressionFactory
 
 	private final boolean issuerRequiredOnAttributeDesignators;
 
+	/*
+	 * Slots of the attributes used by the AttributeDesignators created by this factory
+	 */
+	private final AttributeFqnSlots attributeFqnSlots = new AttributeFqnSlots();
+
+	/*
+	 * Apply expressions shared by all policies compiled with this factory, evaluated at most once per request
+	 */
+	private final CommonSubexpressions commonSubexpressions = new CommonSubexpressions();
+
+	/*
+	 * Attribute categories of the Contents that the expressions created so far may evaluate XPath against (AttributeSelector Category, xpathExpression XPathCategory)
+	 */
+	private final Set<String> xpathContentCategories = ConcurrentHashMap.newKeySet();
+
+	/*
+	 * True iff some expression created so far may evaluate XPath against the Content of a category not known statically, e.g. AttributeDesignator of xpathExpression datatype (XPathCategory given by
+	 * the request)
+	 */
+	private volatile boolean anyXPathContentCategory = false;
+
+	/**
+	 * Creates instance without PDP engine metrics, same as {@link #DepthLimitingExpressionFactory(AttributeValueFactoryRegistry, FunctionRegistry, List, int, boolean, boolean, Optional)} with
+	 * {@code metrics = Optional.empty()}
+	 *
+	 * @param attributeFactory
+	 *            attribute value factory (not null)
+	 * @param functionRegistry
+	 *            function registry (not null)
+	 * @param attributeProviderFactories
+	 *            Attribute Provider factories (Attribute Providers resolve values of attributes absent from the request context). Empty if none.
+	 * @param maxVariableRefDepth
+	 *            max depth of VariableReference chaining; strictly negative value means unlimited
+	 * @param allowAttributeSelectors
+	 *            allow use of AttributeSelectors (experimental, not for production, use with caution)
+	 * @param strictAttributeIssuerMatch
+	 *            true iff we want strict Attribute Issuer matching and we require that all AttributeDesignators set the Issuer field
+	 * @throws java.lang.IllegalArgumentException
+	 *             If {@code attributeFactory == null || functionRegistry == null} OR any Attribute Provider created from {@code attributeProviderFactories} does not provide any attribute.
+	 * @throws java.io.IOException
+	 *             error closing the Attribute Providers created from {@code attributeProviderFactories}, when a {@link IllegalArgumentException} is raised
+	 */
+	public DepthLimitingExpressionFactory(final AttributeValueFactoryRegistry attributeFactory, final FunctionRegistry functionRegistry,
+	        final List<CloseableNamedAttributeProvider.DependencyAwareFactory> attributeProviderFactories, final int maxVariableRefDepth, final boolean allowAttributeSelectors,
+	        final boolean strictAttributeIssuerMatch) throws IllegalArgumentException, IOException
+	{
+		this(attributeFactory, functionRegistry, attributeProviderFactories, maxVariableRefDepth, allowAttributeSelectors, strictAttributeIssuerMatch, Optional.empty());
+	}
+
 	/**
 	 * Maximum VariableReference depth allowed for VariableDefinitions to be managed. Examples:
 	 * <ul>
@@ -309,6 +376,8 @@ public final class DepthLimitingExpressionFactory implements ExpressionFactory
 	 *            Issuer, if the requests are using matching Attributes but with none, one or more different Issuers, this PDP engine has to gather all the values from all the attributes with matching
 	 *            Category/AttributeId but with any Issuer or no Issuer. Therefore, in order to stay compliant with §5.29 and still enforce best practice, when {@code strictAttributeIssuerMatch} is
 	 *            true, we also require that all AttributeDesignators set the Issuer field.
+	 * @param metrics
+	 *            (optional) PDP engine metrics where calls to Attribute Provider modules are recorded
 	 * @throws java.lang.IllegalArgumentException
 	 *             If {@code attributeFactory == null || functionRegistry == null} OR any Attribute Provider created from {@code attributeProviderFactories} does not provide any attribute.
 	 * @throws java.io.IOException
@@ -316,7 +385,7 @@ public final class DepthLimitingExpressionFactory implements ExpressionFactory
 	 */
 	public DepthLimitingExpressionFactory(final AttributeValueFactoryRegistry attributeFactory, final FunctionRegistry functionRegistry,
 	        final List<CloseableNamedAttributeProvider.DependencyAwareFactory> attributeProviderFactories, final int maxVariableRefDepth, final boolean allowAttributeSelectors,
-	        final boolean strictAttributeIssuerMatch) throws IllegalArgumentException, IOException
+	        final boolean strictAttributeIssuerMatch, final Optional<PdpEngineMetrics> metrics) throws IllegalArgumentException, IOException
 	{
 		if (attributeFactory == null)
 		{
@@ -334,7 +403,7 @@ public final class DepthLimitingExpressionFactory implements ExpressionFactory
 		/*
 		 * finally create the global attribute Provider used to resolve AttributeDesignators
 		 */
-		this.attributeProvider = CloseableAttributeProvider.getInstance(attributeProviderFactories, attributeFactory, strictAttributeIssuerMatch);
+		this.attributeProvider = CloseableAttributeProvider.getInstance(attributeProviderFactories, attributeFactory, strictAttributeIssuerMatch, metrics);
 		this.allowAttributeSelectors = allowAttributeSelectors;
 		this.issuerRequiredOnAttributeDesignators = strictAttributeIssuerMatch;
 	}
@@ -531,7 +600,19 @@ public final class DepthLimitingExpressionFactory implements ExpressionFactory
 		 */
 		if (expr instanceof ApplyType)
 		{
-			expression = ApplyExpressions.newInstance((ApplyType) expr, xPathCompiler, this, longestVarRefChain);
+			final String subexpressionKey = CommonSubexpressions.getKey((ApplyType) expr);
+			final Expression<?> sharedExpression = subexpressionKey == null ? null : commonSubexpressions.getShared(subexpressionKey);
+			if (sharedExpression != null)
+			{
+				expression = sharedExpression;
+			} else
+			{
+				final Expression<?> applyExpression = ApplyExpressions.newInstance((ApplyType) expr, xPathCompiler, this, longestVarRefChain);
+				/*
+				 * Constant expressions (pre-evaluated at initialization time) need no memoization
+				 */
+				expression = subexpressionKey == null || applyExpression.getValue().isPresent() ? applyExpression : commonSubexpressions.register(subexpressionKey, applyExpression);
+			}
 		} else if (expr instanceof AttributeDesignatorType)
 		{
 			if (this.attributeProvider == null)
@@ -551,7 +632,12 @@ public final class DepthLimitingExpressionFactory implements ExpressionFactory
 				throw new IllegalArgumentException("Unsupported Datatype used in AttributeDesignator: " + jaxbAttrDes.getDataType());
 			}
 
-			expression = new GenericAttributeProviderBasedAttributeDesignatorExpression<>(jaxbAttrDes, attrFactory.getDatatype().getBagDatatype(), attributeProvider);
+			if (jaxbAttrDes.getDataType().equals(StandardDatatypes.XPATH.getId()))
+			{
+				anyXPathContentCategory = true;
+			}
+
+			expression = new GenericAttributeProviderBasedAttributeDesignatorExpression<>(jaxbAttrDes, attrFactory.getDatatype().getBagDatatype(), attributeProvider, Optional.of(attributeFqnSlots));
 		} else if (expr instanceof AttributeSelectorType)
 		{
 			if (!allowAttributeSelectors)
@@ -578,6 +664,15 @@ public final class DepthLimitingExpressionFactory implements ExpressionFactory
 				throw new IllegalArgumentException("AttributeSelector found but missing Policy(Set)Defaults/XPathVersion required for XPath evaluation in AttributeSelector");
 			}
 
+			xpathContentCategories.add(jaxbAttrSelector.getCategory());
+			if (jaxbAttrSelector.getContextSelectorId() != null || jaxbAttrSelector.getDataType().equals(StandardDatatypes.XPATH.getId()))
+			{
+				/*
+				 * The context node / result's XPathCategory come from an xpathExpression value that is not known statically
+				 */
+				anyXPathContentCategory = true;
+			}
+
 			expression = AttributeSelectorExpressions.newInstance(jaxbAttrSelector, xPathCompiler, attributeProvider, attrFactory);
 		} else if (expr instanceof AttributeValueType)
 		{
@@ -611,13 +706,62 @@ public final class DepthLimitingExpressionFactory implements ExpressionFactory
 	@Override
 	public ConstantExpression<? extends AttributeValue> getInstance(final AttributeValueType jaxbAttrVal, final XPathCompiler xPathCompiler) throws IllegalArgumentException
 	{
+		if (jaxbAttrVal.getDataType().equals(StandardDatatypes.XPATH.getId()))
+		{
+			final String xpathCategory = jaxbAttrVal.getOtherAttributes().get(XPATH_CATEGORY_ATTRIBUTE_QNAME);
+			if (xpathCategory == null)
+			{
+				anyXPathContentCategory = true;
+			}
+			else
+			{
+				xpathContentCategories.add(xpathCategory);
+			}
+		}
+
 		return this.datatypeFactoryRegistry.newExpression(jaxbAttrVal.getDataType(), jaxbAttrVal.getContent(), jaxbAttrVal.getOtherAttributes(), xPathCompiler);
 	}
 
+	/**
+	 * Get the attribute categories of the Contents (Attributes/Content in XACML) that the expressions created by this factory so far may evaluate XPath against, i.e. Categories of AttributeSelectors
+	 * and XPathCategories of xpathExpression AttributeValues. Content of other categories is never used by these expressions, therefore does not need to be parsed. Expressions created later (e.g.
+	 * policies loaded dynamically) are not taken into account.
+	 * 
+	 * @return Content categories; or empty if some expression may use the Content of any category (category not known statically), e.g. if an AttributeDesignator of xpathExpression datatype is
+	 *         used
+	 */
+	public Optional<Set<String>> getXPathContentCategories()
+	{
+		return anyXPathContentCategory ? Optional.empty() : Optional.of(ImmutableSet.copyOf(xpathContentCategories));
+	}
+
+	/**
+	 * Get the slots assigned to the attributes used by the AttributeDesignators created by this factory, to be passed to the {@link IndividualDecisionRequestContext}s in which these
+	 * AttributeDesignators are evaluated
+	 * 
+	 * @return attribute slots
+	 */
+	public AttributeFqnSlots getAttributeFqnSlots()
+	{
+		return attributeFqnSlots;
+	}
+
+	/**
+	 * Get the common subexpressions of the expressions created by this factory, to be passed to the {@link IndividualDecisionRequestContext}s in which these expressions are evaluated, for
+	 * memoization
+	 * 
+	 * @return common subexpressions
+	 */
+	public CommonSubexpressions getCommonSubexpressions()
+	{
+		return commonSubexpressions;
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public void close() throws IOException
 	{
+		commonSubexpressions.clear();
 		if (attributeProvider != null)
 		{
 			attributeProvider.close();
@@ -0,0 +1,106 @@
+/**
+ * Copyright 2012-2018 Thales Services SAS.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl.expression;
+
+import org.ow2.authzforce.core.pdp.api.expression.AttributeDesignatorExpression;
+import org.ow2.authzforce.core.pdp.api.expression.AttributeSelectorExpression;
+import org.ow2.authzforce.core.pdp.api.expression.Expression;
+
+/**
+ * Static estimation of the relative cost of evaluating an expression, from cheapest to most expensive: constant, AttributeDesignator resolved from the request, function call (Apply, VariableReference),
+ * AttributeSelector, AttributeDesignator that may be resolved by an Attribute Provider module. An Apply costs at least as much as its most expensive argument.
+ * <p>
+ * Used to evaluate cheaper arguments first where the evaluation order does not change the result, if the PDP is configured to do so.
+ */
+public final class ExpressionCosts
+{
+	/**
+	 * Estimated cost of a constant expression
+	 */
+	public static final int CONSTANT = 0;
+
+	/**
+	 * Estimated cost of an AttributeDesignator resolved from the request context only
+	 */
+	public static final int REQUEST_ATTRIBUTE_DESIGNATOR = 1;
+
+	/**
+	 * Estimated cost of a function call (Apply) with arguments not more expensive than this
+	 */
+	public static final int FUNCTION_CALL = 2;
+
+	/**
+	 * Estimated cost of an AttributeSelector
+	 */
+	public static final int ATTRIBUTE_SELECTOR = 3;
+
+	/**
+	 * Estimated cost of an AttributeDesignator that may be resolved by an Attribute Provider module
+	 */
+	public static final int PROVIDED_ATTRIBUTE_DESIGNATOR = 4;
+
+	/**
+	 * Expression with cost estimated when created
+	 */
+	interface Estimated
+	{
+		int getEstimatedCost();
+	}
+
+	private ExpressionCosts()
+	{
+		// prevent instantiation
+	}
+
+	/**
+	 * Estimates the cost of evaluating an expression
+	 * 
+	 * @param expression
+	 *            expression
+	 * @return estimated cost, one of the constants of this class
+	 */
+	public static int estimate(final Expression<?> expression)
+	{
+		if (expression.getValue().isPresent())
+		{
+			return CONSTANT;
+		}
+
+		if (expression instanceof Estimated)
+		{
+			return ((Estimated) expression).getEstimatedCost();
+		}
+
+		if (expression instanceof GenericAttributeProviderBasedAttributeDesignatorExpression)
+		{
+			return ((GenericAttributeProviderBasedAttributeDesignatorExpression<?>) expression).isProvidedByModule() ? PROVIDED_ATTRIBUTE_DESIGNATOR : REQUEST_ATTRIBUTE_DESIGNATOR;
+		}
+
+		if (expression instanceof AttributeDesignatorExpression)
+		{
+			return REQUEST_ATTRIBUTE_DESIGNATOR;
+		}
+
+		if (expression instanceof AttributeSelectorExpression)
+		{
+			return ATTRIBUTE_SELECTOR;
+		}
+
+		return FUNCTION_CALL;
+	}
+}
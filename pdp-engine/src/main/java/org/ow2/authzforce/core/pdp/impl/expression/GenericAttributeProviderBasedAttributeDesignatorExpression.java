@@ -25,11 +25,15 @@ import org.ow2.authzforce.core.pdp.api.AttributeProvider;
 import org.ow2.authzforce.core.pdp.api.EvaluationContext;
 import org.ow2.authzforce.core.pdp.api.IndeterminateEvaluationException;
 import org.ow2.authzforce.core.pdp.api.expression.AttributeDesignatorExpression;
+import org.ow2.authzforce.core.pdp.api.value.AttributeBag;
 import org.ow2.authzforce.core.pdp.api.value.AttributeValue;
 import org.ow2.authzforce.core.pdp.api.value.Bag;
 import org.ow2.authzforce.core.pdp.api.value.BagDatatype;
 import org.ow2.authzforce.core.pdp.api.value.Bags;
 import org.ow2.authzforce.core.pdp.api.value.Datatype;
+import org.ow2.authzforce.core.pdp.impl.AttributeFqnSlots;
+import org.ow2.authzforce.core.pdp.impl.IndividualDecisionRequestContext;
+import org.ow2.authzforce.core.pdp.impl.ModularAttributeProvider;
 import org.ow2.authzforce.xacml.identifiers.XacmlStatusCode;
 
 import oasis.names.tc.xacml._3_0.core.schema.wd_17.AttributeDesignatorType;
@@ -48,8 +52,12 @@ public final class GenericAttributeProviderBasedAttributeDesignatorExpression<AV
 	private static final IllegalArgumentException NULL_ATTRIBUTE_PROVIDER_EXCEPTION = new IllegalArgumentException("Undefined attribute Provider");
 
 	private final AttributeFqn attrGUID;
+	// null if no slot
+	private final transient AttributeFqnSlots attrSlots;
+	private final int attrSlot;
 	private final BagDatatype<AV> returnType;
 	private final boolean mustBePresent;
+	private final boolean isProvidedByModule;
 	private final transient Bag.Validator mustBePresentEnforcer;
 	private final transient AttributeProvider attrProvider;
 	private final transient IndeterminateEvaluationException missingAttributeForUnknownReasonException;
@@ -78,19 +86,28 @@ public final class GenericAttributeProviderBasedAttributeDesignatorExpression<AV
 	 *            expected datatype of the result of evaluating this AttributeDesignator ( {@code AV is the expected type of every element in the bag})
 	 * @param attrProvider
 	 *            Attribute Provider responsible for finding the attribute designated by this in a given evaluation context at runtime
+	 * @param attrSlots
+	 *            slots of the attributes used by the policies (see {@link AttributeFqnSlots}), in which this AttributeDesignator's attribute gets a slot for faster lookup in
+	 *            {@link IndividualDecisionRequestContext}s using the same slots; empty if no slot
 	 * @throws IllegalArgumentException
 	 *             if {@code attrDesignator.getCategory() == null || attrDesignator.getAttributeId() == null}
 	 */
-	public GenericAttributeProviderBasedAttributeDesignatorExpression(final AttributeDesignatorType attrDesignator, final BagDatatype<AV> resultDatatype, final AttributeProvider attrProvider)
+	public GenericAttributeProviderBasedAttributeDesignatorExpression(final AttributeDesignatorType attrDesignator, final BagDatatype<AV> resultDatatype, final AttributeProvider attrProvider,
+	        final Optional<AttributeFqnSlots> attrSlots)
 	{
 		if (attrProvider == null)
 		{
 			throw NULL_ATTRIBUTE_PROVIDER_EXCEPTION;
 		}
 
+		assert attrSlots != null;
+
 		this.attrProvider = attrProvider;
 		this.attrGUID = AttributeFqns.newInstance(attrDesignator);
+		this.attrSlots = attrSlots.orElse(null);
+		this.attrSlot = this.attrSlots == null ? AttributeFqnSlots.NO_SLOT : this.attrSlots.getOrAssign(attrGUID);
 		this.returnType = resultDatatype;
+		this.isProvidedByModule = attrProvider instanceof ModularAttributeProvider && ((ModularAttributeProvider) attrProvider).isProvidedByModule(attrGUID);
 
 		// error messages/exceptions
 		final String missingAttributeMessage = this + " not found in context";
@@ -102,6 +119,23 @@ public final class GenericAttributeProviderBasedAttributeDesignatorExpression<AV
 		        "Missing Attributes/Attribute for evaluation of AttributeDesignator '" + this.attrGUID + "' because request context undefined", XacmlStatusCode.MISSING_ATTRIBUTE.value());
 	}
 
+	/**
+	 * Return an instance of an AttributeDesignator based on an AttributeDesignatorType, without attribute slot
+	 *
+	 * @param attrDesignator
+	 *            the AttributeDesignatorType we want to convert
+	 * @param resultDatatype
+	 *            expected datatype of the result of evaluating this AttributeDesignator ( {@code AV is the expected type of every element in the bag})
+	 * @param attrProvider
+	 *            Attribute Provider responsible for finding the attribute designated by this in a given evaluation context at runtime
+	 * @throws IllegalArgumentException
+	 *             if {@code attrDesignator.getCategory() == null || attrDesignator.getAttributeId() == null}
+	 */
+	public GenericAttributeProviderBasedAttributeDesignatorExpression(final AttributeDesignatorType attrDesignator, final BagDatatype<AV> resultDatatype, final AttributeProvider attrProvider)
+	{
+		this(attrDesignator, resultDatatype, attrProvider, Optional.empty());
+	}
+
 	@Override
 	public AttributeFqn getAttributeFQN()
 	{
@@ -114,6 +148,16 @@ public final class GenericAttributeProviderBasedAttributeDesignatorExpression<AV
 		return this.mustBePresent;
 	}
 
+	/**
+	 * Says whether the attribute may be resolved by an Attribute Provider module, i.e. not only from the request
+	 * 
+	 * @return true iff the attribute may be resolved by an Attribute Provider module
+	 */
+	public boolean isProvidedByModule()
+	{
+		return this.isProvidedByModule;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 *
@@ -127,7 +171,31 @@ public final class GenericAttributeProviderBasedAttributeDesignatorExpression<AV
 			throw missingAttributeBecauseNullContextException;
 		}
 
-		final Bag<AV> bag = attrProvider.get(attrGUID, this.returnType.getElementType(), context);
+		final Bag<AV> bag;
+		if (attrSlot != AttributeFqnSlots.NO_SLOT && context instanceof IndividualDecisionRequestContext)
+		{
+			/*
+			 * Fast path: lookup by slot in the default context implementation; the attribute provider is called only if the attribute is not in the context yet.
+			 */
+			AttributeBag<AV> contextBag;
+			try
+			{
+				contextBag = ((IndividualDecisionRequestContext) context).getNamedAttributeValue(attrSlots, attrSlot, attrGUID, this.returnType.getElementType());
+			} catch (final IndeterminateEvaluationException e)
+			{
+				/*
+				 * Attribute in context with a different datatype, or unknown (partial evaluation): same result as the attribute provider's in this case, i.e. empty bag with the error as cause
+				 * (Indeterminate if MustBePresent), as in conformance test IIB033.
+				 */
+				contextBag = Bags.emptyAttributeBag(this.returnType.getElementType(), e);
+			}
+
+			bag = contextBag == null ? attrProvider.get(attrGUID, this.returnType.getElementType(), context) : contextBag;
+		} else
+		{
+			bag = attrProvider.get(attrGUID, this.returnType.getElementType(), context);
+		}
+
 		if (bag == null)
 		{
 			throw this.missingAttributeForUnknownReasonException;
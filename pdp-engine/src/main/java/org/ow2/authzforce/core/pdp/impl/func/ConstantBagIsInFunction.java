@@ -0,0 +1,116 @@
+/**
+ * Copyright 2012-2018 Thales Services SAS.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl.func;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import org.ow2.authzforce.core.pdp.api.expression.Expression;
+import org.ow2.authzforce.core.pdp.api.func.FirstOrderFunction;
+import org.ow2.authzforce.core.pdp.api.func.FirstOrderFunctionCall;
+import org.ow2.authzforce.core.pdp.api.func.MultiParameterTypedFirstOrderFunction;
+import org.ow2.authzforce.core.pdp.api.value.AttributeDatatype;
+import org.ow2.authzforce.core.pdp.api.value.AttributeValue;
+import org.ow2.authzforce.core.pdp.api.value.Bag;
+import org.ow2.authzforce.core.pdp.api.value.BooleanValue;
+import org.ow2.authzforce.core.pdp.api.value.Datatype;
+import org.ow2.authzforce.core.pdp.api.value.StandardDatatypes;
+import org.ow2.authzforce.core.pdp.api.value.Value;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+/**
+ * *-is-in function (A.3.10) optimized for constant bags (e.g. {@code string-is-in(x, string-bag("a", "b", ...))}): the constant bag is precompiled into an immutable hash set, so that membership
+ * test is O(1) instead of iterating over the bag. Identical constant bags (used in different Rules or Policies) share the same precompiled set. If the bag argument is not constant, the call is
+ * delegated to the standard *-is-in function.
+ * <p>
+ * Only datatypes whose XACML equality function is consistent with {@link AttributeValue#equals(Object)} and {@link AttributeValue#hashCode()} are supported (see {@link #isSupported(Datatype)}),
+ * e.g. not double (-0.0 vs. 0.0) or date/time datatypes (equality of values in different timezones).
+ *
+ * @param <AV>
+ *            bag element datatype
+ */
+final class ConstantBagIsInFunction<AV extends AttributeValue> extends MultiParameterTypedFirstOrderFunction<BooleanValue>
+{
+	/**
+	 * Suffix of *-is-in function IDs
+	 */
+	static final String ID_SUFFIX = "-is-in";
+
+	private static final Set<Datatype<?>> SUPPORTED_DATATYPES = ImmutableSet.of(StandardDatatypes.STRING, StandardDatatypes.BOOLEAN, StandardDatatypes.INTEGER, StandardDatatypes.ANYURI,
+	        StandardDatatypes.HEXBINARY, StandardDatatypes.BASE64BINARY);
+
+	/**
+	 * Checks whether *-is-in function for a given datatype may be optimized by {@link ConstantBagIsInFunction}
+	 * 
+	 * @param datatype
+	 *            bag element datatype
+	 * @return true iff supported
+	 */
+	static boolean isSupported(final Datatype<?> datatype)
+	{
+		return SUPPORTED_DATATYPES.contains(datatype);
+	}
+
+	private final AttributeDatatype<AV> paramType;
+	private final FirstOrderFunction<BooleanValue> standardFunction;
+	private final Interner<Set<AttributeValue>> constantBagInterner = Interners.newWeakInterner();
+
+	/**
+	 * Creates function
+	 * 
+	 * @param paramType
+	 *            bag element datatype
+	 * @param standardFunction
+	 *            standard *-is-in function for {@code paramType}, used for calls with non-constant bag
+	 */
+	ConstantBagIsInFunction(final AttributeDatatype<AV> paramType, final FirstOrderFunction<BooleanValue> standardFunction)
+	{
+		super(standardFunction.getId(), StandardDatatypes.BOOLEAN, false, Arrays.asList(paramType, paramType.getBagDatatype()));
+		this.paramType = paramType;
+		this.standardFunction = standardFunction;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public FirstOrderFunctionCall<BooleanValue> newCall(final List<Expression<?>> argExpressions, final Datatype<?>... remainingArgTypes) throws IllegalArgumentException
+	{
+		if (FixedArityFirstOrderFunctionCall.isApplicable(2, argExpressions, remainingArgTypes) && argExpressions.get(1).getReturnType().equals(paramType.getBagDatatype()))
+		{
+			final Optional<? extends Value> constantBag = argExpressions.get(1).getValue();
+			if (constantBag.isPresent())
+			{
+				final Set<AttributeValue> constantSet = constantBagInterner.intern(ImmutableSet.<AttributeValue>copyOf((Bag<?>) constantBag.get()));
+				return new FixedArityFirstOrderFunctionCall.Unary<BooleanValue, AV>(functionSignature, StandardDatatypes.BOOLEAN, argExpressions.subList(0, 1), paramType)
+				{
+					@Override
+					protected BooleanValue evaluate(final AV arg0)
+					{
+						return BooleanValue.valueOf(constantSet.contains(arg0));
+					}
+				};
+			}
+		}
+
+		return standardFunction.newCall(argExpressions, remainingArgTypes);
+	}
+}
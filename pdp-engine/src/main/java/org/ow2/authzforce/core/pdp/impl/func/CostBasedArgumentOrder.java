@@ -0,0 +1,110 @@
+/**
+ * Copyright 2012-2018 Thales Services SAS.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl.func;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import org.ow2.authzforce.core.pdp.api.expression.Expression;
+import org.ow2.authzforce.core.pdp.impl.expression.ExpressionCosts;
+
+/**
+ * Cost-based evaluation order of the boolean arguments of the logical functions and, or and n-of: arguments are sorted by increasing cost estimated statically with {@link ExpressionCosts}, so that
+ * cheaper arguments (constants, request attributes) are evaluated before expensive ones (AttributeSelectors, attributes resolved by Attribute Provider modules), and the evaluation is more likely to
+ * stop before evaluating the expensive ones.
+ * <p>
+ * This does not change the Boolean result of these functions since their implementations evaluate all arguments until the result is definitely True or False, whatever the Indeterminate arguments
+ * met in the meantime, and the result only depends on the number of True, False and Indeterminate arguments. However, the XACML spec requires these functions to evaluate their arguments from
+ * first to last, therefore reordering is not fully compliant: it changes which arguments are evaluated - i.e. which attributes are requested from Attribute Providers, which matters if they have
+ * side-effects - and, if the result is Indeterminate, which Indeterminate argument is reported as the cause. This is why it is disabled by default.
+ */
+final class CostBasedArgumentOrder
+{
+	private CostBasedArgumentOrder()
+	{
+		// empty private constructor to prevent instantiation
+	}
+
+	/**
+	 * Get the evaluation order of function arguments by increasing estimated cost (stable sort, i.e. arguments of the same cost remain in declaration order)
+	 * 
+	 * @param argExpressions
+	 *            function arguments
+	 * @param firstReorderableArgIndex
+	 *            index of the first argument that may be reordered, e.g. 1 for n-of since the first argument must be evaluated first
+	 * @return original indexes of the arguments in evaluation order, i.e. the i-th evaluated argument is {@code argExpressions.get(result[i])}; null if the arguments are already in this order
+	 */
+	static int[] getEvaluationOrder(final List<Expression<?>> argExpressions, final int firstReorderableArgIndex)
+	{
+		final int argCount = argExpressions.size();
+		if (argCount - firstReorderableArgIndex < 2)
+		{
+			return null;
+		}
+
+		final int[] argCosts = new int[argCount];
+		final Integer[] orderedArgIndexes = new Integer[argCount];
+		boolean isOrdered = true;
+		for (int i = 0; i < argCount; i++)
+		{
+			argCosts[i] = ExpressionCosts.estimate(argExpressions.get(i));
+			orderedArgIndexes[i] = i;
+			if (i > firstReorderableArgIndex && argCosts[i] < argCosts[i - 1])
+			{
+				isOrdered = false;
+			}
+		}
+
+		if (isOrdered)
+		{
+			return null;
+		}
+
+		Arrays.sort(orderedArgIndexes, firstReorderableArgIndex, argCount, Comparator.comparingInt(i -> argCosts[i]));
+		final int[] evaluationOrder = new int[argCount];
+		for (int i = 0; i < argCount; i++)
+		{
+			evaluationOrder[i] = orderedArgIndexes[i];
+		}
+
+		return evaluationOrder;
+	}
+
+	/**
+	 * Reorders function arguments
+	 * 
+	 * @param argExpressions
+	 *            function arguments
+	 * @param evaluationOrder
+	 *            result of {@link #getEvaluationOrder(List, int)} (not null)
+	 * @return arguments in evaluation order
+	 */
+	static List<Expression<?>> reorder(final List<Expression<?>> argExpressions, final int[] evaluationOrder)
+	{
+		assert evaluationOrder != null && evaluationOrder.length == argExpressions.size();
+		final List<Expression<?>> orderedArgExpressions = new ArrayList<>(evaluationOrder.length);
+		for (final int argIndex : evaluationOrder)
+		{
+			orderedArgExpressions.add(argExpressions.get(argIndex));
+		}
+
+		return orderedArgExpressions;
+	}
+}
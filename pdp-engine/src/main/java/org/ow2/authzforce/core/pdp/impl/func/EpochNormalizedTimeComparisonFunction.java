@@ -0,0 +1,231 @@
+/**
+ * Copyright 2012-2018 Thales Services SAS.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl.func;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import javax.xml.datatype.DatatypeConstants;
+import javax.xml.datatype.XMLGregorianCalendar;
+
+import org.ow2.authzforce.core.pdp.api.IndeterminateEvaluationException;
+import org.ow2.authzforce.core.pdp.api.expression.Expression;
+import org.ow2.authzforce.core.pdp.api.func.FirstOrderFunction;
+import org.ow2.authzforce.core.pdp.api.func.FirstOrderFunctionCall;
+import org.ow2.authzforce.core.pdp.api.func.SingleParameterTypedFirstOrderFunction;
+import org.ow2.authzforce.core.pdp.api.value.AttributeDatatype;
+import org.ow2.authzforce.core.pdp.api.value.BaseTimeValue;
+import org.ow2.authzforce.core.pdp.api.value.BooleanValue;
+import org.ow2.authzforce.core.pdp.api.value.Datatype;
+import org.ow2.authzforce.core.pdp.api.value.StandardDatatypes;
+import org.ow2.authzforce.core.pdp.api.value.Value;
+import org.ow2.authzforce.xacml.identifiers.XacmlStatusCode;
+
+/**
+ * Comparison functions for date and dateTime values (*-greater-than, *-greater-than-or-equal, *-less-than, *-less-than-or-equal) comparing epoch-normalized representations (milliseconds since the
+ * epoch in UTC for dateTime, days since the epoch for date) as longs, instead of {@link XMLGregorianCalendar#compare(XMLGregorianCalendar)} which clones and normalizes both calendars for every
+ * comparison. The representation of a constant argument is computed once, when the function call is created.
+ * <p>
+ * Values that cannot be normalized exactly this way are compared with the standard comparison, i.e. {@link XMLGregorianCalendar#compare(XMLGregorianCalendar)}: values without timezone (partial order,
+ * the comparison may be indeterminate), years before 1 or beyond the int range, and fractional seconds more precise than milliseconds. Calls with fewer/more than two arguments or partial calls
+ * (higher-order functions) are delegated to the standard function.
+ *
+ * @param <AV>
+ *            date/time datatype
+ */
+final class EpochNormalizedTimeComparisonFunction<AV extends BaseTimeValue<AV>> extends SingleParameterTypedFirstOrderFunction<BooleanValue, AV>
+{
+	private static final long MILLIS_PER_DAY = 86400000;
+	private static final long MILLIS_PER_HOUR = 3600000;
+	private static final long MILLIS_PER_MINUTE = 60000;
+	private static final long MILLIS_PER_SECOND = 1000;
+
+	/*
+	 * Returned by toEpochKey() if the value cannot be normalized
+	 */
+	private static final long NOT_NORMALIZED = Long.MIN_VALUE;
+
+	private interface PostCondition
+	{
+		boolean isTrue(int comparisonResult);
+	}
+
+	/**
+	 * Number of days from 1970-01-01 to a date of the proleptic Gregorian calendar
+	 */
+	private static long daysFromEpoch(final long year, final int month, final int day)
+	{
+		final long y = month <= 2 ? year - 1 : year;
+		final long era = Math.floorDiv(y, 400);
+		final long yearOfEra = y - era * 400;
+		final long dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+		final long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+		return era * 146097 + dayOfEra - 719468;
+	}
+
+	/**
+	 * Get the epoch-normalized representation of a date/dateTime, consistent with {@link XMLGregorianCalendar#compare(XMLGregorianCalendar)} for values of the same datatype
+	 * 
+	 * @return milliseconds since the epoch (UTC) for a dateTime; days since the epoch of the UTC-normalized start of day for a date (the time part is dropped by the XMLGregorianCalendar normalization of
+	 *         dates); {@link #NOT_NORMALIZED} if the value cannot be normalized exactly
+	 */
+	private static long toEpochKey(final XMLGregorianCalendar calendar)
+	{
+		final int tzOffsetMinutes = calendar.getTimezone();
+		if (tzOffsetMinutes == DatatypeConstants.FIELD_UNDEFINED || calendar.getEon() != null || calendar.getYear() < 1)
+		{
+			return NOT_NORMALIZED;
+		}
+
+		final BigDecimal fractionalSecond = calendar.getFractionalSecond();
+		if (fractionalSecond != null && fractionalSecond.scale() > 3)
+		{
+			return NOT_NORMALIZED;
+		}
+
+		final long startOfDayMillis = daysFromEpoch(calendar.getYear(), calendar.getMonth(), calendar.getDay()) * MILLIS_PER_DAY - tzOffsetMinutes * MILLIS_PER_MINUTE;
+		final int hour = calendar.getHour();
+		if (hour == DatatypeConstants.FIELD_UNDEFINED)
+		{
+			// date
+			return Math.floorDiv(startOfDayMillis, MILLIS_PER_DAY);
+		}
+
+		return startOfDayMillis + hour * MILLIS_PER_HOUR + calendar.getMinute() * MILLIS_PER_MINUTE + calendar.getSecond() * MILLIS_PER_SECOND
+		        + (fractionalSecond == null ? 0 : fractionalSecond.movePointRight(3).intValue());
+	}
+
+	private static PostCondition getPostCondition(final String functionId)
+	{
+		if (functionId.endsWith("-greater-than"))
+		{
+			return comparisonResult -> comparisonResult > 0;
+		}
+
+		if (functionId.endsWith("-greater-than-or-equal"))
+		{
+			return comparisonResult -> comparisonResult >= 0;
+		}
+
+		if (functionId.endsWith("-less-than"))
+		{
+			return comparisonResult -> comparisonResult < 0;
+		}
+
+		if (functionId.endsWith("-less-than-or-equal"))
+		{
+			return comparisonResult -> comparisonResult <= 0;
+		}
+
+		return null;
+	}
+
+	/**
+	 * Get the epoch-normalized implementation of a standard date/dateTime comparison function
+	 * 
+	 * @param paramType
+	 *            parameter datatype, must be date or dateTime
+	 * @param standardFunction
+	 *            standard comparison function
+	 * @return epoch-normalized implementation of {@code standardFunction}; empty if {@code standardFunction} is not a comparison function of {@code paramType}
+	 */
+	static <AV extends BaseTimeValue<AV>> Optional<FirstOrderFunction<BooleanValue>> getInstance(final AttributeDatatype<AV> paramType, final FirstOrderFunction<BooleanValue> standardFunction)
+	{
+		assert paramType == StandardDatatypes.DATE || paramType == StandardDatatypes.DATETIME;
+		final PostCondition postCondition = getPostCondition(standardFunction.getId());
+		return postCondition == null ? Optional.empty() : Optional.of(new EpochNormalizedTimeComparisonFunction<>(paramType, standardFunction, postCondition));
+	}
+
+	private final FirstOrderFunction<BooleanValue> standardFunction;
+	private final Datatype<AV> paramType;
+	private final PostCondition postCondition;
+	private final String indeterminateComparisonMsgPrefix;
+
+	private EpochNormalizedTimeComparisonFunction(final AttributeDatatype<AV> paramType, final FirstOrderFunction<BooleanValue> standardFunction, final PostCondition postCondition)
+	{
+		super(standardFunction.getId(), StandardDatatypes.BOOLEAN, false, Arrays.asList(paramType, paramType));
+		this.standardFunction = standardFunction;
+		this.paramType = paramType;
+		this.postCondition = postCondition;
+		this.indeterminateComparisonMsgPrefix = "Function " + standardFunction.getId() + ": cannot compare arguments: ";
+	}
+
+	private AV getConstantValue(final Expression<?> argExpression)
+	{
+		if (!argExpression.getReturnType().equals(paramType))
+		{
+			// invalid, rejected by the function call
+			return null;
+		}
+
+		final Optional<? extends Value> constant = argExpression.getValue();
+		return constant.isPresent() ? paramType.cast(constant.get()) : null;
+	}
+
+	private BooleanValue compare(final AV arg0, final AV arg1) throws IndeterminateEvaluationException
+	{
+		final int comparisonResult;
+		try
+		{
+			comparisonResult = arg0.compareTo(arg1);
+		}
+		catch (final IllegalArgumentException e)
+		{
+			throw new IndeterminateEvaluationException(indeterminateComparisonMsgPrefix + arg0 + ", " + arg1, XacmlStatusCode.PROCESSING_ERROR.value(), e);
+		}
+
+		return BooleanValue.valueOf(postCondition.isTrue(comparisonResult));
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public FirstOrderFunctionCall<BooleanValue> newCall(final List<Expression<?>> argExpressions, final Datatype<?>... remainingArgTypes) throws IllegalArgumentException
+	{
+		if (!FixedArityFirstOrderFunctionCall.isApplicable(2, argExpressions, remainingArgTypes))
+		{
+			return standardFunction.newCall(argExpressions, remainingArgTypes);
+		}
+
+		final AV constant0 = getConstantValue(argExpressions.get(0));
+		final long constantKey0 = constant0 == null ? NOT_NORMALIZED : toEpochKey(constant0.getUnderlyingValue());
+		final AV constant1 = getConstantValue(argExpressions.get(1));
+		final long constantKey1 = constant1 == null ? NOT_NORMALIZED : toEpochKey(constant1.getUnderlyingValue());
+		return new FixedArityFirstOrderFunctionCall.Binary<BooleanValue, AV, AV>(functionSignature, StandardDatatypes.BOOLEAN, argExpressions, paramType, paramType)
+		{
+			@Override
+			protected BooleanValue evaluate(final AV arg0, final AV arg1) throws IndeterminateEvaluationException
+			{
+				final long key0 = arg0 == constant0 ? constantKey0 : toEpochKey(arg0.getUnderlyingValue());
+				if (key0 == NOT_NORMALIZED)
+				{
+					return compare(arg0, arg1);
+				}
+
+				final long key1 = arg1 == constant1 ? constantKey1 : toEpochKey(arg1.getUnderlyingValue());
+				if (key1 == NOT_NORMALIZED)
+				{
+					return compare(arg0, arg1);
+				}
+
+				return BooleanValue.valueOf(postCondition.isTrue(Long.compare(key0, key1)));
+			}
+		};
+	}
+}
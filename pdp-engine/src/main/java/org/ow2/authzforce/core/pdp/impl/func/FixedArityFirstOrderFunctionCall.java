@@ -0,0 +1,319 @@
+/**
+ * Copyright 2012-2018 Thales Services SAS.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl.func;
+
+import java.util.List;
+
+import org.ow2.authzforce.core.pdp.api.EvaluationContext;
+import org.ow2.authzforce.core.pdp.api.IndeterminateEvaluationException;
+import org.ow2.authzforce.core.pdp.api.expression.Expression;
+import org.ow2.authzforce.core.pdp.api.expression.Expressions;
+import org.ow2.authzforce.core.pdp.api.func.FirstOrderFunctionCall;
+import org.ow2.authzforce.core.pdp.api.func.FirstOrderFunctionSignature;
+import org.ow2.authzforce.core.pdp.api.value.AttributeValue;
+import org.ow2.authzforce.core.pdp.api.value.Datatype;
+import org.ow2.authzforce.core.pdp.api.value.Value;
+import org.ow2.authzforce.xacml.identifiers.XacmlStatusCode;
+
+/**
+ * First-order function call with a fixed number (1, 2 or 3) of arguments, all given as argument expressions (no remaining argument, as opposed to partial function calls made by higher-order
+ * functions). The argument values are evaluated and passed to the function as plain parameters, instead of a per-call Deque (and varargs array) as with
+ * {@link org.ow2.authzforce.core.pdp.api.func.BaseFirstOrderFunctionCall.EagerSinglePrimitiveTypeEval} and {@link org.ow2.authzforce.core.pdp.api.func.BaseFirstOrderFunctionCall.EagerMultiPrimitiveTypeEval},
+ * therefore no collection is allocated per call.
+ * <p>
+ * Use {@link #isApplicable(int, List, Datatype[])} to check whether a function call may be of this kind, else use the generic (Deque-based) call.
+ *
+ * @param <RETURN_T>
+ *            return type
+ */
+abstract class FixedArityFirstOrderFunctionCall<RETURN_T extends Value> implements FirstOrderFunctionCall<RETURN_T>
+{
+	/**
+	 * Checks whether a function call may be implemented as {@link FixedArityFirstOrderFunctionCall}
+	 * 
+	 * @param arity
+	 *            arity of the (fixed-arity) call
+	 * @param argExpressions
+	 *            argument expressions
+	 * @param remainingArgTypes
+	 *            types of remaining args (partial function call)
+	 * @return true iff there are exactly {@code arity} argument expressions and no remaining arg
+	 */
+	static boolean isApplicable(final int arity, final List<Expression<?>> argExpressions, final Datatype<?>[] remainingArgTypes)
+	{
+		return argExpressions.size() == arity && (remainingArgTypes == null || remainingArgTypes.length == 0);
+	}
+
+	private final String functionName;
+	private final Datatype<RETURN_T> returnType;
+	private final String indeterminateArgMsgPrefix;
+	private final IndeterminateEvaluationException unexpectedRemainingArgsException;
+
+	private FixedArityFirstOrderFunctionCall(final FirstOrderFunctionSignature<RETURN_T> functionSig, final Datatype<RETURN_T> returnType)
+	{
+		this.functionName = functionSig.getName();
+		this.returnType = returnType;
+		this.indeterminateArgMsgPrefix = "Function " + functionName + ": Indeterminate arg #";
+		this.unexpectedRemainingArgsException = new IndeterminateEvaluationException("Function " + functionName + ": unexpected remaining arg(s) (no more arg expected)",
+		        XacmlStatusCode.PROCESSING_ERROR.value());
+	}
+
+	/**
+	 * Checks the type of an argument expression
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if {@code argExpression}'s return type is not {@code paramType}
+	 */
+	private <V extends Value> Expression<?> validate(final Expression<?> argExpression, final int argIndex, final Datatype<V> paramType) throws IllegalArgumentException
+	{
+		if (!argExpression.getReturnType().equals(paramType))
+		{
+			throw new IllegalArgumentException("Function " + functionName + ": Invalid type of arg#" + argIndex + ": expected: " + paramType + "; actual: " + argExpression.getReturnType());
+		}
+
+		return argExpression;
+	}
+
+	private <V extends Value> V eval(final Expression<?> argExpression, final int argIndex, final Datatype<V> paramType, final EvaluationContext context)
+	        throws IndeterminateEvaluationException
+	{
+		try
+		{
+			return Expressions.eval(argExpression, context, paramType);
+		} catch (final IndeterminateEvaluationException e)
+		{
+			throw new IndeterminateEvaluationException(indeterminateArgMsgPrefix + argIndex, e.getStatusCode(), e);
+		}
+	}
+
+	@Override
+	public final Datatype<RETURN_T> getReturnType()
+	{
+		return returnType;
+	}
+
+	@Override
+	public final RETURN_T evaluate(final EvaluationContext context, final AttributeValue... remainingArgs) throws IndeterminateEvaluationException
+	{
+		return evaluate(context, true, remainingArgs);
+	}
+
+	@Override
+	public final RETURN_T evaluate(final EvaluationContext context, final boolean checkRemainingArgTypes, final AttributeValue... remainingArgs) throws IndeterminateEvaluationException
+	{
+		if (remainingArgs != null && remainingArgs.length > 0)
+		{
+			throw unexpectedRemainingArgsException;
+		}
+
+		return evaluate(context);
+	}
+
+	/**
+	 * Function call with one argument
+	 *
+	 * @param <RETURN_T>
+	 *            return type
+	 * @param <PARAM_T>
+	 *            parameter type
+	 */
+	abstract static class Unary<RETURN_T extends Value, PARAM_T extends Value> extends FixedArityFirstOrderFunctionCall<RETURN_T>
+	{
+		private final Expression<?> arg0Expression;
+		private final Datatype<PARAM_T> param0Type;
+
+		/**
+		 * Creates function call
+		 * 
+		 * @param functionSig
+		 *            function signature
+		 * @param returnType
+		 *            return type
+		 * @param argExpressions
+		 *            argument expressions (exactly one)
+		 * @param param0Type
+		 *            parameter type
+		 * @throws IllegalArgumentException
+		 *             if the argument expression does not return a value of type {@code param0Type}
+		 */
+		Unary(final FirstOrderFunctionSignature<RETURN_T> functionSig, final Datatype<RETURN_T> returnType, final List<Expression<?>> argExpressions, final Datatype<PARAM_T> param0Type)
+		        throws IllegalArgumentException
+		{
+			super(functionSig, returnType);
+			assert argExpressions.size() == 1;
+			this.param0Type = param0Type;
+			this.arg0Expression = validate(argExpressions.get(0), 0, param0Type);
+		}
+
+		/**
+		 * Evaluates the function with the argument value
+		 * 
+		 * @param arg0
+		 *            argument value
+		 * @return result
+		 * @throws IndeterminateEvaluationException
+		 *             if function evaluation is Indeterminate
+		 */
+		protected abstract RETURN_T evaluate(PARAM_T arg0) throws IndeterminateEvaluationException;
+
+		@Override
+		public final RETURN_T evaluate(final EvaluationContext context) throws IndeterminateEvaluationException
+		{
+			return evaluate(eval(arg0Expression, 0, param0Type, context));
+		}
+	}
+
+	/**
+	 * Function call with two arguments
+	 *
+	 * @param <RETURN_T>
+	 *            return type
+	 * @param <PARAM0_T>
+	 *            first parameter type
+	 * @param <PARAM1_T>
+	 *            second parameter type
+	 */
+	abstract static class Binary<RETURN_T extends Value, PARAM0_T extends Value, PARAM1_T extends Value> extends FixedArityFirstOrderFunctionCall<RETURN_T>
+	{
+		private final Expression<?> arg0Expression;
+		private final Datatype<PARAM0_T> param0Type;
+		private final Expression<?> arg1Expression;
+		private final Datatype<PARAM1_T> param1Type;
+
+		/**
+		 * Creates function call
+		 * 
+		 * @param functionSig
+		 *            function signature
+		 * @param returnType
+		 *            return type
+		 * @param argExpressions
+		 *            argument expressions (exactly two)
+		 * @param param0Type
+		 *            first parameter type
+		 * @param param1Type
+		 *            second parameter type
+		 * @throws IllegalArgumentException
+		 *             if an argument expression does not return a value of the corresponding parameter type
+		 */
+		Binary(final FirstOrderFunctionSignature<RETURN_T> functionSig, final Datatype<RETURN_T> returnType, final List<Expression<?>> argExpressions, final Datatype<PARAM0_T> param0Type,
+		        final Datatype<PARAM1_T> param1Type) throws IllegalArgumentException
+		{
+			super(functionSig, returnType);
+			assert argExpressions.size() == 2;
+			this.param0Type = param0Type;
+			this.arg0Expression = validate(argExpressions.get(0), 0, param0Type);
+			this.param1Type = param1Type;
+			this.arg1Expression = validate(argExpressions.get(1), 1, param1Type);
+		}
+
+		/**
+		 * Evaluates the function with the argument values
+		 * 
+		 * @param arg0
+		 *            first argument value
+		 * @param arg1
+		 *            second argument value
+		 * @return result
+		 * @throws IndeterminateEvaluationException
+		 *             if function evaluation is Indeterminate
+		 */
+		protected abstract RETURN_T evaluate(PARAM0_T arg0, PARAM1_T arg1) throws IndeterminateEvaluationException;
+
+		@Override
+		public final RETURN_T evaluate(final EvaluationContext context) throws IndeterminateEvaluationException
+		{
+			return evaluate(eval(arg0Expression, 0, param0Type, context), eval(arg1Expression, 1, param1Type, context));
+		}
+	}
+
+	/**
+	 * Function call with three arguments
+	 *
+	 * @param <RETURN_T>
+	 *            return type
+	 * @param <PARAM0_T>
+	 *            first parameter type
+	 * @param <PARAM1_T>
+	 *            second parameter type
+	 * @param <PARAM2_T>
+	 *            third parameter type
+	 */
+	abstract static class Ternary<RETURN_T extends Value, PARAM0_T extends Value, PARAM1_T extends Value, PARAM2_T extends Value>
+	        extends FixedArityFirstOrderFunctionCall<RETURN_T>
+	{
+		private final Expression<?> arg0Expression;
+		private final Datatype<PARAM0_T> param0Type;
+		private final Expression<?> arg1Expression;
+		private final Datatype<PARAM1_T> param1Type;
+		private final Expression<?> arg2Expression;
+		private final Datatype<PARAM2_T> param2Type;
+
+		/**
+		 * Creates function call
+		 * 
+		 * @param functionSig
+		 *            function signature
+		 * @param returnType
+		 *            return type
+		 * @param argExpressions
+		 *            argument expressions (exactly three)
+		 * @param param0Type
+		 *            first parameter type
+		 * @param param1Type
+		 *            second parameter type
+		 * @param param2Type
+		 *            third parameter type
+		 * @throws IllegalArgumentException
+		 *             if an argument expression does not return a value of the corresponding parameter type
+		 */
+		Ternary(final FirstOrderFunctionSignature<RETURN_T> functionSig, final Datatype<RETURN_T> returnType, final List<Expression<?>> argExpressions, final Datatype<PARAM0_T> param0Type,
+		        final Datatype<PARAM1_T> param1Type, final Datatype<PARAM2_T> param2Type) throws IllegalArgumentException
+		{
+			super(functionSig, returnType);
+			assert argExpressions.size() == 3;
+			this.param0Type = param0Type;
+			this.arg0Expression = validate(argExpressions.get(0), 0, param0Type);
+			this.param1Type = param1Type;
+			this.arg1Expression = validate(argExpressions.get(1), 1, param1Type);
+			this.param2Type = param2Type;
+			this.arg2Expression = validate(argExpressions.get(2), 2, param2Type);
+		}
+
+		/**
+		 * Evaluates the function with the argument values
+		 * 
+		 * @param arg0
+		 *            first argument value
+		 * @param arg1
+		 *            second argument value
+		 * @param arg2
+		 *            third argument value
+		 * @return result
+		 * @throws IndeterminateEvaluationException
+		 *             if function evaluation is Indeterminate
+		 */
+		protected abstract RETURN_T evaluate(PARAM0_T arg0, PARAM1_T arg1, PARAM2_T arg2) throws IndeterminateEvaluationException;
+
+		@Override
+		public final RETURN_T evaluate(final EvaluationContext context) throws IndeterminateEvaluationException
+		{
+			return evaluate(eval(arg0Expression, 0, param0Type, context), eval(arg1Expression, 1, param1Type, context), eval(arg2Expression, 2, param2Type, context));
+		}
+	}
+}
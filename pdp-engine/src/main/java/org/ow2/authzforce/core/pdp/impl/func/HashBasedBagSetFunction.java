@@ -0,0 +1,261 @@
+/**
+ * Copyright 2012-2018 Thales Services SAS.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl.func;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import org.ow2.authzforce.core.pdp.api.HashCollections;
+import org.ow2.authzforce.core.pdp.api.expression.Expression;
+import org.ow2.authzforce.core.pdp.api.func.FirstOrderFunction;
+import org.ow2.authzforce.core.pdp.api.func.FirstOrderFunctionCall;
+import org.ow2.authzforce.core.pdp.api.func.Function;
+import org.ow2.authzforce.core.pdp.api.func.SingleParameterTypedFirstOrderFunction;
+import org.ow2.authzforce.core.pdp.api.value.AttributeDatatype;
+import org.ow2.authzforce.core.pdp.api.value.AttributeValue;
+import org.ow2.authzforce.core.pdp.api.value.Bag;
+import org.ow2.authzforce.core.pdp.api.value.BagDatatype;
+import org.ow2.authzforce.core.pdp.api.value.Bags;
+import org.ow2.authzforce.core.pdp.api.value.BooleanValue;
+import org.ow2.authzforce.core.pdp.api.value.Datatype;
+import org.ow2.authzforce.core.pdp.api.value.StandardDatatypes;
+import org.ow2.authzforce.core.pdp.api.value.Value;
+
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Hash-based implementation of the set functions (A.3.11): *-intersection, *-at-least-one-member-of, *-union, *-subset, *-set-equals, with size-adaptive strategy: membership is tested by linear scan
+ * of the bag if the number of comparisons is small (tiny bags), else by lookup in a hash set of the bag's values. If a bag argument is constant, its hash set is computed once, when the function call
+ * is created. Calls with more than two arguments (union) or partial calls (higher-order functions) are delegated to the standard function.
+ * <p>
+ * Only datatypes supported by {@link ConstantBagIsInFunction#isSupported(Datatype)} are supported, since equality must be consistent with {@link AttributeValue#equals(Object)} and
+ * {@link AttributeValue#hashCode()}.
+ *
+ * @param <AV>
+ *            bag element datatype
+ * @param <RETURN_T>
+ *            return type
+ */
+final class HashBasedBagSetFunction<AV extends AttributeValue, RETURN_T extends Value> extends SingleParameterTypedFirstOrderFunction<RETURN_T, Bag<AV>>
+{
+	/*
+	 * Max number of comparisons (size of bag * number of lookups) for which linear scan is used instead of hashing
+	 */
+	private static final int MAX_LINEAR_SCAN_COMPARISONS = 64;
+
+	private interface Operation<AV extends AttributeValue, RETURN_T extends Value>
+	{
+		/**
+		 * Evaluates the set operation
+		 * 
+		 * @param bag0
+		 *            first bag
+		 * @param constantSet0
+		 *            values of {@code bag0} as set if {@code bag0} is constant, else null
+		 * @param bag1
+		 *            second bag
+		 * @param constantSet1
+		 *            values of {@code bag1} as set if {@code bag1} is constant, else null
+		 * @return result
+		 */
+		RETURN_T eval(Bag<AV> bag0, Set<AV> constantSet0, Bag<AV> bag1, Set<AV> constantSet1);
+	}
+
+	/**
+	 * Get the values of a bag as a hash set if worth it
+	 * 
+	 * @return {@code constantSet} if not null; else null if linear scan of {@code bag} for {@code numOfLookups} values is cheap enough; else new hash set of {@code bag}'s values
+	 */
+	private static <AV extends AttributeValue> Set<AV> toSetIfWorthIt(final Bag<AV> bag, final Set<AV> constantSet, final int numOfLookups)
+	{
+		if (constantSet != null || (long) bag.size() * numOfLookups <= MAX_LINEAR_SCAN_COMPARISONS)
+		{
+			return constantSet;
+		}
+
+		final Set<AV> set = HashCollections.newUpdatableSet(bag.size());
+		bag.forEach(set::add);
+		return set;
+	}
+
+	private static <AV extends AttributeValue> boolean contains(final Bag<AV> bag, final Set<AV> bagAsSetOrNull, final AV value)
+	{
+		if (bagAsSetOrNull != null)
+		{
+			return bagAsSetOrNull.contains(value);
+		}
+
+		for (final AV bagValue : bag)
+		{
+			if (bagValue.equals(value))
+			{
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * @return true iff all values of {@code bag0} are in {@code bag1}
+	 */
+	private static <AV extends AttributeValue> boolean isSubset(final Bag<AV> bag0, final Bag<AV> bag1, final Set<AV> constantSet1)
+	{
+		final Set<AV> set1 = toSetIfWorthIt(bag1, constantSet1, bag0.size());
+		for (final AV value : bag0)
+		{
+			if (!contains(bag1, set1, value))
+			{
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Get the hash-based implementation of a standard first-order bag function if there is one
+	 * 
+	 * @param elementType
+	 *            bag element datatype
+	 * @param standardFunction
+	 *            standard first-order bag function
+	 * @return hash-based implementation of {@code standardFunction}; empty if {@code standardFunction} is not a set function or {@code elementType} is not supported
+	 */
+	static <AV extends AttributeValue> Optional<Function<?>> getInstance(final AttributeDatatype<AV> elementType, final Function<?> standardFunction)
+	{
+		if (!ConstantBagIsInFunction.isSupported(elementType) || !(standardFunction instanceof FirstOrderFunction))
+		{
+			return Optional.empty();
+		}
+
+		final String functionId = standardFunction.getId();
+		final BagDatatype<AV> bagType = elementType.getBagDatatype();
+		if (functionId.endsWith("-at-least-one-member-of"))
+		{
+			return Optional.of(new HashBasedBagSetFunction<AV, BooleanValue>(standardFunction, StandardDatatypes.BOOLEAN, false, bagType, (bag0, constantSet0, bag1, constantSet1) -> {
+				final Set<AV> set1 = toSetIfWorthIt(bag1, constantSet1, bag0.size());
+				for (final AV value : bag0)
+				{
+					if (contains(bag1, set1, value))
+					{
+						return BooleanValue.TRUE;
+					}
+				}
+
+				return BooleanValue.FALSE;
+			}));
+		}
+
+		if (functionId.endsWith("-subset"))
+		{
+			return Optional.of(new HashBasedBagSetFunction<AV, BooleanValue>(standardFunction, StandardDatatypes.BOOLEAN, false, bagType,
+			        (bag0, constantSet0, bag1, constantSet1) -> BooleanValue.valueOf(isSubset(bag0, bag1, constantSet1))));
+		}
+
+		if (functionId.endsWith("-set-equals"))
+		{
+			return Optional.of(new HashBasedBagSetFunction<AV, BooleanValue>(standardFunction, StandardDatatypes.BOOLEAN, false, bagType,
+			        (bag0, constantSet0, bag1, constantSet1) -> BooleanValue.valueOf(isSubset(bag0, bag1, constantSet1) && isSubset(bag1, bag0, constantSet0))));
+		}
+
+		if (functionId.endsWith("-intersection"))
+		{
+			return Optional.of(new HashBasedBagSetFunction<AV, Bag<AV>>(standardFunction, bagType, false, bagType, (bag0, constantSet0, bag1, constantSet1) -> {
+				final Set<AV> set1 = toSetIfWorthIt(bag1, constantSet1, bag0.size());
+				final Set<AV> result = HashCollections.newUpdatableSet(Math.min(bag0.size(), bag1.size()));
+				for (final AV value : bag0)
+				{
+					if (contains(bag1, set1, value))
+					{
+						result.add(value);
+					}
+				}
+
+				return Bags.newBag(elementType, result);
+			}));
+		}
+
+		if (functionId.endsWith("-union"))
+		{
+			return Optional.of(new HashBasedBagSetFunction<AV, Bag<AV>>(standardFunction, bagType, true, bagType, (bag0, constantSet0, bag1, constantSet1) -> {
+				final Set<AV> result = HashCollections.newUpdatableSet(bag0.size() + bag1.size());
+				bag0.forEach(result::add);
+				bag1.forEach(result::add);
+				return Bags.newBag(elementType, result);
+			}));
+		}
+
+		return Optional.empty();
+	}
+
+	private final FirstOrderFunction<RETURN_T> standardFunction;
+	private final Datatype<RETURN_T> returnType;
+	private final BagDatatype<AV> bagType;
+	private final Operation<AV, RETURN_T> op;
+
+	@SuppressWarnings("unchecked")
+	private HashBasedBagSetFunction(final Function<?> standardFunction, final Datatype<RETURN_T> returnType, final boolean varArgs, final BagDatatype<AV> bagType,
+	        final Operation<AV, RETURN_T> op)
+	{
+		/*
+		 * union(bag, bag, bag...) takes 2 or more args
+		 */
+		super(standardFunction.getId(), returnType, varArgs, varArgs ? Arrays.asList(bagType, bagType, bagType) : Arrays.asList(bagType, bagType));
+		this.standardFunction = (FirstOrderFunction<RETURN_T>) standardFunction;
+		this.returnType = returnType;
+		this.bagType = bagType;
+		this.op = op;
+	}
+
+	@SuppressWarnings("unchecked")
+	private Set<AV> getConstantSet(final Expression<?> bagExpression)
+	{
+		if (!bagExpression.getReturnType().equals(bagType))
+		{
+			// invalid, rejected by the function call
+			return null;
+		}
+
+		final Optional<? extends Value> constantBag = bagExpression.getValue();
+		return constantBag.isPresent() ? ImmutableSet.copyOf((Bag<AV>) constantBag.get()) : null;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public FirstOrderFunctionCall<RETURN_T> newCall(final List<Expression<?>> argExpressions, final Datatype<?>... remainingArgTypes) throws IllegalArgumentException
+	{
+		if (!FixedArityFirstOrderFunctionCall.isApplicable(2, argExpressions, remainingArgTypes))
+		{
+			return standardFunction.newCall(argExpressions, remainingArgTypes);
+		}
+
+		final Set<AV> constantSet0 = getConstantSet(argExpressions.get(0));
+		final Set<AV> constantSet1 = getConstantSet(argExpressions.get(1));
+		return new FixedArityFirstOrderFunctionCall.Binary<RETURN_T, Bag<AV>, Bag<AV>>(functionSignature, returnType, argExpressions, bagType, bagType)
+		{
+			@Override
+			protected RETURN_T evaluate(final Bag<AV> bag0, final Bag<AV> bag1)
+			{
+				return op.eval(bag0, constantSet0, bag1, constantSet1);
+			}
+		};
+	}
+}
@@ -41,6 +41,8 @@ import org.ow2.authzforce.xacml.identifiers.XacmlStatusCode;
  * From XACML core specification of function 'urn:oasis:names:tc:xacml:1.0:function:and': This function SHALL return "True" if it has no arguments and SHALL return "False" if one of its arguments
  * evaluates to "False". The order of evaluation SHALL be from first argument to last. The evaluation SHALL stop with a result of "False" if any argument evaluates to "False", leaving the rest of the
  * arguments unevaluated.
+ * <p>
+ * Optionally, the arguments may be evaluated by increasing estimated cost instead, see {@link CostBasedArgumentOrder}.
  *
  * 
  * @version $Id: $
@@ -57,10 +59,17 @@ final class LogicalAndFunction extends SingleParameterTypedFirstOrderFunction<Bo
 
 			private final List<Expression<?>> checkedArgExpressions;
 
-			private Call(final FirstOrderFunctionSignature<BooleanValue> functionSig, final List<Expression<?>> argExpressions, final Datatype<?>[] remainingArgTypes) throws IllegalArgumentException
+			/*
+			 * Original indexes of the arguments in evaluation order, null if not reordered
+			 */
+			private final int[] argEvaluationOrder;
+
+			private Call(final FirstOrderFunctionSignature<BooleanValue> functionSig, final List<Expression<?>> argExpressions, final Datatype<?>[] remainingArgTypes,
+			        final int[] argEvaluationOrder) throws IllegalArgumentException
 			{
 				super(functionSig, argExpressions, remainingArgTypes);
-				this.checkedArgExpressions = argExpressions;
+				this.checkedArgExpressions = argEvaluationOrder == null ? argExpressions : CostBasedArgumentOrder.reorder(argExpressions, argEvaluationOrder);
+				this.argEvaluationOrder = argEvaluationOrder;
 				invalidArgTypeMsgPrefix = "Function " + functionSig.getName() + ": Invalid type (expected = " + StandardDatatypes.BOOLEAN + ") of arg#";
 				indeterminateArgMsgPrefix = "Function " + functionSig.getName() + ": Indeterminate arg #";
 			}
@@ -86,7 +95,8 @@ final class LogicalAndFunction extends SingleParameterTypedFirstOrderFunction<Bo
 					{
 						// keep the indeterminate error to throw later if there was not any FALSE in
 						// remaining args
-						indeterminateException = new IndeterminateEvaluationException(indeterminateArgMsgPrefix + argIndex, e.getStatusCode(), e);
+						indeterminateException = new IndeterminateEvaluationException(indeterminateArgMsgPrefix + (argEvaluationOrder == null ? argIndex : argEvaluationOrder[argIndex]),
+						        e.getStatusCode(), e);
 					}
 
 					argIndex++;
@@ -131,10 +141,12 @@ final class LogicalAndFunction extends SingleParameterTypedFirstOrderFunction<Bo
 		}
 
 		private final SingleParameterTypedFirstOrderFunctionSignature<BooleanValue, BooleanValue> funcSig;
+		private final boolean reorderArgsByCost;
 
-		private CallFactory(final SingleParameterTypedFirstOrderFunctionSignature<BooleanValue, BooleanValue> functionSignature)
+		private CallFactory(final SingleParameterTypedFirstOrderFunctionSignature<BooleanValue, BooleanValue> functionSignature, final boolean reorderArgsByCost)
 		{
 			this.funcSig = functionSignature;
+			this.reorderArgsByCost = reorderArgsByCost;
 		}
 
 		protected FirstOrderFunctionCall<BooleanValue> getInstance(final List<Expression<?>> argExpressions, final Datatype<?>[] remainingArgTypes) throws IllegalArgumentException
@@ -147,17 +159,25 @@ final class LogicalAndFunction extends SingleParameterTypedFirstOrderFunction<Bo
 			 * </ol>
 			 * Other optimizations are already achieved by ApplyExpression pre-evaluating the function call with context = null and check the result if no IndeterminateEvaluationException is thrown.
 			 */
-			return new Call(funcSig, argExpressions, remainingArgTypes);
+			return new Call(funcSig, argExpressions, remainingArgTypes, reorderArgsByCost ? CostBasedArgumentOrder.getEvaluationOrder(argExpressions, 0) : null);
 		}
 
 	}
 
 	private final CallFactory funcCallFactory;
 
-	LogicalAndFunction(final String functionId)
+	/**
+	 * Creates function
+	 * 
+	 * @param functionId
+	 *            function ID
+	 * @param reorderArgsByCost
+	 *            true iff arguments are evaluated by increasing estimated cost instead of declaration order (not fully compliant with XACML, see {@link CostBasedArgumentOrder})
+	 */
+	LogicalAndFunction(final String functionId, final boolean reorderArgsByCost)
 	{
 		super(functionId, StandardDatatypes.BOOLEAN, true, Arrays.asList(StandardDatatypes.BOOLEAN));
-		this.funcCallFactory = new CallFactory(this.functionSignature);
+		this.funcCallFactory = new CallFactory(this.functionSignature, reorderArgsByCost);
 	}
 
 	/** {@inheritDoc} */
@@ -48,6 +48,8 @@ import org.ow2.authzforce.xacml.identifiers.XacmlStatusCode;
  * <p>
  * This function evaluates the arguments one at a time, starting with the first one. As soon as the result of the function can be determined, evaluation stops and that result is returned. During this
  * process, if any argument evaluates to indeterminate, an indeterminate result is returned.
+ * <p>
+ * Optionally, the arguments after the first one may be evaluated by increasing estimated cost instead, see {@link CostBasedArgumentOrder}.
  *
  * 
  * @version $Id: $
@@ -66,9 +68,21 @@ final class LogicalNOfFunction extends MultiParameterTypedFirstOrderFunction<Boo
 		private final IndeterminateEvaluationException indeterminateArgException;
 		private final String invalidArgTypeMsgPrefix;
 
-		private Call(final FirstOrderFunctionSignature<BooleanValue> functionSig, final List<Expression<?>> args, final Datatype<?>... remainingArgTypes)
+		/*
+		 * Original indexes of the arguments in evaluation order, null if not reordered
+		 */
+		private final int[] argEvaluationOrder;
+
+		/*
+		 * Argument expressions in evaluation order
+		 */
+		protected final List<Expression<?>> orderedArgExpressions;
+
+		private Call(final FirstOrderFunctionSignature<BooleanValue> functionSig, final List<Expression<?>> args, final int[] argEvaluationOrder, final Datatype<?>... remainingArgTypes)
 		{
 			super(functionSig, args, remainingArgTypes);
+			this.argEvaluationOrder = argEvaluationOrder;
+			this.orderedArgExpressions = argEvaluationOrder == null ? args : CostBasedArgumentOrder.reorder(args, argEvaluationOrder);
 			/*
 			 * Number of remaining args, i.e. all (boolean) args after the first (integer) arg (excluded).
 			 */
@@ -118,7 +132,8 @@ final class LogicalNOfFunction extends MultiParameterTypedFirstOrderFunction<Boo
 					 * numOfArgsAfterFirst - nOfRemainingArgs
 					 */
 					final int argIndex = numOfArgsAfterFirst - nOfRemainingArgs;
-					lastIndeterminateException = new IndeterminateEvaluationException(indeterminateArgMsgPrefix + argIndex, e.getStatusCode(), e);
+					lastIndeterminateException = new IndeterminateEvaluationException(indeterminateArgMsgPrefix + (argEvaluationOrder == null ? argIndex : argEvaluationOrder[argIndex]),
+							e.getStatusCode(), e);
 					nOfIndeterminateArgs++;
 				}
 
@@ -241,11 +256,12 @@ final class LogicalNOfFunction extends MultiParameterTypedFirstOrderFunction<Boo
 		private final int requiredMinOfTrues;
 		private final List<Expression<?>> checkedArgExpressionsAfterFirst;
 
-		public CallWithFixedArg0(final FirstOrderFunctionSignature<BooleanValue> functionSignature, final int arg0, final List<Expression<?>> allArgExpressions, final Datatype<?>... remainingArgTypes)
+		public CallWithFixedArg0(final FirstOrderFunctionSignature<BooleanValue> functionSignature, final int arg0, final List<Expression<?>> allArgExpressions, final int[] argEvaluationOrder,
+				final Datatype<?>... remainingArgTypes)
 		{
-			super(functionSignature, allArgExpressions, remainingArgTypes);
+			super(functionSignature, allArgExpressions, argEvaluationOrder, remainingArgTypes);
 			requiredMinOfTrues = arg0;
-			checkedArgExpressionsAfterFirst = allArgExpressions.subList(1, allArgExpressions.size());
+			checkedArgExpressionsAfterFirst = orderedArgExpressions.subList(1, orderedArgExpressions.size());
 		}
 
 		@Override
@@ -258,13 +274,11 @@ final class LogicalNOfFunction extends MultiParameterTypedFirstOrderFunction<Boo
 	private static final class CallWithVarArg0 extends Call
 	{
 		private final String invalidArg0MsgPrefix;
-		private final List<Expression<?>> checkedArgExpressions;
 
-		private CallWithVarArg0(final FirstOrderFunctionSignature<BooleanValue> functionSig, final List<Expression<?>> argExpressions, final Datatype<?>... remainingArgTypes)
-				throws IllegalArgumentException
+		private CallWithVarArg0(final FirstOrderFunctionSignature<BooleanValue> functionSig, final List<Expression<?>> argExpressions, final int[] argEvaluationOrder,
+				final Datatype<?>... remainingArgTypes) throws IllegalArgumentException
 		{
-			super(functionSig, argExpressions, remainingArgTypes);
-			this.checkedArgExpressions = argExpressions;
+			super(functionSig, argExpressions, argEvaluationOrder, remainingArgTypes);
 			invalidArg0MsgPrefix = getInvalidArg0MessagePrefix(functionSig);
 		}
 
@@ -276,7 +290,7 @@ final class LogicalNOfFunction extends MultiParameterTypedFirstOrderFunction<Boo
 			/*
 			 * Evaluate the arguments one by one. As soon as we can return a result, do so. Return Indeterminate if any argument evaluated is indeterminate.
 			 */
-			final Iterator<? extends Expression<?>> argExpsIterator = checkedArgExpressions.iterator();
+			final Iterator<? extends Expression<?>> argExpsIterator = orderedArgExpressions.iterator();
 
 			// Evaluate the first argument
 			final Expression<?> input0 = argExpsIterator.next();
@@ -320,9 +334,21 @@ final class LogicalNOfFunction extends MultiParameterTypedFirstOrderFunction<Boo
 		}
 	}
 
-	LogicalNOfFunction(final String functionId)
+	private final boolean reorderArgsByCost;
+
+	/**
+	 * Creates function
+	 * 
+	 * @param functionId
+	 *            function ID
+	 * @param reorderArgsByCost
+	 *            true iff arguments after the first one are evaluated by increasing estimated cost instead of declaration order (not fully compliant with XACML, see
+	 *            {@link CostBasedArgumentOrder})
+	 */
+	LogicalNOfFunction(final String functionId, final boolean reorderArgsByCost)
 	{
 		super(functionId, StandardDatatypes.BOOLEAN, true, Arrays.asList(StandardDatatypes.INTEGER, StandardDatatypes.BOOLEAN));
+		this.reorderArgsByCost = reorderArgsByCost;
 	}
 
 	/** {@inheritDoc} */
@@ -337,9 +363,14 @@ final class LogicalNOfFunction extends MultiParameterTypedFirstOrderFunction<Boo
 		 */
 		if (!argExpsIterator.hasNext())
 		{
-			return new CallWithVarArg0(functionSignature, argExpressions, remainingArgTypes);
+			return new CallWithVarArg0(functionSignature, argExpressions, null, remainingArgTypes);
 		}
 
+		/*
+		 * The first argument must be evaluated first, only the next ones may be reordered
+		 */
+		final int[] argEvaluationOrder = reorderArgsByCost ? CostBasedArgumentOrder.getEvaluationOrder(argExpressions, 1) : null;
+
 		final Optional<? extends Value> arg0 = argExpsIterator.next().getValue();
 		if (arg0.isPresent())
 		{
@@ -371,14 +402,14 @@ final class LogicalNOfFunction extends MultiParameterTypedFirstOrderFunction<Boo
 				throw new IllegalArgumentException(getInvalidArg0MessagePrefix(functionSignature) + nOfRequiredTrues + " > number_of_remaining args (" + nOfRemainingArgs + ")");
 			}
 
-			return new CallWithFixedArg0(functionSignature, nOfRequiredTrues, argExpressions, remainingArgTypes);
+			return new CallWithFixedArg0(functionSignature, nOfRequiredTrues, argExpressions, argEvaluationOrder, remainingArgTypes);
 		}
 
 		/**
 		 * TODO: optimize by checking the following: If any argument expression is constant BooleanAttributeValue False, remove it from the arguments, as it has no effect on the final result. Indeed,
 		 * n-of function is commutative except for the first argument, and n-of(N, false, x, y...) = n-of(N, x, y...).
 		 */
-		return new CallWithVarArg0(functionSignature, argExpressions, remainingArgTypes);
+		return new CallWithVarArg0(functionSignature, argExpressions, argEvaluationOrder, remainingArgTypes);
 	}
 
 }
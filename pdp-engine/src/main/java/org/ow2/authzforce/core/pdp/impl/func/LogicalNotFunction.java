@@ -47,6 +47,19 @@ final class LogicalNotFunction extends SingleParameterTypedFirstOrderFunction<Bo
 	@Override
 	public FirstOrderFunctionCall<BooleanValue> newCall(final List<Expression<?>> argExpressions, final Datatype<?>... remainingArgTypes) throws IllegalArgumentException
 	{
+		if (FixedArityFirstOrderFunctionCall.isApplicable(1, argExpressions, remainingArgTypes))
+		{
+			return new FixedArityFirstOrderFunctionCall.Unary<BooleanValue, BooleanValue>(functionSignature, StandardDatatypes.BOOLEAN, argExpressions, StandardDatatypes.BOOLEAN)
+			{
+				@Override
+				protected BooleanValue evaluate(final BooleanValue arg0)
+				{
+					return arg0.not();
+				}
+
+			};
+		}
+
 		return new BaseFirstOrderFunctionCall.EagerSinglePrimitiveTypeEval<BooleanValue, BooleanValue>(functionSignature, argExpressions, remainingArgTypes)
 		{
 			@Override
@@ -40,6 +40,8 @@ import org.ow2.authzforce.xacml.identifiers.XacmlStatusCode;
  * From XACML core specification of function 'urn:oasis:names:tc:xacml:1.0:function:or': This function SHALL return "False" if it has no arguments and SHALL return "True" if at least one of its
  * arguments evaluates to "True". The order of evaluation SHALL be from first argument to last. The evaluation SHALL stop with a result of "True" if any argument evaluates to "True", leaving the rest
  * of the arguments unevaluated.
+ * <p>
+ * Optionally, the arguments may be evaluated by increasing estimated cost instead, see {@link CostBasedArgumentOrder}.
  *
  * 
  * @version $Id: $
@@ -54,10 +56,17 @@ final class LogicalOrFunction extends SingleParameterTypedFirstOrderFunction<Boo
 
 		private final List<Expression<?>> checkedArgExpressions;
 
-		private Call(final FirstOrderFunctionSignature<BooleanValue> functionSig, final List<Expression<?>> argExpressions, final Datatype<?>[] remainingArgTypes) throws IllegalArgumentException
+		/*
+		 * Original indexes of the arguments in evaluation order, null if not reordered
+		 */
+		private final int[] argEvaluationOrder;
+
+		private Call(final FirstOrderFunctionSignature<BooleanValue> functionSig, final List<Expression<?>> argExpressions, final Datatype<?>[] remainingArgTypes, final int[] argEvaluationOrder)
+		        throws IllegalArgumentException
 		{
 			super(functionSig, argExpressions, remainingArgTypes);
-			this.checkedArgExpressions = argExpressions;
+			this.checkedArgExpressions = argEvaluationOrder == null ? argExpressions : CostBasedArgumentOrder.reorder(argExpressions, argEvaluationOrder);
+			this.argEvaluationOrder = argEvaluationOrder;
 			indeterminateArgMsgPrefix = "Function " + functionSig.getName() + ": Indeterminate arg #";
 			invalidArgTypeMsgPrefix = "Function " + functionSig.getName() + ": Invalid type (expected = " + StandardDatatypes.BOOLEAN + ") of arg#";
 		}
@@ -83,7 +92,8 @@ final class LogicalOrFunction extends SingleParameterTypedFirstOrderFunction<Boo
 				{
 					// save the indeterminate to throw later only if there was not any TRUE in remaining
 					// args
-					indeterminateException = new IndeterminateEvaluationException(indeterminateArgMsgPrefix + argIndex, e.getStatusCode(), e);
+					indeterminateException = new IndeterminateEvaluationException(indeterminateArgMsgPrefix + (argEvaluationOrder == null ? argIndex : argEvaluationOrder[argIndex]), e.getStatusCode(),
+					        e);
 				}
 
 				argIndex++;
@@ -126,9 +136,20 @@ final class LogicalOrFunction extends SingleParameterTypedFirstOrderFunction<Boo
 		}
 	}
 
-	LogicalOrFunction(final String functionId)
+	private final boolean reorderArgsByCost;
+
+	/**
+	 * Creates function
+	 * 
+	 * @param functionId
+	 *            function ID
+	 * @param reorderArgsByCost
+	 *            true iff arguments are evaluated by increasing estimated cost instead of declaration order (not fully compliant with XACML, see {@link CostBasedArgumentOrder})
+	 */
+	LogicalOrFunction(final String functionId, final boolean reorderArgsByCost)
 	{
 		super(functionId, StandardDatatypes.BOOLEAN, true, Arrays.asList(StandardDatatypes.BOOLEAN));
+		this.reorderArgsByCost = reorderArgsByCost;
 	}
 
 	/** {@inheritDoc} */
@@ -143,7 +164,7 @@ final class LogicalOrFunction extends SingleParameterTypedFirstOrderFunction<Boo
 		 * </ol>
 		 * Other optimizations are already achieved by ApplyExpression pre-evaluating the function call with context = null and check the result if no IndeterminateEvaluationException is thrown.
 		 */
-		return new Call(functionSignature, argExpressions, remainingArgTypes);
+		return new Call(functionSignature, argExpressions, remainingArgTypes, reorderArgsByCost ? CostBasedArgumentOrder.getEvaluationOrder(argExpressions, 0) : null);
 	}
 
 }
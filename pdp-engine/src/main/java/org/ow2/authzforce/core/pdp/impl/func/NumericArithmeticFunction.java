@@ -66,6 +66,38 @@ final class NumericArithmeticFunction<AV extends NumericValue<?, AV>> extends Si
 		V eval(Deque<V> args) throws IllegalArgumentException, ArithmeticException;
 	}
 
+	/**
+	 * Operation with one operand, which may be evaluated without Deque (see {@link FixedArityFirstOrderFunctionCall})
+	 *
+	 * @param <V>
+	 */
+	interface UnaryOperation<V extends NumericValue<?, V>> extends StaticOperation<V>
+	{
+		V eval(V arg) throws IllegalArgumentException, ArithmeticException;
+
+		@Override
+		default V eval(final Deque<V> args) throws IllegalArgumentException, ArithmeticException
+		{
+			return eval(args.getFirst());
+		}
+	}
+
+	/**
+	 * Operation with two operands, which may be evaluated without Deque (see {@link FixedArityFirstOrderFunctionCall})
+	 *
+	 * @param <V>
+	 */
+	interface BinaryOperation<V extends NumericValue<?, V>> extends StaticOperation<V>
+	{
+		V eval(V arg0, V arg1) throws IllegalArgumentException, ArithmeticException;
+
+		@Override
+		default V eval(final Deque<V> args) throws IllegalArgumentException, ArithmeticException
+		{
+			return eval(args.poll(), args.poll());
+		}
+	}
+
 	/**
 	 * Multary/Multiary/Polyadic operator
 	 * 
@@ -191,11 +223,57 @@ final class NumericArithmeticFunction<AV extends NumericValue<?, AV>> extends Si
 				 * finalArgExpressions is not empty. There is at least one variable arg.
 				 */
 				finalArgExpressions.add(new ConstantPrimitiveAttributeValueExpression<>(paramType, constantResult));
-				return new Call<>(functionSignature, op, finalArgExpressions, remainingArgTypes);
+				return newCall(finalArgExpressions, remainingArgTypes);
 			}
 
 		}
 
+		return newCall(argExpressions, remainingArgTypes);
+	}
+
+	private FirstOrderFunctionCall<AV> newCall(final List<Expression<?>> argExpressions, final Datatype<?>[] remainingArgTypes) throws IllegalArgumentException
+	{
+		final Datatype<AV> paramType = this.functionSignature.getParameterType();
+		if (op instanceof UnaryOperation && FixedArityFirstOrderFunctionCall.isApplicable(1, argExpressions, remainingArgTypes))
+		{
+			final UnaryOperation<AV> unaryOp = (UnaryOperation<AV>) op;
+			final String invalidArgsErrMsg = "Function " + this.functionSignature.getName() + ": invalid argument(s)";
+			return new FixedArityFirstOrderFunctionCall.Unary<AV, AV>(functionSignature, paramType, argExpressions, paramType)
+			{
+				@Override
+				protected AV evaluate(final AV arg0) throws IndeterminateEvaluationException
+				{
+					try
+					{
+						return unaryOp.eval(arg0);
+					} catch (IllegalArgumentException | ArithmeticException e)
+					{
+						throw new IndeterminateEvaluationException(invalidArgsErrMsg, XacmlStatusCode.PROCESSING_ERROR.value(), e);
+					}
+				}
+			};
+		}
+
+		if (op instanceof BinaryOperation && FixedArityFirstOrderFunctionCall.isApplicable(2, argExpressions, remainingArgTypes))
+		{
+			final BinaryOperation<AV> binaryOp = (BinaryOperation<AV>) op;
+			final String invalidArgsErrMsg = "Function " + this.functionSignature.getName() + ": invalid argument(s)";
+			return new FixedArityFirstOrderFunctionCall.Binary<AV, AV, AV>(functionSignature, paramType, argExpressions, paramType, paramType)
+			{
+				@Override
+				protected AV evaluate(final AV arg0, final AV arg1) throws IndeterminateEvaluationException
+				{
+					try
+					{
+						return binaryOp.eval(arg0, arg1);
+					} catch (IllegalArgumentException | ArithmeticException e)
+					{
+						throw new IndeterminateEvaluationException(invalidArgsErrMsg, XacmlStatusCode.PROCESSING_ERROR.value(), e);
+					}
+				}
+			};
+		}
+
 		return new Call<>(functionSignature, op, argExpressions, remainingArgTypes);
 	}
 
@@ -17,13 +17,15 @@
  */
 package org.ow2.authzforce.core.pdp.impl.func;
 
+import java.util.ArrayDeque;
 import java.util.Deque;
 
 import org.ow2.authzforce.core.pdp.api.value.DoubleValue;
 import org.ow2.authzforce.core.pdp.api.value.IntegerValue;
 import org.ow2.authzforce.core.pdp.api.value.NumericValue;
+import org.ow2.authzforce.core.pdp.impl.func.NumericArithmeticFunction.BinaryOperation;
 import org.ow2.authzforce.core.pdp.impl.func.NumericArithmeticFunction.MultaryOperation;
-import org.ow2.authzforce.core.pdp.impl.func.NumericArithmeticFunction.StaticOperation;
+import org.ow2.authzforce.core.pdp.impl.func.NumericArithmeticFunction.UnaryOperation;
 
 final class NumericArithmeticOperators
 {
@@ -32,13 +34,13 @@ final class NumericArithmeticOperators
 		// empty private constructor to prevent instantiation
 	}
 
-	static final class AbsOperator<NAV extends NumericValue<?, NAV>> implements StaticOperation<NAV>
+	static final class AbsOperator<NAV extends NumericValue<?, NAV>> implements UnaryOperation<NAV>
 	{
 
 		@Override
-		public NAV eval(final Deque<NAV> args)
+		public NAV eval(final NAV arg)
 		{
-			return args.getFirst().abs();
+			return arg.abs();
 		}
 
 	}
@@ -78,58 +80,310 @@ final class NumericArithmeticOperators
 
 	}
 
-	static final class SubtractOperator<NAV extends NumericValue<?, NAV>> implements StaticOperation<NAV>
+	static final class SubtractOperator<NAV extends NumericValue<?, NAV>> implements BinaryOperation<NAV>
 	{
 		@Override
-		public NAV eval(final Deque<NAV> args) throws ArithmeticException
+		public NAV eval(final NAV arg0, final NAV arg1) throws ArithmeticException
 		{
-			final NAV arg0 = args.poll();
-			final NAV arg1 = args.poll();
 			return arg0.subtract(arg1);
 		}
 
 	}
 
-	static final class DivideOperator<NAV extends NumericValue<?, NAV>> implements StaticOperation<NAV>
+	static final class DivideOperator<NAV extends NumericValue<?, NAV>> implements BinaryOperation<NAV>
 	{
 		@Override
-		public NAV eval(final Deque<NAV> args) throws ArithmeticException
+		public NAV eval(final NAV arg0, final NAV arg1) throws ArithmeticException
 		{
-			final NAV arg0 = args.poll();
-			final NAV arg1 = args.poll();
 			return arg0.divide(arg1);
 		}
 
 	}
 
-	static final StaticOperation<IntegerValue> INTEGER_MOD_OPERATOR = new StaticOperation<IntegerValue>()
+	/*
+	 * Integer operators below have a fast path on primitive longs: if the operands fit in a long, the result is computed with overflow-checked long arithmetic; and small results are taken from a
+	 * cache of IntegerValues (no allocation). If an operand does not fit in a long or the result overflows, the generic (arbitrary-precision) operation is used.
+	 */
+
+	private static final int MAX_CACHED_INTEGER_VALUE = 1024;
+
+	private static final IntegerValue[] CACHED_INTEGER_VALUES = new IntegerValue[MAX_CACHED_INTEGER_VALUE + 1];
+
+	static
+	{
+		for (int i = 0; i < CACHED_INTEGER_VALUES.length; i++)
+		{
+			CACHED_INTEGER_VALUES[i] = IntegerValue.valueOf(i);
+		}
+	}
+
+	/**
+	 * Get IntegerValue from long, from the cache if in range [0, {@value #MAX_CACHED_INTEGER_VALUE}]
+	 * 
+	 * @param value
+	 *            long value
+	 * @return IntegerValue
+	 */
+	static IntegerValue integerValueOf(final long value)
+	{
+		return value >= 0 && value <= MAX_CACHED_INTEGER_VALUE ? CACHED_INTEGER_VALUES[(int) value] : IntegerValue.valueOf(value);
+	}
+
+	/**
+	 * @return true iff {@code value} fits in a long
+	 */
+	private static boolean isLong(final IntegerValue value)
+	{
+		return value.getUnderlyingValue().bitLength() < Long.SIZE;
+	}
+
+	private static long longValue(final IntegerValue value)
+	{
+		return value.getUnderlyingValue().longValue();
+	}
+
+	private static Deque<IntegerValue> newDeque(final IntegerValue arg)
+	{
+		final Deque<IntegerValue> deque = new ArrayDeque<>(1);
+		deque.add(arg);
+		return deque;
+	}
+
+	static final UnaryOperation<IntegerValue> INTEGER_ABS_OPERATOR = new UnaryOperation<IntegerValue>()
+	{
+		@Override
+		public IntegerValue eval(final IntegerValue arg)
+		{
+			if (isLong(arg))
+			{
+				final long longArg = longValue(arg);
+				if (longArg != Long.MIN_VALUE)
+				{
+					return longArg < 0 ? integerValueOf(-longArg) : arg;
+				}
+			}
+
+			return arg.abs();
+		}
+	};
+
+	private static final class IntegerAddOperator implements MultaryOperation<IntegerValue>, BinaryOperation<IntegerValue>
+	{
+		@Override
+		public boolean isCommutative()
+		{
+			return true;
+		}
+
+		@Override
+		public IntegerValue eval(final IntegerValue arg0, final IntegerValue arg1) throws ArithmeticException
+		{
+			if (isLong(arg0) && isLong(arg1))
+			{
+				final long x = longValue(arg0);
+				final long y = longValue(arg1);
+				final long r = x + y;
+				// overflow iff both operands have the same sign and the result has a different sign (Math#addExact)
+				if (((x ^ r) & (y ^ r)) >= 0)
+				{
+					return integerValueOf(r);
+				}
+			}
+
+			return arg0.add(newDeque(arg1));
+		}
+
+		@Override
+		public IntegerValue eval(final Deque<IntegerValue> args) throws ArithmeticException
+		{
+			long sum = 0;
+			boolean isLongSum = true;
+			for (final IntegerValue arg : args)
+			{
+				if (!isLong(arg))
+				{
+					isLongSum = false;
+					break;
+				}
+
+				final long y = longValue(arg);
+				final long r = sum + y;
+				if (((sum ^ r) & (y ^ r)) < 0)
+				{
+					isLongSum = false;
+					break;
+				}
+
+				sum = r;
+			}
+
+			if (isLongSum)
+			{
+				return integerValueOf(sum);
+			}
+
+			final IntegerValue arg0 = args.poll();
+			return arg0.add(args);
+		}
+	}
+
+	static final MultaryOperation<IntegerValue> INTEGER_ADD_OPERATOR = new IntegerAddOperator();
+
+	private static final class IntegerMultiplyOperator implements MultaryOperation<IntegerValue>, BinaryOperation<IntegerValue>
 	{
+		/**
+		 * @return true iff x * y overflows
+		 */
+		private static boolean isOverflow(final long x, final long y, final long r)
+		{
+			// same as Math#multiplyExact
+			final long ax = Math.abs(x);
+			final long ay = Math.abs(y);
+			if ((ax | ay) >>> 31 != 0)
+			{
+				return y != 0 && r / y != x || x == Long.MIN_VALUE && y == -1;
+			}
+
+			return false;
+		}
+
+		@Override
+		public boolean isCommutative()
+		{
+			return true;
+		}
+
+		@Override
+		public IntegerValue eval(final IntegerValue arg0, final IntegerValue arg1) throws ArithmeticException
+		{
+			if (isLong(arg0) && isLong(arg1))
+			{
+				final long x = longValue(arg0);
+				final long y = longValue(arg1);
+				final long r = x * y;
+				if (!isOverflow(x, y, r))
+				{
+					return integerValueOf(r);
+				}
+			}
+
+			return arg0.multiply(newDeque(arg1));
+		}
+
 		@Override
 		public IntegerValue eval(final Deque<IntegerValue> args) throws ArithmeticException
 		{
+			long product = 1;
+			boolean isLongProduct = true;
+			for (final IntegerValue arg : args)
+			{
+				if (!isLong(arg))
+				{
+					isLongProduct = false;
+					break;
+				}
+
+				final long y = longValue(arg);
+				final long r = product * y;
+				if (isOverflow(product, y, r))
+				{
+					isLongProduct = false;
+					break;
+				}
+
+				product = r;
+			}
+
+			if (isLongProduct)
+			{
+				return integerValueOf(product);
+			}
+
 			final IntegerValue arg0 = args.poll();
-			final IntegerValue arg1 = args.poll();
+			return arg0.multiply(args);
+		}
+	}
+
+	static final MultaryOperation<IntegerValue> INTEGER_MULTIPLY_OPERATOR = new IntegerMultiplyOperator();
+
+	static final BinaryOperation<IntegerValue> INTEGER_SUBTRACT_OPERATOR = new BinaryOperation<IntegerValue>()
+	{
+		@Override
+		public IntegerValue eval(final IntegerValue arg0, final IntegerValue arg1) throws ArithmeticException
+		{
+			if (isLong(arg0) && isLong(arg1))
+			{
+				final long x = longValue(arg0);
+				final long y = longValue(arg1);
+				final long r = x - y;
+				// overflow iff the operands have different signs and the result sign differs from x (Math#subtractExact)
+				if (((x ^ y) & (x ^ r)) >= 0)
+				{
+					return integerValueOf(r);
+				}
+			}
+
+			return arg0.subtract(arg1);
+		}
+	};
+
+	static final BinaryOperation<IntegerValue> INTEGER_DIVIDE_OPERATOR = new BinaryOperation<IntegerValue>()
+	{
+		@Override
+		public IntegerValue eval(final IntegerValue arg0, final IntegerValue arg1) throws ArithmeticException
+		{
+			if (isLong(arg0) && isLong(arg1))
+			{
+				final long x = longValue(arg0);
+				final long y = longValue(arg1);
+				// division by zero handled by the generic operation; Long.MIN_VALUE / -1 overflows
+				if (y != 0 && !(x == Long.MIN_VALUE && y == -1))
+				{
+					return integerValueOf(x / y);
+				}
+			}
+
+			return arg0.divide(arg1);
+		}
+	};
+
+	static final BinaryOperation<IntegerValue> INTEGER_MOD_OPERATOR = new BinaryOperation<IntegerValue>()
+	{
+		@Override
+		public IntegerValue eval(final IntegerValue arg0, final IntegerValue arg1) throws ArithmeticException
+		{
+			if (isLong(arg0) && isLong(arg1))
+			{
+				final long y = longValue(arg1);
+				// division by zero handled by the generic operation
+				if (y != 0)
+				{
+					// same sign as the dividend, like BigInteger#remainder
+					return integerValueOf(longValue(arg0) % y);
+				}
+			}
+
 			return arg0.remainder(arg1);
 		}
 	};
 
-	static final StaticOperation<DoubleValue> FLOOR_OPERATOR = new StaticOperation<DoubleValue>()
+	static final UnaryOperation<DoubleValue> FLOOR_OPERATOR = new UnaryOperation<DoubleValue>()
 	{
 
 		@Override
-		public DoubleValue eval(final Deque<DoubleValue> args)
+		public DoubleValue eval(final DoubleValue arg)
 		{
-			return args.getFirst().floor();
+			return arg.floor();
 		}
 
 	};
 
-	static final StaticOperation<DoubleValue> ROUND_OPERATOR = new StaticOperation<DoubleValue>()
+	static final UnaryOperation<DoubleValue> ROUND_OPERATOR = new UnaryOperation<DoubleValue>()
 	{
 		@Override
-		public DoubleValue eval(final Deque<DoubleValue> args)
+		public DoubleValue eval(final DoubleValue arg)
 		{
-			return args.getFirst().roundIEEE754Default();
+			return arg.roundIEEE754Default();
 		}
 	};
 }
@@ -51,12 +51,14 @@ import org.ow2.authzforce.core.pdp.api.func.EqualTypeMatchFunction;
 import org.ow2.authzforce.core.pdp.api.func.EqualTypeMatchFunction.EqualIgnoreCaseMatcher;
 import org.ow2.authzforce.core.pdp.api.func.EqualTypeMatchFunction.EqualMatcher;
 import org.ow2.authzforce.core.pdp.api.func.FirstOrderBagFunctions;
+import org.ow2.authzforce.core.pdp.api.func.FirstOrderFunction;
 import org.ow2.authzforce.core.pdp.api.func.Function;
 import org.ow2.authzforce.core.pdp.api.func.GenericHigherOrderFunctionFactory;
 import org.ow2.authzforce.core.pdp.api.func.NonEqualTypeMatchFunction;
 import org.ow2.authzforce.core.pdp.api.func.NonEqualTypeMatchFunction.RegexpMatchCallFactoryBuilder;
 import org.ow2.authzforce.core.pdp.api.value.AnyUriValue;
 import org.ow2.authzforce.core.pdp.api.value.AttributeDatatype;
+import org.ow2.authzforce.core.pdp.api.value.AttributeValue;
 import org.ow2.authzforce.core.pdp.api.value.Base64BinaryValue;
 import org.ow2.authzforce.core.pdp.api.value.BooleanValue;
 import org.ow2.authzforce.core.pdp.api.value.DateTimeValue;
@@ -94,6 +96,7 @@ import org.ow2.authzforce.core.pdp.impl.func.TemporalArithmeticOperators.TimeSub
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Maps;
 
 /**
@@ -659,6 +662,42 @@ public enum StandardFunction
 		return ID_TO_STD_FUNC_MAP.get(functionId);
 	}
 
+	/*
+	 * IDs of the functions of the standard registry, including the bag/set functions of every standard datatype (not in ID_TO_STD_FUNC_MAP). Initialized on first use.
+	 */
+	private static final class StandardRegistryFunctionIds
+	{
+		private static final Set<String> IDS;
+		static
+		{
+			final FunctionRegistry stdRegistry = getRegistry(true, StandardAttributeValueFactories.BIG_INTEGER);
+			final ImmutableSet.Builder<String> idsBuilder = ImmutableSet.builder();
+			stdRegistry.getNonGenericFunctions().forEach(function -> idsBuilder.add(function.getId()));
+			stdRegistry.getGenericFunctionFactories().forEach(functionFactory -> idsBuilder.add(functionFactory.getId()));
+			IDS = idsBuilder.build();
+		}
+	}
+
+	/**
+	 * Says whether a function is a standard XACML function, i.e. in the standard function registry (see {@link #getRegistry(boolean, StringParseableValue.Factory)}), including the bag and set
+	 * functions of every standard datatype. Standard functions have no side effect and their result depends only on their arguments (XPath-based functions aside), unlike custom functions that may
+	 * depend on anything else.
+	 * 
+	 * @param functionId
+	 *            function ID
+	 * @return true iff {@code functionId} is the ID of a standard function
+	 */
+	public static boolean isStandard(final String functionId)
+	{
+		return StandardRegistryFunctionIds.IDS.contains(functionId);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <AV extends AttributeValue> Function<?> newConstantBagIsInFunction(final AttributeDatatype<AV> datatype, final Function<?> standardIsInFunction)
+	{
+		return new ConstantBagIsInFunction<>(datatype, (FirstOrderFunction<BooleanValue>) standardIsInFunction);
+	}
+
 	/**
 	 * Get standard function registry
 	 *
@@ -669,6 +708,24 @@ public enum StandardFunction
 	 * @return standard function registry
 	 */
 	public static FunctionRegistry getRegistry(final boolean enableXPath, final StringParseableValue.Factory<IntegerValue> stdIntValueFactory)
+	{
+		return getRegistry(enableXPath, stdIntValueFactory, false);
+	}
+
+	/**
+	 * Get standard function registry
+	 *
+	 * @param enableXPath
+	 *            true iff XPath-based function(s) support enabled
+	 * @param stdIntValueFactory
+	 *            attribute value factory for standard integer datatype
+	 * @param reorderLogicalFunctionArgsByCost
+	 *            true iff the arguments of the logical functions 'and', 'or' and 'n-of' are evaluated by increasing estimated cost instead of declaration order. This does not change the Boolean
+	 *            result but is not fully compliant with XACML, since it may change which arguments are evaluated (which attributes are requested from Attribute Providers in particular) and which
+	 *            Indeterminate argument is reported as the cause of an Indeterminate result.
+	 * @return standard function registry
+	 */
+	public static FunctionRegistry getRegistry(final boolean enableXPath, final StringParseableValue.Factory<IntegerValue> stdIntValueFactory, final boolean reorderLogicalFunctionArgsByCost)
 	{
 		if (stdIntValueFactory == null)
 		{
@@ -719,22 +776,22 @@ public enum StandardFunction
 		/*
 		 * Numeric Arithmetic functions (A.3.2)
 		 */
-		nonGenericFunctions.add(new NumericArithmeticFunction<>(StandardFunction.INTEGER_ABS.id, false, Arrays.asList(StandardDatatypes.INTEGER), new AbsOperator<IntegerValue>()));
+		nonGenericFunctions.add(new NumericArithmeticFunction<>(StandardFunction.INTEGER_ABS.id, false, Arrays.asList(StandardDatatypes.INTEGER), NumericArithmeticOperators.INTEGER_ABS_OPERATOR));
 		nonGenericFunctions.add(new NumericArithmeticFunction<>(StandardFunction.DOUBLE_ABS.id, false, Arrays.asList(StandardDatatypes.DOUBLE), new AbsOperator<DoubleValue>()));
 		nonGenericFunctions.add(new NumericArithmeticFunction<>(StandardFunction.INTEGER_ADD.id, true, Arrays.asList(StandardDatatypes.INTEGER, StandardDatatypes.INTEGER, StandardDatatypes.INTEGER),
-		        new AddOperator<IntegerValue>()));
+		        NumericArithmeticOperators.INTEGER_ADD_OPERATOR));
 		nonGenericFunctions.add(new NumericArithmeticFunction<>(StandardFunction.DOUBLE_ADD.id, true, Arrays.asList(StandardDatatypes.DOUBLE, StandardDatatypes.DOUBLE, StandardDatatypes.DOUBLE),
 		        new AddOperator<DoubleValue>()));
 		nonGenericFunctions.add(new NumericArithmeticFunction<>(StandardFunction.INTEGER_MULTIPLY.id, true,
-		        Arrays.asList(StandardDatatypes.INTEGER, StandardDatatypes.INTEGER, StandardDatatypes.INTEGER), new MultiplyOperator<IntegerValue>()));
+		        Arrays.asList(StandardDatatypes.INTEGER, StandardDatatypes.INTEGER, StandardDatatypes.INTEGER), NumericArithmeticOperators.INTEGER_MULTIPLY_OPERATOR));
 		nonGenericFunctions.add(new NumericArithmeticFunction<>(StandardFunction.DOUBLE_MULTIPLY.id, true, Arrays.asList(StandardDatatypes.DOUBLE, StandardDatatypes.DOUBLE, StandardDatatypes.DOUBLE),
 		        new MultiplyOperator<DoubleValue>()));
 		nonGenericFunctions.add(new NumericArithmeticFunction<>(StandardFunction.INTEGER_SUBTRACT.id, false, Arrays.asList(StandardDatatypes.INTEGER, StandardDatatypes.INTEGER),
-		        new SubtractOperator<IntegerValue>()));
+		        NumericArithmeticOperators.INTEGER_SUBTRACT_OPERATOR));
 		nonGenericFunctions.add(
 		        new NumericArithmeticFunction<>(StandardFunction.DOUBLE_SUBTRACT.id, false, Arrays.asList(StandardDatatypes.DOUBLE, StandardDatatypes.DOUBLE), new SubtractOperator<DoubleValue>()));
 		nonGenericFunctions.add(
-		        new NumericArithmeticFunction<>(StandardFunction.INTEGER_DIVIDE.id, false, Arrays.asList(StandardDatatypes.INTEGER, StandardDatatypes.INTEGER), new DivideOperator<IntegerValue>()));
+		        new NumericArithmeticFunction<>(StandardFunction.INTEGER_DIVIDE.id, false, Arrays.asList(StandardDatatypes.INTEGER, StandardDatatypes.INTEGER), NumericArithmeticOperators.INTEGER_DIVIDE_OPERATOR));
 		nonGenericFunctions
 		        .add(new NumericArithmeticFunction<>(StandardFunction.DOUBLE_DIVIDE.id, false, Arrays.asList(StandardDatatypes.DOUBLE, StandardDatatypes.DOUBLE), new DivideOperator<DoubleValue>()));
 		nonGenericFunctions.add(new NumericArithmeticFunction<>(StandardFunction.INTEGER_MOD.id, false, Arrays.asList(StandardDatatypes.INTEGER, StandardDatatypes.INTEGER),
@@ -807,9 +864,9 @@ public enum StandardFunction
 		/*
 		 * Logical functions (A.3.5)
 		 */
-		nonGenericFunctions.add(new LogicalOrFunction(StandardFunction.OR.id));
-		nonGenericFunctions.add(new LogicalAndFunction(StandardFunction.AND.id));
-		nonGenericFunctions.add(new LogicalNOfFunction(StandardFunction.N_OF.id));
+		nonGenericFunctions.add(new LogicalOrFunction(StandardFunction.OR.id, reorderLogicalFunctionArgsByCost));
+		nonGenericFunctions.add(new LogicalAndFunction(StandardFunction.AND.id, reorderLogicalFunctionArgsByCost));
+		nonGenericFunctions.add(new LogicalNOfFunction(StandardFunction.N_OF.id, reorderLogicalFunctionArgsByCost));
 		nonGenericFunctions.add(new LogicalNotFunction(StandardFunction.NOT.id));
 
 		/*
@@ -845,8 +902,13 @@ public enum StandardFunction
 		for (final PostCondition condition : PostCondition.values())
 		{
 			nonGenericFunctions.add(new ComparisonFunction<>(StandardDatatypes.TIME, condition));
-			nonGenericFunctions.add(new ComparisonFunction<>(StandardDatatypes.DATE, condition));
-			nonGenericFunctions.add(new ComparisonFunction<>(StandardDatatypes.DATETIME, condition));
+			/*
+			 * date/dateTime values compared as epoch-normalized longs when possible
+			 */
+			final ComparisonFunction<DateValue> dateComparisonFunction = new ComparisonFunction<>(StandardDatatypes.DATE, condition);
+			nonGenericFunctions.add(EpochNormalizedTimeComparisonFunction.getInstance(StandardDatatypes.DATE, dateComparisonFunction).orElse(dateComparisonFunction));
+			final ComparisonFunction<DateTimeValue> dateTimeComparisonFunction = new ComparisonFunction<>(StandardDatatypes.DATETIME, condition);
+			nonGenericFunctions.add(EpochNormalizedTimeComparisonFunction.getInstance(StandardDatatypes.DATETIME, dateTimeComparisonFunction).orElse(dateTimeComparisonFunction));
 		}
 
 		nonGenericFunctions.add(new TimeRangeComparisonFunction(StandardFunction.TIME_IN_RANGE.id));
@@ -891,7 +953,17 @@ public enum StandardFunction
 		 */
 		for (final AttributeDatatype<?> datatype : StandardDatatypes.MANDATORY_SET)
 		{
-			nonGenericFunctions.addAll(FirstOrderBagFunctions.getFunctions(datatype));
+			for (final Function<?> bagFunction : FirstOrderBagFunctions.getFunctions(datatype))
+			{
+				/*
+				 * *-is-in function optimized for constant bags if the datatype is supported
+				 */
+				final boolean isOptimizedIsInFunction = bagFunction.getId().endsWith(ConstantBagIsInFunction.ID_SUFFIX) && ConstantBagIsInFunction.isSupported(datatype);
+				/*
+				 * Set functions replaced with hash-based implementations if the datatype is supported
+				 */
+				nonGenericFunctions.add(isOptimizedIsInFunction ? newConstantBagIsInFunction(datatype, bagFunction) : HashBasedBagSetFunction.getInstance(datatype, bagFunction).orElse(bagFunction));
+			}
 		}
 
 		/*
@@ -59,6 +59,20 @@ final class StringN11nFunction extends SingleParameterTypedFirstOrderFunction<St
 
 		private FirstOrderFunctionCall<StringValue> getInstance(final List<Expression<?>> argExpressions, final Datatype<?>... remainingArgTypes) throws IllegalArgumentException
 		{
+			if (FixedArityFirstOrderFunctionCall.isApplicable(1, argExpressions, remainingArgTypes))
+			{
+				return new FixedArityFirstOrderFunctionCall.Unary<StringValue, StringValue>(funcSig, StandardDatatypes.STRING, argExpressions, StandardDatatypes.STRING)
+				{
+
+					@Override
+					protected StringValue evaluate(final StringValue arg0)
+					{
+						return strNormalizer.normalize(arg0);
+					}
+
+				};
+			}
+
 			return new EagerSinglePrimitiveTypeEval<StringValue, StringValue>(funcSig, argExpressions, remainingArgTypes)
 			{
 
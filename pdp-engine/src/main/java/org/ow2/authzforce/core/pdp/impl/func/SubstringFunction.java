@@ -60,6 +60,42 @@ final class SubstringFunction<AV extends SimpleValue<String>> extends MultiParam
 		private final String argsOutOfBoundsErrorMessage;
 		private final Datatype<? extends SimpleValue<String>> param0Type;
 
+		/**
+		 * string-susbtring(str1, beginIndex, endIndex)
+		 * <p>
+		 * The result SHALL be the substring of <code>arg0</code> at the position given by <code>beginIndex</code> and ending at <code>endIndex</code>. The first character of <code>arg0</code> has
+		 * position zero. The negative integer value -1 given for <code>endIndex</code> indicates the end of the string. If <code>beginIndex</code> or <code>endIndex</code> are out of bounds, then the
+		 * function MUST evaluate to Indeterminate with a status code of urn:oasis:names:tc:xacml:1.0:status:processing-error
+		 * 
+		 * @param arg0
+		 *            value from which to extract the substring
+		 * @param beginIndex
+		 *            position in this string where to begin the substring
+		 * @param endIndex
+		 *            the position in this string just before which to end the substring
+		 * @param argsOutOfBoundsErrorMessage
+		 *            error message if {@code beginIndex} or {@code endIndex} are out of bounds
+		 * @return the substring
+		 * @throws IndeterminateEvaluationException
+		 *             if {@code beginIndex} or {@code endIndex} are out of bounds
+		 */
+		private static StringValue eval(final SimpleValue<String> arg0, final IntegerValue beginIndex, final IntegerValue endIndex, final String argsOutOfBoundsErrorMessage)
+		        throws IndeterminateEvaluationException
+		{
+			final String substring;
+			try
+			{
+				final int beginIndexInt = beginIndex.intValueExact();
+				final int endIndexInt = endIndex.intValueExact();
+				substring = endIndexInt == -1 ? arg0.getUnderlyingValue().substring(beginIndexInt) : arg0.getUnderlyingValue().substring(beginIndexInt, endIndexInt);
+			} catch (ArithmeticException | IndexOutOfBoundsException e)
+			{
+				throw new IndeterminateEvaluationException(argsOutOfBoundsErrorMessage, XacmlStatusCode.PROCESSING_ERROR.value(), e);
+			}
+
+			return new StringValue(substring);
+		}
+
 		private Call(final FirstOrderFunctionSignature<StringValue> functionSig, final Datatype<? extends SimpleValue<String>> param0Type, final List<Expression<?>> args,
 		        final Datatype<?>[] remainingArgTypes) throws IllegalArgumentException
 		{
@@ -89,35 +125,7 @@ final class SubstringFunction<AV extends SimpleValue<String>> extends MultiParam
 				throw new IndeterminateEvaluationException(invalidArgTypesErrorMsg, XacmlStatusCode.PROCESSING_ERROR.value(), e);
 			}
 
-			/**
-			 * string-susbtring(str1, beginIndex, endIndex)
-			 * <p>
-			 * The result SHALL be the substring of <code>arg0</code> at the position given by <code>beginIndex</code> and ending at <code>endIndex</code>. The first character of <code>arg0</code> has
-			 * position zero. The negative integer value -1 given for <code>endIndex</code> indicates the end of the string. If <code>beginIndex</code> or <code>endIndex</code> are out of bounds, then
-			 * the function MUST evaluate to Indeterminate with a status code of urn:oasis:names:tc:xacml:1.0:status:processing-error
-			 * 
-			 * @param arg0
-			 *            value from which to extract the substring
-			 * @param beginIndex
-			 *            position in this string where to begin the substring
-			 * @param endIndex
-			 *            the position in this string just before which to end the substring
-			 * @return the substring
-			 * @throws IndeterminateXacmlJaxbResult
-			 *             if {@code beginIndex} or {@code endIndex} are out of bounds
-			 */
-			final String substring;
-			try
-			{
-				final int beginIndexInt = beginIndex.intValueExact();
-				final int endIndexInt = endIndex.intValueExact();
-				substring = endIndexInt == -1 ? arg0.getUnderlyingValue().substring(beginIndexInt) : arg0.getUnderlyingValue().substring(beginIndexInt, endIndexInt);
-			} catch (ArithmeticException | IndexOutOfBoundsException e)
-			{
-				throw new IndeterminateEvaluationException(argsOutOfBoundsErrorMessage, XacmlStatusCode.PROCESSING_ERROR.value(), e);
-			}
-
-			return new StringValue(substring);
+			return eval(arg0, beginIndex, endIndex, argsOutOfBoundsErrorMessage);
 		}
 	}
 
@@ -147,6 +155,25 @@ final class SubstringFunction<AV extends SimpleValue<String>> extends MultiParam
 		return "Function " + funcsig.getName() + ": Invalid arg #2 (endIndex): expected: -1 or positive integer >= beginIndex; actual: ";
 	}
 
+	private FirstOrderFunctionCall<StringValue> newCall(final List<Expression<?>> argExpressions, final Datatype<?>[] remainingArgTypes)
+	{
+		if (FixedArityFirstOrderFunctionCall.isApplicable(3, argExpressions, remainingArgTypes))
+		{
+			final String argsOutOfBoundsErrorMessage = "Function " + functionSignature.getName() + ": either beginIndex is out of bounds, or endIndex =/= -1 and out of bounds";
+			return new FixedArityFirstOrderFunctionCall.Ternary<StringValue, AV, IntegerValue, IntegerValue>(functionSignature, StandardDatatypes.STRING, argExpressions, param0Type,
+			        StandardDatatypes.INTEGER, StandardDatatypes.INTEGER)
+			{
+				@Override
+				protected StringValue evaluate(final AV arg0, final IntegerValue beginIndex, final IntegerValue endIndex) throws IndeterminateEvaluationException
+				{
+					return Call.eval(arg0, beginIndex, endIndex, argsOutOfBoundsErrorMessage);
+				}
+			};
+		}
+
+		return new Call(functionSignature, param0Type, argExpressions, remainingArgTypes);
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public FirstOrderFunctionCall<StringValue> newCall(final List<Expression<?>> argExpressions, final Datatype<?>... remainingArgTypes)
@@ -164,7 +191,7 @@ final class SubstringFunction<AV extends SimpleValue<String>> extends MultiParam
 		final Iterator<? extends Expression<?>> argExpsIterator = argExpressions.iterator();
 		if (!argExpsIterator.hasNext())
 		{
-			return new Call(functionSignature, param0Type, argExpressions, remainingArgTypes);
+			return newCall(argExpressions, remainingArgTypes);
 		}
 
 		// Skip the first argument (arg #0) which is the string
@@ -173,7 +200,7 @@ final class SubstringFunction<AV extends SimpleValue<String>> extends MultiParam
 		// Second arg (arg #1)
 		if (!argExpsIterator.hasNext())
 		{
-			return new Call(functionSignature, param0Type, argExpressions, remainingArgTypes);
+			return newCall(argExpressions, remainingArgTypes);
 		}
 
 		final Expression<?> arg1Exp = argExpsIterator.next();
@@ -200,7 +227,7 @@ final class SubstringFunction<AV extends SimpleValue<String>> extends MultiParam
 		// Third arg
 		if (!argExpsIterator.hasNext())
 		{
-			return new Call(functionSignature, param0Type, argExpressions, remainingArgTypes);
+			return newCall(argExpressions, remainingArgTypes);
 		}
 
 		final Expression<?> arg2Exp = argExpsIterator.next();
@@ -242,6 +269,6 @@ final class SubstringFunction<AV extends SimpleValue<String>> extends MultiParam
 			}
 		}
 
-		return new Call(functionSignature, param0Type, argExpressions, remainingArgTypes);
+		return newCall(argExpressions, remainingArgTypes);
 	}
 }
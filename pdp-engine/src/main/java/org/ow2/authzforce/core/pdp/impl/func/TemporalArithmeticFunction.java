@@ -120,6 +120,18 @@ final class TemporalArithmeticFunction<T extends BaseTimeValue<T>, D extends Dur
 	@Override
 	public FirstOrderFunctionCall<T> newCall(final List<Expression<?>> argExpressions, final Datatype<?>... remainingArgTypes) throws IllegalArgumentException
 	{
+		if (FixedArityFirstOrderFunctionCall.isApplicable(2, argExpressions, remainingArgTypes))
+		{
+			return new FixedArityFirstOrderFunctionCall.Binary<T, T, D>(functionSignature, timeParamType, argExpressions, timeParamType, durationParamType)
+			{
+				@Override
+				protected T evaluate(final T arg0, final D arg1)
+				{
+					return op.eval(arg0, arg1);
+				}
+			};
+		}
+
 		return new Call<>(functionSignature, timeParamType, durationParamType, op, argExpressions, remainingArgTypes);
 	}
 
@@ -21,8 +21,12 @@ import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Deque;
 import java.util.List;
+import java.util.Optional;
 import java.util.TimeZone;
 
+import javax.xml.datatype.DatatypeConstants;
+import javax.xml.datatype.XMLGregorianCalendar;
+
 import org.ow2.authzforce.core.pdp.api.IndeterminateEvaluationException;
 import org.ow2.authzforce.core.pdp.api.expression.Expression;
 import org.ow2.authzforce.core.pdp.api.func.BaseFirstOrderFunctionCall;
@@ -33,6 +37,7 @@ import org.ow2.authzforce.core.pdp.api.value.BooleanValue;
 import org.ow2.authzforce.core.pdp.api.value.Datatype;
 import org.ow2.authzforce.core.pdp.api.value.StandardDatatypes;
 import org.ow2.authzforce.core.pdp.api.value.TimeValue;
+import org.ow2.authzforce.core.pdp.api.value.Value;
 
 /**
  * Time range comparison function (XACML 2.0: time-in-range), which takes three time values and returns true if the first value falls between the second and the third value
@@ -182,10 +187,106 @@ final class TimeRangeComparisonFunction extends SingleParameterTypedFirstOrderFu
 		}
 	}
 
+	private static final long MILLIS_PER_HOUR = 3600000;
+	private static final long MILLIS_PER_MINUTE = 60000;
+	private static final long MILLIS_PER_SECOND = 1000;
+
+	/**
+	 * Get the time of day in milliseconds (local time, ignoring the timezone)
+	 */
+	private static long getLocalMillisOfDay(final XMLGregorianCalendar time)
+	{
+		final int millis = time.getMillisecond();
+		return time.getHour() * MILLIS_PER_HOUR + time.getMinute() * MILLIS_PER_MINUTE + time.getSecond() * MILLIS_PER_SECOND + (millis == DatatypeConstants.FIELD_UNDEFINED ? 0 : millis);
+	}
+
+	/**
+	 * Constant time bound of the time-in-range function, with explicit timezone, precompiled to milliseconds of the day. {@link Call#eval(TimeValue, TimeValue, TimeValue)} compares the three times on
+	 * the same local date, therefore the result only depends on the local time of the day minus the timezone offset of each time (UTC time of the day, possibly negative or beyond 24h).
+	 */
+	private static final class PrecompiledTimeBound
+	{
+		private final TimeValue value;
+
+		/*
+		 * local time of the day minus timezone offset, in milliseconds
+		 */
+		private final long utcMillisOfDay;
+
+		private PrecompiledTimeBound(final TimeValue bound)
+		{
+			final XMLGregorianCalendar time = bound.getUnderlyingValue();
+			assert time.getTimezone() != DatatypeConstants.FIELD_UNDEFINED;
+			this.value = bound;
+			this.utcMillisOfDay = getLocalMillisOfDay(time) - time.getTimezone() * MILLIS_PER_MINUTE;
+		}
+
+		private static boolean isApplicable(final Value bound)
+		{
+			return bound instanceof TimeValue && ((TimeValue) bound).getUnderlyingValue().getTimezone() != DatatypeConstants.FIELD_UNDEFINED;
+		}
+	}
+
+	/**
+	 * Same as {@link Call#eval(TimeValue, TimeValue, TimeValue)} with precompiled bounds
+	 */
+	private static boolean eval(final TimeValue arg, final PrecompiledTimeBound lowerBound, final PrecompiledTimeBound upperBound)
+	{
+		final XMLGregorianCalendar time = arg.getUnderlyingValue();
+		final int tzOffsetMinutes = time.getTimezone();
+		if (tzOffsetMinutes == DatatypeConstants.FIELD_UNDEFINED)
+		{
+			/*
+			 * Default timezone applies, with DST-dependent offset, so use the generic algorithm. (The PDP's current-time always has a timezone.)
+			 */
+			return Call.eval(arg, lowerBound.value, upperBound.value);
+		}
+
+		final long checked = getLocalMillisOfDay(time) - tzOffsetMinutes * MILLIS_PER_MINUTE;
+		final long start = lowerBound.utcMillisOfDay;
+		final long end = upperBound.utcMillisOfDay;
+		if (start > end)
+		{
+			// end time on the next day
+			return checked >= start || checked <= end;
+		}
+
+		return checked >= start && checked <= end;
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public FirstOrderFunctionCall<BooleanValue> newCall(final List<Expression<?>> argExpressions, final Datatype<?>... remainingArgTypes) throws IllegalArgumentException
 	{
+		if (FixedArityFirstOrderFunctionCall.isApplicable(3, argExpressions, remainingArgTypes))
+		{
+			final Optional<? extends Value> lowerBound = argExpressions.get(1).getValue();
+			final Optional<? extends Value> upperBound = argExpressions.get(2).getValue();
+			if (lowerBound.isPresent() && upperBound.isPresent() && PrecompiledTimeBound.isApplicable(lowerBound.get()) && PrecompiledTimeBound.isApplicable(upperBound.get()))
+			{
+				final PrecompiledTimeBound precompiledLowerBound = new PrecompiledTimeBound((TimeValue) lowerBound.get());
+				final PrecompiledTimeBound precompiledUpperBound = new PrecompiledTimeBound((TimeValue) upperBound.get());
+				return new FixedArityFirstOrderFunctionCall.Unary<BooleanValue, TimeValue>(functionSignature, StandardDatatypes.BOOLEAN, argExpressions.subList(0, 1), StandardDatatypes.TIME)
+				{
+					@Override
+					protected BooleanValue evaluate(final TimeValue arg0)
+					{
+						return BooleanValue.valueOf(eval(arg0, precompiledLowerBound, precompiledUpperBound));
+					}
+				};
+			}
+
+			return new FixedArityFirstOrderFunctionCall.Ternary<BooleanValue, TimeValue, TimeValue, TimeValue>(functionSignature, StandardDatatypes.BOOLEAN, argExpressions, StandardDatatypes.TIME,
+			        StandardDatatypes.TIME, StandardDatatypes.TIME)
+			{
+				@Override
+				protected BooleanValue evaluate(final TimeValue arg0, final TimeValue arg1, final TimeValue arg2)
+				{
+					return BooleanValue.valueOf(Call.eval(arg0, arg1, arg2));
+				}
+			};
+		}
+
 		return new Call(functionSignature, argExpressions, remainingArgTypes);
 	}
 }
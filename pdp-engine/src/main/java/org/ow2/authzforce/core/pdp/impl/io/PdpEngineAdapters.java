@@ -20,6 +20,8 @@ package org.ow2.authzforce.core.pdp.impl.io;
 import java.io.IOException;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Optional;
+import java.util.Set;
 
 import oasis.names.tc.xacml._3_0.core.schema.wd_17.Request;
 import oasis.names.tc.xacml._3_0.core.schema.wd_17.Response;
@@ -31,7 +33,6 @@ import org.ow2.authzforce.core.pdp.api.DecisionResultPostprocessor;
 import org.ow2.authzforce.core.pdp.api.XmlUtils;
 import org.ow2.authzforce.core.pdp.api.io.BasePdpEngineAdapter;
 import org.ow2.authzforce.core.pdp.api.io.BaseXacmlJaxbResultPostprocessor;
-import org.ow2.authzforce.core.pdp.api.io.IndividualXacmlJaxbRequest;
 import org.ow2.authzforce.core.pdp.api.io.PdpEngineInoutAdapter;
 import org.ow2.authzforce.core.pdp.impl.BasePdpEngine;
 import org.ow2.authzforce.core.pdp.impl.PdpEngineConfiguration;
@@ -247,11 +248,16 @@ public final class PdpEngineAdapters
 	 */
 	public static PdpEngineInoutAdapter<Request, Response> newXacmlJaxbInoutAdapter(final PdpEngineConfiguration configuration) throws IllegalArgumentException, IOException
 	{
-		final DecisionResultPostprocessor<IndividualXacmlJaxbRequest, Response> defaultResultPostproc = new BaseXacmlJaxbResultPostprocessor(configuration.getClientRequestErrorVerbosityLevel());
-		final DecisionRequestPreprocessor<Request, IndividualXacmlJaxbRequest> defaultReqPreproc = SingleDecisionXacmlJaxbRequestPreprocessor.LaxVariantFactory.INSTANCE.getInstance(
-				configuration.getAttributeValueFactoryRegistry(), configuration.isStrictAttributeIssuerMatchEnabled(), configuration.isXpathEnabled(), XmlUtils.SAXON_PROCESSOR,
-				defaultResultPostproc.getFeatures());
-
-		return newInoutAdapter(Request.class, Response.class, configuration, defaultReqPreproc, defaultResultPostproc);
+		try (final BasePdpEngine adaptedPdpEngine = new BasePdpEngine(configuration))
+		{
+			/*
+			 * The default request preprocessor parses the Content only for the attribute categories that the policies may use (known once the policies are loaded by the engine)
+			 */
+			final Optional<Set<String>> xpathContentCategories = adaptedPdpEngine.getXPathContentCategories();
+			return newInoutAdapter(Request.class, Response.class, adaptedPdpEngine, configuration.getInOutProcChains(),
+					extraPdpFeatures -> new SingleDecisionXacmlJaxbRequestPreprocessor.LaxVariantFactory().getInstance(configuration.getAttributeValueFactoryRegistry(),
+							configuration.isStrictAttributeIssuerMatchEnabled(), configuration.isXpathEnabled(), XmlUtils.SAXON_PROCESSOR, extraPdpFeatures, xpathContentCategories),
+					() -> new BaseXacmlJaxbResultPostprocessor(configuration.getClientRequestErrorVerbosityLevel()));
+		}
 	}
 }
\ No newline at end of file
@@ -22,12 +22,14 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Optional;
 import java.util.Set;
 
 import net.sf.saxon.s9api.Processor;
 import net.sf.saxon.s9api.XPathCompiler;
 import net.sf.saxon.s9api.XdmNode;
 import oasis.names.tc.xacml._3_0.core.schema.wd_17.Attributes;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.Content;
 import oasis.names.tc.xacml._3_0.core.schema.wd_17.Request;
 
 import org.ow2.authzforce.core.pdp.api.AttributeFqn;
@@ -92,6 +94,31 @@ public final class SingleDecisionXacmlJaxbRequestPreprocessor extends BaseXacmlJ
 					extraPdpFeatures);
 		}
 
+		/**
+		 * Same as {@link #getInstance(AttributeValueFactoryRegistry, boolean, boolean, Processor, Set)} but the Content is parsed only for the attribute categories used by the policies (see
+		 * {@link org.ow2.authzforce.core.pdp.impl.BasePdpEngine#getXPathContentCategories()})
+		 * 
+		 * @param datatypeFactoryRegistry
+		 *            attribute datatype registry
+		 * @param strictAttributeIssuerMatch
+		 *            true iff strict attribute Issuer match must be enforced
+		 * @param requireContentForXPath
+		 *            true iff Content elements must be parsed, else ignored
+		 * @param xmlProcessor
+		 *            XML processor for parsing Content elements iff {@code requireContentForXPath}
+		 * @param extraPdpFeatures
+		 *            extra - not mandatory per XACML 3.0 core specification - features supported by the PDP engine
+		 * @param xpathContentCategories
+		 *            attribute categories whose Content must be parsed iff {@code requireContentForXPath}; empty means all categories
+		 * @return request preprocessor
+		 */
+		public DecisionRequestPreprocessor<Request, IndividualXacmlJaxbRequest> getInstance(final AttributeValueFactoryRegistry datatypeFactoryRegistry, final boolean strictAttributeIssuerMatch,
+				final boolean requireContentForXPath, final Processor xmlProcessor, final Set<String> extraPdpFeatures, final Optional<Set<String>> xpathContentCategories)
+		{
+			return new SingleDecisionXacmlJaxbRequestPreprocessor(datatypeFactoryRegistry, DEFAULT_REQUEST_FACTORY, strictAttributeIssuerMatch, true, requireContentForXPath, xmlProcessor,
+					extraPdpFeatures, xpathContentCategories);
+		}
+
 		/**
 		 * Singleton instance of Factory used as default request preprocessor
 		 * 
@@ -126,8 +153,53 @@ public final class SingleDecisionXacmlJaxbRequestPreprocessor extends BaseXacmlJ
 		}
 	}
 
+	/**
+	 *
+	 * Factory for this type of request preprocessor that allows duplicate &lt;Attribute&gt; with same meta-data in the same &lt;Attributes&gt; element of a Request (like {@link LaxVariantFactory}),
+	 * and builds the XPath data model of Content elements as compact TinyTree documents with pooled document builders. Recommended for requests with large Contents.
+	 *
+	 */
+	public static final class TinyTreeContentLaxVariantFactory extends BaseXacmlJaxbRequestPreprocessor.Factory
+	{
+		/**
+		 * Request preprocessor ID, as returned by {@link #getId()}
+		 */
+		public static final String ID = "urn:ow2:authzforce:feature:pdp:request-preproc:xacml-xml:default-lax:tiny-tree-content";
+
+		/**
+		 * Constructor
+		 */
+		public TinyTreeContentLaxVariantFactory()
+		{
+			super(ID);
+		}
+
+		@Override
+		public DecisionRequestPreprocessor<Request, IndividualXacmlJaxbRequest> getInstance(final AttributeValueFactoryRegistry datatypeFactoryRegistry, final boolean strictAttributeIssuerMatch,
+				final boolean requireContentForXPath, final Processor xmlProcessor, final Set<String> extraPdpFeatures)
+		{
+			return new SingleDecisionXacmlJaxbRequestPreprocessor(datatypeFactoryRegistry, DEFAULT_REQUEST_FACTORY, strictAttributeIssuerMatch, true, requireContentForXPath, xmlProcessor,
+					extraPdpFeatures, Optional.empty(), true);
+		}
+	}
+
+	private static boolean isContentRequired(final boolean requireContentForXPath, final Optional<Set<String>> xpathContentCategories)
+	{
+		return requireContentForXPath && !(xpathContentCategories.isPresent() && xpathContentCategories.get().isEmpty());
+	}
+
 	private final DecisionRequestFactory<ImmutableDecisionRequest> reqFactory;
 
+	/*
+	 * Attribute categories whose Content is parsed, null means all
+	 */
+	private final Set<String> contentCategories;
+
+	/*
+	 * Builder of Contents' XPath data model instead of the attributes parser, null if none
+	 */
+	private final TinyTreeContentBuilder contentBuilder;
+
 	/**
 	 * Creates instance of default request preprocessor
 	 * 
@@ -150,9 +222,73 @@ public final class SingleDecisionXacmlJaxbRequestPreprocessor extends BaseXacmlJ
 	public SingleDecisionXacmlJaxbRequestPreprocessor(final AttributeValueFactoryRegistry datatypeFactoryRegistry, final DecisionRequestFactory<ImmutableDecisionRequest> requestFactory,
 			final boolean strictAttributeIssuerMatch, final boolean allowAttributeDuplicates, final boolean requireContentForXPath, final Processor xmlProcessor, final Set<String> extraPdpFeatures)
 	{
-		super(datatypeFactoryRegistry, strictAttributeIssuerMatch, allowAttributeDuplicates, requireContentForXPath, xmlProcessor, extraPdpFeatures);
+		this(datatypeFactoryRegistry, requestFactory, strictAttributeIssuerMatch, allowAttributeDuplicates, requireContentForXPath, xmlProcessor, extraPdpFeatures, Optional.empty());
+	}
+
+	/**
+	 * Creates instance of default request preprocessor parsing the Content only for specific attribute categories
+	 * 
+	 * @param datatypeFactoryRegistry
+	 *            attribute datatype registry
+	 * @param requestFactory
+	 *            decision request factory
+	 * @param strictAttributeIssuerMatch
+	 *            true iff strict attribute Issuer match must be enforced (in particular request attributes with empty Issuer only match corresponding AttributeDesignators with empty Issuer)
+	 * @param allowAttributeDuplicates
+	 *            true iff duplicate Attribute (with same metadata) elements in Request (for multi-valued attributes) must be allowed
+	 * @param requireContentForXPath
+	 *            true iff Content elements must be parsed, else ignored
+	 * @param xmlProcessor
+	 *            XML processor for parsing Content elements iff {@code requireContentForXPath}
+	 * @param extraPdpFeatures
+	 *            extra - not mandatory per XACML 3.0 core specification - features supported by the PDP engine. This preprocessor checks whether it is supported by the PDP before processing the
+	 *            request further.
+	 * @param xpathContentCategories
+	 *            attribute categories whose Content must be parsed iff {@code requireContentForXPath}, e.g. {@link org.ow2.authzforce.core.pdp.impl.BasePdpEngine#getXPathContentCategories()}; the
+	 *            Content of other categories is ignored. Empty means all categories. If the set is empty, no Content is parsed at all.
+	 */
+	public SingleDecisionXacmlJaxbRequestPreprocessor(final AttributeValueFactoryRegistry datatypeFactoryRegistry, final DecisionRequestFactory<ImmutableDecisionRequest> requestFactory,
+			final boolean strictAttributeIssuerMatch, final boolean allowAttributeDuplicates, final boolean requireContentForXPath, final Processor xmlProcessor, final Set<String> extraPdpFeatures,
+			final Optional<Set<String>> xpathContentCategories)
+	{
+		this(datatypeFactoryRegistry, requestFactory, strictAttributeIssuerMatch, allowAttributeDuplicates, requireContentForXPath, xmlProcessor, extraPdpFeatures, xpathContentCategories, false);
+	}
+
+	/**
+	 * Creates instance of default request preprocessor parsing the Content only for specific attribute categories, optionally into TinyTree documents
+	 * 
+	 * @param datatypeFactoryRegistry
+	 *            attribute datatype registry
+	 * @param requestFactory
+	 *            decision request factory
+	 * @param strictAttributeIssuerMatch
+	 *            true iff strict attribute Issuer match must be enforced (in particular request attributes with empty Issuer only match corresponding AttributeDesignators with empty Issuer)
+	 * @param allowAttributeDuplicates
+	 *            true iff duplicate Attribute (with same metadata) elements in Request (for multi-valued attributes) must be allowed
+	 * @param requireContentForXPath
+	 *            true iff Content elements must be parsed, else ignored
+	 * @param xmlProcessor
+	 *            XML processor for parsing Content elements iff {@code requireContentForXPath}
+	 * @param extraPdpFeatures
+	 *            extra - not mandatory per XACML 3.0 core specification - features supported by the PDP engine. This preprocessor checks whether it is supported by the PDP before processing the
+	 *            request further.
+	 * @param xpathContentCategories
+	 *            attribute categories whose Content must be parsed iff {@code requireContentForXPath}, e.g. {@link org.ow2.authzforce.core.pdp.impl.BasePdpEngine#getXPathContentCategories()}; the
+	 *            Content of other categories is ignored. Empty means all categories. If the set is empty, no Content is parsed at all.
+	 * @param buildTinyTreeContent
+	 *            true iff Content elements must be built as TinyTree documents with per-thread reused document builders (see {@link TinyTreeContentLaxVariantFactory}), instead of using the
+	 *            default XACML attributes parser
+	 */
+	public SingleDecisionXacmlJaxbRequestPreprocessor(final AttributeValueFactoryRegistry datatypeFactoryRegistry, final DecisionRequestFactory<ImmutableDecisionRequest> requestFactory,
+			final boolean strictAttributeIssuerMatch, final boolean allowAttributeDuplicates, final boolean requireContentForXPath, final Processor xmlProcessor, final Set<String> extraPdpFeatures,
+			final Optional<Set<String>> xpathContentCategories, final boolean buildTinyTreeContent)
+	{
+		super(datatypeFactoryRegistry, strictAttributeIssuerMatch, allowAttributeDuplicates, !buildTinyTreeContent && isContentRequired(requireContentForXPath, xpathContentCategories), xmlProcessor,
+				extraPdpFeatures);
 		assert requestFactory != null;
 		reqFactory = requestFactory;
+		contentCategories = xpathContentCategories.orElse(null);
+		contentBuilder = buildTinyTreeContent && isContentRequired(requireContentForXPath, xpathContentCategories) ? new TinyTreeContentBuilder(xmlProcessor) : null;
 	}
 
 	@Override
@@ -169,15 +305,25 @@ public final class SingleDecisionXacmlJaxbRequestPreprocessor extends BaseXacmlJ
 
 		for (final Attributes jaxbAttributes : attributesList)
 		{
-			final SingleCategoryAttributes<?, Attributes> categorySpecificAttributes = xacmlAttrsParser.parseAttributes(jaxbAttributes, xPathCompiler);
-			if (categorySpecificAttributes == null)
+			/*
+			 * Skip parsing of Content that no policy uses, or that is built separately by contentBuilder
+			 */
+			final Content content = jaxbAttributes.getContent();
+			final boolean isContentUsed = content != null && (contentCategories == null || contentCategories.contains(jaxbAttributes.getCategory()));
+			final Attributes jaxbAttributesToParse = content == null || isContentUsed && contentBuilder == null ? jaxbAttributes
+					: new Attributes(null, jaxbAttributes.getAttributes(), jaxbAttributes.getCategory(), jaxbAttributes.getId());
+			final SingleCategoryAttributes<?, Attributes> categorySpecificAttributes = xacmlAttrsParser.parseAttributes(jaxbAttributesToParse, xPathCompiler);
+			final String categoryId = jaxbAttributes.getCategory();
+			final XdmNode newContentNode;
+			if (isContentUsed && contentBuilder != null)
 			{
-				// skip this empty Attributes
-				continue;
+				newContentNode = contentBuilder.build(categoryId, content);
+			}
+			else
+			{
+				newContentNode = categorySpecificAttributes == null ? null : categorySpecificAttributes.getExtraContent();
 			}
 
-			final String categoryId = categorySpecificAttributes.getCategoryId();
-			final XdmNode newContentNode = categorySpecificAttributes.getExtraContent();
 			if (newContentNode != null)
 			{
 				final XdmNode duplicate = extraContentsByCategory.putIfAbsent(categoryId, newContentNode);
@@ -191,6 +337,12 @@ public final class SingleDecisionXacmlJaxbRequestPreprocessor extends BaseXacmlJ
 				}
 			}
 
+			if (categorySpecificAttributes == null)
+			{
+				// skip this empty Attributes
+				continue;
+			}
+
 			/*
 			 * Convert growable (therefore mutable) bag of attribute values to immutable ones. Indeed, we must guarantee that attribute values remain constant during the evaluation of the request, as
 			 * mandated by the XACML spec, section 7.3.5: <p> <i>
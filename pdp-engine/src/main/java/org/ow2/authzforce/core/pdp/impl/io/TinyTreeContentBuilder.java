@@ -0,0 +1,107 @@
+/**
+ * Copyright 2012-2018 Thales Services SAS.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl.io;
+
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+
+import javax.xml.transform.dom.DOMSource;
+
+import org.ow2.authzforce.core.pdp.api.IndeterminateEvaluationException;
+import org.ow2.authzforce.xacml.identifiers.XacmlStatusCode;
+import org.w3c.dom.Element;
+
+import net.sf.saxon.om.TreeModel;
+import net.sf.saxon.s9api.DocumentBuilder;
+import net.sf.saxon.s9api.Processor;
+import net.sf.saxon.s9api.SaxonApiException;
+import net.sf.saxon.s9api.XdmNode;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.Content;
+
+/**
+ * Builder of XPath data model from XACML Attributes/Content, as compact TinyTree documents (instead of DOM wrappers) for faster XPath evaluation on large Contents. The (non-thread-safe) Saxon document
+ * builders are reused from a small pool instead of being created for each request. The pool is owned by this instance (no ThreadLocal), so the builders are garbage-collected with the request
+ * preprocessor, e.g. when the PDP is reloaded.
+ */
+final class TinyTreeContentBuilder
+{
+	/*
+	 * Maximum number of idle document builders kept for reuse. More concurrent requests than that get new builders, dropped after use.
+	 */
+	private static final int MAX_IDLE_XML_DOC_BUILDER_COUNT = 2 * Runtime.getRuntime().availableProcessors();
+
+	private final Processor xmlProcessor;
+	private final Queue<DocumentBuilder> idleXmlDocBuilders = new ArrayBlockingQueue<>(MAX_IDLE_XML_DOC_BUILDER_COUNT);
+
+	TinyTreeContentBuilder(final Processor xmlProcessor)
+	{
+		assert xmlProcessor != null;
+		this.xmlProcessor = xmlProcessor;
+	}
+
+	private DocumentBuilder borrowXmlDocBuilder()
+	{
+		final DocumentBuilder idleXmlDocBuilder = idleXmlDocBuilders.poll();
+		if (idleXmlDocBuilder != null)
+		{
+			return idleXmlDocBuilder;
+		}
+
+		final DocumentBuilder newXmlDocBuilder = xmlProcessor.newDocumentBuilder();
+		newXmlDocBuilder.setTreeModel(TreeModel.TINY_TREE);
+		return newXmlDocBuilder;
+	}
+
+	/**
+	 * Builds TinyTree document from Content
+	 * 
+	 * @param categoryId
+	 *            attribute category of the Content
+	 * @param content
+	 *            Attributes/Content
+	 * @return document node whose root element is the child element of {@code content}
+	 * @throws IndeterminateEvaluationException
+	 *             if {@code content} has no child element or the TinyTree cannot be built from it
+	 */
+	XdmNode build(final String categoryId, final Content content) throws IndeterminateEvaluationException
+	{
+		// XACML spec, 7.3.7: the document node must be the single child element of Content.
+		for (final Object node : content.getContent())
+		{
+			if (node instanceof Element)
+			{
+				final DocumentBuilder xmlDocBuilder = borrowXmlDocBuilder();
+				try
+				{
+					return xmlDocBuilder.build(new DOMSource((Element) node));
+				}
+				catch (final SaxonApiException e)
+				{
+					throw new IndeterminateEvaluationException("Error parsing Content of Attributes[@Category=" + categoryId + "] for XPath evaluation", XacmlStatusCode.SYNTAX_ERROR.value(), e);
+				}
+				finally
+				{
+					// dropped if the pool is full
+					idleXmlDocBuilders.offer(xmlDocBuilder);
+				}
+			}
+		}
+
+		throw new IndeterminateEvaluationException("Invalid Content of Attributes[@Category=" + categoryId + "] for XPath evaluation: no child element", XacmlStatusCode.SYNTAX_ERROR.value());
+	}
+}
@@ -17,11 +17,13 @@
  */
 package org.ow2.authzforce.core.pdp.impl.policy;
 
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
+import org.ow2.authzforce.core.pdp.api.AttributeFqn;
 import org.ow2.authzforce.core.pdp.api.HashCollections;
 import org.ow2.authzforce.core.pdp.api.policy.PolicyRefsMetadata;
 import org.ow2.authzforce.core.pdp.api.policy.PrimaryPolicyMetadata;
@@ -32,7 +34,7 @@ import com.google.common.collect.Iterators;
 
 /**
  * Flattened view of a policy tree made of a root policy and, if any (e.g. the root policy is a XACML PolicySet enclosing Policy(Set)IdReferences), policies referenced from it. (This assumes that all
- * policy references have been statically resolved.)
+ * policy references have been statically resolved.) Also provides the named attributes required by each policy, if known.
  * 
  * @version $Id: $
  */
@@ -42,6 +44,7 @@ public final class FlattenedPolicyTree implements Iterable<PrimaryPolicyMetadata
 
 	private final PrimaryPolicyMetadata immutableRootPolicyMetadata;
 	private final Optional<PolicyRefsMetadata> immutableRootPolicyRefsMetadata;
+	private final Map<PrimaryPolicyMetadata, Set<AttributeFqn>> immutableRequiredAttributesByPolicy;
 
 	private transient ImmutableMap<String, PrimaryPolicyMetadata> lazilyFilledMapOfRefPolicies = null;
 	private transient ImmutableMap<String, PrimaryPolicyMetadata> lazilyFilledMapOfRefPolicySets = null;
@@ -56,13 +59,31 @@ public final class FlattenedPolicyTree implements Iterable<PrimaryPolicyMetadata
 	 */
 	public FlattenedPolicyTree(final PrimaryPolicyMetadata rootPolicyMetadata, final Optional<PolicyRefsMetadata> rootPolicyRefsMetadata)
 	{
-		if (rootPolicyMetadata == null)
+		this(rootPolicyMetadata, rootPolicyRefsMetadata, Collections.emptyMap());
+	}
+
+	/**
+	 * Creates view of applicable policies from the root policy metadata and map of referenced policies, with the attributes required by each policy. All fields made immutable by this constructor.
+	 *
+	 * @param rootPolicyMetadata
+	 *            root policy metadata
+	 * @param rootPolicyRefsMetadata
+	 *            (optional) root policy's extra metadata, if they is any
+	 * @param requiredAttributesByPolicy
+	 *            named attributes that may be required to evaluate each policy (including its child/referenced policies), see {@link PolicyEvaluators#getRequiredAttributesByPolicy(
+	 *            org.ow2.authzforce.core.pdp.api.policy.PolicyEvaluator)}; empty if unknown
+	 */
+	public FlattenedPolicyTree(final PrimaryPolicyMetadata rootPolicyMetadata, final Optional<PolicyRefsMetadata> rootPolicyRefsMetadata,
+			final Map<PrimaryPolicyMetadata, Set<AttributeFqn>> requiredAttributesByPolicy)
+	{
+		if (rootPolicyMetadata == null || requiredAttributesByPolicy == null)
 		{
 			throw ILLEGAL_ARGUMENTS_EXCEPTION;
 		}
 
 		this.immutableRootPolicyMetadata = rootPolicyMetadata;
 		this.immutableRootPolicyRefsMetadata = rootPolicyRefsMetadata;
+		this.immutableRequiredAttributesByPolicy = ImmutableMap.copyOf(requiredAttributesByPolicy);
 	}
 
 	/**
@@ -85,6 +106,30 @@ public final class FlattenedPolicyTree implements Iterable<PrimaryPolicyMetadata
 		return this.immutableRootPolicyRefsMetadata;
 	}
 
+	/**
+	 * Get the named attributes that may be required to evaluate a given policy in the tree (including its child/referenced policies), i.e. the attributes PEPs may need to send, or attribute providers
+	 * may need to fetch, for the evaluation. Since the analysis is static, some of these attributes may not be needed for a given request (e.g. if the evaluation of the enclosing Policy(Set)'s Target
+	 * ends it).
+	 * 
+	 * @param policy
+	 *            policy in this tree
+	 * @return required attributes; empty if unknown or {@code policy} not in this tree
+	 */
+	public Optional<Set<AttributeFqn>> getRequiredAttributes(final PrimaryPolicyMetadata policy)
+	{
+		return Optional.ofNullable(immutableRequiredAttributesByPolicy.get(policy));
+	}
+
+	/**
+	 * Get the named attributes that may be required to evaluate the root policy, i.e. the whole tree
+	 * 
+	 * @return required attributes; empty if unknown
+	 */
+	public Optional<Set<AttributeFqn>> getRequiredAttributes()
+	{
+		return getRequiredAttributes(immutableRootPolicyMetadata);
+	}
+
 	private void initMaps()
 	{
 		if (immutableRootPolicyRefsMetadata.isPresent())
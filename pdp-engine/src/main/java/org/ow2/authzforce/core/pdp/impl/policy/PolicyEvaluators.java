@@ -33,6 +33,7 @@ import java.util.Set;
 
 import javax.xml.bind.JAXBElement;
 
+import org.ow2.authzforce.core.pdp.api.AttributeFqn;
 import org.ow2.authzforce.core.pdp.api.Decidable;
 import org.ow2.authzforce.core.pdp.api.DecisionResult;
 import org.ow2.authzforce.core.pdp.api.DecisionResults;
@@ -63,8 +64,17 @@ import org.ow2.authzforce.core.pdp.api.policy.StaticTopLevelPolicyElementEvaluat
 import org.ow2.authzforce.core.pdp.api.policy.TopLevelPolicyElementEvaluator;
 import org.ow2.authzforce.core.pdp.api.policy.TopLevelPolicyElementType;
 import org.ow2.authzforce.core.pdp.impl.BooleanEvaluator;
+import org.ow2.authzforce.core.pdp.impl.EqualityMatchTarget;
+import org.ow2.authzforce.core.pdp.impl.EvaluationTracer;
+import org.ow2.authzforce.core.pdp.impl.EvaluationTracers;
+import org.ow2.authzforce.core.pdp.impl.IndeterminateEvaluationReporter;
 import org.ow2.authzforce.core.pdp.impl.PepActionExpression;
+import org.ow2.authzforce.core.pdp.impl.PolicyEvaluationListener;
+import org.ow2.authzforce.core.pdp.impl.PolicyEvaluationListener.TargetMatchResult;
+import org.ow2.authzforce.core.pdp.impl.RequiredAttributes;
 import org.ow2.authzforce.core.pdp.impl.TargetEvaluators;
+import org.ow2.authzforce.core.pdp.impl.combining.EnclosingPolicyAwareCombiningAlg;
+import org.ow2.authzforce.core.pdp.impl.combining.StandardCombiningAlgorithm;
 import org.ow2.authzforce.core.pdp.impl.rule.RuleEvaluator;
 import org.ow2.authzforce.xacml.identifiers.XacmlNodeName;
 import org.ow2.authzforce.xacml.identifiers.XacmlStatusCode;
@@ -72,6 +82,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Sets;
 
@@ -113,6 +124,8 @@ public final class PolicyEvaluators
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(PolicyEvaluators.class);
 
+	private static final IndeterminateEvaluationReporter INDETERMINATE_REPORTER = new IndeterminateEvaluationReporter(LOGGER);
+
 	/**
 	 * Factory for returning Deny/Permit policy decision based on combining algorithm evaluation result, evaluation context, initial PEP actions (filled from results of evaluation of child elements by
 	 * combining algorithm) and applicable Policy identifiers
@@ -125,6 +138,13 @@ public final class PolicyEvaluators
 
 	}
 
+	/*
+	 * Policy-combining algorithms alg such that alg(P1,...,alg(Q1,...,Qm),...,Pn) = alg(P1,...,Q1,...,Qm,...,Pn), which allows to flatten nested PolicySets
+	 */
+	private static final Set<String> FLATTENABLE_POLICY_COMBINING_ALG_IDS = ImmutableSet.of(StandardCombiningAlgorithm.XACML_3_0_POLICY_COMBINING_DENY_OVERRIDES.getId(),
+	        StandardCombiningAlgorithm.XACML_3_0_POLICY_COMBINING_ORDERED_DENY_OVERRIDES.getId(), StandardCombiningAlgorithm.XACML_3_0_POLICY_COMBINING_PERMIT_OVERRIDES.getId(),
+	        StandardCombiningAlgorithm.XACML_3_0_POLICY_COMBINING_ORDERED_PERMIT_OVERRIDES.getId(), StandardCombiningAlgorithm.XACML_1_0_POLICY_COMBINING_FIRST_APPLICABLE.getId());
+
 	private static final DPResultFactory DP_WITHOUT_EXTRA_PEP_ACTION_RESULT_FACTORY = (combiningAlgResult, evaluationContext, basePepActions, applicablePolicies) -> DecisionResults
 	        .getInstance(combiningAlgResult, basePepActions.copy(), applicablePolicies);
 
@@ -177,9 +197,9 @@ public final class PolicyEvaluators
 				} catch (final IndeterminateEvaluationException e)
 				{
 					/*
-					 * Before we lose the exception information, log it at a higher level because it is an evaluation error (but no critical application error, therefore lower level than error)
+					 * Before we lose the exception information, report it at a higher level because it is an evaluation error (but no critical application error, therefore lower level than error)
 					 */
-					LOGGER.info("{}/{Obligation|Advice}Expressions -> Indeterminate", policyToString, e);
+					INDETERMINATE_REPORTER.report(policyToString, "{Obligation|Advice}Expressions", e);
 
 					return DecisionResults.newIndeterminate(combiningAlgDecision, e, applicablePolicies);
 				}
@@ -191,6 +211,33 @@ public final class PolicyEvaluators
 		}
 	}
 
+	/**
+	 * Static analysis: may the evaluation of a combined element return PEP actions (Obligation/Advice)?
+	 *
+	 * @param combinedElement
+	 *            combined Rule, Policy(Set) or Policy(Set) reference evaluator
+	 * @return true iff {@code combinedElement} may return PEP actions, or this is unknown (e.g. dynamic policy reference)
+	 */
+	public static boolean mayReturnPepActions(final Decidable combinedElement)
+	{
+		if (combinedElement instanceof RuleEvaluator)
+		{
+			return ((RuleEvaluator) combinedElement).hasAnyPepAction();
+		}
+
+		if (combinedElement instanceof BaseTopLevelPolicyElementEvaluator)
+		{
+			return ((BaseTopLevelPolicyElementEvaluator<?>) combinedElement).mayReturnPepActions;
+		}
+
+		if (combinedElement instanceof StaticPolicyRefEvaluator)
+		{
+			return mayReturnPepActions(((StaticPolicyRefEvaluator) combinedElement).referredPolicy);
+		}
+
+		return true;
+	}
+
 	/**
 	 * Represents a set of CombinerParameters to a combining algorithm that may or may not be associated with a policy/rule
 	 * 
@@ -274,6 +321,26 @@ public final class PolicyEvaluators
 
 	}
 
+	/**
+	 * Policy evaluator aware of the named attributes that may be required to evaluate it (static analysis)
+	 */
+	private interface AttributeDependentPolicyEvaluator
+	{
+		/**
+		 * Get the attributes that may be required to evaluate the policy, including the child and referenced policies
+		 * 
+		 * @return required attributes
+		 */
+		Set<AttributeFqn> getRequiredAttributes();
+
+		/**
+		 * Get the attributes that may be required to evaluate the policy and each of the child and referenced policies (in each case, including their own child/referenced policies)
+		 * 
+		 * @return required attributes by policy
+		 */
+		Map<PrimaryPolicyMetadata, Set<AttributeFqn>> getRequiredAttributesByPolicy();
+	}
+
 	private static final class BasePolicyRefsMetadata implements PolicyRefsMetadata
 	{
 		private final ImmutableSet<PrimaryPolicyMetadata> refPolicies;
@@ -315,7 +382,7 @@ public final class PolicyEvaluators
 	 *            type of combined child elements in evaluated Policy(Set)
 	 * 
 	 */
-	private static abstract class BaseTopLevelPolicyElementEvaluator<T extends Decidable> implements TopLevelPolicyElementEvaluator
+	private static abstract class BaseTopLevelPolicyElementEvaluator<T extends Decidable> implements TopLevelPolicyElementEvaluator, AttributeDependentPolicyEvaluator, EqualityMatchTarget.Indexable
 	{
 		private static final IllegalArgumentException NULL_POLICY_METADATA_EXCEPTION = new IllegalArgumentException("Undefined Policy(Set) metadata (required)");
 		private static final IllegalArgumentException NULL_ALG_EXCEPTION = new IllegalArgumentException("Undefined Policy(Set) combining algorithm ID (required)");
@@ -374,17 +441,63 @@ public final class PolicyEvaluators
 		// non-null
 		private final BooleanEvaluator targetEvaluator;
 
+		// Target if equality match (indexable by the enclosing combining algorithm)
+		private final Optional<EqualityMatchTarget> equalityMatchTarget;
+
 		// non-null
 		private final CombiningAlg.Evaluator combiningAlgEvaluator;
 
+		/*
+		 * Evaluator of the same combining algorithm applied to the combined elements after flattening of nested PolicySets; null if there is no PolicySet to flatten. Not used if the list of
+		 * applicable policies is requested, or if the {@link PolicyEvaluationListener} requires a full trace, since flattened PolicySets would be missing from the list/trace.
+		 */
+		private transient final CombiningAlg.Evaluator flattenedCombiningAlgEvaluator;
+
+		// non-null
+		private transient final String combiningAlgId;
+
+		// IDs of combined elements in order of declaration (RuleIds or PolicyIds/PolicySetIds), for PolicyEvaluationListeners
+		private transient final List<String> combinedElementIds;
+
+		/*
+		 * Combined elements after flattening of nested PolicySets, to replace this PolicySet in a parent PolicySet with the same combining algorithm; null if this may not be flattened (Target,
+		 * Obligation/Advice, CombinerParameters or non-flattenable combining algorithm)
+		 */
+		private transient final List<T> flattenedCombinedElements;
+
 		// non-null
 		private final DPResultFactory decisionResultFactory;
 
 		// non-null
 		private final Set<String> localVariableIds;
 
+		/*
+		 * False iff the evaluation may not return any PEP action (Obligation/Advice), from this policy or any descendant (static analysis), in which case no PEP action list is allocated
+		 */
+		private transient final boolean mayReturnPepActions;
+
 		private transient final String requestScopedEvalResultsCacheKey;
 
+		private transient final EvaluationTracer tracer;
+
+		// non-null
+		private transient final Set<AttributeFqn> requiredAttributes;
+
+		// non-null, includes this policy
+		private transient final Map<PrimaryPolicyMetadata, Set<AttributeFqn>> requiredAttributesByPolicy;
+
+		/*
+		 * Creates the combining algorithm evaluator with this policy as enclosing policy if the algorithm supports it
+		 */
+		@SuppressWarnings("unchecked")
+		private CombiningAlg.Evaluator newCombiningAlgEvaluator(final CombiningAlg<T> combiningAlg, final Iterable<CombiningAlgParameter<? extends T>> combinerParameters,
+		        final Iterable<? extends T> combinedElements)
+		{
+			return combiningAlg instanceof EnclosingPolicyAwareCombiningAlg
+			        ? ((EnclosingPolicyAwareCombiningAlg<T>) combiningAlg).getInstance(this.policyMetadata, combinerParameters, combinedElements)
+			        : combiningAlg.getInstance(combinerParameters, combinedElements);
+		}
+
 		/**
 		 * Instantiates an evaluator
 		 * 
@@ -400,6 +513,8 @@ public final class PolicyEvaluators
 		 *            combining algorithm parameters, in order of declaration
 		 * @param localVariableIds
 		 *            IDs of variables defined locally (in policy {@code policyId})
+		 * @param localRequiredAttributes
+		 *            attributes required by the Rules and VariableDefinitions of the policy (empty for a PolicySet)
 		 * @param combiningAlgId
 		 *            (policy/rule-)combining algorithm ID
 		 * @param obligationExps
@@ -417,8 +532,8 @@ public final class PolicyEvaluators
 		 */
 		protected BaseTopLevelPolicyElementEvaluator(final Class<T> combinedElementClass, final PrimaryPolicyMetadata policyMetadata, final Target policyTarget, final String combiningAlgId,
 		        final Iterable<T> combinedElements, final Iterable<CombiningAlgParameter<? extends T>> combinerParameters, final List<ObligationExpression> obligationExps,
-		        final List<AdviceExpression> adviceExps, final Set<String> localVariableIds, final XPathCompiler defaultXPathCompiler, final ExpressionFactory expressionFactory,
-		        final CombiningAlgRegistry combiningAlgRegistry) throws IllegalArgumentException
+		        final List<AdviceExpression> adviceExps, final Set<String> localVariableIds, final Set<AttributeFqn> localRequiredAttributes, final XPathCompiler defaultXPathCompiler,
+		        final ExpressionFactory expressionFactory, final CombiningAlgRegistry combiningAlgRegistry) throws IllegalArgumentException
 		{
 			if (policyMetadata == null)
 			{
@@ -433,6 +548,10 @@ public final class PolicyEvaluators
 			this.policyMetadata = policyMetadata;
 
 			this.targetEvaluator = TargetEvaluators.getInstance(policyTarget, defaultXPathCompiler, expressionFactory);
+			/*
+			 * Derived from the compiled Target
+			 */
+			this.equalityMatchTarget = targetEvaluator instanceof EqualityMatchTarget.Indexable ? ((EqualityMatchTarget.Indexable) targetEvaluator).getEqualityMatchTarget() : Optional.empty();
 
 			final CombiningAlg<T> combiningAlg;
 			try
@@ -444,7 +563,7 @@ public final class PolicyEvaluators
 				        this + ": Unknown/unsupported " + (RuleEvaluator.class.isAssignableFrom(combinedElementClass) ? "rule" : "policy") + "-combining algorithm ID = '" + combiningAlgId + "'", e);
 			}
 
-			this.combiningAlgEvaluator = combiningAlg.getInstance(combinerParameters, combinedElements);
+			this.combiningAlgEvaluator = newCombiningAlgEvaluator(combiningAlg, combinerParameters, combinedElements);
 
 			if ((obligationExps == null || obligationExps.isEmpty()) && (adviceExps == null || adviceExps.isEmpty()))
 			{
@@ -475,6 +594,71 @@ public final class PolicyEvaluators
 				this.decisionResultFactory = new PepActionAppendingDPResultFactory(this.policyMetadata.toString(), denyPepActionExpressions, permitPepActionExpressions);
 			}
 
+			boolean anyCombinedElementMayReturnPepActions = false;
+			final List<String> mutableCombinedElementIds = new ArrayList<>();
+			for (final T combinedElement : combinedElements)
+			{
+				if (!anyCombinedElementMayReturnPepActions && mayReturnPepActions(combinedElement))
+				{
+					anyCombinedElementMayReturnPepActions = true;
+				}
+
+				mutableCombinedElementIds.add(combinedElement instanceof RuleEvaluator ? ((RuleEvaluator) combinedElement).getRuleId()
+				        : combinedElement instanceof PolicyEvaluator ? ((PolicyEvaluator) combinedElement).getPolicyId() : combinedElement.toString());
+			}
+
+			this.combinedElementIds = ImmutableList.copyOf(mutableCombinedElementIds);
+
+			this.mayReturnPepActions = this.decisionResultFactory != DP_WITHOUT_EXTRA_PEP_ACTION_RESULT_FACTORY || anyCombinedElementMayReturnPepActions;
+
+			/*
+			 * Flattening of nested PolicySets: child PolicySets with the same combining algorithm, no Target (i.e. matching all), no Obligation/Advice and no CombinerParameters are replaced with
+			 * their own (flattened) combined elements, so that they are evaluated at the same level.
+			 */
+			this.combiningAlgId = combiningAlgId;
+			if (RuleEvaluator.class.isAssignableFrom(combinedElementClass) || !FLATTENABLE_POLICY_COMBINING_ALG_IDS.contains(combiningAlgId))
+			{
+				this.flattenedCombiningAlgEvaluator = null;
+				this.flattenedCombinedElements = null;
+			} else
+			{
+				final List<T> mutableFlattenedCombinedElements = new ArrayList<>();
+				boolean isAnyChildFlattened = false;
+				for (final T combinedElement : combinedElements)
+				{
+					if (combinedElement instanceof BaseTopLevelPolicyElementEvaluator)
+					{
+						final BaseTopLevelPolicyElementEvaluator<?> childPolicy = (BaseTopLevelPolicyElementEvaluator<?>) combinedElement;
+						if (childPolicy.flattenedCombinedElements != null && childPolicy.combiningAlgId.equals(combiningAlgId))
+						{
+							/*
+							 * The child PolicySet combines the same type of elements as this one (static or not)
+							 */
+							@SuppressWarnings("unchecked")
+							final List<T> childCombinedElements = (List<T>) childPolicy.flattenedCombinedElements;
+							mutableFlattenedCombinedElements.addAll(childCombinedElements);
+							isAnyChildFlattened = true;
+							continue;
+						}
+					}
+
+					mutableFlattenedCombinedElements.add(combinedElement);
+				}
+
+				if (isAnyChildFlattened)
+				{
+					LOGGER.debug("{}: flattening nested PolicySets with same combining algorithm -> combined elements: {}", this, mutableFlattenedCombinedElements);
+					this.flattenedCombiningAlgEvaluator = newCombiningAlgEvaluator(combiningAlg, combinerParameters, mutableFlattenedCombinedElements);
+				} else
+				{
+					this.flattenedCombiningAlgEvaluator = null;
+				}
+
+				final boolean isFlattenable = this.targetEvaluator == TargetEvaluators.MATCH_ALL_TARGET_EVALUATOR && this.decisionResultFactory == DP_WITHOUT_EXTRA_PEP_ACTION_RESULT_FACTORY
+				        && (combinerParameters == null || !combinerParameters.iterator().hasNext());
+				this.flattenedCombinedElements = isFlattenable ? ImmutableList.copyOf(mutableFlattenedCombinedElements) : null;
+			}
+
 			this.localVariableIds = localVariableIds == null ? Collections.<String>emptySet() : localVariableIds;
 
 			/*
@@ -482,6 +666,51 @@ public final class PolicyEvaluators
 			 */
 			this.requestScopedEvalResultsCacheKey = this.getClass().getName() + '@' + Integer.toHexString(hashCode());
 
+			/*
+			 * Tracing enabled or not once for all, so that it costs nothing on the evaluation path when disabled
+			 */
+			this.tracer = EvaluationTracers.getInstance(LOGGER);
+
+			/*
+			 * Static analysis of required attributes: Target, Obligation/Advice expressions, Rules/VariableDefinitions (localRequiredAttributes) and child policies. Child policies resolved dynamically
+			 * (Policy(Set)IdReferences with dynamic refPolicyProvider) are not known at this point, therefore ignored.
+			 */
+			final Set<AttributeFqn> mutableRequiredAttributes = HashCollections.newUpdatableSet();
+			mutableRequiredAttributes.addAll(localRequiredAttributes);
+			RequiredAttributes.addFromTarget(policyTarget, mutableRequiredAttributes);
+			RequiredAttributes.addFromPepActionExpressions(obligationExps, adviceExps, mutableRequiredAttributes);
+			final Map<PrimaryPolicyMetadata, Set<AttributeFqn>> mutableRequiredAttributesByPolicy = HashCollections.newUpdatableMap();
+			for (final T combinedElement : combinedElements)
+			{
+				if (combinedElement instanceof AttributeDependentPolicyEvaluator)
+				{
+					final AttributeDependentPolicyEvaluator childPolicy = (AttributeDependentPolicyEvaluator) combinedElement;
+					mutableRequiredAttributes.addAll(childPolicy.getRequiredAttributes());
+					mutableRequiredAttributesByPolicy.putAll(childPolicy.getRequiredAttributesByPolicy());
+				}
+			}
+
+			this.requiredAttributes = ImmutableSet.copyOf(mutableRequiredAttributes);
+			mutableRequiredAttributesByPolicy.put(policyMetadata, this.requiredAttributes);
+			this.requiredAttributesByPolicy = ImmutableMap.copyOf(mutableRequiredAttributesByPolicy);
+		}
+
+		@Override
+		public final Set<AttributeFqn> getRequiredAttributes()
+		{
+			return this.requiredAttributes;
+		}
+
+		@Override
+		public final Map<PrimaryPolicyMetadata, Set<AttributeFqn>> getRequiredAttributesByPolicy()
+		{
+			return this.requiredAttributesByPolicy;
+		}
+
+		@Override
+		public final Optional<EqualityMatchTarget> getEqualityMatchTarget()
+		{
+			return this.equalityMatchTarget;
 		}
 
 		/**
@@ -510,6 +739,12 @@ public final class PolicyEvaluators
 				cachedResults = null;
 			}
 
+			final PolicyEvaluationListener listener = context.getListener(PolicyEvaluationListener.class);
+			final long startNanos = listener == null ? 0 : System.nanoTime();
+			final CombiningAlg.Evaluator algEvaluator = flattenedCombiningAlgEvaluator == null || context.isApplicablePolicyIdListRequested()
+			        || listener != null && listener.isFullTraceRequired() ? combiningAlgEvaluator : flattenedCombiningAlgEvaluator;
+			TargetMatchResult targetMatchResult = TargetMatchResult.NOT_EVALUATED;
+
 			DecisionResult newResult = null;
 			final UpdatableList<PepAction> updatablePepActions;
 
@@ -526,21 +761,36 @@ public final class PolicyEvaluators
 					// check cached result
 					if (cachedResults != null && cachedResults.resultWithoutTarget != null)
 					{
-						LOGGER.debug("{} -> {} (result from context cache with skipTarget=true)", this, cachedResults.resultWithoutTarget);
+						tracer.trace("{} -> {} (result from context cache with skipTarget=true)", this, cachedResults.resultWithoutTarget);
+						if (listener != null)
+						{
+							listener.policyResultReused(this.policyMetadata, cachedResults.resultWithoutTarget);
+						}
+
 						return cachedResults.resultWithoutTarget;
 					}
 
+					if (listener != null)
+					{
+						listener.policyTargetEvaluated(this.policyMetadata, TargetMatchResult.NOT_EVALUATED, this.combiningAlgId, this.combinedElementIds);
+					}
+
 					// evaluate with combining algorithm
-					updatablePepActions = UpdatableCollections.newUpdatableList();
+					updatablePepActions = mayReturnPepActions ? UpdatableCollections.<PepAction>newUpdatableList() : UpdatableCollections.<PepAction>emptyList();
 					updatableApplicablePolicyIdList = context.isApplicablePolicyIdListRequested() ? UpdatableCollections.<PrimaryPolicyMetadata>newUpdatableList()
 					        : UpdatableCollections.<PrimaryPolicyMetadata>emptyList();
-					algResult = combiningAlgEvaluator.evaluate(context, updatablePepActions, updatableApplicablePolicyIdList);
-					LOGGER.debug("{}/Algorithm -> {}", this, algResult);
+					algResult = algEvaluator.evaluate(context, updatablePepActions, updatableApplicablePolicyIdList);
+					tracer.trace("{}/Algorithm -> {}", this, algResult);
 				} else
 				{
 					if (cachedResults != null && cachedResults.resultWithTarget != null)
 					{
-						LOGGER.debug("{} -> {} (result from context cache with skipTarget=false)", this, cachedResults.resultWithTarget);
+						tracer.trace("{} -> {} (result from context cache with skipTarget=false)", this, cachedResults.resultWithTarget);
+						if (listener != null)
+						{
+							listener.policyResultReused(this.policyMetadata, cachedResults.resultWithTarget);
+						}
+
 						return cachedResults.resultWithTarget;
 					}
 
@@ -550,29 +800,42 @@ public final class PolicyEvaluators
 					{
 						if (!isApplicableByTarget(context))
 						{
-							LOGGER.debug("{}/Target -> No-match", this);
-							LOGGER.debug("{} -> NotApplicable", this);
+							tracer.trace("{}/Target -> No-match", this);
+							tracer.trace("{} -> NotApplicable", this);
+							targetMatchResult = TargetMatchResult.NO_MATCH;
+							if (listener != null)
+							{
+								listener.policyTargetEvaluated(this.policyMetadata, targetMatchResult, this.combiningAlgId, this.combinedElementIds);
+							}
+
 							newResult = DecisionResults.SIMPLE_NOT_APPLICABLE;
 							return newResult;
 						}
 
 						// Target Match
-						LOGGER.debug("{}/Target -> Match", this);
+						tracer.trace("{}/Target -> Match", this);
+						targetMatchResult = TargetMatchResult.MATCH;
 					} catch (final IndeterminateEvaluationException e)
 					{
 						targetMatchIndeterminateException = e;
+						targetMatchResult = TargetMatchResult.INDETERMINATE;
 						/*
-						 * Before we lose the exception information, log it at a higher level because it is an evaluation error (but no critical application error, therefore lower level than error)
+						 * Before we lose the exception information, report it at a higher level because it is an evaluation error (but no critical application error, therefore lower level than error)
 						 */
-						LOGGER.info("{}/Target -> Indeterminate", this, e);
+						INDETERMINATE_REPORTER.report(this, "Target", e);
+					}
+
+					if (listener != null)
+					{
+						listener.policyTargetEvaluated(this.policyMetadata, targetMatchResult, this.combiningAlgId, this.combinedElementIds);
 					}
 
 					// evaluate with combining algorithm
-					updatablePepActions = UpdatableCollections.newUpdatableList();
+					updatablePepActions = mayReturnPepActions ? UpdatableCollections.<PepAction>newUpdatableList() : UpdatableCollections.<PepAction>emptyList();
 					updatableApplicablePolicyIdList = context.isApplicablePolicyIdListRequested() ? UpdatableCollections.<PrimaryPolicyMetadata>newUpdatableList()
 					        : UpdatableCollections.<PrimaryPolicyMetadata>emptyList();
-					algResult = combiningAlgEvaluator.evaluate(context, updatablePepActions, updatableApplicablePolicyIdList);
-					LOGGER.debug("{}/Algorithm -> {}", this, algResult);
+					algResult = algEvaluator.evaluate(context, updatablePepActions, updatableApplicablePolicyIdList);
+					tracer.trace("{}/Algorithm -> {}", this, algResult);
 
 					if (targetMatchIndeterminateException != null)
 					{
@@ -664,6 +927,11 @@ public final class PolicyEvaluators
 				// update cache with new result
 				if (newResult != null)
 				{
+					if (listener != null)
+					{
+						listener.policyEvaluated(this.policyMetadata, targetMatchResult, newResult, System.nanoTime() - startNanos);
+					}
+
 					if (cachedResults == null)
 					{
 						final EvalResults newCachedResults = new EvalResults(this.policyMetadata.getId());
@@ -754,11 +1022,11 @@ public final class PolicyEvaluators
 
 		private StaticBaseTopLevelPolicyElementEvaluator(final Class<T> combinedElementClass, final PrimaryPolicyMetadata policyMetadata, final Optional<PolicyRefsMetadata> extraPolicyMetadata,
 		        final Target policyTarget, final String combiningAlgId, final Iterable<T> combinedElements, final Iterable<CombiningAlgParameter<? extends T>> combinerParameters,
-		        final List<ObligationExpression> obligationExps, final List<AdviceExpression> adviceExps, final Set<String> localVariableIds, final XPathCompiler defaultXPathCompiler,
-		        final ExpressionFactory expressionFactory, final CombiningAlgRegistry combiningAlgRegistry) throws IllegalArgumentException
+		        final List<ObligationExpression> obligationExps, final List<AdviceExpression> adviceExps, final Set<String> localVariableIds, final Set<AttributeFqn> localRequiredAttributes,
+		        final XPathCompiler defaultXPathCompiler, final ExpressionFactory expressionFactory, final CombiningAlgRegistry combiningAlgRegistry) throws IllegalArgumentException
 		{
-			super(combinedElementClass, policyMetadata, policyTarget, combiningAlgId, combinedElements, combinerParameters, obligationExps, adviceExps, localVariableIds, defaultXPathCompiler,
-			        expressionFactory, combiningAlgRegistry);
+			super(combinedElementClass, policyMetadata, policyTarget, combiningAlgId, combinedElements, combinerParameters, obligationExps, adviceExps, localVariableIds, localRequiredAttributes,
+			        defaultXPathCompiler, expressionFactory, combiningAlgRegistry);
 			this.extraPolicyMetadata = extraPolicyMetadata;
 		}
 
@@ -1043,8 +1311,8 @@ public final class PolicyEvaluators
 		        final List<ObligationExpression> obligationExps, final List<AdviceExpression> adviceExps, final Set<String> localVariableIds, final XPathCompiler defaultXPathCompiler,
 		        final ExpressionFactory expressionFactory, final CombiningAlgRegistry combiningAlgRegistry) throws IllegalArgumentException
 		{
-			super(PolicyEvaluator.class, policyMetadata, policyTarget, combiningAlgId, combinedElements, combinerParameters, obligationExps, adviceExps, localVariableIds, defaultXPathCompiler,
-			        expressionFactory, combiningAlgRegistry);
+			super(PolicyEvaluator.class, policyMetadata, policyTarget, combiningAlgId, combinedElements, combinerParameters, obligationExps, adviceExps, localVariableIds, Collections.emptySet(),
+			        defaultXPathCompiler, expressionFactory, combiningAlgRegistry);
 			this.extraPolicyMetadataProvider = extraPolicyMetadataProvider;
 		}
 
@@ -1056,7 +1324,7 @@ public final class PolicyEvaluators
 
 	}
 
-	private static final class StaticPolicyRefEvaluator extends PolicyRefEvaluator implements StaticPolicyEvaluator
+	private static final class StaticPolicyRefEvaluator extends PolicyRefEvaluator implements StaticPolicyEvaluator, AttributeDependentPolicyEvaluator, EqualityMatchTarget.Indexable
 	{
 		/*
 		 * statically defined policy referenced by this policy reference evaluator
@@ -1112,6 +1380,24 @@ public final class PolicyEvaluators
 			return this.extraMetadata;
 		}
 
+		@Override
+		public Set<AttributeFqn> getRequiredAttributes()
+		{
+			return referredPolicy instanceof AttributeDependentPolicyEvaluator ? ((AttributeDependentPolicyEvaluator) referredPolicy).getRequiredAttributes() : Collections.emptySet();
+		}
+
+		@Override
+		public Map<PrimaryPolicyMetadata, Set<AttributeFqn>> getRequiredAttributesByPolicy()
+		{
+			return referredPolicy instanceof AttributeDependentPolicyEvaluator ? ((AttributeDependentPolicyEvaluator) referredPolicy).getRequiredAttributesByPolicy() : Collections.emptyMap();
+		}
+
+		@Override
+		public Optional<EqualityMatchTarget> getEqualityMatchTarget()
+		{
+			return referredPolicy instanceof EqualityMatchTarget.Indexable ? ((EqualityMatchTarget.Indexable) referredPolicy).getEqualityMatchTarget() : Optional.empty();
+		}
+
 	}
 
 	/**
@@ -1236,7 +1522,7 @@ public final class PolicyEvaluators
 				refResolvedResult = resolve(context);
 			} catch (final IndeterminateEvaluationException e)
 			{
-				LOGGER.info("", e);
+				INDETERMINATE_REPORTER.report(this, "PolicyReference", e);
 				/*
 				 * Dynamic policy ref could not be resolved to an actual policy (-> no applicable policy found)
 				 */
@@ -1375,6 +1661,7 @@ public final class PolicyEvaluators
 		final String policyId = policyElement.getPolicyId();
 		final PolicyVersion policyVersion = new PolicyVersion(policyElement.getVersion());
 		final String policyFriendlyId = "Policy[" + policyId + "#v" + policyVersion + "]";
+		final PrimaryPolicyMetadata primaryPolicyMetadata = new BasePrimaryPolicyMetadata(TopLevelPolicyElementType.POLICY, policyId, policyVersion);
 		final DefaultsType policyDefaults = policyElement.getPolicyDefaults();
 
 		/*
@@ -1492,7 +1779,7 @@ public final class PolicyEvaluators
 				final RuleEvaluator ruleEvaluator;
 				try
 				{
-					ruleEvaluator = new RuleEvaluator((Rule) policyChildElt, defaultXPathCompiler, expressionFactory);
+					ruleEvaluator = new RuleEvaluator((Rule) policyChildElt, primaryPolicyMetadata, defaultXPathCompiler, expressionFactory);
 				} catch (final IllegalArgumentException e)
 				{
 					throw new IllegalArgumentException(policyFriendlyId + ": Error parsing child #" + childIndex + " (Rule)", e);
@@ -1511,13 +1798,14 @@ public final class PolicyEvaluators
 			childIndex++;
 		}
 
-		final PrimaryPolicyMetadata primaryPolicyMetadata = new BasePrimaryPolicyMetadata(TopLevelPolicyElementType.POLICY, policyId, policyVersion);
+		final Set<AttributeFqn> localRequiredAttributes = HashCollections.newUpdatableSet();
+		RequiredAttributes.addFromPolicyChoiceElements(policyChoiceElements, localRequiredAttributes);
 		final ObligationExpressions obligationExps = policyElement.getObligationExpressions();
 		final AdviceExpressions adviceExps = policyElement.getAdviceExpressions();
 		final StaticTopLevelPolicyElementEvaluator policyEvaluator = new StaticBaseTopLevelPolicyElementEvaluator<>(RuleEvaluator.class, primaryPolicyMetadata, Optional.empty(),
 		        policyElement.getTarget(), policyElement.getRuleCombiningAlgId(), ruleEvaluatorsByRuleIdInOrderOfDeclaration.values(), combiningAlgParameters,
 		        obligationExps == null ? null : obligationExps.getObligationExpressions(), adviceExps == null ? null : adviceExps.getAdviceExpressions(),
-		        Collections.<String>unmodifiableSet(localVariableIds), defaultXPathCompiler, expressionFactory, combiningAlgRegistry);
+		        Collections.<String>unmodifiableSet(localVariableIds), localRequiredAttributes, defaultXPathCompiler, expressionFactory, combiningAlgRegistry);
 
 		/*
 		 * We are done parsing expressions in this policy, including VariableReferences, it's time to remove variables scoped to this policy from the variable manager
@@ -1828,7 +2116,8 @@ public final class PolicyEvaluators
 		        final List<ObligationExpression> obligationExpressions, final List<AdviceExpression> adviceExpressions, final Set<String> localVariableIDs)
 		{
 			return new StaticBaseTopLevelPolicyElementEvaluator<>(StaticPolicyEvaluator.class, primaryPolicyMetadata, extraMetadataProvider.getMetadata(), policyTarget, policyCombiningAlgId,
-			        combinedElements, policyCombinerParameters, obligationExpressions, adviceExpressions, localVariableIDs, defaultXPathCompiler, expressionFactory, combiningAlgorithmRegistry);
+			        combinedElements, policyCombinerParameters, obligationExpressions, adviceExpressions, localVariableIDs, Collections.emptySet(), defaultXPathCompiler, expressionFactory,
+			        combiningAlgorithmRegistry);
 		}
 	}
 
@@ -2347,4 +2636,18 @@ public final class PolicyEvaluators
 	{
 		return getInstance(policyElement, parentDefaultXPathCompiler, namespacePrefixesByURI, expressionFactory, combiningAlgorithmRegistry, null, null, refPolicyProvider, ancestorPolicySetRefChain);
 	}
+
+	/**
+	 * Get the named attributes that may be required to evaluate a policy and each of its child/referenced policies, as determined by static analysis of the policy(-ies) when the evaluator was
+	 * created: AttributeDesignators and AttributeSelectors' ContextSelectorIds in Targets, Conditions, VariableDefinitions and Obligation/Advice expressions. Policies referenced dynamically (resolved
+	 * at evaluation time) are not included.
+	 * 
+	 * @param policyEvaluator
+	 *            policy evaluator created by this class
+	 * @return required attributes by policy (the policy itself and all child/referenced policies); empty if {@code policyEvaluator} was not created by this class
+	 */
+	public static Map<PrimaryPolicyMetadata, Set<AttributeFqn>> getRequiredAttributesByPolicy(final PolicyEvaluator policyEvaluator)
+	{
+		return policyEvaluator instanceof AttributeDependentPolicyEvaluator ? ((AttributeDependentPolicyEvaluator) policyEvaluator).getRequiredAttributesByPolicy() : Collections.emptyMap();
+	}
 }
@@ -28,6 +28,7 @@ import org.ow2.authzforce.core.pdp.api.policy.PolicyEvaluator;
 import org.ow2.authzforce.core.pdp.api.policy.RootPolicyProvider;
 import org.ow2.authzforce.core.pdp.api.policy.StaticRootPolicyProvider;
 import org.ow2.authzforce.core.pdp.api.policy.StaticTopLevelPolicyElementEvaluator;
+import org.ow2.authzforce.core.pdp.impl.IndeterminateEvaluationReporter;
 import org.ow2.authzforce.xacml.identifiers.XacmlStatusCode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -51,6 +52,8 @@ public final class RootPolicyEvaluators
 
 		private static final Logger LOGGER = LoggerFactory.getLogger(Base.class);
 
+		private static final IndeterminateEvaluationReporter INDETERMINATE_REPORTER = new IndeterminateEvaluationReporter(LOGGER);
+
 		private final RootPolicyProvider rootPolicyProvider;
 
 		private transient final ExpressionFactory expressionFactory;
@@ -108,7 +111,7 @@ public final class RootPolicyEvaluators
 			}
 			catch (final IndeterminateEvaluationException e)
 			{
-				LOGGER.info("Root policy Provider {} could not find an applicable root policy to evaluate", rootPolicyProvider, e);
+				INDETERMINATE_REPORTER.report(rootPolicyProvider, "RootPolicy", e);
 				return DecisionResults.newIndeterminate(null, e, null);
 			}
 			catch (final IllegalArgumentException e)
@@ -173,7 +176,8 @@ public final class RootPolicyEvaluators
 			assert staticProvider != null && expressionFactoryForClosing != null;
 			this.expressionFactory = expressionFactoryForClosing;
 			this.staticRootPolicyEvaluator = staticProvider.getPolicy();
-			this.staticApplicablePolicies = new FlattenedPolicyTree(staticRootPolicyEvaluator.getPrimaryPolicyMetadata(), staticRootPolicyEvaluator.getPolicyRefsMetadata());
+			this.staticApplicablePolicies = new FlattenedPolicyTree(staticRootPolicyEvaluator.getPrimaryPolicyMetadata(), staticRootPolicyEvaluator.getPolicyRefsMetadata(),
+					PolicyEvaluators.getRequiredAttributesByPolicy(staticRootPolicyEvaluator));
 
 			staticProvider.close();
 		}
@@ -60,7 +60,6 @@ public final class ConditionEvaluators
 		@Override
 		public boolean evaluate(final EvaluationContext context) throws IndeterminateEvaluationException
 		{
-			LOGGER.debug("Condition is null or Expression equals constant True -> True");
 			return true;
 		}
 	};
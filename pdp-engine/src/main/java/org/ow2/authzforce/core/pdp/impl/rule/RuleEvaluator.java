@@ -18,8 +18,14 @@
 package org.ow2.authzforce.core.pdp.impl.rule;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import javax.xml.bind.JAXBElement;
 
 import org.ow2.authzforce.core.pdp.api.Decidable;
 import org.ow2.authzforce.core.pdp.api.DecisionResult;
@@ -27,10 +33,21 @@ import org.ow2.authzforce.core.pdp.api.DecisionResults;
 import org.ow2.authzforce.core.pdp.api.EvaluationContext;
 import org.ow2.authzforce.core.pdp.api.IndeterminateEvaluationException;
 import org.ow2.authzforce.core.pdp.api.PepAction;
+import org.ow2.authzforce.core.pdp.api.expression.AttributeDesignatorExpression;
+import org.ow2.authzforce.core.pdp.api.expression.Expression;
 import org.ow2.authzforce.core.pdp.api.expression.ExpressionFactory;
+import org.ow2.authzforce.core.pdp.api.policy.PrimaryPolicyMetadata;
+import org.ow2.authzforce.core.pdp.api.value.StandardDatatypes;
 import org.ow2.authzforce.core.pdp.impl.BooleanEvaluator;
+import org.ow2.authzforce.core.pdp.impl.EvaluationTracer;
+import org.ow2.authzforce.core.pdp.impl.EvaluationTracers;
+import org.ow2.authzforce.core.pdp.impl.IndeterminateEvaluationReporter;
 import org.ow2.authzforce.core.pdp.impl.PepActionExpression;
+import org.ow2.authzforce.core.pdp.impl.PolicyEvaluationListener;
+import org.ow2.authzforce.core.pdp.impl.PolicyEvaluationListener.ConditionResult;
+import org.ow2.authzforce.core.pdp.impl.PolicyEvaluationListener.TargetMatchResult;
 import org.ow2.authzforce.core.pdp.impl.TargetEvaluators;
+import org.ow2.authzforce.core.pdp.impl.func.StandardFunction;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -39,12 +56,21 @@ import com.google.common.collect.ImmutableList;
 import net.sf.saxon.s9api.XPathCompiler;
 import oasis.names.tc.xacml._3_0.core.schema.wd_17.AdviceExpression;
 import oasis.names.tc.xacml._3_0.core.schema.wd_17.AdviceExpressions;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.AllOf;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.AnyOf;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.ApplyType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.AttributeDesignatorType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.AttributeValueType;
 import oasis.names.tc.xacml._3_0.core.schema.wd_17.Condition;
 import oasis.names.tc.xacml._3_0.core.schema.wd_17.DecisionType;
 import oasis.names.tc.xacml._3_0.core.schema.wd_17.EffectType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.ExpressionType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.FunctionType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.Match;
 import oasis.names.tc.xacml._3_0.core.schema.wd_17.ObligationExpression;
 import oasis.names.tc.xacml._3_0.core.schema.wd_17.ObligationExpressions;
 import oasis.names.tc.xacml._3_0.core.schema.wd_17.Rule;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.Target;
 
 /**
  * Evaluates a XACML Rule to a Decision.
@@ -55,9 +81,12 @@ import oasis.names.tc.xacml._3_0.core.schema.wd_17.Rule;
 public final class RuleEvaluator implements Decidable
 {
 	private static final IllegalArgumentException NULL_XACML_RULE_ARGUMENT_EXCEPTION = new IllegalArgumentException("Cannot create Rule evaluator: undefined input XACML/JAXB Rule element");
+	private static final IllegalArgumentException NULL_ENCLOSING_POLICY_ARGUMENT_EXCEPTION = new IllegalArgumentException("Cannot create Rule evaluator: undefined enclosing Policy metadata");
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(RuleEvaluator.class);
 
+	private static final IndeterminateEvaluationReporter INDETERMINATE_REPORTER = new IndeterminateEvaluationReporter(LOGGER);
+
 	/**
 	 * Rule decision result factory
 	 *
@@ -140,7 +169,7 @@ public final class RuleEvaluator implements Decidable
 
 	private static abstract class DecisionWithPepActionResultFactory implements DecisionResultFactory
 	{
-		private final String ruleId;
+		private transient final String ruleToString;
 		private final List<PepActionExpression> rulePepActionExpressions;
 		private final DecisionType ruleEffectAsDecision;
 		private transient final int numOfPepActionExpressions;
@@ -149,7 +178,7 @@ public final class RuleEvaluator implements Decidable
 		{
 			assert ruleId != null && rulePepActionExpressions != null;
 
-			this.ruleId = ruleId;
+			this.ruleToString = "Rule['" + ruleId + "']";
 			this.rulePepActionExpressions = rulePepActionExpressions;
 			this.numOfPepActionExpressions = rulePepActionExpressions.size();
 			this.ruleEffectAsDecision = ruleEffectAsDecision;
@@ -187,7 +216,7 @@ public final class RuleEvaluator implements Decidable
 					/*
 					 * Before we lose the exception information, log it at a higher level because it is an evaluation error (but no critical application error, therefore lower level than error).
 					 */
-					LOGGER.info("Rule['{}']/{Obligation|Advice}Expressions -> Indeterminate", ruleId, e);
+					INDETERMINATE_REPORTER.report(ruleToString, "{Obligation|Advice}Expressions", e);
 					/*
 					 * Create an Indeterminate Decision Result For the Extended Indeterminate, we do like for Target or Condition evaluation in section 7.11 (same as the rule's Effect).
 					 */
@@ -247,14 +276,106 @@ public final class RuleEvaluator implements Decidable
 		}
 	}
 
-	private static final BooleanEvaluator TRUE_CONDITION = context -> {
-		LOGGER.debug("Condition null -> True");
+	private static final BooleanEvaluator TRUE_CONDITION = context -> true;
+
+	private static boolean isXPathDependent(final String datatypeId)
+	{
+		return datatypeId.equals(StandardDatatypes.XPATH.getId());
+	}
+
+	private static void addAttributeDependency(final AttributeDesignatorType designator, final Map<List<String>, AttributeDesignatorType> designatorsByName)
+	{
+		designatorsByName.putIfAbsent(Arrays.asList(designator.getCategory(), designator.getIssuer(), designator.getAttributeId(), designator.getDataType()), designator);
+	}
+
+	/*
+	 * Adds the AttributeDesignators in an expression to designatorsByName. Returns false if the expression result may depend on anything else than these AttributeDesignators' values, e.g.
+	 * VariableReference, AttributeSelector or XPath expression (depending on request Content).
+	 */
+	private static boolean addAttributeDependencies(final ExpressionType expression, final Map<List<String>, AttributeDesignatorType> designatorsByName)
+	{
+		if (expression instanceof ApplyType)
+		{
+			/*
+			 * Custom functions may depend on anything else than their arguments
+			 */
+			if (!StandardFunction.isStandard(((ApplyType) expression).getFunctionId()))
+			{
+				return false;
+			}
+
+			for (final JAXBElement<? extends ExpressionType> arg : ((ApplyType) expression).getExpressions())
+			{
+				if (!addAttributeDependencies(arg.getValue(), designatorsByName))
+				{
+					return false;
+				}
+			}
+
+			return true;
+		}
+
+		if (expression instanceof AttributeDesignatorType)
+		{
+			final AttributeDesignatorType designator = (AttributeDesignatorType) expression;
+			if (isXPathDependent(designator.getDataType()))
+			{
+				return false;
+			}
+
+			addAttributeDependency(designator, designatorsByName);
+			return true;
+		}
+
+		if (expression instanceof AttributeValueType)
+		{
+			return !isXPathDependent(((AttributeValueType) expression).getDataType());
+		}
+
+		return expression instanceof FunctionType && StandardFunction.isStandard(((FunctionType) expression).getFunctionId());
+	}
+
+	private static boolean addAttributeDependencies(final Target target, final Map<List<String>, AttributeDesignatorType> designatorsByName)
+	{
+		if (target == null)
+		{
+			return true;
+		}
+
+		for (final AnyOf anyOf : target.getAnyOves())
+		{
+			for (final AllOf allOf : anyOf.getAllOves())
+			{
+				for (final Match match : allOf.getMatches())
+				{
+					final AttributeDesignatorType designator = match.getAttributeDesignator();
+					if (designator == null || isXPathDependent(designator.getDataType()) || isXPathDependent(match.getAttributeValue().getDataType()))
+					{
+						/*
+						 * AttributeSelector or XPath expression
+						 */
+						return false;
+					}
+
+					if (!StandardFunction.isStandard(match.getMatchId()))
+					{
+						return false;
+					}
+
+					addAttributeDependency(designator, designatorsByName);
+				}
+			}
+		}
+
 		return true;
-	};
+	}
 
 	// non-null
 	private final String ruleId;
 
+	// non-null
+	private final PrimaryPolicyMetadata enclosingPolicy;
+
 	// non-null
 	private final BooleanEvaluator targetEvaluator;
 
@@ -268,11 +389,20 @@ public final class RuleEvaluator implements Decidable
 
 	private final transient String toString;
 
+	private final transient EvaluationTracer tracer;
+
+	/*
+	 * AttributeDesignators (MustBePresent=false) whose values determine the rule's decision; empty if the decision may depend on anything else (see getAttributeDependencies())
+	 */
+	private final transient Optional<List<AttributeDesignatorExpression<?>>> attributeDependencies;
+
 	/**
 	 * Instantiates rule from XACML RuleType
 	 *
 	 * @param ruleElt
 	 *            Rule element definition
+	 * @param enclosingPolicy
+	 *            metadata of the enclosing Policy, used to identify the Rule in evaluation events (RuleId is only unique within a Policy)
 	 * @param xPathCompiler
 	 *            XPath compiler corresponding to enclosing policy(set) default XPath version
 	 * @param expressionFactory
@@ -280,18 +410,29 @@ public final class RuleEvaluator implements Decidable
 	 * @throws java.lang.IllegalArgumentException
 	 *             Invalid Target, Condition or Obligation/Advice expressions
 	 */
-	public RuleEvaluator(final Rule ruleElt, final XPathCompiler xPathCompiler, final ExpressionFactory expressionFactory) throws IllegalArgumentException
+	public RuleEvaluator(final Rule ruleElt, final PrimaryPolicyMetadata enclosingPolicy, final XPathCompiler xPathCompiler, final ExpressionFactory expressionFactory) throws IllegalArgumentException
 	{
 		if (ruleElt == null)
 		{
 			throw NULL_XACML_RULE_ARGUMENT_EXCEPTION;
 		}
 
+		if (enclosingPolicy == null)
+		{
+			throw NULL_ENCLOSING_POLICY_ARGUMENT_EXCEPTION;
+		}
+
 		// JAXB fields initialization
 		this.ruleId = ruleElt.getRuleId();
+		this.enclosingPolicy = enclosingPolicy;
 
 		this.toString = "Rule['" + ruleId + "']";
 
+		/*
+		 * Tracing enabled or not once for all, so that it costs nothing on the evaluation path when disabled
+		 */
+		this.tracer = EvaluationTracers.getInstance(LOGGER);
+
 		this.targetEvaluator = TargetEvaluators.getInstance(ruleElt.getTarget(), xPathCompiler, expressionFactory);
 
 		final Condition condElt = ruleElt.getCondition();
@@ -367,11 +508,46 @@ public final class RuleEvaluator implements Decidable
 			 * No PEP obligation/advice -> rule is (equivalent to) empty rule if also target matches all and condition is null or always True
 			 */
 			this.decisionResultFactory = effect == EffectType.DENY ? DENY_DECISION_WITHOUT_PEP_ACTION_RESULT_FACTORY : PERMIT_DECISION_WITHOUT_PEP_ACTION_RESULT_FACTORY;
+			this.attributeDependencies = getAttributeDependencies(ruleElt, xPathCompiler, expressionFactory);
 		} else
 		{
 			this.decisionResultFactory = effect == EffectType.DENY ? new DenyDecisionWithPepActionResutFactory(ruleId, pepActionExpressions)
 			        : new PermitDecisionWithPepActionResutFactory(ruleId, pepActionExpressions);
+			this.attributeDependencies = Optional.empty();
+		}
+	}
+
+	private static Optional<List<AttributeDesignatorExpression<?>>> getAttributeDependencies(final Rule ruleElt, final XPathCompiler xPathCompiler, final ExpressionFactory expressionFactory)
+	{
+		final Map<List<String>, AttributeDesignatorType> designatorsByName = new LinkedHashMap<>();
+		if (!addAttributeDependencies(ruleElt.getTarget(), designatorsByName))
+		{
+			return Optional.empty();
+		}
+
+		final Condition condElt = ruleElt.getCondition();
+		if (condElt != null && !addAttributeDependencies(condElt.getExpression().getValue(), designatorsByName))
+		{
+			return Optional.empty();
+		}
+
+		final List<AttributeDesignatorExpression<?>> designatorExpressions = new ArrayList<>(designatorsByName.size());
+		for (final AttributeDesignatorType designator : designatorsByName.values())
+		{
+			/*
+			 * MustBePresent=false: the empty bag is a valid dependency value as well
+			 */
+			final Expression<?> designatorExpression = expressionFactory.getInstance(
+			        new AttributeDesignatorType(designator.getCategory(), designator.getAttributeId(), designator.getDataType(), designator.getIssuer(), false), xPathCompiler, null);
+			if (!(designatorExpression instanceof AttributeDesignatorExpression))
+			{
+				return Optional.empty();
+			}
+
+			designatorExpressions.add((AttributeDesignatorExpression<?>) designatorExpression);
 		}
+
+		return Optional.of(ImmutableList.copyOf(designatorExpressions));
 	}
 
 	/**
@@ -418,6 +594,20 @@ public final class RuleEvaluator implements Decidable
 		return this.decisionResultFactory.hasAnyPepAction();
 	}
 
+	/**
+	 * Get the AttributeDesignators whose values (only) determine the rule's decision (static analysis). This is the case if the rule has no PEP action (obligation/advice), and its Target and
+	 * Condition only use AttributeDesignators, (non-XPath) AttributeValues, standard Functions and Apply expressions of standard functions, i.e. no VariableReference, AttributeSelector, XPath
+	 * expression or custom function (see {@link StandardFunction#isStandard(String)}).
+	 * <p>
+	 * Knowing these dependencies is useful for caching rule results based on these attributes' values, e.g. First-applicable algorithm.
+	 * 
+	 * @return AttributeDesignators (with MustBePresent=false) whose values determine the rule's decision; empty if the rule's decision may depend on anything else
+	 */
+	public Optional<List<AttributeDesignatorExpression<?>>> getAttributeDependencies()
+	{
+		return this.attributeDependencies;
+	}
+
 	/**
 	 * Is the rule (equivalent to) an empty rule? I.e. the rule's Target matches all, the condition is undefined or always evaluates to True, and there is no PEP action (obligation/advice), in other
 	 * words the rule always evaluates to the simple Permit/Deny decision corresponding to its Effect.
@@ -438,37 +628,39 @@ public final class RuleEvaluator implements Decidable
 	 * returned in the result.
 	 * <p>
 	 * Note that rules are not required to have targets. If no target is specified, then the rule inherits its parent's target. In the event that this <code>RuleEvaluator</code> has no
-	 * <code>Target</code> then the match is assumed to be true, since evaluating a policy tree to this level required the parent's target to match. In debug level, this method logs the evaluation
-	 * result before return. Indeterminate results are logged in warn level only (which "includes" debug level).
+	 * <code>Target</code> then the match is assumed to be true, since evaluating a policy tree to this level required the parent's target to match. If debug level is enabled when the rule is
+	 * initialized, this method traces the evaluation result before return. Indeterminate results are reported at info level with rate limiting (see {@link IndeterminateEvaluationReporter}).
 	 */
 	@Override
 	public DecisionResult evaluate(final EvaluationContext context)
 	{
+		final PolicyEvaluationListener listener = context.getListener(PolicyEvaluationListener.class);
+		final long startNanos = listener == null ? 0 : System.nanoTime();
 		try
 		{
 			if (!targetEvaluator.evaluate(context))
 			{
-				LOGGER.debug("{}/Target -> No-match", this);
+				tracer.trace("{}/Target -> No-match", this);
 				final DecisionResult result = DecisionResults.SIMPLE_NOT_APPLICABLE;
-				LOGGER.debug("{} -> {}", this, result);
-				return result;
+				tracer.trace("{} -> {}", this, result);
+				return notifyListener(listener, startNanos, TargetMatchResult.NO_MATCH, ConditionResult.NOT_EVALUATED, result);
 			}
 
-			LOGGER.debug("{}/Target -> Match", this);
+			tracer.trace("{}/Target -> Match", this);
 		} catch (final IndeterminateEvaluationException e)
 		{
 			// Target is Indeterminate
 			/*
 			 * Before we lose the exception information, log it at a higher level because it is an evaluation error (but no critical application error, therefore lower level than error)
 			 */
-			LOGGER.info("{}/Target -> Indeterminate", this, e);
+			INDETERMINATE_REPORTER.report(this, "Target", e);
 
 			/*
 			 * Condition is Indeterminate, determine Extended Indeterminate (section 7.11) which is the value of the Rule's Effect
 			 */
 			final DecisionResult result = decisionResultFactory.newIndeterminate(e);
-			LOGGER.debug("{} -> {}", this, result);
-			return result;
+			tracer.trace("{} -> {}", this, result);
+			return notifyListener(listener, startNanos, TargetMatchResult.INDETERMINATE, ConditionResult.NOT_EVALUATED, result);
 		}
 
 		/*
@@ -486,27 +678,38 @@ public final class RuleEvaluator implements Decidable
 			/*
 			 * Before we lose the exception information, log it at a higher level because it is an evaluation error (but not a critical application error, therefore lower level than Error level)
 			 */
-			LOGGER.info("{}/Condition -> Indeterminate", this, e);
+			INDETERMINATE_REPORTER.report(this, "Condition", e);
 			final DecisionResult result = decisionResultFactory.newIndeterminate(e);
-			LOGGER.debug("{} -> {}", this, result);
-			return result;
+			tracer.trace("{} -> {}", this, result);
+			return notifyListener(listener, startNanos, TargetMatchResult.MATCH, ConditionResult.INDETERMINATE, result);
 		}
 
 		if (!isConditionTrue)
 		{
-			LOGGER.debug("{}/Condition -> False", this);
+			tracer.trace("{}/Condition -> False", this);
 			final DecisionResult result = DecisionResults.SIMPLE_NOT_APPLICABLE;
-			LOGGER.debug("{} -> {}", this, result);
-			return result;
+			tracer.trace("{} -> {}", this, result);
+			return notifyListener(listener, startNanos, TargetMatchResult.MATCH, ConditionResult.FALSE, result);
 		}
 
-		LOGGER.debug("{}/Condition -> True", this);
+		tracer.trace("{}/Condition -> True", this);
 
 		/*
 		 * Target match and condition true
 		 */
 		final DecisionResult result = this.decisionResultFactory.getInstance(context);
-		LOGGER.debug("{} -> {}", this, result);
+		tracer.trace("{} -> {}", this, result);
+		return notifyListener(listener, startNanos, TargetMatchResult.MATCH, ConditionResult.TRUE, result);
+	}
+
+	private DecisionResult notifyListener(final PolicyEvaluationListener listener, final long startNanos, final TargetMatchResult targetResult, final ConditionResult conditionResult,
+			final DecisionResult result)
+	{
+		if (listener != null)
+		{
+			listener.ruleEvaluated(this.enclosingPolicy, this.ruleId, targetResult, conditionResult, result, System.nanoTime() - startNanos);
+		}
+
 		return result;
 	}
 
@@ -0,0 +1,201 @@
+/**
+ * Copyright 2012-2018 Thales Services SAS.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl.test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.ow2.authzforce.core.pdp.api.AttributeFqn;
+import org.ow2.authzforce.core.pdp.api.AttributeFqns;
+import org.ow2.authzforce.core.pdp.api.IndeterminateEvaluationException;
+import org.ow2.authzforce.core.pdp.api.value.AttributeBag;
+import org.ow2.authzforce.core.pdp.api.value.Bag;
+import org.ow2.authzforce.core.pdp.api.value.Bags;
+import org.ow2.authzforce.core.pdp.api.value.StandardDatatypes;
+import org.ow2.authzforce.core.pdp.api.value.StringValue;
+import org.ow2.authzforce.core.pdp.impl.AttributeFqnSlots;
+import org.ow2.authzforce.core.pdp.impl.IndividualDecisionRequestContext;
+import org.ow2.authzforce.core.pdp.impl.ModularAttributeProvider;
+import org.ow2.authzforce.core.pdp.impl.expression.GenericAttributeProviderBasedAttributeDesignatorExpression;
+
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.AttributeDesignatorType;
+
+/**
+ * Tests lookup of named attributes by slot ({@link AttributeFqnSlots}) in {@link IndividualDecisionRequestContext}
+ */
+public class AttributeFqnSlotsTest
+{
+	private static final String SUBJECT_CATEGORY = "urn:oasis:names:tc:xacml:1.0:subject-category:access-subject";
+	private static final AttributeFqn SUBJECT_ID = AttributeFqns.newInstance(SUBJECT_CATEGORY, Optional.empty(), "urn:oasis:names:tc:xacml:1.0:subject:subject-id");
+	private static final AttributeFqn SUBJECT_ROLE = AttributeFqns.newInstance(SUBJECT_CATEGORY, Optional.empty(), "urn:oasis:names:tc:xacml:2.0:subject:role");
+	private static final AttributeBag<StringValue> SUBJECT_ID_VALUE = Bags.singletonAttributeBag(StandardDatatypes.STRING, new StringValue("alice"));
+	private static final AttributeBag<StringValue> SUBJECT_ROLE_VALUE = Bags.singletonAttributeBag(StandardDatatypes.STRING, new StringValue("admin"));
+
+	private static IndividualDecisionRequestContext newContext(final AttributeFqnSlots slots)
+	{
+		final Map<AttributeFqn, AttributeBag<?>> namedAttributes = new HashMap<>();
+		namedAttributes.put(SUBJECT_ID, SUBJECT_ID_VALUE);
+		namedAttributes.put(SUBJECT_ROLE, SUBJECT_ROLE_VALUE);
+		return new IndividualDecisionRequestContext(namedAttributes, null, false, Collections.emptySet(), slots, null);
+	}
+
+	private static AttributeDesignatorType newDesignator(final AttributeFqn attributeFqn, final String datatypeId, final boolean mustBePresent)
+	{
+		return new AttributeDesignatorType(attributeFqn.getCategory(), attributeFqn.getId(), datatypeId, attributeFqn.getIssuer().orElse(null), mustBePresent);
+	}
+
+	@Test
+	public void testSlotHit() throws IndeterminateEvaluationException
+	{
+		final AttributeFqnSlots slots = new AttributeFqnSlots();
+		final GenericAttributeProviderBasedAttributeDesignatorExpression<StringValue> designator = new GenericAttributeProviderBasedAttributeDesignatorExpression<>(
+				newDesignator(SUBJECT_ID, StandardDatatypes.STRING.getId(), true), StandardDatatypes.STRING.getBagDatatype(), ModularAttributeProvider.EVALUATION_CONTEXT_ONLY_SCOPED_ATTRIBUTE_PROVIDER,
+				Optional.of(slots));
+		Assert.assertEquals(1, slots.count());
+		Assert.assertEquals(0, slots.getOrAssign(SUBJECT_ID));
+
+		final IndividualDecisionRequestContext context = newContext(slots);
+		/*
+		 * First lookup fills the slot, second one hits it
+		 */
+		Assert.assertEquals(SUBJECT_ID_VALUE, designator.evaluate(context));
+		Assert.assertEquals(SUBJECT_ID_VALUE, designator.evaluate(context));
+		Assert.assertEquals(SUBJECT_ID_VALUE, context.getNamedAttributeValue(slots, 0, SUBJECT_ID, StandardDatatypes.STRING));
+		Assert.assertEquals(context.getNamedAttributeValue(SUBJECT_ID, StandardDatatypes.STRING), context.getNamedAttributeValue(slots, 0, SUBJECT_ID, StandardDatatypes.STRING));
+	}
+
+	@Test
+	public void testNeverSlottedAttribute() throws IndeterminateEvaluationException
+	{
+		final AttributeFqnSlots slots = new AttributeFqnSlots();
+		slots.getOrAssign(SUBJECT_ID);
+		final IndividualDecisionRequestContext context = newContext(slots);
+
+		/*
+		 * Designator compiled without slot
+		 */
+		final GenericAttributeProviderBasedAttributeDesignatorExpression<StringValue> unslottedDesignator = new GenericAttributeProviderBasedAttributeDesignatorExpression<>(
+				newDesignator(SUBJECT_ROLE, StandardDatatypes.STRING.getId(), true), StandardDatatypes.STRING.getBagDatatype(), ModularAttributeProvider.EVALUATION_CONTEXT_ONLY_SCOPED_ATTRIBUTE_PROVIDER);
+		Assert.assertEquals(SUBJECT_ROLE_VALUE, unslottedDesignator.evaluate(context));
+
+		/*
+		 * Slot array allocated on first lookup, then slot assigned afterwards (beyond the array)
+		 */
+		Assert.assertEquals(SUBJECT_ID_VALUE, context.getNamedAttributeValue(slots, 0, SUBJECT_ID, StandardDatatypes.STRING));
+		final int lateSlot = slots.getOrAssign(SUBJECT_ROLE);
+		Assert.assertEquals(1, lateSlot);
+		Assert.assertEquals(SUBJECT_ROLE_VALUE, context.getNamedAttributeValue(slots, lateSlot, SUBJECT_ROLE, StandardDatatypes.STRING));
+
+		/*
+		 * Slot assigned by other slots (e.g. other expression factory): same slot number must not return the attribute of this context's slot
+		 */
+		final AttributeFqnSlots otherSlots = new AttributeFqnSlots();
+		Assert.assertEquals(0, otherSlots.getOrAssign(SUBJECT_ROLE));
+		Assert.assertEquals(SUBJECT_ROLE_VALUE, context.getNamedAttributeValue(otherSlots, 0, SUBJECT_ROLE, StandardDatatypes.STRING));
+
+		/*
+		 * Slotted attribute missing from the context
+		 */
+		final AttributeFqn missingAttribute = AttributeFqns.newInstance(SUBJECT_CATEGORY, Optional.empty(), "missing");
+		final GenericAttributeProviderBasedAttributeDesignatorExpression<StringValue> missingAttributeDesignator = new GenericAttributeProviderBasedAttributeDesignatorExpression<>(
+				newDesignator(missingAttribute, StandardDatatypes.STRING.getId(), false), StandardDatatypes.STRING.getBagDatatype(),
+				ModularAttributeProvider.EVALUATION_CONTEXT_ONLY_SCOPED_ATTRIBUTE_PROVIDER, Optional.of(slots));
+		Assert.assertNull(context.getNamedAttributeValue(slots, slots.getOrAssign(missingAttribute), missingAttribute, StandardDatatypes.STRING));
+		final Bag<StringValue> missingAttributeResult = missingAttributeDesignator.evaluate(newContext(slots));
+		Assert.assertTrue(missingAttributeResult.isEmpty());
+	}
+
+	@Test
+	public void testDatatypeMismatch() throws IndeterminateEvaluationException
+	{
+		final AttributeFqnSlots slots = new AttributeFqnSlots();
+		final int slot = slots.getOrAssign(SUBJECT_ID);
+		final IndividualDecisionRequestContext context = newContext(slots);
+
+		/*
+		 * Mismatch on slot filling (first lookup) then on slot hit
+		 */
+		for (int i = 0; i < 2; i++)
+		{
+			try
+			{
+				context.getNamedAttributeValue(slots, slot, SUBJECT_ID, StandardDatatypes.INTEGER);
+				Assert.fail("Datatype mismatch not detected on lookup #" + i);
+			} catch (final IndeterminateEvaluationException e)
+			{
+				// expected
+			}
+		}
+
+		Assert.assertEquals(SUBJECT_ID_VALUE, context.getNamedAttributeValue(slots, slot, SUBJECT_ID, StandardDatatypes.STRING));
+
+		/*
+		 * Mismatch through a slotted designator with MustBePresent
+		 */
+		final GenericAttributeProviderBasedAttributeDesignatorExpression<?> integerDesignator = new GenericAttributeProviderBasedAttributeDesignatorExpression<>(
+				newDesignator(SUBJECT_ID, StandardDatatypes.INTEGER.getId(), true), StandardDatatypes.INTEGER.getBagDatatype(), ModularAttributeProvider.EVALUATION_CONTEXT_ONLY_SCOPED_ATTRIBUTE_PROVIDER,
+				Optional.of(slots));
+		try
+		{
+			integerDesignator.evaluate(context);
+			Assert.fail("Datatype mismatch not detected by AttributeDesignator");
+		} catch (final IndeterminateEvaluationException e)
+		{
+			// expected
+		}
+	}
+
+	@Test
+	public void testMaxSlotCount() throws IndeterminateEvaluationException
+	{
+		final AttributeFqnSlots slots = new AttributeFqnSlots(1);
+		Assert.assertEquals(0, slots.getOrAssign(SUBJECT_ID));
+		Assert.assertEquals(AttributeFqnSlots.NO_SLOT, slots.getOrAssign(SUBJECT_ROLE));
+		Assert.assertEquals(AttributeFqnSlots.NO_SLOT, slots.getOrAssign(SUBJECT_ROLE));
+		Assert.assertEquals(0, slots.getOrAssign(SUBJECT_ID));
+		Assert.assertEquals(1, slots.count());
+
+		/*
+		 * Designator of attribute without slot falls back to the attribute provider
+		 */
+		final GenericAttributeProviderBasedAttributeDesignatorExpression<StringValue> unslottedDesignator = new GenericAttributeProviderBasedAttributeDesignatorExpression<>(
+				newDesignator(SUBJECT_ROLE, StandardDatatypes.STRING.getId(), true), StandardDatatypes.STRING.getBagDatatype(), ModularAttributeProvider.EVALUATION_CONTEXT_ONLY_SCOPED_ATTRIBUTE_PROVIDER,
+				Optional.of(slots));
+		Assert.assertEquals(1, slots.count());
+		Assert.assertEquals(SUBJECT_ROLE_VALUE, unslottedDesignator.evaluate(newContext(slots)));
+	}
+
+	@Test
+	public void testDatatypeMismatchWithoutMustBePresent() throws IndeterminateEvaluationException
+	{
+		final AttributeFqnSlots slots = new AttributeFqnSlots();
+		final GenericAttributeProviderBasedAttributeDesignatorExpression<?> integerDesignator = new GenericAttributeProviderBasedAttributeDesignatorExpression<>(
+				newDesignator(SUBJECT_ID, StandardDatatypes.INTEGER.getId(), false), StandardDatatypes.INTEGER.getBagDatatype(), ModularAttributeProvider.EVALUATION_CONTEXT_ONLY_SCOPED_ATTRIBUTE_PROVIDER,
+				Optional.of(slots));
+		/*
+		 * Same as without slot: empty bag with the mismatch as cause
+		 */
+		final Bag<?> result = integerDesignator.evaluate(newContext(slots));
+		Assert.assertTrue(result.isEmpty());
+		Assert.assertNotNull(result.getReasonWhyEmpty());
+	}
+}
@@ -0,0 +1,167 @@
+/**
+ * Copyright 2012-2018 Thales Services SAS.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl.test;
+
+import java.io.StringReader;
+import java.util.Collections;
+import java.util.Optional;
+
+import javax.xml.transform.stream.StreamSource;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.ow2.authzforce.core.pdp.api.IndeterminateEvaluationException;
+import org.ow2.authzforce.core.pdp.api.XmlUtils;
+import org.ow2.authzforce.core.pdp.api.expression.AttributeSelectorExpression;
+import org.ow2.authzforce.core.pdp.api.value.AnyUriValue;
+import org.ow2.authzforce.core.pdp.api.value.AttributeValue;
+import org.ow2.authzforce.core.pdp.api.value.AttributeValueFactory;
+import org.ow2.authzforce.core.pdp.api.value.AttributeValueFactoryRegistry;
+import org.ow2.authzforce.core.pdp.api.value.Bag;
+import org.ow2.authzforce.core.pdp.api.value.BooleanValue;
+import org.ow2.authzforce.core.pdp.api.value.Datatype;
+import org.ow2.authzforce.core.pdp.api.value.IntegerValue;
+import org.ow2.authzforce.core.pdp.api.value.StandardAttributeValueFactories;
+import org.ow2.authzforce.core.pdp.api.value.StandardDatatypes;
+import org.ow2.authzforce.core.pdp.api.value.StringValue;
+import org.ow2.authzforce.core.pdp.impl.IndividualDecisionRequestContext;
+import org.ow2.authzforce.core.pdp.impl.expression.AttributeSelectorExpressions;
+
+import net.sf.saxon.s9api.SaxonApiException;
+import net.sf.saxon.s9api.XPathCompiler;
+import net.sf.saxon.s9api.XdmNode;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.AttributeSelectorType;
+
+/**
+ * Tests conversion of {@link AttributeSelectorExpressions} results to attribute values, in particular the direct conversion of atomic values and text/attribute nodes for the most common datatypes
+ */
+public class AttributeSelectorExpressionsTest
+{
+	private static final String RESOURCE_CATEGORY = "urn:oasis:names:tc:xacml:3.0:attribute-category:resource";
+	private static final String CONTENT = "<doc><name>alice</name><admin>true</admin><age>42</age><home>http://example.com/alice</home><item id=\"x\"/><item id=\"y\"/></doc>";
+
+	private static final AttributeValueFactoryRegistry ATTRIBUTE_VALUE_FACTORIES = StandardAttributeValueFactories.getRegistry(true, Optional.empty());
+	private static final XPathCompiler XPATH_COMPILER = XmlUtils.SAXON_PROCESSOR.newXPathCompiler();
+
+	private static XdmNode content;
+
+	@BeforeClass
+	public static void setUp() throws SaxonApiException
+	{
+		content = XmlUtils.SAXON_PROCESSOR.newDocumentBuilder().build(new StreamSource(new StringReader(CONTENT)));
+	}
+
+	private static Bag<?> evaluate(final String path, final Datatype<?> datatype) throws IndeterminateEvaluationException
+	{
+		final AttributeValueFactory<?> attributeFactory = ATTRIBUTE_VALUE_FACTORIES.getExtension(datatype.getId());
+		final AttributeSelectorExpression<?> selector = AttributeSelectorExpressions.newInstance(new AttributeSelectorType(RESOURCE_CATEGORY, null, path, datatype.getId(), false), XPATH_COMPILER,
+				null, attributeFactory);
+		return selector.evaluate(new IndividualDecisionRequestContext(Collections.emptyMap(), Collections.singletonMap(RESOURCE_CATEGORY, content), false));
+	}
+
+	private static void assertSingleValue(final AttributeValue expected, final Bag<?> actual)
+	{
+		Assert.assertEquals(1, actual.size());
+		final AttributeValue actualValue = actual.getSingleElement();
+		Assert.assertSame(expected.getClass(), actualValue.getClass());
+		Assert.assertEquals(expected, actualValue);
+	}
+
+	@Test
+	public void testStringFromTextNode() throws IndeterminateEvaluationException
+	{
+		assertSingleValue(new StringValue("alice"), evaluate("/doc/name/text()", StandardDatatypes.STRING));
+	}
+
+	@Test
+	public void testStringFromAttributeNode() throws IndeterminateEvaluationException
+	{
+		final Bag<?> result = evaluate("/doc/item/@id", StandardDatatypes.STRING);
+		Assert.assertEquals(2, result.size());
+		Assert.assertTrue(result.contains(new StringValue("x")));
+		Assert.assertTrue(result.contains(new StringValue("y")));
+	}
+
+	@Test
+	public void testStringFromAtomicValue() throws IndeterminateEvaluationException
+	{
+		assertSingleValue(new StringValue("alice"), evaluate("string(/doc/name)", StandardDatatypes.STRING));
+	}
+
+	@Test
+	public void testBooleanFromAtomicValue() throws IndeterminateEvaluationException
+	{
+		assertSingleValue(BooleanValue.TRUE, evaluate("/doc/admin = 'true'", StandardDatatypes.BOOLEAN));
+		assertSingleValue(BooleanValue.FALSE, evaluate("/doc/admin = 'false'", StandardDatatypes.BOOLEAN));
+	}
+
+	@Test
+	public void testBooleanFromTextNode() throws IndeterminateEvaluationException
+	{
+		/*
+		 * Not an atomic boolean: generic conversion from the lexical form
+		 */
+		assertSingleValue(BooleanValue.TRUE, evaluate("/doc/admin/text()", StandardDatatypes.BOOLEAN));
+	}
+
+	@Test
+	public void testIntegerFromAtomicValue() throws IndeterminateEvaluationException
+	{
+		assertSingleValue(IntegerValue.valueOf(2), evaluate("count(/doc/item)", StandardDatatypes.INTEGER));
+	}
+
+	@Test
+	public void testIntegerFromTextNode() throws IndeterminateEvaluationException
+	{
+		/*
+		 * Not an atomic integer: generic conversion from the lexical form
+		 */
+		assertSingleValue(IntegerValue.valueOf(42), evaluate("/doc/age/text()", StandardDatatypes.INTEGER));
+	}
+
+	@Test
+	public void testAnyUriFromTextNode() throws IndeterminateEvaluationException
+	{
+		assertSingleValue(new AnyUriValue("http://example.com/alice"), evaluate("/doc/home/text()", StandardDatatypes.ANYURI));
+	}
+
+	@Test
+	public void testInvalidValueFromDirectConversion() throws IndeterminateEvaluationException
+	{
+		final Bag<?> result = evaluate("/doc/name/text()", StandardDatatypes.DATE);
+		assertInvalidValueError(result);
+	}
+
+	@Test
+	public void testInvalidValueFromGenericConversion() throws IndeterminateEvaluationException
+	{
+		final Bag<?> result = evaluate("/doc/name/text()", StandardDatatypes.INTEGER);
+		assertInvalidValueError(result);
+	}
+
+	private static void assertInvalidValueError(final Bag<?> result)
+	{
+		Assert.assertTrue(result.isEmpty());
+		final String errMsg = result.getReasonWhyEmpty().getMessage();
+		Assert.assertTrue(errMsg, errMsg.contains("Category='" + RESOURCE_CATEGORY + "': "));
+		Assert.assertFalse(errMsg, errMsg.contains("ContextSelectorId"));
+		Assert.assertFalse(errMsg, errMsg.contains("Optional"));
+	}
+
+}
@@ -0,0 +1,267 @@
+/**
+ * Copyright 2012-2018 Thales Services SAS.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl.test;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import javax.xml.bind.JAXBElement;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.ow2.authzforce.core.pdp.api.AttributeFqn;
+import org.ow2.authzforce.core.pdp.api.AttributeFqns;
+import org.ow2.authzforce.core.pdp.api.EvaluationContext;
+import org.ow2.authzforce.core.pdp.api.IndeterminateEvaluationException;
+import org.ow2.authzforce.core.pdp.api.expression.AttributeSelectorExpression;
+import org.ow2.authzforce.core.pdp.api.expression.Expression;
+import org.ow2.authzforce.core.pdp.api.value.AttributeBag;
+import org.ow2.authzforce.core.pdp.api.value.Bag;
+import org.ow2.authzforce.core.pdp.api.value.Bags;
+import org.ow2.authzforce.core.pdp.api.value.BooleanValue;
+import org.ow2.authzforce.core.pdp.api.value.StandardAttributeValueFactories;
+import org.ow2.authzforce.core.pdp.api.value.StandardDatatypes;
+import org.ow2.authzforce.core.pdp.api.value.StringValue;
+import org.ow2.authzforce.core.pdp.api.value.XPathValue;
+import org.ow2.authzforce.core.pdp.impl.IndividualDecisionRequestContext;
+import org.ow2.authzforce.core.pdp.impl.expression.DepthLimitingExpressionFactory;
+import org.ow2.authzforce.core.pdp.impl.func.StandardFunction;
+
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.ApplyType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.AttributeDesignatorType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.AttributeValueType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.ExpressionType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.ObjectFactory;
+
+/**
+ * Tests memoization of common subexpressions (Apply expressions occurring multiple times in the policies) in {@link IndividualDecisionRequestContext}
+ */
+public class CommonSubexpressionsTest
+{
+	private static final ObjectFactory XACML_OBJECT_FACTORY = new ObjectFactory();
+
+	private static final String SUBJECT_CATEGORY = "urn:oasis:names:tc:xacml:1.0:subject-category:access-subject";
+	private static final String SUBJECT_ID = "urn:oasis:names:tc:xacml:1.0:subject:subject-id";
+	private static final AttributeFqn SUBJECT_ID_FQN = AttributeFqns.newInstance(SUBJECT_CATEGORY, Optional.empty(), SUBJECT_ID);
+
+	/**
+	 * Counts the evaluations of the subject-id AttributeDesignator, i.e. lookups of subject-id in the context
+	 */
+	private static final class AttributeConsumptionCounter implements EvaluationContext.Listener
+	{
+		private final AtomicInteger count = new AtomicInteger(0);
+
+		@Override
+		public void namedAttributeValueProduced(final AttributeFqn attributeFQN, final AttributeBag<?> value)
+		{
+			// not counted
+		}
+
+		@Override
+		public void namedAttributeValueConsumed(final AttributeFqn attributeFQN, final AttributeBag<?> value)
+		{
+			if (attributeFQN.equals(SUBJECT_ID_FQN))
+			{
+				count.incrementAndGet();
+			}
+		}
+
+		@Override
+		public void attributeSelectorResultProduced(final AttributeSelectorExpression<?> attributeSelector, final Optional<AttributeBag<XPathValue>> contextSelectorValue, final Bag<?> result)
+		{
+			// not counted
+		}
+
+		@Override
+		public void attributeSelectorResultConsumed(final AttributeSelectorExpression<?> attributeSelector, final Bag<?> result)
+		{
+			// not counted
+		}
+	}
+
+	private static DepthLimitingExpressionFactory expressionFactory;
+
+	@BeforeClass
+	public static void setUp() throws IllegalArgumentException, IOException
+	{
+		expressionFactory = newExpressionFactory();
+	}
+
+	@AfterClass
+	public static void tearDown() throws IOException
+	{
+		expressionFactory.close();
+	}
+
+	/*
+	 * string-equal(string-one-and-only(subject-id), "alice"), new JAXB instance for each call, as in different policies
+	 */
+	private static ApplyType newSubjectIdEqualsAlice()
+	{
+		return newSubjectIdEquals("alice");
+	}
+
+	/*
+	 * string-equal(string-one-and-only(subject-id), subjectId), new JAXB instance for each call
+	 */
+	private static ApplyType newSubjectIdEquals(final String subjectIdValue)
+	{
+		final JAXBElement<AttributeDesignatorType> subjectId = XACML_OBJECT_FACTORY
+				.createAttributeDesignator(new AttributeDesignatorType(SUBJECT_CATEGORY, SUBJECT_ID, StandardDatatypes.STRING.getId(), null, true));
+		final JAXBElement<ApplyType> oneAndOnly = XACML_OBJECT_FACTORY.createApply(new ApplyType(null,
+				Collections.<JAXBElement<? extends ExpressionType>>singletonList(subjectId), "urn:oasis:names:tc:xacml:1.0:function:string-one-and-only"));
+		final JAXBElement<AttributeValueType> value = XACML_OBJECT_FACTORY
+				.createAttributeValue(new AttributeValueType(Collections.singletonList(subjectIdValue), StandardDatatypes.STRING.getId(), null));
+		return new ApplyType(null, Arrays.<JAXBElement<? extends ExpressionType>>asList(oneAndOnly, value), "urn:oasis:names:tc:xacml:1.0:function:string-equal");
+	}
+
+	private static IndividualDecisionRequestContext newContext(final DepthLimitingExpressionFactory factory, final String... subjectIds)
+	{
+		final Map<AttributeFqn, AttributeBag<?>> namedAttributes = new HashMap<>();
+		namedAttributes.put(SUBJECT_ID_FQN, Bags.newAttributeBag(StandardDatatypes.STRING, Arrays.stream(subjectIds).map(StringValue::new).collect(Collectors.toList())));
+		return new IndividualDecisionRequestContext(namedAttributes, null, false, Collections.emptySet(), factory.getAttributeFqnSlots(), factory.getCommonSubexpressions());
+	}
+
+	private static IndividualDecisionRequestContext newContext(final String... subjectIds)
+	{
+		return newContext(expressionFactory, subjectIds);
+	}
+
+	private static DepthLimitingExpressionFactory newExpressionFactory() throws IllegalArgumentException, IOException
+	{
+		return new DepthLimitingExpressionFactory(StandardAttributeValueFactories.getRegistry(true, Optional.empty()),
+				StandardFunction.getRegistry(true, StandardAttributeValueFactories.BIG_INTEGER), null, 0, false, false);
+	}
+
+	@Test
+	public void testSharedSubexpressionEvaluatedOncePerRequest() throws IndeterminateEvaluationException
+	{
+		final Expression<?> expression1 = expressionFactory.getInstance(newSubjectIdEqualsAlice(), null, new ArrayDeque<>());
+		final Expression<?> expression2 = expressionFactory.getInstance(newSubjectIdEqualsAlice(), null, new ArrayDeque<>());
+		Assert.assertSame("Structurally equal Apply expressions not shared", expression1, expression2);
+		Assert.assertTrue(expressionFactory.getCommonSubexpressions().count() > 0);
+
+		for (int request = 0; request < 2; request++)
+		{
+			final IndividualDecisionRequestContext context = newContext("alice");
+			final AttributeConsumptionCounter counter = new AttributeConsumptionCounter();
+			context.putListener(AttributeConsumptionCounter.class, counter);
+			Assert.assertEquals(BooleanValue.TRUE, expression1.evaluate(context));
+			Assert.assertEquals(BooleanValue.TRUE, expression2.evaluate(context));
+			Assert.assertEquals("Shared subexpression not evaluated exactly once in request #" + request, 1, counter.count.get());
+		}
+
+		/*
+		 * Context not using the factory's common subexpressions: no memoization
+		 */
+		final Map<AttributeFqn, AttributeBag<?>> namedAttributes = new HashMap<>();
+		namedAttributes.put(SUBJECT_ID_FQN, Bags.singletonAttributeBag(StandardDatatypes.STRING, new StringValue("alice")));
+		final IndividualDecisionRequestContext nonMemoizingContext = new IndividualDecisionRequestContext(namedAttributes, null, false);
+		final AttributeConsumptionCounter counter = new AttributeConsumptionCounter();
+		nonMemoizingContext.putListener(AttributeConsumptionCounter.class, counter);
+		Assert.assertEquals(BooleanValue.TRUE, expression1.evaluate(nonMemoizingContext));
+		Assert.assertEquals(BooleanValue.TRUE, expression2.evaluate(nonMemoizingContext));
+		Assert.assertEquals(2, counter.count.get());
+	}
+
+	@Test
+	public void testIndeterminateMemoized()
+	{
+		final Expression<?> expression1 = expressionFactory.getInstance(newSubjectIdEqualsAlice(), null, new ArrayDeque<>());
+		final Expression<?> expression2 = expressionFactory.getInstance(newSubjectIdEqualsAlice(), null, new ArrayDeque<>());
+
+		/*
+		 * More than one subject-id: string-one-and-only is Indeterminate
+		 */
+		final IndividualDecisionRequestContext context = newContext("alice", "bob");
+		final AttributeConsumptionCounter counter = new AttributeConsumptionCounter();
+		context.putListener(AttributeConsumptionCounter.class, counter);
+		IndeterminateEvaluationException firstError = null;
+		try
+		{
+			expression1.evaluate(context);
+			Assert.fail("Indeterminate expected");
+		} catch (final IndeterminateEvaluationException e)
+		{
+			firstError = e;
+		}
+
+		try
+		{
+			expression2.evaluate(context);
+			Assert.fail("Indeterminate expected");
+		} catch (final IndeterminateEvaluationException e)
+		{
+			Assert.assertSame("Indeterminate result not memoized", firstError, e);
+		}
+
+		Assert.assertEquals(1, counter.count.get());
+	}
+
+	@Test
+	public void testIdAssignedOnlyWhenShared() throws IndeterminateEvaluationException, IOException
+	{
+		/*
+		 * New factory, so that no subexpression is shared yet by other tests
+		 */
+		final DepthLimitingExpressionFactory factory = newExpressionFactory();
+		try
+		{
+			final Expression<?> expression1 = factory.getInstance(newSubjectIdEqualsAlice(), null, new ArrayDeque<>());
+			Assert.assertEquals("ID assigned to a subexpression compiled only once", 0, factory.getCommonSubexpressions().count());
+
+			/*
+			 * Not shared: no memoization
+			 */
+			final IndividualDecisionRequestContext context = newContext(factory, "alice");
+			final AttributeConsumptionCounter counter = new AttributeConsumptionCounter();
+			context.putListener(AttributeConsumptionCounter.class, counter);
+			Assert.assertEquals(BooleanValue.TRUE, expression1.evaluate(context));
+			Assert.assertEquals(BooleanValue.TRUE, expression1.evaluate(context));
+			Assert.assertEquals(2, counter.count.get());
+
+			/*
+			 * Shared afterwards: ID assigned to the outer Apply only (the inner one is not compiled again), and result memoized
+			 */
+			final Expression<?> expression2 = factory.getInstance(newSubjectIdEqualsAlice(), null, new ArrayDeque<>());
+			Assert.assertSame(expression1, expression2);
+			Assert.assertEquals(1, factory.getCommonSubexpressions().count());
+			Assert.assertEquals(BooleanValue.TRUE, expression1.evaluate(context));
+			Assert.assertEquals(BooleanValue.TRUE, expression2.evaluate(context));
+			Assert.assertEquals(3, counter.count.get());
+
+			/*
+			 * Shared by a third one: no new ID
+			 */
+			factory.getInstance(newSubjectIdEqualsAlice(), null, new ArrayDeque<>());
+			Assert.assertEquals(1, factory.getCommonSubexpressions().count());
+		} finally
+		{
+			factory.close();
+		}
+	}
+}
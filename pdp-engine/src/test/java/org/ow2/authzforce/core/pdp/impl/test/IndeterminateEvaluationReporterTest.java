@@ -0,0 +1,158 @@
+/**
+ * Copyright 2012-2018 Thales Services SAS.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl.test;
+
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.ow2.authzforce.core.pdp.api.IndeterminateEvaluationException;
+import org.ow2.authzforce.core.pdp.impl.EvaluationTracer;
+import org.ow2.authzforce.core.pdp.impl.EvaluationTracers;
+import org.ow2.authzforce.core.pdp.impl.IndeterminateEvaluationReporter;
+import org.ow2.authzforce.xacml.identifiers.XacmlStatusCode;
+import org.slf4j.LoggerFactory;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+
+/**
+ * Tests what {@link IndeterminateEvaluationReporter} and {@link EvaluationTracers} log
+ */
+public class IndeterminateEvaluationReporterTest
+{
+	private static final String EVALUATED_ELEMENT = "Rule['r1']";
+
+	private static final IndeterminateEvaluationException INDETERMINATE_CAUSE = new IndeterminateEvaluationException("Missing attribute subject-id",
+			XacmlStatusCode.MISSING_ATTRIBUTE.value(), new IllegalArgumentException("Attribute not found in request"));
+
+	private Logger logger;
+	private ListAppender<ILoggingEvent> appender;
+
+	@Before
+	public void setUp()
+	{
+		logger = (Logger) LoggerFactory.getLogger(IndeterminateEvaluationReporterTest.class);
+		logger.setAdditive(false);
+		appender = new ListAppender<>();
+		appender.start();
+		logger.addAppender(appender);
+	}
+
+	@After
+	public void tearDown()
+	{
+		logger.detachAppender(appender);
+		appender.stop();
+	}
+
+	@Test
+	public void testReportedCauseAndPath()
+	{
+		logger.setLevel(Level.INFO);
+		new IndeterminateEvaluationReporter(logger).report(EVALUATED_ELEMENT, "Condition", INDETERMINATE_CAUSE);
+
+		final List<ILoggingEvent> events = appender.list;
+		Assert.assertEquals(1, events.size());
+		final ILoggingEvent event = events.get(0);
+		Assert.assertEquals(Level.INFO, event.getLevel());
+		/*
+		 * No stacktrace at info level
+		 */
+		Assert.assertNull(event.getThrowableProxy());
+		final Object[] args = event.getArgumentArray();
+		Assert.assertEquals(EVALUATED_ELEMENT, args[0]);
+		Assert.assertEquals("Condition", args[1]);
+		Assert.assertEquals(XacmlStatusCode.MISSING_ATTRIBUTE.value(), args[2]);
+		Assert.assertEquals("Missing attribute subject-id", args[3]);
+		Assert.assertEquals("Attribute not found in request", args[4]);
+		Assert.assertEquals(0L, args[5]);
+		Assert.assertTrue("Invalid report: " + event.getFormattedMessage(), event.getFormattedMessage().startsWith(EVALUATED_ELEMENT + "/Condition -> Indeterminate"));
+	}
+
+	@Test
+	public void testRateLimit() throws InterruptedException
+	{
+		logger.setLevel(Level.INFO);
+		final IndeterminateEvaluationReporter reporter = new IndeterminateEvaluationReporter(logger, 2, 200);
+		for (int i = 0; i < 5; i++)
+		{
+			reporter.report(EVALUATED_ELEMENT, "Target", INDETERMINATE_CAUSE);
+		}
+
+		Assert.assertEquals(2, appender.list.size());
+
+		/*
+		 * Next interval: the number of reports suppressed in the previous one is given
+		 */
+		Thread.sleep(250);
+		reporter.report(EVALUATED_ELEMENT, "Target", INDETERMINATE_CAUSE);
+		Assert.assertEquals(3, appender.list.size());
+		Assert.assertEquals(3L, appender.list.get(2).getArgumentArray()[5]);
+	}
+
+	@Test
+	public void testStacktraceAtDebugLevel()
+	{
+		logger.setLevel(Level.DEBUG);
+		final IndeterminateEvaluationReporter reporter = new IndeterminateEvaluationReporter(logger, 1, 60000);
+		reporter.report(EVALUATED_ELEMENT, "Target", INDETERMINATE_CAUSE);
+		reporter.report(EVALUATED_ELEMENT, "Target", INDETERMINATE_CAUSE);
+
+		/*
+		 * No rate limit at debug level
+		 */
+		Assert.assertEquals(2, appender.list.size());
+		final ILoggingEvent event = appender.list.get(0);
+		Assert.assertEquals(Level.DEBUG, event.getLevel());
+		Assert.assertNotNull("No stacktrace at debug level", event.getThrowableProxy());
+		Assert.assertEquals(IndeterminateEvaluationException.class.getName(), event.getThrowableProxy().getClassName());
+	}
+
+	@Test
+	public void testNothingReportedBelowInfoLevel()
+	{
+		logger.setLevel(Level.WARN);
+		new IndeterminateEvaluationReporter(logger).report(EVALUATED_ELEMENT, "Target", INDETERMINATE_CAUSE);
+		Assert.assertTrue(appender.list.isEmpty());
+	}
+
+	@Test
+	public void testTracers()
+	{
+		logger.setLevel(Level.INFO);
+		Assert.assertSame(EvaluationTracers.DISABLED, EvaluationTracers.getInstance(logger));
+
+		logger.setLevel(Level.DEBUG);
+		final EvaluationTracer tracer = EvaluationTracers.getInstance(logger);
+		Assert.assertTrue(tracer.isEnabled());
+		tracer.trace("AllOf/Match#{} -> {}", 1, true);
+		Assert.assertEquals(1, appender.list.size());
+		Assert.assertEquals("AllOf/Match#1 -> true", appender.list.get(0).getFormattedMessage());
+
+		/*
+		 * The tracer is chosen once: changing the logging level afterwards has no effect
+		 */
+		logger.setLevel(Level.INFO);
+		Assert.assertTrue(tracer.isEnabled());
+	}
+}
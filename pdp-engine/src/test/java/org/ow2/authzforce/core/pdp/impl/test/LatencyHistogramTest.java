@@ -0,0 +1,169 @@
+/**
+ * Copyright 2012-2018 Thales Services SAS.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl.test;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.ow2.authzforce.core.pdp.impl.LatencyHistogram;
+
+/**
+ * Tests the bucketing and percentile computation of {@link LatencyHistogram}
+ */
+public class LatencyHistogramTest
+{
+	@Test
+	public void testEmpty()
+	{
+		final LatencyHistogram histogram = new LatencyHistogram();
+		Assert.assertEquals(0, histogram.getCount());
+		Assert.assertEquals(0, histogram.getMax());
+		Assert.assertEquals(0, histogram.getMean(), 0);
+		Assert.assertEquals(0, histogram.getValueAtPercentile(50));
+		Assert.assertEquals(0, histogram.getValueAtPercentile(100));
+	}
+
+	@Test
+	public void testSmallValuesInExactBuckets()
+	{
+		/*
+		 * Values lower than 32 have a bucket of their own
+		 */
+		for (long value = 0; value < 32; value++)
+		{
+			final LatencyHistogram histogram = new LatencyHistogram();
+			histogram.record(value);
+			histogram.record(1000);
+			Assert.assertEquals("Invalid bucket for value " + value, value, histogram.getValueAtPercentile(50));
+		}
+	}
+
+	@Test
+	public void testSharedBucket()
+	{
+		/*
+		 * 32 and 33 are in the same bucket: the bucket's highest value is returned...
+		 */
+		final LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(32);
+		histogram.record(40);
+		Assert.assertEquals(33, histogram.getValueAtPercentile(50));
+
+		/*
+		 * ... unless higher than the max
+		 */
+		final LatencyHistogram histogram2 = new LatencyHistogram();
+		histogram2.record(32);
+		Assert.assertEquals(32, histogram2.getValueAtPercentile(100));
+	}
+
+	@Test
+	public void testRelativeError()
+	{
+		for (long value = 1; value > 0 && value < Long.MAX_VALUE / 2; value = value * 3 + 1)
+		{
+			final LatencyHistogram histogram = new LatencyHistogram();
+			histogram.record(value);
+			histogram.record(value * 2);
+			final long valueAtPercentile = histogram.getValueAtPercentile(50);
+			Assert.assertTrue("Value at percentile (" + valueAtPercentile + ") lower than recorded value (" + value + ")", valueAtPercentile >= value);
+			Assert.assertTrue("Relative error of value at percentile (" + valueAtPercentile + ") > 1/16 for recorded value (" + value + ")", valueAtPercentile - value <= value / 16);
+		}
+	}
+
+	@Test
+	public void testPercentiles()
+	{
+		final LatencyHistogram histogram = new LatencyHistogram();
+		for (long value = 1; value <= 100; value++)
+		{
+			histogram.record(value);
+		}
+
+		Assert.assertEquals(100, histogram.getCount());
+		Assert.assertEquals(100, histogram.getMax());
+		Assert.assertEquals(50.5, histogram.getMean(), 0);
+		Assert.assertEquals(1, histogram.getValueAtPercentile(0));
+		/*
+		 * 50 is in bucket [50, 51]
+		 */
+		Assert.assertEquals(51, histogram.getValueAtPercentile(50));
+		/*
+		 * 99 is in bucket [96, 99]
+		 */
+		Assert.assertEquals(99, histogram.getValueAtPercentile(99));
+		/*
+		 * 100 is in bucket [100, 103] but the max is 100
+		 */
+		Assert.assertEquals(100, histogram.getValueAtPercentile(100));
+	}
+
+	@Test
+	public void testNegativeValueRecordedAsZero()
+	{
+		final LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(-5);
+		Assert.assertEquals(1, histogram.getCount());
+		Assert.assertEquals(0, histogram.getMax());
+		Assert.assertEquals(0, histogram.getMean(), 0);
+		Assert.assertEquals(0, histogram.getValueAtPercentile(100));
+	}
+
+	@Test
+	public void testMaxValue()
+	{
+		final LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(Long.MAX_VALUE);
+		Assert.assertEquals(Long.MAX_VALUE, histogram.getMax());
+		Assert.assertEquals(Long.MAX_VALUE, histogram.getValueAtPercentile(100));
+	}
+
+	@Test
+	public void testInvalidPercentile()
+	{
+		final LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(1);
+		for (final double percentile : new double[] { -1, 100.1, Double.NaN })
+		{
+			try
+			{
+				histogram.getValueAtPercentile(percentile);
+				Assert.fail("Invalid percentile accepted: " + percentile);
+			}
+			catch (final IllegalArgumentException e)
+			{
+				// expected
+			}
+		}
+	}
+
+	@Test
+	public void testReset()
+	{
+		final LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(10);
+		histogram.record(1000);
+		histogram.reset();
+		Assert.assertEquals(0, histogram.getCount());
+		Assert.assertEquals(0, histogram.getMax());
+		Assert.assertEquals(0, histogram.getMean(), 0);
+		Assert.assertEquals(0, histogram.getValueAtPercentile(99));
+
+		histogram.record(20);
+		Assert.assertEquals(20, histogram.getValueAtPercentile(50));
+	}
+}
@@ -23,6 +23,7 @@ import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
 import org.ow2.authzforce.core.pdp.impl.test.func.BagFunctionsTest;
+import org.ow2.authzforce.core.pdp.impl.test.func.CostBasedLogicalFunctionsTest;
 import org.ow2.authzforce.core.pdp.impl.test.func.DateTimeArithmeticFunctionsTest;
 import org.ow2.authzforce.core.pdp.impl.test.func.EqualityFunctionsTest;
 import org.ow2.authzforce.core.pdp.impl.test.func.HigherOrderFunctionsTest;
@@ -53,7 +54,9 @@ import org.slf4j.LoggerFactory;
 @RunWith(Suite.class)
 @SuiteClasses(value = { EqualityFunctionsTest.class, NumericArithmeticFunctionsTest.class, StringConversionFunctionsTest.class, NumericConversionFunctionsTest.class, LogicalFunctionsTest.class,
 		NumericComparisonFunctionsTest.class, DateTimeArithmeticFunctionsTest.class, NonNumericComparisonFunctionsTest.class, StringFunctionsTest.class, BagFunctionsTest.class,
-		SetFunctionsTest.class, HigherOrderFunctionsTest.class, RegExpBasedFunctionsTest.class, SpecialMatchFunctionsTest.class, StandardJavaTypeToXacmlAttributeDatatypeConversionTest.class })
+		SetFunctionsTest.class, HigherOrderFunctionsTest.class, RegExpBasedFunctionsTest.class, SpecialMatchFunctionsTest.class, StandardJavaTypeToXacmlAttributeDatatypeConversionTest.class,
+		AttributeFqnSlotsTest.class, CommonSubexpressionsTest.class, CostBasedLogicalFunctionsTest.class, LatencyHistogramTest.class, IndeterminateEvaluationReporterTest.class,
+		AttributeSelectorExpressionsTest.class, PolicyEvaluatorsTest.class })
 public class MainTest
 {
 	/**
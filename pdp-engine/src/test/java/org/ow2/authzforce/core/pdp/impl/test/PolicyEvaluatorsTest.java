@@ -0,0 +1,141 @@
+/**
+ * Copyright 2012-2018 Thales Services SAS.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl.test;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import javax.xml.bind.JAXBException;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.ow2.authzforce.core.pdp.api.AttributeFqn;
+import org.ow2.authzforce.core.pdp.api.AttributeFqns;
+import org.ow2.authzforce.core.pdp.api.DecisionResult;
+import org.ow2.authzforce.core.pdp.api.XmlUtils.XmlnsFilteringParser;
+import org.ow2.authzforce.core.pdp.api.io.XacmlJaxbParsingUtils;
+import org.ow2.authzforce.core.pdp.api.policy.RefPolicyProvider;
+import org.ow2.authzforce.core.pdp.api.policy.TopLevelPolicyElementEvaluator;
+import org.ow2.authzforce.core.pdp.api.value.AttributeBag;
+import org.ow2.authzforce.core.pdp.api.value.Bags;
+import org.ow2.authzforce.core.pdp.api.value.StandardAttributeValueFactories;
+import org.ow2.authzforce.core.pdp.api.value.StandardDatatypes;
+import org.ow2.authzforce.core.pdp.api.value.StringValue;
+import org.ow2.authzforce.core.pdp.impl.IndividualDecisionRequestContext;
+import org.ow2.authzforce.core.pdp.impl.combining.StandardCombiningAlgorithm;
+import org.ow2.authzforce.core.pdp.impl.expression.DepthLimitingExpressionFactory;
+import org.ow2.authzforce.core.pdp.impl.func.StandardFunction;
+import org.ow2.authzforce.core.pdp.impl.policy.PolicyEvaluators;
+
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.DecisionType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.PolicySet;
+
+/**
+ * Tests the static analysis of {@link PolicyEvaluators#mayReturnPepActions(org.ow2.authzforce.core.pdp.api.Decidable)}, used to skip the collection of PEP actions (Obligation/Advice) of
+ * combined elements
+ */
+public class PolicyEvaluatorsTest
+{
+	private static final String TEST_RESOURCES_LOCATION = "/PolicyEvaluators/";
+
+	/**
+	 * Dynamic (as opposed to static) Policy provider, i.e. references are resolved at evaluation time only; no policy is actually provided
+	 */
+	private static final RefPolicyProvider DYNAMIC_REF_POLICY_PROVIDER = (RefPolicyProvider) Proxy.newProxyInstance(RefPolicyProvider.class.getClassLoader(),
+			new Class<?>[] { RefPolicyProvider.class }, (proxy, method, args) -> {
+				if (method.getDeclaringClass() == Object.class)
+				{
+					return method.getName().equals("equals") ? proxy == args[0] : method.getName().equals("hashCode") ? System.identityHashCode(proxy) : "DynamicRefPolicyProvider";
+				}
+
+				throw new UnsupportedOperationException("Policy reference resolution not supported by this test provider");
+			});
+
+	private static DepthLimitingExpressionFactory expressionFactory;
+
+	@BeforeClass
+	public static void setUp() throws IllegalArgumentException, IOException
+	{
+		expressionFactory = new DepthLimitingExpressionFactory(StandardAttributeValueFactories.getRegistry(true, Optional.empty()),
+				StandardFunction.getRegistry(true, StandardAttributeValueFactories.BIG_INTEGER), null, 0, false, false);
+	}
+
+	@AfterClass
+	public static void tearDown() throws IOException
+	{
+		expressionFactory.close();
+	}
+
+	private static TopLevelPolicyElementEvaluator newPolicySetEvaluator(final String policyFilename, final RefPolicyProvider refPolicyProvider) throws JAXBException
+	{
+		final XmlnsFilteringParser xacmlParser = XacmlJaxbParsingUtils.getXacmlParserFactory(false).getInstance();
+		final PolicySet policySet = (PolicySet) xacmlParser.parse(PolicyEvaluatorsTest.class.getResource(TEST_RESOURCES_LOCATION + policyFilename));
+		return PolicyEvaluators.getInstance(policySet, null, xacmlParser.getNamespacePrefixUriMap(), expressionFactory, StandardCombiningAlgorithm.REGISTRY, refPolicyProvider, null);
+	}
+
+	private static IndividualDecisionRequestContext newContext(final String subjectId)
+	{
+		final Map<AttributeFqn, AttributeBag<?>> namedAttributes = new HashMap<>();
+		namedAttributes.put(AttributeFqns.newInstance("urn:oasis:names:tc:xacml:1.0:subject-category:access-subject", Optional.empty(), "urn:oasis:names:tc:xacml:1.0:subject:subject-id"),
+				Bags.singletonAttributeBag(StandardDatatypes.STRING, new StringValue(subjectId)));
+		return new IndividualDecisionRequestContext(namedAttributes, null, false, Collections.emptySet(), expressionFactory.getAttributeFqnSlots(), expressionFactory.getCommonSubexpressions());
+	}
+
+	@Test
+	public void testNoPepActions() throws JAXBException
+	{
+		final TopLevelPolicyElementEvaluator policySet = newPolicySetEvaluator("no-pep-actions.xml", null);
+		Assert.assertFalse("PolicySet without any Obligation/Advice may return PEP actions", PolicyEvaluators.mayReturnPepActions(policySet));
+		final DecisionResult result = policySet.evaluate(newContext("alice"));
+		Assert.assertEquals(DecisionType.PERMIT, result.getDecision());
+		Assert.assertTrue(result.getPepActions().isEmpty());
+	}
+
+	@Test
+	public void testNestedPepActions() throws JAXBException
+	{
+		final TopLevelPolicyElementEvaluator policySet = newPolicySetEvaluator("nested-pep-actions.xml", null);
+		Assert.assertTrue("PolicySet with Obligation/Advice in nested PolicySet may not return PEP actions", PolicyEvaluators.mayReturnPepActions(policySet));
+		/*
+		 * Rule's Obligation and Policy's Advice returned through the PolicySets without Obligation/Advice
+		 */
+		final DecisionResult result = policySet.evaluate(newContext("alice"));
+		Assert.assertEquals(DecisionType.PERMIT, result.getDecision());
+		Assert.assertEquals(2, result.getPepActions().size());
+
+		final DecisionResult notApplicableResult = policySet.evaluate(newContext("bob"));
+		Assert.assertEquals(DecisionType.NOT_APPLICABLE, notApplicableResult.getDecision());
+		Assert.assertTrue(notApplicableResult.getPepActions().isEmpty());
+	}
+
+	@Test
+	public void testDynamicReference() throws JAXBException
+	{
+		/*
+		 * The referenced Policy is unknown until evaluation time, so it may return PEP actions
+		 */
+		final TopLevelPolicyElementEvaluator policySet = newPolicySetEvaluator("dynamic-reference.xml", DYNAMIC_REF_POLICY_PROVIDER);
+		Assert.assertTrue("PolicySet with dynamic Policy reference may not return PEP actions", PolicyEvaluators.mayReturnPepActions(policySet));
+	}
+}
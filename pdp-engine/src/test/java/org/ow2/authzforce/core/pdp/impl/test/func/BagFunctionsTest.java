@@ -196,6 +196,44 @@ public class BagFunctionsTest extends StandardFunctionTest
 		// is-in(primitiveValue2, {primitiveValue1, primitiveValue1}) -> false
 		final Bag<AV> twoValBag2 = Bags.newBag(bagElementType, Collections.nCopies(2, primitiveValue1));
 		params.add(new Object[] { isInFunctionId, Arrays.asList(primitiveValue2, twoValBag2), BooleanValue.FALSE });
+
+		/*
+		 * Same with non-constant bag (not precompiled), then non-constant first argument only
+		 */
+		params.add(new Object[] { isInFunctionId, Arrays.asList(primitiveValue1, new NonConstantValue(bagElementType.getEmptyBag())), BooleanValue.FALSE });
+		params.add(new Object[] { isInFunctionId, Arrays.asList(primitiveValue2, new NonConstantValue(twoValBag)), BooleanValue.TRUE });
+		params.add(new Object[] { isInFunctionId, Arrays.asList(primitiveValue2, new NonConstantValue(twoValBag2)), BooleanValue.FALSE });
+		params.add(new Object[] { isInFunctionId, Arrays.asList(new NonConstantValue(primitiveValue2), twoValBag), BooleanValue.TRUE });
+		params.add(new Object[] { isInFunctionId, Arrays.asList(new NonConstantValue(primitiveValue2), twoValBag2), BooleanValue.FALSE });
+
+		// is-in(Indeterminate, {primitiveValue1, primitiveValue2}) -> Indeterminate
+		params.add(new Object[] { isInFunctionId, Arrays.asList(new NullValue(bagElementType.getId()), twoValBag), null });
+
+		// is-in(primitiveValue1, Indeterminate) -> Indeterminate
+		params.add(new Object[] { isInFunctionId, Arrays.asList(primitiveValue1, new NullValue(bagElementType.getId(), true)), null });
+		return params;
+	}
+
+	private static final int LARGE_BAG_SIZE = 1000;
+
+	/**
+	 * *-is-in function test parameters with a large bag, constant and non-constant, containing {@code largeBagValues} (and duplicates): {@code presentValue} MUST be one of them, and
+	 * {@code absentValue} none of them.
+	 */
+	private static <AV extends AttributeValue> Collection<Object[]> newLargeBagIsInFunctionTestParams(final String isInFunctionId, final AttributeDatatype<AV> bagElementType,
+			final List<AV> largeBagValues, final AV presentValue, final AV absentValue)
+	{
+		final List<AV> valuesWithDuplicates = new ArrayList<>(largeBagValues);
+		valuesWithDuplicates.addAll(largeBagValues);
+		final Bag<AV> largeBag = Bags.newBag(bagElementType, valuesWithDuplicates);
+
+		final Collection<Object[]> params = new ArrayList<>();
+		params.add(new Object[] { isInFunctionId, Arrays.asList(presentValue, largeBag), BooleanValue.TRUE });
+		params.add(new Object[] { isInFunctionId, Arrays.asList(absentValue, largeBag), BooleanValue.FALSE });
+		params.add(new Object[] { isInFunctionId, Arrays.asList(presentValue, new NonConstantValue(largeBag)), BooleanValue.TRUE });
+		params.add(new Object[] { isInFunctionId, Arrays.asList(absentValue, new NonConstantValue(largeBag)), BooleanValue.FALSE });
+		params.add(new Object[] { isInFunctionId, Arrays.asList(new NonConstantValue(presentValue), largeBag), BooleanValue.TRUE });
+		params.add(new Object[] { isInFunctionId, Arrays.asList(new NonConstantValue(absentValue), largeBag), BooleanValue.FALSE });
 		return params;
 	}
 
@@ -273,6 +311,25 @@ public class BagFunctionsTest extends StandardFunctionTest
 		params.addAll(newIsInFunctionTestParams(NAME_IPADDRESS_IS_IN, StandardDatatypes.IPADDRESS, new IpAddressValue("192.168.1.10"), new IpAddressValue("192.168.1.11")));
 		params.addAll(newIsInFunctionTestParams(NAME_DNSNAME_IS_IN, StandardDatatypes.DNSNAME, new DnsNameWithPortRangeValue("example.com"), new DnsNameWithPortRangeValue("example1.com")));
 
+		// *-is-in functions with large bags
+		final List<StringValue> largeBagStrings = new ArrayList<>(LARGE_BAG_SIZE);
+		final List<IntegerValue> largeBagIntegers = new ArrayList<>(LARGE_BAG_SIZE);
+		for (int i = 0; i < LARGE_BAG_SIZE; i++)
+		{
+			largeBagStrings.add(new StringValue("Test" + i));
+			largeBagIntegers.add(IntegerValue.valueOf(i));
+		}
+
+		params.addAll(newLargeBagIsInFunctionTestParams(NAME_STRING_IS_IN, StandardDatatypes.STRING, largeBagStrings, new StringValue("Test" + (LARGE_BAG_SIZE - 1)), new StringValue("test0")));
+		params.addAll(newLargeBagIsInFunctionTestParams(NAME_INTEGER_IS_IN, StandardDatatypes.INTEGER, largeBagIntegers, IntegerValue.valueOf(LARGE_BAG_SIZE / 2), IntegerValue.valueOf(-1)));
+
+		/*
+		 * dateTime-is-in (not precompiled): equal instants in different timezones are equal
+		 */
+		final Bag<DateTimeValue> dateTimeBag = Bags.newBag(StandardDatatypes.DATETIME, Arrays.asList(new DateTimeValue("2002-09-24T09:30:15Z"), new DateTimeValue("2003-10-25T17:18:19Z")));
+		params.add(new Object[] { NAME_DATETIME_IS_IN, Arrays.asList(new DateTimeValue("2002-09-24T11:30:15+02:00"), dateTimeBag), BooleanValue.TRUE });
+		params.add(new Object[] { NAME_DATETIME_IS_IN, Arrays.asList(new DateTimeValue("2002-09-24T09:30:15+02:00"), dateTimeBag), BooleanValue.FALSE });
+
 		// *-bag functions
 		params.addAll(newBagOfFunctionTestParams(NAME_STRING_BAG, StandardDatatypes.STRING, new StringValue("Test1"), new StringValue("Test2")));
 		params.addAll(newBagOfFunctionTestParams(NAME_BOOLEAN_BAG, StandardDatatypes.BOOLEAN, BooleanValue.FALSE, BooleanValue.TRUE));
@@ -0,0 +1,205 @@
+/**
+ * Copyright 2012-2018 Thales Services SAS.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl.test.func;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+import org.ow2.authzforce.core.pdp.api.IndeterminateEvaluationException;
+import org.ow2.authzforce.core.pdp.api.expression.Expression;
+import org.ow2.authzforce.core.pdp.api.func.Function;
+import org.ow2.authzforce.core.pdp.api.func.FunctionCall;
+import org.ow2.authzforce.core.pdp.api.value.BooleanValue;
+import org.ow2.authzforce.core.pdp.api.value.IntegerValue;
+import org.ow2.authzforce.core.pdp.api.value.StandardAttributeValueFactories;
+import org.ow2.authzforce.core.pdp.api.value.Value;
+import org.ow2.authzforce.core.pdp.impl.func.FunctionRegistry;
+import org.ow2.authzforce.core.pdp.impl.func.StandardFunction;
+import org.ow2.authzforce.xacml.identifiers.XacmlDatatypeId;
+
+/**
+ * Tests that the cost-based argument ordering of logical functions (and, or, n-of) does not change the result, in particular the precedence of False (resp. True) over Indeterminate arguments, for
+ * all combinations of up to 3 True/False/Indeterminate arguments, constant (evaluated first if reordered) or not.
+ */
+@RunWith(Parameterized.class)
+public class CostBasedLogicalFunctionsTest
+{
+	private static final String NAME_OR = "urn:oasis:names:tc:xacml:1.0:function:or";
+	private static final String NAME_AND = "urn:oasis:names:tc:xacml:1.0:function:and";
+	private static final String NAME_N_OF = "urn:oasis:names:tc:xacml:1.0:function:n-of";
+
+	private static final FunctionRegistry STD_FUNCTION_REGISTRY = StandardFunction.getRegistry(false, StandardAttributeValueFactories.BIG_INTEGER);
+	private static final FunctionRegistry COST_BASED_FUNCTION_REGISTRY = StandardFunction.getRegistry(false, StandardAttributeValueFactories.BIG_INTEGER, true);
+
+	private static final NullValue NULL_BOOLEAN_VALUE = new NullValue(XacmlDatatypeId.BOOLEAN.value());
+
+	private static final List<Value> BOOLEAN_ARGS = Arrays.asList(BooleanValue.TRUE, BooleanValue.FALSE, NULL_BOOLEAN_VALUE, new NonConstantValue(BooleanValue.TRUE),
+			new NonConstantValue(BooleanValue.FALSE));
+
+	private static final int MAX_NUMBER_OF_BOOLEAN_ARGS = 3;
+
+	private static boolean isTrue(final Value arg)
+	{
+		return arg == BooleanValue.TRUE || arg instanceof NonConstantValue && ((NonConstantValue) arg).getValue() == BooleanValue.TRUE;
+	}
+
+	/**
+	 * @return all lists of {@code size} values of {@link #BOOLEAN_ARGS}
+	 */
+	private static List<List<Value>> getBooleanArgCombinations(final int size)
+	{
+		if (size == 0)
+		{
+			return Collections.singletonList(Collections.emptyList());
+		}
+
+		final List<List<Value>> combinations = new ArrayList<>();
+		for (final List<Value> tail : getBooleanArgCombinations(size - 1))
+		{
+			for (final Value head : BOOLEAN_ARGS)
+			{
+				final List<Value> combination = new ArrayList<>(size);
+				combination.add(head);
+				combination.addAll(tail);
+				combinations.add(combination);
+			}
+		}
+
+		return combinations;
+	}
+
+	/**
+	 * Expected result of n-of (and, or are special cases) according to the XACML spec, depending only on the number of True and Indeterminate args
+	 * 
+	 * @return expected result; null if Indeterminate
+	 */
+	private static BooleanValue getExpectedNOfResult(final int n, final List<Value> booleanArgs)
+	{
+		if (n > booleanArgs.size())
+		{
+			return null;
+		}
+
+		int nOfTrues = 0;
+		int nOfIndeterminates = 0;
+		for (final Value arg : booleanArgs)
+		{
+			if (arg == NULL_BOOLEAN_VALUE)
+			{
+				nOfIndeterminates++;
+			} else if (isTrue(arg))
+			{
+				nOfTrues++;
+			}
+		}
+
+		if (nOfTrues >= n)
+		{
+			return BooleanValue.TRUE;
+		}
+
+		return nOfTrues + nOfIndeterminates >= n ? null : BooleanValue.FALSE;
+	}
+
+	@Parameters(name = "{index}: {0} {1}")
+	public static Collection<Object[]> params()
+	{
+		final Collection<Object[]> params = new ArrayList<>();
+		for (int size = 0; size <= MAX_NUMBER_OF_BOOLEAN_ARGS; size++)
+		{
+			for (final List<Value> booleanArgs : getBooleanArgCombinations(size))
+			{
+				// or = 1-of (except with no arg: False), and = size-of
+				params.add(new Object[] { NAME_OR, booleanArgs, size == 0 ? BooleanValue.FALSE : getExpectedNOfResult(1, booleanArgs) });
+				params.add(new Object[] { NAME_AND, booleanArgs, getExpectedNOfResult(size, booleanArgs) });
+				for (int n = 0; n <= size + 1; n++)
+				{
+					final BooleanValue expectedResult = getExpectedNOfResult(n, booleanArgs);
+					// the first arg of n-of is never reordered, constant or not
+					final List<Value> nOfArgs = new ArrayList<>(booleanArgs.size() + 1);
+					nOfArgs.add(IntegerValue.valueOf(n));
+					nOfArgs.addAll(booleanArgs);
+					params.add(new Object[] { NAME_N_OF, nOfArgs, expectedResult });
+
+					final List<Value> nOfArgsWithNonConstantN = new ArrayList<>(nOfArgs);
+					nOfArgsWithNonConstantN.set(0, new NonConstantValue(IntegerValue.valueOf(n)));
+					params.add(new Object[] { NAME_N_OF, nOfArgsWithNonConstantN, expectedResult });
+				}
+			}
+		}
+
+		return params;
+	}
+
+	private final String functionName;
+	private final List<Expression<?>> inputs;
+	private final BooleanValue expectedResult;
+
+	public CostBasedLogicalFunctionsTest(final String functionName, final List<Value> inputs, final BooleanValue expectedResult)
+	{
+		this.functionName = functionName;
+		this.inputs = StandardFunctionTest.toExpressions(null, inputs);
+		this.expectedResult = expectedResult;
+	}
+
+	private void assertResult(final FunctionRegistry functionRegistry, final String message)
+	{
+		final Function<?> function = functionRegistry.getFunction(functionName);
+		final FunctionCall<?> call;
+		try
+		{
+			call = function.newCall(inputs);
+		} catch (final IllegalArgumentException e)
+		{
+			// invalid args (e.g. constant n > number of args) detected at initialization
+			Assert.assertNull(message + ": unexpected invalid args: " + e.getMessage(), expectedResult);
+			return;
+		}
+
+		Value actualResult;
+		try
+		{
+			actualResult = call.evaluate(null);
+		} catch (final IndeterminateEvaluationException e)
+		{
+			actualResult = null;
+		}
+
+		Assert.assertEquals(message, expectedResult, actualResult);
+	}
+
+	@Test
+	public void testStandardOrder()
+	{
+		assertResult(STD_FUNCTION_REGISTRY, "standard order");
+	}
+
+	@Test
+	public void testCostBasedOrder()
+	{
+		assertResult(COST_BASED_FUNCTION_REGISTRY, "cost-based order");
+	}
+}
@@ -54,6 +54,9 @@ public class HigherOrderFunctionsTest extends StandardFunctionTest
 	private static final String INTEGER_GREATER_THAN_FUNCTION_ID = "urn:oasis:names:tc:xacml:1.0:function:integer-greater-than";
 	private static final String STRING_NORMALIZE_TO_LC_FUNCTION_ID = "urn:oasis:names:tc:xacml:1.0:function:string-normalize-to-lower-case";
 	private static final String STRING_SUBSTRING_FUNCTION_ID = "urn:oasis:names:tc:xacml:3.0:function:string-substring";
+	private static final String INTEGER_ABS_FUNCTION_ID = "urn:oasis:names:tc:xacml:1.0:function:integer-abs";
+	private static final String INTEGER_SUBTRACT_FUNCTION_ID = "urn:oasis:names:tc:xacml:1.0:function:integer-subtract";
+	private static final String NOT_FUNCTION_ID = "urn:oasis:names:tc:xacml:1.0:function:not";
 
 	@Parameters(name = "{index}: {0}")
 	public static Collection<Object[]> params() throws Exception {
@@ -164,7 +167,30 @@ public class HigherOrderFunctionsTest extends StandardFunctionTest
 				new Object[] { NAME_MAP, // multiple args starting with bag, with valid datatypes
 						STRING_SUBSTRING_FUNCTION_ID, //
 						Arrays.asList(Bags.newBag(StandardDatatypes.STRING, Arrays.asList(new StringValue("Hello"), new StringValue("World"))), IntegerValue.valueOf(0), IntegerValue.valueOf(1)), //
-						Bags.newBag(StandardDatatypes.STRING, Arrays.asList(new StringValue("H"), new StringValue("W"))) }//
+						Bags.newBag(StandardDatatypes.STRING, Arrays.asList(new StringValue("H"), new StringValue("W"))) },
+
+				/*
+				 * Fixed-arity sub-functions called with the bag value as remaining arg (partial function call), i.e. the generic call instead of the fixed-arity one
+				 */
+				new Object[] { NAME_MAP, // unary sub-function, only remaining arg
+						INTEGER_ABS_FUNCTION_ID, //
+						Arrays.asList(Bags.newBag(StandardDatatypes.INTEGER, Arrays.asList(IntegerValue.valueOf(-3), IntegerValue.valueOf(0), IntegerValue.valueOf(7)))), //
+						Bags.newBag(StandardDatatypes.INTEGER, Arrays.asList(IntegerValue.valueOf(3), IntegerValue.valueOf(0), IntegerValue.valueOf(7))) },
+
+				new Object[] { NAME_MAP, // binary sub-function, one arg expression and one remaining arg
+						INTEGER_SUBTRACT_FUNCTION_ID, //
+						Arrays.asList(Bags.newBag(StandardDatatypes.INTEGER, Arrays.asList(IntegerValue.valueOf(5), IntegerValue.valueOf(3))), IntegerValue.valueOf(1)), //
+						Bags.newBag(StandardDatatypes.INTEGER, Arrays.asList(IntegerValue.valueOf(4), IntegerValue.valueOf(2))) },
+
+				new Object[] { NAME_ANY_OF, //
+						NOT_FUNCTION_ID, //
+						Arrays.asList(Bags.newBag(StandardDatatypes.BOOLEAN, Arrays.asList(BooleanValue.TRUE, BooleanValue.FALSE))), //
+						BooleanValue.TRUE },
+
+				new Object[] { NAME_ALL_OF, //
+						NOT_FUNCTION_ID, //
+						Arrays.asList(Bags.newBag(StandardDatatypes.BOOLEAN, Arrays.asList(BooleanValue.TRUE, BooleanValue.FALSE))), //
+						BooleanValue.FALSE }//
 		);
 	}
 
@@ -0,0 +1,40 @@
+/**
+ * Copyright 2012-2018 Thales Services SAS.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl.test.func;
+
+import org.ow2.authzforce.core.pdp.api.value.Value;
+
+/**
+ * Special value to be passed as non-constant argument, i.e. evaluated only at evaluation time, like an AttributeDesignator, instead of a constant value known at function call creation time. (Mapped
+ * to NonConstantExpression in FunctionTest class.) For testing only.
+ *
+ */
+public class NonConstantValue implements Value
+{
+	private final Value value;
+
+	public NonConstantValue(Value value)
+	{
+		this.value = value;
+	}
+
+	public Value getValue()
+	{
+		return this.value;
+	}
+}
@@ -128,6 +128,34 @@ public class NonNumericComparisonFunctionsTest extends StandardFunctionTest
 				new Object[] { NAME_TIME_IN_RANGE, Arrays.asList(new TimeValue("09:30:15"), new TimeValue("09:30:00"), new TimeValue("02:45:00")), BooleanValue.TRUE },
 				new Object[] { NAME_TIME_IN_RANGE, Arrays.asList(new TimeValue("01:30:15"), new TimeValue("09:30:00"), new TimeValue("02:45:00")), BooleanValue.TRUE },
 				new Object[] { NAME_TIME_IN_RANGE, Arrays.asList(new TimeValue("02:45:00"), new TimeValue("09:30:00"), new TimeValue("02:45:00")), BooleanValue.TRUE },
+				/*
+				 * Same with non-constant bounds
+				 */
+				new Object[] { NAME_TIME_IN_RANGE, Arrays.asList(new TimeValue("09:30:15"), new NonConstantValue(new TimeValue("09:30:00")), new NonConstantValue(new TimeValue("09:45:00"))), BooleanValue.TRUE },
+				new Object[] { NAME_TIME_IN_RANGE, Arrays.asList(new TimeValue("09:47:15"), new NonConstantValue(new TimeValue("09:30:00")), new TimeValue("09:45:00")), BooleanValue.FALSE },
+				new Object[] { NAME_TIME_IN_RANGE, Arrays.asList(new TimeValue("01:30:15"), new TimeValue("09:30:00"), new NonConstantValue(new TimeValue("02:45:00"))), BooleanValue.TRUE },
+				/*
+				 * Bounds with timezone (precompiled if constant), compared to the checked time in UTC
+				 */
+				new Object[] { NAME_TIME_IN_RANGE, Arrays.asList(new TimeValue("09:30:15Z"), new TimeValue("10:30:00+01:00"), new TimeValue("09:45:00Z")), BooleanValue.TRUE },
+				new Object[] { NAME_TIME_IN_RANGE, Arrays.asList(new TimeValue("09:30:15Z"), new NonConstantValue(new TimeValue("10:30:00+01:00")), new TimeValue("09:45:00Z")), BooleanValue.TRUE },
+				new Object[] { NAME_TIME_IN_RANGE, Arrays.asList(new TimeValue("10:30:15+01:00"), new TimeValue("09:30:00Z"), new TimeValue("09:45:00Z")), BooleanValue.TRUE },
+				new Object[] { NAME_TIME_IN_RANGE, Arrays.asList(new TimeValue("09:30:15+01:00"), new TimeValue("09:30:00Z"), new TimeValue("09:45:00Z")), BooleanValue.FALSE },
+				new Object[] { NAME_TIME_IN_RANGE, Arrays.asList(new TimeValue("09:30:15+01:00"), new NonConstantValue(new TimeValue("09:30:00Z")), new NonConstantValue(new TimeValue("09:45:00Z"))),
+						BooleanValue.FALSE },
+				new Object[] { NAME_TIME_IN_RANGE, Arrays.asList(new TimeValue("09:30:00Z"), new TimeValue("10:30:00+01:00"), new TimeValue("10:30:00+01:00")), BooleanValue.TRUE },
+				new Object[] { NAME_TIME_IN_RANGE, Arrays.asList(new TimeValue("09:30:00.001Z"), new TimeValue("10:30:00+01:00"), new TimeValue("10:30:00+01:00")), BooleanValue.FALSE },
+				// upper bound on the day after
+				new Object[] { NAME_TIME_IN_RANGE, Arrays.asList(new TimeValue("23:30:00Z"), new TimeValue("22:00:00Z"), new TimeValue("03:00:00+01:00")), BooleanValue.TRUE },
+				new Object[] { NAME_TIME_IN_RANGE, Arrays.asList(new TimeValue("01:59:59Z"), new TimeValue("22:00:00Z"), new TimeValue("03:00:00+01:00")), BooleanValue.TRUE },
+				new Object[] { NAME_TIME_IN_RANGE, Arrays.asList(new TimeValue("02:00:01Z"), new TimeValue("22:00:00Z"), new TimeValue("03:00:00+01:00")), BooleanValue.FALSE },
+				new Object[] { NAME_TIME_IN_RANGE, Arrays.asList(new TimeValue("21:59:59Z"), new TimeValue("22:00:00Z"), new NonConstantValue(new TimeValue("03:00:00+01:00"))), BooleanValue.FALSE },
+				/*
+				 * Checked time without timezone (default timezone applies) but bounds with timezone: results independent from the default timezone since its offset is a whole number of minutes. All
+				 * times of the day but the second after 11:59:59Z are in the first interval; only 12:00:00Z is in the second one.
+				 */
+				new Object[] { NAME_TIME_IN_RANGE, Arrays.asList(new TimeValue("12:00:00"), new TimeValue("12:00:00Z"), new TimeValue("11:59:59Z")), BooleanValue.TRUE },
+				new Object[] { NAME_TIME_IN_RANGE, Arrays.asList(new TimeValue("12:00:30"), new TimeValue("12:00:00Z"), new TimeValue("12:00:00Z")), BooleanValue.FALSE },
 
 				// urn:oasis:names:tc:xacml:1.0:function:dateTime-greater-than
 				new Object[] { NAME_DATETIME_GREATER_THAN, Arrays.asList(new DateTimeValue("2002-09-24T09:30:15"), new DateTimeValue("2002-09-24T09:44:22")), BooleanValue.FALSE },
@@ -149,6 +177,41 @@ public class NonNumericComparisonFunctionsTest extends StandardFunctionTest
 				new Object[] { NAME_DATETIME_LESS_THAN_OR_EQUAL, Arrays.asList(new DateTimeValue("2002-09-24T09:30:15"), new DateTimeValue("2002-09-23T23:50:48")), BooleanValue.FALSE },
 				new Object[] { NAME_DATETIME_LESS_THAN_OR_EQUAL, Arrays.asList(new DateTimeValue("2002-09-24T09:30:15"), new DateTimeValue("2002-09-24T09:30:15")), BooleanValue.TRUE },
 
+				/*
+				 * dateTime comparisons without timezone (standard comparison), with non-constant args
+				 */
+				new Object[] { NAME_DATETIME_GREATER_THAN, Arrays.asList(new NonConstantValue(new DateTimeValue("2002-09-24T09:30:15")), new DateTimeValue("2002-09-23T23:50:48")), BooleanValue.TRUE },
+				new Object[] { NAME_DATETIME_LESS_THAN, Arrays.asList(new DateTimeValue("2002-09-24T09:30:15"), new NonConstantValue(new DateTimeValue("2002-09-24T09:44:22"))), BooleanValue.TRUE },
+				// one with timezone, one without, more than 14 hours apart (determinate)
+				new Object[] { NAME_DATETIME_GREATER_THAN, Arrays.asList(new DateTimeValue("2002-09-24T09:30:15"), new DateTimeValue("2002-09-22T09:30:15Z")), BooleanValue.TRUE },
+				new Object[] { NAME_DATETIME_LESS_THAN, Arrays.asList(new DateTimeValue("2002-09-22T09:30:15Z"), new NonConstantValue(new DateTimeValue("2002-09-24T09:30:15"))), BooleanValue.TRUE },
+				/*
+				 * dateTime comparisons with timezones (epoch-normalized), constant and non-constant args
+				 */
+				new Object[] { NAME_DATETIME_GREATER_THAN, Arrays.asList(new DateTimeValue("2002-09-24T09:30:15Z"), new DateTimeValue("2002-09-24T10:30:14+01:00")), BooleanValue.TRUE },
+				new Object[] { NAME_DATETIME_GREATER_THAN, Arrays.asList(new DateTimeValue("2002-09-24T09:30:15Z"), new NonConstantValue(new DateTimeValue("2002-09-24T10:30:14+01:00"))), BooleanValue.TRUE },
+				// same instant in different timezones
+				new Object[] { NAME_DATETIME_GREATER_THAN, Arrays.asList(new DateTimeValue("2002-09-24T10:30:15+01:00"), new DateTimeValue("2002-09-24T09:30:15Z")), BooleanValue.FALSE },
+				new Object[] { NAME_DATETIME_GREATER_THAN_OR_EQUAL, Arrays.asList(new DateTimeValue("2002-09-24T10:30:15+01:00"), new DateTimeValue("2002-09-24T09:30:15Z")), BooleanValue.TRUE },
+				new Object[] { NAME_DATETIME_LESS_THAN_OR_EQUAL, Arrays.asList(new NonConstantValue(new DateTimeValue("2002-09-24T10:30:15+01:00")), new NonConstantValue(new DateTimeValue("2002-09-24T09:30:15Z"))),
+						BooleanValue.TRUE },
+				// different local dates
+				new Object[] { NAME_DATETIME_LESS_THAN, Arrays.asList(new DateTimeValue("2002-09-25T01:00:00+02:00"), new DateTimeValue("2002-09-24T23:30:00Z")), BooleanValue.TRUE },
+				new Object[] { NAME_DATETIME_LESS_THAN, Arrays.asList(new DateTimeValue("2002-12-31T23:30:00-01:00"), new DateTimeValue("2003-01-01T00:00:00Z")), BooleanValue.FALSE },
+				// milliseconds
+				new Object[] { NAME_DATETIME_GREATER_THAN, Arrays.asList(new DateTimeValue("2020-01-01T10:00:00.001Z"), new DateTimeValue("2020-01-01T10:00:00Z")), BooleanValue.TRUE },
+				/*
+				 * Fractional seconds more precise than milliseconds (standard comparison)
+				 */
+				new Object[] { NAME_DATETIME_GREATER_THAN, Arrays.asList(new DateTimeValue("2020-01-01T10:00:00.0001Z"), new DateTimeValue("2020-01-01T10:00:00Z")), BooleanValue.TRUE },
+				new Object[] { NAME_DATETIME_LESS_THAN, Arrays.asList(new DateTimeValue("2020-01-01T10:00:00.0001Z"), new NonConstantValue(new DateTimeValue("2020-01-01T10:00:00Z"))), BooleanValue.FALSE },
+				new Object[] { NAME_DATETIME_LESS_THAN, Arrays.asList(new DateTimeValue("2020-01-01T10:00:00.0001Z"), new DateTimeValue("2020-01-01T10:00:00.0002Z")), BooleanValue.TRUE },
+				new Object[] { NAME_DATETIME_GREATER_THAN_OR_EQUAL, Arrays.asList(new DateTimeValue("2020-01-01T10:00:00.1000Z"), new DateTimeValue("2020-01-01T10:00:00.1Z")), BooleanValue.TRUE },
+				new Object[] { NAME_DATETIME_GREATER_THAN, Arrays.asList(new DateTimeValue("2020-01-01T10:00:00.1000Z"), new NonConstantValue(new DateTimeValue("2020-01-01T10:00:00.1Z"))), BooleanValue.FALSE },
+				// year beyond 9999 and before 1 (standard comparison)
+				new Object[] { NAME_DATETIME_GREATER_THAN, Arrays.asList(new DateTimeValue("10000-01-01T00:00:00Z"), new DateTimeValue("9999-12-31T23:59:59Z")), BooleanValue.TRUE },
+				new Object[] { NAME_DATETIME_LESS_THAN, Arrays.asList(new DateTimeValue("-0001-01-01T00:00:00Z"), new DateTimeValue("0001-01-01T00:00:00Z")), BooleanValue.TRUE },
+
 				// urn:oasis:names:tc:xacml:1.0:function:date-greater-than
 				new Object[] { NAME_DATE_GREATER_THAN, Arrays.asList(new DateValue("2002-09-24"), new DateValue("2002-09-25")), BooleanValue.FALSE },
 				new Object[] { NAME_DATE_GREATER_THAN, Arrays.asList(new DateValue("2002-09-24"), new DateValue("2002-09-23")), BooleanValue.TRUE },
@@ -167,7 +230,23 @@ public class NonNumericComparisonFunctionsTest extends StandardFunctionTest
 				// urn:oasis:names:tc:xacml:1.0:function:date-less-than-or-equal
 				new Object[] { NAME_DATE_LESS_THAN_OR_EQUAL, Arrays.asList(new DateValue("2002-09-24"), new DateValue("2002-09-25")), BooleanValue.TRUE }, new Object[] { NAME_DATE_LESS_THAN_OR_EQUAL,
 						Arrays.asList(new DateValue("2002-09-24"), new DateValue("2002-09-23")), BooleanValue.FALSE },
-				new Object[] { NAME_DATE_LESS_THAN_OR_EQUAL, Arrays.asList(new DateValue("2002-09-24"), new DateValue("2002-09-24")), BooleanValue.TRUE });
+				new Object[] { NAME_DATE_LESS_THAN_OR_EQUAL, Arrays.asList(new DateValue("2002-09-24"), new DateValue("2002-09-24")), BooleanValue.TRUE },
+
+				/*
+				 * date comparisons without timezone (standard comparison), with non-constant args
+				 */
+				new Object[] { NAME_DATE_GREATER_THAN, Arrays.asList(new NonConstantValue(new DateValue("2002-09-24")), new DateValue("2002-09-23")), BooleanValue.TRUE },
+				new Object[] { NAME_DATE_LESS_THAN_OR_EQUAL, Arrays.asList(new DateValue("2002-09-24"), new NonConstantValue(new DateValue("2002-09-24"))), BooleanValue.TRUE },
+				// one with timezone, one without, more than 14 hours apart (determinate)
+				new Object[] { NAME_DATE_GREATER_THAN, Arrays.asList(new DateValue("2002-09-24"), new DateValue("2002-09-20Z")), BooleanValue.TRUE },
+				/*
+				 * date comparisons with timezones (epoch-normalized), constant and non-constant args
+				 */
+				new Object[] { NAME_DATE_GREATER_THAN, Arrays.asList(new DateValue("2002-09-24Z"), new DateValue("2002-09-23Z")), BooleanValue.TRUE },
+				new Object[] { NAME_DATE_GREATER_THAN, Arrays.asList(new DateValue("2002-09-24Z"), new NonConstantValue(new DateValue("2002-09-24Z"))), BooleanValue.FALSE },
+				new Object[] { NAME_DATE_GREATER_THAN_OR_EQUAL, Arrays.asList(new NonConstantValue(new DateValue("2002-09-24Z")), new DateValue("2002-09-24Z")), BooleanValue.TRUE },
+				new Object[] { NAME_DATE_LESS_THAN, Arrays.asList(new DateValue("2002-02-28+01:00"), new DateValue("2002-03-01+01:00")), BooleanValue.TRUE },
+				new Object[] { NAME_DATE_LESS_THAN, Arrays.asList(new DateValue("2004-02-29Z"), new NonConstantValue(new DateValue("2004-03-01Z"))), BooleanValue.TRUE });
 	}
 
 }
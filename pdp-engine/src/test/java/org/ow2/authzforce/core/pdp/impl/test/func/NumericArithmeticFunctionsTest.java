@@ -20,6 +20,7 @@
  */
 package org.ow2.authzforce.core.pdp.impl.test.func;
 
+import java.math.BigInteger;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
@@ -30,6 +31,7 @@ import org.junit.runners.Parameterized.Parameters;
 import org.ow2.authzforce.core.pdp.api.value.DoubleValue;
 import org.ow2.authzforce.core.pdp.api.value.IntegerValue;
 import org.ow2.authzforce.core.pdp.api.value.Value;
+import org.ow2.authzforce.xacml.identifiers.XacmlDatatypeId;
 
 @RunWith(Parameterized.class)
 public class NumericArithmeticFunctionsTest extends StandardFunctionTest
@@ -54,6 +56,11 @@ public class NumericArithmeticFunctionsTest extends StandardFunctionTest
 	private static final String NAME_ROUND = "urn:oasis:names:tc:xacml:1.0:function:round";
 	private static final String NAME_FLOOR = "urn:oasis:names:tc:xacml:1.0:function:floor";
 
+	private static final IntegerValue LONG_MAX = IntegerValue.valueOf(Long.MAX_VALUE);
+	private static final IntegerValue LONG_MIN = IntegerValue.valueOf(Long.MIN_VALUE);
+	// Long.MAX_VALUE + 1
+	private static final IntegerValue TWO_POW_63 = new IntegerValue(BigInteger.ONE.shiftLeft(63));
+
 	@Parameters(name = "{index}: {0}")
 	public static Collection<Object[]> params() throws Exception
 	{
@@ -63,6 +70,15 @@ public class NumericArithmeticFunctionsTest extends StandardFunctionTest
 				//
 				new Object[] { NAME_INTEGER_ADD, Arrays.asList(IntegerValue.valueOf(2), IntegerValue.valueOf(-1)), IntegerValue.valueOf(1) },
 				new Object[] { NAME_INTEGER_ADD, Arrays.asList(IntegerValue.valueOf(2), IntegerValue.valueOf(-1), IntegerValue.valueOf(0), IntegerValue.valueOf(3)), IntegerValue.valueOf(4) },
+				// result overflowing long
+				new Object[] { NAME_INTEGER_ADD, Arrays.asList(LONG_MAX, IntegerValue.valueOf(1)), TWO_POW_63 },
+				new Object[] { NAME_INTEGER_ADD, Arrays.asList(LONG_MIN, IntegerValue.valueOf(-1)), new IntegerValue(BigInteger.valueOf(Long.MIN_VALUE).subtract(BigInteger.ONE)) },
+				new Object[] { NAME_INTEGER_ADD, Arrays.asList(IntegerValue.valueOf(1), LONG_MAX, IntegerValue.valueOf(-2)), IntegerValue.valueOf(Long.MAX_VALUE - 1) },
+				// operand beyond long, result in long range
+				new Object[] { NAME_INTEGER_ADD, Arrays.asList(TWO_POW_63, IntegerValue.valueOf(-1)), LONG_MAX },
+				// bounds of the cached results
+				new Object[] { NAME_INTEGER_ADD, Arrays.asList(IntegerValue.valueOf(1000), IntegerValue.valueOf(24)), IntegerValue.valueOf(1024) },
+				new Object[] { NAME_INTEGER_ADD, Arrays.asList(IntegerValue.valueOf(1000), IntegerValue.valueOf(25)), IntegerValue.valueOf(1025) },
 
 				// urn:oasis:names:tc:xacml:1.0:function:double-add
 				new Object[] { NAME_DOUBLE_ADD, Arrays.asList(new DoubleValue("1.5"), new DoubleValue("2.5")), new DoubleValue("4.0") },
@@ -74,6 +90,15 @@ public class NumericArithmeticFunctionsTest extends StandardFunctionTest
 				new Object[] { NAME_INTEGER_SUBTRACT, Arrays.asList(IntegerValue.valueOf(2), IntegerValue.valueOf(1)), IntegerValue.valueOf(1) },
 				//
 				new Object[] { NAME_INTEGER_SUBTRACT, Arrays.asList(IntegerValue.valueOf(2), IntegerValue.valueOf(-1)), IntegerValue.valueOf(3) },
+				// result overflowing long
+				new Object[] { NAME_INTEGER_SUBTRACT, Arrays.asList(LONG_MIN, IntegerValue.valueOf(1)), new IntegerValue(BigInteger.valueOf(Long.MIN_VALUE).subtract(BigInteger.ONE)) },
+				new Object[] { NAME_INTEGER_SUBTRACT, Arrays.asList(IntegerValue.valueOf(0), LONG_MIN), TWO_POW_63 },
+				new Object[] { NAME_INTEGER_SUBTRACT, Arrays.asList(IntegerValue.valueOf(0), IntegerValue.valueOf(1)), IntegerValue.valueOf(-1) },
+				// operand beyond long
+				new Object[] { NAME_INTEGER_SUBTRACT, Arrays.asList(TWO_POW_63, LONG_MAX), IntegerValue.valueOf(1) },
+				// Indeterminate arg
+				new Object[] { NAME_INTEGER_SUBTRACT, Arrays.asList(IntegerValue.valueOf(2), new NullValue(XacmlDatatypeId.INTEGER.value())), null },
+				new Object[] { NAME_INTEGER_SUBTRACT, Arrays.asList(new NullValue(XacmlDatatypeId.INTEGER.value()), IntegerValue.valueOf(2)), null },
 
 				// urn:oasis:names:tc:xacml:1.0:function:double-subtract
 				new Object[] { NAME_DOUBLE_SUBTRACT, Arrays.asList(new DoubleValue("1.5"), new DoubleValue("2.5")), new DoubleValue("-1.") },
@@ -84,6 +109,12 @@ public class NumericArithmeticFunctionsTest extends StandardFunctionTest
 				new Object[] { NAME_INTEGER_MULTIPLY, Arrays.asList(IntegerValue.valueOf(2), IntegerValue.valueOf(3)), IntegerValue.valueOf(6) },//
 				new Object[] { NAME_INTEGER_MULTIPLY, Arrays.asList(IntegerValue.valueOf(2), IntegerValue.valueOf(0)), IntegerValue.valueOf(0) },
 				new Object[] { NAME_INTEGER_MULTIPLY, Arrays.asList(IntegerValue.valueOf(2), IntegerValue.valueOf(-1), IntegerValue.valueOf(3)), IntegerValue.valueOf(-6) },
+				// result overflowing long
+				new Object[] { NAME_INTEGER_MULTIPLY, Arrays.asList(LONG_MAX, IntegerValue.valueOf(2)), new IntegerValue(BigInteger.valueOf(Long.MAX_VALUE).shiftLeft(1)) },
+				new Object[] { NAME_INTEGER_MULTIPLY, Arrays.asList(LONG_MIN, IntegerValue.valueOf(-1)), TWO_POW_63 },
+				new Object[] { NAME_INTEGER_MULTIPLY, Arrays.asList(IntegerValue.valueOf(1L << 32), IntegerValue.valueOf(1L << 31), IntegerValue.valueOf(1)), TWO_POW_63 },
+				// intermediate product overflowing long, final product in long range
+				new Object[] { NAME_INTEGER_MULTIPLY, Arrays.asList(IntegerValue.valueOf(1L << 32), IntegerValue.valueOf(1L << 32), IntegerValue.valueOf(0)), IntegerValue.valueOf(0) },
 
 				// urn:oasis:names:tc:xacml:1.0:function:double-multiply
 				new Object[] { NAME_DOUBLE_MULTIPLY, Arrays.asList(new DoubleValue("1.5"), new DoubleValue("2.5")), new DoubleValue("3.75") },//
@@ -98,6 +129,11 @@ public class NumericArithmeticFunctionsTest extends StandardFunctionTest
 				new Object[] { NAME_INTEGER_DIVIDE, Arrays.asList(IntegerValue.valueOf(0), IntegerValue.valueOf(-3)), IntegerValue.valueOf(0) },
 				//
 				new Object[] { NAME_INTEGER_DIVIDE, Arrays.asList(IntegerValue.valueOf(-3), IntegerValue.valueOf(0)), null },
+				// result overflowing long
+				new Object[] { NAME_INTEGER_DIVIDE, Arrays.asList(LONG_MIN, IntegerValue.valueOf(-1)), TWO_POW_63 },
+				// operand beyond long
+				new Object[] { NAME_INTEGER_DIVIDE, Arrays.asList(TWO_POW_63, IntegerValue.valueOf(2)), IntegerValue.valueOf(1L << 62) },
+				new Object[] { NAME_INTEGER_DIVIDE, Arrays.asList(TWO_POW_63, IntegerValue.valueOf(0)), null },
 
 				// urn:oasis:names:tc:xacml:1.0:function:double-divide
 				new Object[] { NAME_DOUBLE_DIVIDE, Arrays.asList(new DoubleValue("6.5"), new DoubleValue("2.5")), new DoubleValue("2.6") },
@@ -114,10 +150,20 @@ public class NumericArithmeticFunctionsTest extends StandardFunctionTest
 				new Object[] { NAME_INTEGER_MOD, Arrays.asList(IntegerValue.valueOf(7), IntegerValue.valueOf(3)), IntegerValue.valueOf(1) },
 				//
 				new Object[] { NAME_INTEGER_MOD, Arrays.asList(IntegerValue.valueOf(0), IntegerValue.valueOf(-3)), IntegerValue.valueOf(0) },
+				new Object[] { NAME_INTEGER_MOD, Arrays.asList(LONG_MIN, IntegerValue.valueOf(-1)), IntegerValue.valueOf(0) },
+				new Object[] { NAME_INTEGER_MOD, Arrays.asList(IntegerValue.valueOf(-7), IntegerValue.valueOf(3)), IntegerValue.valueOf(-1) },
+				// operand beyond long
+				new Object[] { NAME_INTEGER_MOD, Arrays.asList(TWO_POW_63, IntegerValue.valueOf(10)), IntegerValue.valueOf(8) },
+				new Object[] { NAME_INTEGER_MOD, Arrays.asList(IntegerValue.valueOf(5), TWO_POW_63), IntegerValue.valueOf(5) },
 
 				// urn:oasis:names:tc:xacml:1.0:function:integer-abs
 				new Object[] { NAME_INTEGER_ABS, Arrays.asList(IntegerValue.valueOf(5)), IntegerValue.valueOf(5) },//
 				new Object[] { NAME_INTEGER_ABS, Arrays.asList(IntegerValue.valueOf(-5)), IntegerValue.valueOf(5) },
+				// Indeterminate arg
+				new Object[] { NAME_INTEGER_ABS, Arrays.asList(new NullValue(XacmlDatatypeId.INTEGER.value())), null },
+				// result overflowing long
+				new Object[] { NAME_INTEGER_ABS, Arrays.asList(LONG_MIN), TWO_POW_63 },
+				new Object[] { NAME_INTEGER_ABS, Arrays.asList(new IntegerValue(TWO_POW_63.getUnderlyingValue().negate())), TWO_POW_63 },
 
 				// urn:oasis:names:tc:xacml:1.0:function:double-abs
 				new Object[] { NAME_DOUBLE_ABS, Arrays.asList(new DoubleValue("5.25")), new DoubleValue("5.25") },//
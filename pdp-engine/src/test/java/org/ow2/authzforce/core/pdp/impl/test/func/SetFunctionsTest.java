@@ -20,6 +20,7 @@
  */
 package org.ow2.authzforce.core.pdp.impl.test.func;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
@@ -28,6 +29,7 @@ import org.junit.runner.RunWith;
 import org.junit.runners.Parameterized;
 import org.junit.runners.Parameterized.Parameters;
 import org.ow2.authzforce.core.pdp.api.value.AnyUriValue;
+import org.ow2.authzforce.core.pdp.api.value.Bag;
 import org.ow2.authzforce.core.pdp.api.value.Bags;
 import org.ow2.authzforce.core.pdp.api.value.Base64BinaryValue;
 import org.ow2.authzforce.core.pdp.api.value.BooleanValue;
@@ -125,10 +127,98 @@ public class SetFunctionsTest extends StandardFunctionTest
 	private static final String NAME_X500NAME_SET_EQUALS = "urn:oasis:names:tc:xacml:1.0:function:x500Name-set-equals";
 	private static final String NAME_RFC822NAME_SET_EQUALS = "urn:oasis:names:tc:xacml:1.0:function:rfc822Name-set-equals";
 
+	/**
+	 * @return bag of integers from {@code from} (inclusive) to {@code to} (exclusive), each repeated {@code copies} times
+	 */
+	private static Bag<IntegerValue> newIntegerBag(final int from, final int to, final int copies)
+	{
+		final List<IntegerValue> values = new ArrayList<>();
+		for (int n = 0; n < copies; n++)
+		{
+			for (int i = from; i < to; i++)
+			{
+				values.add(IntegerValue.valueOf(i));
+			}
+		}
+
+		return Bags.newBag(StandardDatatypes.INTEGER, values);
+	}
+
+	private static Bag<StringValue> newStringBag(final int from, final int to)
+	{
+		final List<StringValue> values = new ArrayList<>();
+		for (int i = from; i < to; i++)
+		{
+			values.add(new StringValue("String" + i));
+		}
+
+		return Bags.newBag(StandardDatatypes.STRING, values);
+	}
+
+	/**
+	 * Adds test parameters for all combinations of constant and non-constant {@code args} (constant bags are hashed once at initialization, non-constant ones at evaluation time if large enough)
+	 */
+	private static void addConstantAndNonConstantArgsTestParams(final Collection<Object[]> params, final String functionId, final List<Value> args, final Value expectedResult)
+	{
+		for (int nonConstantArgsMask = 0; nonConstantArgsMask < 1 << args.size(); nonConstantArgsMask++)
+		{
+			final List<Value> inputs = new ArrayList<>(args.size());
+			for (int i = 0; i < args.size(); i++)
+			{
+				inputs.add((nonConstantArgsMask & 1 << i) == 0 ? args.get(i) : new NonConstantValue(args.get(i)));
+			}
+
+			params.add(new Object[] { functionId, inputs, expectedResult });
+		}
+	}
+
+	/**
+	 * Set function test parameters with large bags (membership tested in hash sets) and small bags (membership tested by linear scan, up to 64 comparisons), with duplicates
+	 */
+	private static Collection<Object[]> newLargeAndSmallBagsTestParams()
+	{
+		final Collection<Object[]> params = new ArrayList<>();
+		final Bag<IntegerValue> bag0To200 = newIntegerBag(0, 200, 2);
+		final Bag<IntegerValue> bag100To300 = newIntegerBag(100, 300, 1);
+		final Bag<IntegerValue> bag300To400 = newIntegerBag(300, 400, 1);
+
+		addConstantAndNonConstantArgsTestParams(params, NAME_INTEGER_INTERSECTION, Arrays.asList(bag0To200, bag100To300), newIntegerBag(100, 200, 1));
+		addConstantAndNonConstantArgsTestParams(params, NAME_INTEGER_INTERSECTION, Arrays.asList(bag0To200, bag300To400), StandardDatatypes.INTEGER.getEmptyBag());
+		addConstantAndNonConstantArgsTestParams(params, NAME_INTEGER_AT_LEAST_ONE_MEMBER_OF, Arrays.asList(bag100To300, bag0To200), BooleanValue.TRUE);
+		addConstantAndNonConstantArgsTestParams(params, NAME_INTEGER_AT_LEAST_ONE_MEMBER_OF, Arrays.asList(bag300To400, bag0To200), BooleanValue.FALSE);
+		addConstantAndNonConstantArgsTestParams(params, NAME_INTEGER_UNION, Arrays.asList(bag0To200, bag100To300), newIntegerBag(0, 300, 1));
+		// more than 2 bags
+		addConstantAndNonConstantArgsTestParams(params, NAME_INTEGER_UNION, Arrays.asList(bag0To200, bag100To300, bag300To400), newIntegerBag(0, 400, 1));
+		addConstantAndNonConstantArgsTestParams(params, NAME_INTEGER_SUBSET, Arrays.asList(newIntegerBag(50, 150, 3), bag0To200), BooleanValue.TRUE);
+		addConstantAndNonConstantArgsTestParams(params, NAME_INTEGER_SUBSET, Arrays.asList(bag100To300, bag0To200), BooleanValue.FALSE);
+		addConstantAndNonConstantArgsTestParams(params, NAME_INTEGER_SET_EQUALS, Arrays.asList(bag0To200, newIntegerBag(0, 200, 1)), BooleanValue.TRUE);
+		addConstantAndNonConstantArgsTestParams(params, NAME_INTEGER_SET_EQUALS, Arrays.asList(bag0To200, newIntegerBag(0, 201, 1)), BooleanValue.FALSE);
+
+		addConstantAndNonConstantArgsTestParams(params, NAME_STRING_INTERSECTION, Arrays.asList(newStringBag(0, 100), newStringBag(99, 200)), newStringBag(99, 100));
+		addConstantAndNonConstantArgsTestParams(params, NAME_STRING_SUBSET, Arrays.asList(newStringBag(10, 90), newStringBag(0, 100)), BooleanValue.TRUE);
+
+		/*
+		 * Small bags: 1 x 64 comparisons at most -> linear scan, 1 x 65 -> hash set (if not constant)
+		 */
+		addConstantAndNonConstantArgsTestParams(params, NAME_INTEGER_AT_LEAST_ONE_MEMBER_OF, Arrays.asList(newIntegerBag(63, 64, 1), newIntegerBag(0, 64, 1)), BooleanValue.TRUE);
+		addConstantAndNonConstantArgsTestParams(params, NAME_INTEGER_AT_LEAST_ONE_MEMBER_OF, Arrays.asList(newIntegerBag(64, 65, 1), newIntegerBag(0, 65, 1)), BooleanValue.TRUE);
+		addConstantAndNonConstantArgsTestParams(params, NAME_INTEGER_AT_LEAST_ONE_MEMBER_OF, Arrays.asList(newIntegerBag(65, 66, 1), newIntegerBag(0, 65, 1)), BooleanValue.FALSE);
+		addConstantAndNonConstantArgsTestParams(params, NAME_INTEGER_INTERSECTION, Arrays.asList(newIntegerBag(0, 8, 2), newIntegerBag(4, 12, 1)), newIntegerBag(4, 8, 1));
+		addConstantAndNonConstantArgsTestParams(params, NAME_INTEGER_SET_EQUALS, Arrays.asList(newIntegerBag(0, 8, 2), newIntegerBag(0, 8, 1)), BooleanValue.TRUE);
+		// empty bags
+		addConstantAndNonConstantArgsTestParams(params, NAME_INTEGER_UNION, Arrays.asList(StandardDatatypes.INTEGER.getEmptyBag(), newIntegerBag(0, 2, 2)), newIntegerBag(0, 2, 1));
+		addConstantAndNonConstantArgsTestParams(params, NAME_INTEGER_SUBSET, Arrays.asList(StandardDatatypes.INTEGER.getEmptyBag(), newIntegerBag(0, 2, 1)), BooleanValue.TRUE);
+
+		// Indeterminate bag
+		params.add(new Object[] { NAME_INTEGER_INTERSECTION, Arrays.asList(new NullValue(StandardDatatypes.INTEGER.getId(), true), bag0To200), null });
+		params.add(new Object[] { NAME_INTEGER_AT_LEAST_ONE_MEMBER_OF, Arrays.asList(bag0To200, new NullValue(StandardDatatypes.INTEGER.getId(), true)), null });
+		return params;
+	}
+
 	@Parameters(name = "{index}: {0}")
 	public static Collection<Object[]> params() throws Exception
 	{
-		return Arrays
+		final Collection<Object[]> params = new ArrayList<>(Arrays
 				.asList(
 				// urn:oasis:names:tc:xacml:1.0:function:string-intersection
 				new Object[] {
@@ -999,7 +1089,10 @@ public class SetFunctionsTest extends StandardFunctionTest
 								NAME_RFC822NAME_SET_EQUALS,
 								Arrays.asList(Bags.newBag(StandardDatatypes.RFC822NAME, Arrays.asList(new Rfc822NameValue("toto@example.com"), new Rfc822NameValue("Anderson@sun.com"),
 										new Rfc822NameValue("Anderson@sun.com"), new Rfc822NameValue("Smith@sun.com"))), //
-										Bags.newBag(StandardDatatypes.RFC822NAME, Arrays.asList(new Rfc822NameValue("toto@example.com"), new Rfc822NameValue("Anderson@sun.com")))), BooleanValue.FALSE });
+										Bags.newBag(StandardDatatypes.RFC822NAME, Arrays.asList(new Rfc822NameValue("toto@example.com"), new Rfc822NameValue("Anderson@sun.com")))), BooleanValue.FALSE }));
+
+		params.addAll(newLargeAndSmallBagsTestParams());
+		return params;
 	}
 
 }
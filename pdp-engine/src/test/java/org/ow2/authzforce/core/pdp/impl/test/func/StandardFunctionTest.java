@@ -204,14 +204,44 @@ public abstract class StandardFunctionTest
 		@Override
 		public Optional<V> getValue()
 		{
-			throw new UnsupportedOperationException("No constant defined for Indeterminate expression");
+			// not constant (Indeterminate at evaluation time only), like a missing attribute
+			return Optional.empty();
+		}
+
+	}
+
+	private static final class NonConstantExpression<V extends Value> implements Expression<V>
+	{
+		private final Expression<V> valueExpression;
+
+		private NonConstantExpression(final Expression<V> valueExpression)
+		{
+			this.valueExpression = valueExpression;
+		}
+
+		@Override
+		public Datatype<V> getReturnType()
+		{
+			return valueExpression.getReturnType();
+		}
+
+		@Override
+		public V evaluate(final EvaluationContext context) throws IndeterminateEvaluationException
+		{
+			return valueExpression.evaluate(context);
+		}
+
+		@Override
+		public Optional<V> getValue()
+		{
+			return Optional.empty();
 		}
 
 	}
 
 	// private static <V extends Value> IndeterminateExpression<V> newIndeterminateExpression
 
-	private static final List<Expression<?>> toExpressions(final String subFunctionName, final List<Value> values)
+	static final List<Expression<?>> toExpressions(final String subFunctionName, final List<Value> values)
 	{
 		final List<Expression<?>> inputExpressions = new ArrayList<>();
 		if (subFunctionName != null)
@@ -229,40 +259,52 @@ public abstract class StandardFunctionTest
 		final AttributeValueFactoryRegistry stdDatatypeFactoryRegistry = StandardAttributeValueFactories.getRegistry(true, Optional.empty());
 		for (final Value val : values)
 		{
-			final Expression<?> valExpr;
-			if (val instanceof NullValue)
-			{
-				/*
-				 * Undefined arg -> wrap in a special expression that always return Indeterminate (useful for testing functions that do not need all arguments to return a result, such as logical
-				 * or/and/n-o
-				 */
-				final NullValue nullVal = (NullValue) val;
-				final AttributeValueFactory<?> datatypeFactory = stdDatatypeFactoryRegistry.getExtension(nullVal.getDatatypeId());
-				if (datatypeFactory == null)
-				{
-					throw new UnsupportedOperationException("Unsupported attribute datatype: '" + nullVal.getDatatypeId() + "'");
-				}
-
-				valExpr = nullVal.isBag() ? new IndeterminateExpression<>(datatypeFactory.getDatatype().getBagDatatype()) : new IndeterminateExpression<>(datatypeFactory.getDatatype());
-			} else if (val instanceof AttributeValue)
-			{
-				final AttributeValue primVal = (AttributeValue) val;
-				final AttributeValueFactory<?> datatypeFactory = stdDatatypeFactoryRegistry.getExtension(JAVA_CLASS_TO_DATATYPE_MAP.get(primVal.getClass()).getId());
-				valExpr = createValueExpression(datatypeFactory.getDatatype(), primVal);
-			} else if (val instanceof Bag)
-			{
-				final Bag<?> bagVal = (Bag<?>) val;
-				final AttributeValueFactory<?> datatypeFactory = stdDatatypeFactoryRegistry.getExtension(bagVal.getElementDatatype().getId());
-				valExpr = createValueExpression(datatypeFactory.getDatatype().getBagDatatype(), bagVal);
-			} else
+			inputExpressions.add(toExpression(stdDatatypeFactoryRegistry, val));
+		}
+
+		return inputExpressions;
+	}
+
+	private static Expression<?> toExpression(final AttributeValueFactoryRegistry stdDatatypeFactoryRegistry, final Value val)
+	{
+		final Expression<?> valExpr;
+		if (val instanceof NullValue)
+		{
+			/*
+			 * Undefined arg -> wrap in a special expression that always return Indeterminate (useful for testing functions that do not need all arguments to return a result, such as logical
+			 * or/and/n-o
+			 */
+			final NullValue nullVal = (NullValue) val;
+			final AttributeValueFactory<?> datatypeFactory = stdDatatypeFactoryRegistry.getExtension(nullVal.getDatatypeId());
+			if (datatypeFactory == null)
 			{
-				throw new UnsupportedOperationException("Unsupported type of Value: " + val.getClass());
+				throw new UnsupportedOperationException("Unsupported attribute datatype: '" + nullVal.getDatatypeId() + "'");
 			}
 
-			inputExpressions.add(valExpr);
+			valExpr = nullVal.isBag() ? new IndeterminateExpression<>(datatypeFactory.getDatatype().getBagDatatype()) : new IndeterminateExpression<>(datatypeFactory.getDatatype());
+		} else if (val instanceof AttributeValue)
+		{
+			final AttributeValue primVal = (AttributeValue) val;
+			final AttributeValueFactory<?> datatypeFactory = stdDatatypeFactoryRegistry.getExtension(JAVA_CLASS_TO_DATATYPE_MAP.get(primVal.getClass()).getId());
+			valExpr = createValueExpression(datatypeFactory.getDatatype(), primVal);
+		} else if (val instanceof Bag)
+		{
+			final Bag<?> bagVal = (Bag<?>) val;
+			final AttributeValueFactory<?> datatypeFactory = stdDatatypeFactoryRegistry.getExtension(bagVal.getElementDatatype().getId());
+			valExpr = createValueExpression(datatypeFactory.getDatatype().getBagDatatype(), bagVal);
+		} else if (val instanceof NonConstantValue)
+		{
+			/*
+			 * Same value but not known as constant at function call creation time -> tests the call optimizations that apply only to constant arguments (precompiled or pre-evaluated), with the
+			 * same expected result
+			 */
+			valExpr = new NonConstantExpression<>(toExpression(stdDatatypeFactoryRegistry, ((NonConstantValue) val).getValue()));
+		} else
+		{
+			throw new UnsupportedOperationException("Unsupported type of Value: " + val.getClass());
 		}
 
-		return inputExpressions;
+		return valExpr;
 	}
 
 	/**
@@ -0,0 +1,69 @@
+/**
+ * Copyright 2012-2018 Thales Services SAS.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.io.xacml.json;
+
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Thread-safe interner of immutable objects with a maximum number of interned instances (least recently used ones are evicted first), to share instances that repeat across requests. Instances are
+ * looked up by a key from which they are created, e.g. their lexical form, so that no instance is created when there is already one interned for the key.
+ *
+ * @param <K>
+ *            type of keys from which interned objects are created (must be immutable)
+ * @param <T>
+ *            type of interned objects (must be immutable)
+ */
+final class BoundedInterner<K, T>
+{
+	private final ConcurrentMap<K, T> internedInstances;
+
+	BoundedInterner(final int maxSize)
+	{
+		assert maxSize > 0;
+		this.internedInstances = CacheBuilder.newBuilder().maximumSize(maxSize).<K, T> build().asMap();
+	}
+
+	/**
+	 * Get the interned instance for a given key
+	 * 
+	 * @param key
+	 *            key of the instance to be interned
+	 * @param instanceFactory
+	 *            creates the instance from {@code key}, called only if none is interned for {@code key} yet
+	 * @return interned instance for {@code key}, or the one created by {@code instanceFactory} if none (then interned)
+	 * @throws IllegalArgumentException
+	 *             if {@code instanceFactory} cannot create an instance from {@code key} (nothing interned then)
+	 */
+	T intern(final K key, final Function<? super K, ? extends T> instanceFactory) throws IllegalArgumentException
+	{
+		assert key != null && instanceFactory != null;
+		final T internedInstance = internedInstances.get(key);
+		if (internedInstance != null)
+		{
+			return internedInstance;
+		}
+
+		final T newInstance = instanceFactory.apply(key);
+		assert newInstance != null;
+		final T concurrentlyInternedInstance = internedInstances.putIfAbsent(key, newInstance);
+		return concurrentlyInternedInstance == null ? newInstance : concurrentlyInternedInstance;
+	}
+}
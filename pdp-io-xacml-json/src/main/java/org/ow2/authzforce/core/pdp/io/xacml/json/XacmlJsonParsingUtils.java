@@ -25,6 +25,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
 
 import net.sf.saxon.s9api.XPathCompiler;
 import net.sf.saxon.s9api.XdmNode;
@@ -45,10 +46,12 @@ import org.ow2.authzforce.core.pdp.api.io.XacmlRequestAttributeParser;
 import org.ow2.authzforce.core.pdp.api.value.AttributeValue;
 import org.ow2.authzforce.core.pdp.api.value.AttributeValueFactory;
 import org.ow2.authzforce.core.pdp.api.value.AttributeValueFactoryRegistry;
+import org.ow2.authzforce.core.pdp.api.value.Datatype;
 import org.ow2.authzforce.core.pdp.api.value.StandardDatatypes;
 import org.ow2.authzforce.xacml.identifiers.XacmlStatusCode;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 
 /**
  * XACML/JSON (Profile) processing utilities
@@ -64,12 +67,30 @@ public final class XacmlJsonParsingUtils
 
 		private static final IllegalArgumentException NULL_ATTRIBUTE_ID_ARGUMENT_EXCEPTION = new IllegalArgumentException("Invalid XACML Attribute: AttributeId property undefined (but required).");
 
+		/*
+		 * Attribute names and small string/anyURI values (action IDs, resource types, tenant IDs...) repeat across requests, therefore are interned (shared by all parsers) to reduce garbage and
+		 * make equality checks on them identity-fast
+		 */
+		private static final int MAX_INTERNED_ATTRIBUTE_NAMES = 4096;
+		private static final int MAX_INTERNED_ATTRIBUTE_VALUES_PER_DATATYPE = 65536;
+		private static final int MAX_INTERNED_ATTRIBUTE_VALUE_LENGTH = 64;
+
+		private static final BoundedInterner<AttributeFqn, AttributeFqn> ATTRIBUTE_NAME_INTERNER = new BoundedInterner<>(MAX_INTERNED_ATTRIBUTE_NAMES);
+		/*
+		 * Attribute values interned by lexical form (JSON string), i.e. looked up before being created by the attribute value factory, for the datatypes whose values are their lexical form as is
+		 */
+		private static final Map<String, BoundedInterner<String, AttributeValue>> ATTRIBUTE_VALUE_INTERNERS_BY_DATATYPE_ID = ImmutableMap.of(StandardDatatypes.STRING.getId(),
+				new BoundedInterner<>(MAX_INTERNED_ATTRIBUTE_VALUES_PER_DATATYPE), StandardDatatypes.ANYURI.getId(), new BoundedInterner<>(MAX_INTERNED_ATTRIBUTE_VALUES_PER_DATATYPE));
+
 		private static <AV extends AttributeValue> NamedXacmlAttributeParsingResult<AV> parseNamedAttribute(final AttributeFqn attName, final Iterable<Object> nonEmptyInputXacmlJsonAttValues,
 				final int numOfValues, final AttributeValueFactory<AV> attValFactory, final XPathCompiler xPathCompiler) throws UnsupportedOperationException, IllegalArgumentException
 		{
 			assert attName != null && nonEmptyInputXacmlJsonAttValues != null && numOfValues > 0 && attValFactory != null;
 
 			final Collection<AV> attValues = new ArrayDeque<>(numOfValues);
+			final Datatype<AV> attDatatype = attValFactory.getDatatype();
+			// null if values of this datatype are not interned
+			final BoundedInterner<String, AttributeValue> attValInterner = ATTRIBUTE_VALUE_INTERNERS_BY_DATATYPE_ID.get(attDatatype.getId());
 			/*
 			 * JSON value may be a JSONObject or primitive (Boolean, Number, String)
 			 */
@@ -86,7 +107,17 @@ public final class XacmlJsonParsingUtils
 					throw new UnsupportedOperationException("Unsupported type of item in Value array of attribute '" + attName + "': " + inputXacmlAttValue.getClass().getSimpleName());
 				}
 
-				final AV resultValue = attValFactory.getInstance(Collections.singletonList((Serializable) inputXacmlAttValue), Collections.emptyMap(), xPathCompiler);
+				final AV resultValue;
+				if (attValInterner != null && inputXacmlAttValue instanceof String && ((String) inputXacmlAttValue).length() <= MAX_INTERNED_ATTRIBUTE_VALUE_LENGTH)
+				{
+					resultValue = attDatatype.cast(attValInterner.intern((String) inputXacmlAttValue,
+							lexicalForm -> attValFactory.getInstance(Collections.<Serializable>singletonList(lexicalForm), Collections.emptyMap(), xPathCompiler)));
+				}
+				else
+				{
+					resultValue = attValFactory.getInstance(Collections.singletonList((Serializable) inputXacmlAttValue), Collections.emptyMap(), xPathCompiler);
+				}
+
 				attValues.add(resultValue);
 			}
 
@@ -109,7 +140,7 @@ public final class XacmlJsonParsingUtils
 			}
 
 			final String attrIssuer = inputXacmlAttribute.optString("Issuer", null);
-			final AttributeFqn attrName = AttributeFqns.newInstance(attributeCategoryId, Optional.ofNullable(attrIssuer), attrId);
+			final AttributeFqn attrName = ATTRIBUTE_NAME_INTERNER.intern(AttributeFqns.newInstance(attributeCategoryId, Optional.ofNullable(attrIssuer), attrId), Function.identity());
 			final String jsonDatatypeId = inputXacmlAttribute.optString("DataType", null);
 
 			// The XACML schema specifies there should be at least one AttributeValue
@@ -0,0 +1,106 @@
+/**
+ * Copyright 2012-2018 Thales Services SAS.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.io.xacml.json;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Test of {@link BoundedInterner}
+ */
+public class BoundedInternerTest
+{
+	private static final class CountingFactory implements Function<String, String>
+	{
+		private final AtomicInteger callCount = new AtomicInteger(0);
+
+		@Override
+		public String apply(final String key)
+		{
+			callCount.incrementAndGet();
+			// new instance equal to the key but not the same
+			return new String(key);
+		}
+	}
+
+	@Test
+	public void testInstanceCreatedOnlyOnMiss()
+	{
+		final BoundedInterner<String, String> interner = new BoundedInterner<>(10);
+		final CountingFactory factory = new CountingFactory();
+		final String first = interner.intern("a", factory);
+		Assert.assertEquals(first, "a");
+		Assert.assertEquals(factory.callCount.get(), 1);
+
+		final String second = interner.intern("a", factory);
+		Assert.assertSame(second, first);
+		Assert.assertEquals(factory.callCount.get(), 1, "Instance created again for an interned key");
+
+		interner.intern("b", factory);
+		Assert.assertEquals(factory.callCount.get(), 2);
+	}
+
+	@Test
+	public void testFactoryErrorNotInterned()
+	{
+		final BoundedInterner<String, String> interner = new BoundedInterner<>(10);
+		try
+		{
+			interner.intern("a", key -> {
+				throw new IllegalArgumentException("Invalid key: " + key);
+			});
+			Assert.fail("Factory error not propagated");
+		}
+		catch (final IllegalArgumentException e)
+		{
+			Assert.assertEquals(e.getMessage(), "Invalid key: a");
+		}
+
+		final CountingFactory factory = new CountingFactory();
+		Assert.assertEquals(interner.intern("a", factory), "a");
+		Assert.assertEquals(factory.callCount.get(), 1);
+	}
+
+	@Test
+	public void testMaxSize()
+	{
+		final int maxSize = 10;
+		final int keyCount = 100;
+		final BoundedInterner<String, String> interner = new BoundedInterner<>(maxSize);
+		final CountingFactory factory = new CountingFactory();
+		for (int i = 0; i < keyCount; i++)
+		{
+			interner.intern(Integer.toString(i), factory);
+		}
+
+		Assert.assertEquals(factory.callCount.get(), keyCount);
+
+		/*
+		 * At most maxSize instances still interned, the others are created again
+		 */
+		for (int i = 0; i < keyCount; i++)
+		{
+			interner.intern(Integer.toString(i), factory);
+		}
+
+		Assert.assertTrue(factory.callCount.get() >= 2 * keyCount - maxSize, "More than " + maxSize + " instances interned");
+	}
+}
@@ -0,0 +1,129 @@
+/**
+ * Copyright 2012-2018 Thales Services SAS.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.io.xacml.json.test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Optional;
+
+import org.json.JSONObject;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import org.ow2.authzforce.core.pdp.api.AttributeFqn;
+import org.ow2.authzforce.core.pdp.api.AttributeFqns;
+import org.ow2.authzforce.core.pdp.api.DecisionRequestPreprocessor;
+import org.ow2.authzforce.core.pdp.api.IndeterminateEvaluationException;
+import org.ow2.authzforce.core.pdp.api.XmlUtils;
+import org.ow2.authzforce.core.pdp.api.value.AttributeBag;
+import org.ow2.authzforce.core.pdp.api.value.AttributeValue;
+import org.ow2.authzforce.core.pdp.api.value.StandardAttributeValueFactories;
+import org.ow2.authzforce.core.pdp.io.xacml.json.IndividualXacmlJsonRequest;
+import org.ow2.authzforce.core.pdp.io.xacml.json.SingleDecisionXacmlJsonRequestPreprocessor;
+
+/**
+ * Test of the interning of attribute names and values (string, anyURI) parsed from XACML/JSON requests: the same instances are shared by requests
+ */
+public class XacmlJsonAttributeInterningTest
+{
+	private static final String SUBJECT_CATEGORY = "urn:oasis:names:tc:xacml:1.0:subject-category:access-subject";
+	private static final String RESOURCE_CATEGORY = "urn:oasis:names:tc:xacml:3.0:attribute-category:resource";
+
+	private static final AttributeFqn SUBJECT_ID = AttributeFqns.newInstance(SUBJECT_CATEGORY, Optional.empty(), "urn:oasis:names:tc:xacml:1.0:subject:subject-id");
+	private static final AttributeFqn SUBJECT_DESCRIPTION = AttributeFqns.newInstance(SUBJECT_CATEGORY, Optional.empty(), "urn:ow2:authzforce:core:pdp:test:subject:description");
+	private static final AttributeFqn SUBJECT_AGE = AttributeFqns.newInstance(SUBJECT_CATEGORY, Optional.empty(), "urn:ow2:authzforce:core:pdp:test:subject:age");
+	private static final AttributeFqn RESOURCE_ID = AttributeFqns.newInstance(RESOURCE_CATEGORY, Optional.empty(), "urn:oasis:names:tc:xacml:1.0:resource:resource-id");
+
+	/*
+	 * Longer than the max length of interned values
+	 */
+	private static final String LONG_DESCRIPTION = String.join("", Collections.nCopies(10, "0123456789"));
+
+	private static final String REQUEST = "{\"Request\":{\"Category\":[" //
+			+ "{\"CategoryId\":\"" + SUBJECT_CATEGORY + "\",\"Attribute\":[" //
+			+ "{\"AttributeId\":\"" + SUBJECT_ID.getId() + "\",\"Value\":\"alice\"}," //
+			+ "{\"AttributeId\":\"" + SUBJECT_DESCRIPTION.getId() + "\",\"Value\":\"" + LONG_DESCRIPTION + "\"}," //
+			+ "{\"AttributeId\":\"" + SUBJECT_AGE.getId() + "\",\"Value\":42}]}," //
+			+ "{\"CategoryId\":\"" + RESOURCE_CATEGORY + "\",\"Attribute\":[" //
+			+ "{\"AttributeId\":\"" + RESOURCE_ID.getId() + "\",\"DataType\":\"http://www.w3.org/2001/XMLSchema#anyURI\",\"Value\":\"http://example.com/records/1\"}]}]}}";
+
+	private static final DecisionRequestPreprocessor<JSONObject, IndividualXacmlJsonRequest> REQUEST_PREPROCESSOR = SingleDecisionXacmlJsonRequestPreprocessor.LaxVariantFactory.INSTANCE
+			.getInstance(StandardAttributeValueFactories.getRegistry(false, Optional.empty()), false, false, XmlUtils.SAXON_PROCESSOR, Collections.emptySet());
+
+	private static Map<AttributeFqn, AttributeBag<?>> parse() throws IndeterminateEvaluationException
+	{
+		final List<IndividualXacmlJsonRequest> individualRequests = REQUEST_PREPROCESSOR.process(new JSONObject(REQUEST), null);
+		Assert.assertEquals(individualRequests.size(), 1);
+		return individualRequests.get(0).getNamedAttributes();
+	}
+
+	private static AttributeFqn getKey(final Map<AttributeFqn, AttributeBag<?>> namedAttributes, final AttributeFqn attributeName)
+	{
+		for (final Entry<AttributeFqn, AttributeBag<?>> namedAttribute : namedAttributes.entrySet())
+		{
+			if (namedAttribute.getKey().equals(attributeName))
+			{
+				return namedAttribute.getKey();
+			}
+		}
+
+		throw new AssertionError("Missing attribute: " + attributeName);
+	}
+
+	private static AttributeValue getValue(final Map<AttributeFqn, AttributeBag<?>> namedAttributes, final AttributeFqn attributeName)
+	{
+		final AttributeBag<?> bag = namedAttributes.get(attributeName);
+		Assert.assertNotNull(bag, "Missing attribute: " + attributeName);
+		return bag.getSingleElement();
+	}
+
+	@Test
+	public void testAttributeNamesInterned() throws IndeterminateEvaluationException
+	{
+		final Map<AttributeFqn, AttributeBag<?>> namedAttributes1 = parse();
+		final Map<AttributeFqn, AttributeBag<?>> namedAttributes2 = parse();
+		Assert.assertSame(getKey(namedAttributes1, SUBJECT_ID), getKey(namedAttributes2, SUBJECT_ID));
+		Assert.assertSame(getKey(namedAttributes1, RESOURCE_ID), getKey(namedAttributes2, RESOURCE_ID));
+	}
+
+	@Test
+	public void testStringAndAnyUriValuesInterned() throws IndeterminateEvaluationException
+	{
+		final Map<AttributeFqn, AttributeBag<?>> namedAttributes1 = parse();
+		final Map<AttributeFqn, AttributeBag<?>> namedAttributes2 = parse();
+		Assert.assertSame(getValue(namedAttributes1, SUBJECT_ID), getValue(namedAttributes2, SUBJECT_ID));
+		Assert.assertSame(getValue(namedAttributes1, RESOURCE_ID), getValue(namedAttributes2, RESOURCE_ID));
+	}
+
+	@Test
+	public void testLongAndNonStringValuesNotInterned() throws IndeterminateEvaluationException
+	{
+		final Map<AttributeFqn, AttributeBag<?>> namedAttributes1 = parse();
+		final Map<AttributeFqn, AttributeBag<?>> namedAttributes2 = parse();
+		final AttributeValue description1 = getValue(namedAttributes1, SUBJECT_DESCRIPTION);
+		final AttributeValue description2 = getValue(namedAttributes2, SUBJECT_DESCRIPTION);
+		Assert.assertEquals(description2, description1);
+		Assert.assertNotSame(description2, description1);
+
+		/*
+		 * Integer value given as JSON number: parsed as usual
+		 */
+		Assert.assertEquals(getValue(namedAttributes1, SUBJECT_AGE), getValue(namedAttributes2, SUBJECT_AGE));
+	}
+}
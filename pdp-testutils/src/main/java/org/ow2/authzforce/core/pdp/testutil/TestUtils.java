@@ -309,7 +309,7 @@ public class TestUtils
 	}
 
 	/**
-	 * Creates PDP engine configuration
+	 * Creates PDP configuration (JAXB model), e.g. to be customized before creating the {@link PdpEngineConfiguration} from it
 	 * 
 	 * @param rootPolicyLocation
 	 *            root XACML policy location (with Spring-supported URL prefixes: 'classpath:', etc.)
@@ -326,18 +326,16 @@ public class TestUtils
 	 *            Request preprocessor ID
 	 * @param resultPostprocId
 	 *            Result postprocessor ID
-	 * @return PDP instance
-	 * @throws IllegalArgumentException
-	 *             invalid XACML policy located at {@code rootPolicyLocation} or {@code refPoliciesDirectoryLocation}
+	 * @return PDP configuration
 	 * @throws IOException
-	 *             if error closing some resources used by the PDP after {@link IllegalArgumentException} occurred
+	 *             error listing the files in {@code refPoliciesDirectoryLocation}
 	 * @throws URISyntaxException
 	 *             invalid {@code refPoliciesDirectoryLocation}
 	 * @throws JAXBException
 	 *             cannot create Attribute Provider configuration (XML) unmarshaller
 	 */
-	public static PdpEngineConfiguration newPdpEngineConfiguration(final String rootPolicyLocation, final String refPoliciesDirectoryLocation, final boolean enableXPath,
-			final String attributeProviderConfLocation, final String requestPreprocId, final String resultPostprocId) throws IllegalArgumentException, IOException, URISyntaxException, JAXBException
+	public static Pdp newPdpConfiguration(final String rootPolicyLocation, final String refPoliciesDirectoryLocation, final boolean enableXPath,
+			final String attributeProviderConfLocation, final String requestPreprocId, final String resultPostprocId) throws IOException, URISyntaxException, JAXBException
 	{
 		final Pdp jaxbPDP = new Pdp();
 		jaxbPDP.setEnableXPath(enableXPath);
@@ -418,6 +416,41 @@ public class TestUtils
 			jaxbPDP.getIoProcChains().add(ioProcChain);
 		}
 
+		return jaxbPDP;
+	}
+
+	/**
+	 * Creates PDP engine configuration
+	 * 
+	 * @param rootPolicyLocation
+	 *            root XACML policy location (with Spring-supported URL prefixes: 'classpath:', etc.)
+	 * @param refPoliciesDirectoryLocation
+	 *            (optional) directory containing files of XACML Policy(Set) that can be referred to from root policy at {@code policyLocation} via Policy(Set)IdReference; required only if there is
+	 *            any Policy(Set)IdReference in {@code rootPolicyLocation} to resolve. If file not found, support for Policy(Set)IdReference is disabled, i.e. any presence of such reference is
+	 *            considered invalid.
+	 * @param enableXPath
+	 *            Enable support for AttributeSelectors and xpathExpression datatype. Reminder: AttributeSelector and xpathExpression datatype support are marked as optional in XACML 3.0 core
+	 *            specification, so set this to false if you are testing mandatory features only.
+	 * @param attributeProviderConfLocation
+	 *            (optional) {@link TestAttributeProvider} XML configuration location
+	 * @param requestPreprocId
+	 *            Request preprocessor ID
+	 * @param resultPostprocId
+	 *            Result postprocessor ID
+	 * @return PDP instance
+	 * @throws IllegalArgumentException
+	 *             invalid XACML policy located at {@code rootPolicyLocation} or {@code refPoliciesDirectoryLocation}
+	 * @throws IOException
+	 *             if error closing some resources used by the PDP after {@link IllegalArgumentException} occurred
+	 * @throws URISyntaxException
+	 *             invalid {@code refPoliciesDirectoryLocation}
+	 * @throws JAXBException
+	 *             cannot create Attribute Provider configuration (XML) unmarshaller
+	 */
+	public static PdpEngineConfiguration newPdpEngineConfiguration(final String rootPolicyLocation, final String refPoliciesDirectoryLocation, final boolean enableXPath,
+			final String attributeProviderConfLocation, final String requestPreprocId, final String resultPostprocId) throws IllegalArgumentException, IOException, URISyntaxException, JAXBException
+	{
+		final Pdp jaxbPDP = newPdpConfiguration(rootPolicyLocation, refPoliciesDirectoryLocation, enableXPath, attributeProviderConfLocation, requestPreprocId, resultPostprocId);
 		return new PdpEngineConfiguration(jaxbPDP, new DefaultEnvironmentProperties());
 	}
 
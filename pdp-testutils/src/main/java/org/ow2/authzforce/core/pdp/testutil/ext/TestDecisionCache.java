@@ -0,0 +1,115 @@
+/**
+ * Copyright 2012-2018 Thales Services SAS.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.testutil.ext;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.ow2.authzforce.core.pdp.api.DecisionCache;
+import org.ow2.authzforce.core.pdp.api.DecisionRequest;
+import org.ow2.authzforce.core.pdp.api.DecisionResult;
+import org.ow2.authzforce.core.pdp.api.EnvironmentProperties;
+import org.ow2.authzforce.core.pdp.api.EvaluationContext;
+import org.ow2.authzforce.core.pdp.api.value.AttributeValueFactoryRegistry;
+
+/**
+ * Unbounded in-memory decision cache, for test purposes only, e.g. to test the decision cache hit/miss metrics. Results are cached forever (until {@link #close()}) with the Individual Decision
+ * Request as key.
+ *
+ */
+public final class TestDecisionCache implements DecisionCache
+{
+	private final ConcurrentMap<DecisionRequest, DecisionResult> resultsByRequest = new ConcurrentHashMap<>();
+
+	private TestDecisionCache()
+	{
+		// private constructor, use the Factory
+	}
+
+	@Override
+	public boolean isEvaluationContextRequired()
+	{
+		return false;
+	}
+
+	@Override
+	public DecisionResult get(final DecisionRequest request, final EvaluationContext evalContext)
+	{
+		return resultsByRequest.get(request);
+	}
+
+	@Override
+	public <REQ extends DecisionRequest> Map<REQ, DecisionResult> getAll(final Collection<REQ> requests)
+	{
+		final Map<REQ, DecisionResult> cachedResultsByRequest = new HashMap<>();
+		for (final REQ request : requests)
+		{
+			final DecisionResult cachedResult = resultsByRequest.get(request);
+			if (cachedResult != null)
+			{
+				cachedResultsByRequest.put(request, cachedResult);
+			}
+		}
+
+		return cachedResultsByRequest;
+	}
+
+	@Override
+	public void put(final DecisionRequest request, final DecisionResult result, final EvaluationContext evalContext)
+	{
+		resultsByRequest.put(request, result);
+	}
+
+	@Override
+	public <REQ extends DecisionRequest> void putAll(final Map<REQ, DecisionResult> newResultsByRequest)
+	{
+		resultsByRequest.putAll(newResultsByRequest);
+	}
+
+	@Override
+	public void close()
+	{
+		resultsByRequest.clear();
+	}
+
+	/**
+	 * {@link TestDecisionCache} factory
+	 *
+	 */
+	public static final class Factory extends DecisionCache.Factory<org.ow2.authzforce.core.pdp.testutil.ext.xmlns.TestDecisionCache>
+	{
+
+		@Override
+		public Class<org.ow2.authzforce.core.pdp.testutil.ext.xmlns.TestDecisionCache> getJaxbClass()
+		{
+			return org.ow2.authzforce.core.pdp.testutil.ext.xmlns.TestDecisionCache.class;
+		}
+
+		@Override
+		public DecisionCache getInstance(final org.ow2.authzforce.core.pdp.testutil.ext.xmlns.TestDecisionCache conf, final AttributeValueFactoryRegistry attributeValueFactories,
+		        final EnvironmentProperties environmentProperties)
+		{
+			return new TestDecisionCache();
+		}
+
+	}
+
+}
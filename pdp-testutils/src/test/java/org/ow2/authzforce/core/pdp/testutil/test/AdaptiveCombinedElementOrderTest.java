@@ -0,0 +1,247 @@
+/**
+ * Copyright 2012-2018 Thales Services SAS.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.testutil.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.xml.bind.JAXBException;
+
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.DecisionType;
+
+import org.junit.After;
+import org.junit.Test;
+import org.ow2.authzforce.core.pdp.api.AttributeFqns;
+import org.ow2.authzforce.core.pdp.api.DecisionRequest;
+import org.ow2.authzforce.core.pdp.api.DecisionRequestBuilder;
+import org.ow2.authzforce.core.pdp.api.DecisionResult;
+import org.ow2.authzforce.core.pdp.api.policy.PrimaryPolicyMetadata;
+import org.ow2.authzforce.core.pdp.api.value.Bags;
+import org.ow2.authzforce.core.pdp.api.value.StandardDatatypes;
+import org.ow2.authzforce.core.pdp.api.value.StringValue;
+import org.ow2.authzforce.core.pdp.impl.BasePdpEngine;
+import org.ow2.authzforce.core.pdp.impl.DefaultEnvironmentProperties;
+import org.ow2.authzforce.core.pdp.impl.PdpEngineConfiguration;
+import org.ow2.authzforce.core.pdp.impl.PolicyEvaluationListener;
+import org.ow2.authzforce.core.pdp.testutil.PdpTest;
+import org.ow2.authzforce.core.pdp.testutil.TestUtils;
+import org.ow2.authzforce.core.xmlns.pdp.Pdp;
+
+/**
+ * Test of the adaptive evaluation order of the elements combined by deny-unless-permit/permit-unless-deny, using the events notified to an engine-level {@link PolicyEvaluationListener} to find out
+ * when and how the combined Rules are reordered, and how many of them are evaluated
+ *
+ */
+public class AdaptiveCombinedElementOrderTest
+{
+	private static final String TEST_RESOURCES_DIRECTORY_LOCATION = "classpath:engine/AdaptiveCombinedElementOrder";
+
+	/*
+	 * Reordering is triggered randomly, once every 1024 terminating decisions on average, so the probability that no reordering occurs in that many requests is negligible (about e^-98)
+	 */
+	private static final int MAX_REQUEST_COUNT_BEFORE_REORDER = 100000;
+
+	/*
+	 * Enough requests to trigger reordering many times if it were enabled
+	 */
+	private static final int REQUEST_COUNT_WITHOUT_REORDER = 20000;
+
+	private static final List<String> ACTIONS = Arrays.asList("read", "write", "delete", "execute");
+
+	/*
+	 * Expected decisions for the actions above, regardless of the evaluation order: r1, r2, r3 permit read, write, delete respectively, and deny-unless-permit returns Deny otherwise
+	 */
+	private static final List<DecisionType> EXPECTED_DECISIONS = Arrays.asList(DecisionType.PERMIT, DecisionType.PERMIT, DecisionType.PERMIT, DecisionType.DENY);
+
+	/**
+	 * Counts Rule evaluations by PolicyId of the enclosing Policy, and records new evaluation orders of combined elements
+	 */
+	private static final class CombinedElementOrderRecorder implements PolicyEvaluationListener
+	{
+		private final Map<String, AtomicInteger> ruleCountsByPolicyId = new ConcurrentHashMap<>();
+		private final List<List<String>> newOrders = new CopyOnWriteArrayList<>();
+		private final List<String> reorderingPolicyIds = new CopyOnWriteArrayList<>();
+
+		@Override
+		public void policyEvaluated(final PrimaryPolicyMetadata policy, final TargetMatchResult targetResult, final DecisionResult result, final long elapsedNanos)
+		{
+			// not counted
+		}
+
+		@Override
+		public void ruleEvaluated(final PrimaryPolicyMetadata enclosingPolicy, final String ruleId, final TargetMatchResult targetResult, final ConditionResult conditionResult,
+				final DecisionResult result, final long elapsedNanos)
+		{
+			ruleCountsByPolicyId.computeIfAbsent(enclosingPolicy.getId(), k -> new AtomicInteger(0)).incrementAndGet();
+		}
+
+		@Override
+		public void combinedElementsReordered(final PrimaryPolicyMetadata enclosingPolicy, final List<String> combinedElementsInEvaluationOrder)
+		{
+			reorderingPolicyIds.add(enclosingPolicy.getId());
+			newOrders.add(combinedElementsInEvaluationOrder);
+		}
+
+		private int getRuleCount(final String policyId)
+		{
+			final AtomicInteger count = ruleCountsByPolicyId.get(policyId);
+			return count == null ? 0 : count.get();
+		}
+	}
+
+	private CombinedElementOrderRecorder recorder;
+	private BasePdpEngine pdp;
+
+	private void setUp(final boolean enableAdaptiveCombinedElementOrder) throws IllegalArgumentException, IOException, URISyntaxException, JAXBException
+	{
+		final Pdp pdpJaxbConf = TestUtils.newPdpConfiguration(TEST_RESOURCES_DIRECTORY_LOCATION + "/" + PdpTest.POLICY_FILENAME, null, false, null, null, null);
+		pdpJaxbConf.setAdaptiveCombinedElementOrder(enableAdaptiveCombinedElementOrder);
+		recorder = new CombinedElementOrderRecorder();
+		pdp = new BasePdpEngine(new PdpEngineConfiguration(pdpJaxbConf, new DefaultEnvironmentProperties()),
+				new BasePdpEngine.Options.Builder().setPolicyEvaluationListener(recorder).build());
+	}
+
+	@After
+	public void tearDown() throws IOException
+	{
+		if (pdp != null)
+		{
+			pdp.close();
+		}
+	}
+
+	private DecisionRequest newRequest(final String resourceId, final String actionId)
+	{
+		final DecisionRequestBuilder<?> requestBuilder = pdp.newRequestBuilder(2, 2);
+		requestBuilder.putNamedAttributeIfAbsent(
+				AttributeFqns.newInstance("urn:oasis:names:tc:xacml:3.0:attribute-category:resource", Optional.empty(), "urn:oasis:names:tc:xacml:1.0:resource:resource-id"),
+				Bags.singletonAttributeBag(StandardDatatypes.STRING, new StringValue(resourceId)));
+		requestBuilder.putNamedAttributeIfAbsent(
+				AttributeFqns.newInstance("urn:oasis:names:tc:xacml:3.0:attribute-category:action", Optional.empty(), "urn:oasis:names:tc:xacml:1.0:action:action-id"),
+				Bags.singletonAttributeBag(StandardDatatypes.STRING, new StringValue(actionId)));
+		return requestBuilder.build(false);
+	}
+
+	private void assertDecisions(final String policyId)
+	{
+		for (int i = 0; i < ACTIONS.size(); i++)
+		{
+			assertEquals("Wrong decision for action '" + ACTIONS.get(i) + "' on '" + policyId + "'", EXPECTED_DECISIONS.get(i), pdp.evaluate(newRequest(policyId, ACTIONS.get(i))).getDecision());
+		}
+	}
+
+	/*
+	 * Evaluates the same request (with decision trace iff traced = true) until the combined Rules are reordered
+	 */
+	private void evaluateUntilReordered(final String policyId, final String actionId, final boolean traced)
+	{
+		for (int i = 0; i < MAX_REQUEST_COUNT_BEFORE_REORDER && recorder.newOrders.isEmpty(); i++)
+		{
+			final DecisionResult result = traced ? pdp.evaluate(newRequest(policyId, actionId), request -> true).getKey() : pdp.evaluate(newRequest(policyId, actionId));
+			assertEquals(DecisionType.PERMIT, result.getDecision());
+		}
+
+		assertFalse("Combined Rules not reordered after " + MAX_REQUEST_COUNT_BEFORE_REORDER + " requests", recorder.newOrders.isEmpty());
+	}
+
+	/*
+	 * Asserts the number of Rules evaluated for a request
+	 */
+	private void assertRuleCount(final String policyId, final String actionId, final int expectedRuleCount)
+	{
+		final int countBefore = recorder.getRuleCount(policyId);
+		pdp.evaluate(newRequest(policyId, actionId));
+		assertEquals("Wrong number of Rules evaluated for action '" + actionId + "' on '" + policyId + "'", expectedRuleCount, recorder.getRuleCount(policyId) - countBefore);
+	}
+
+	@Test
+	public void testDecisionUnchangedAfterReordering() throws IllegalArgumentException, IOException, URISyntaxException, JAXBException
+	{
+		setUp(true);
+		assertDecisions("adaptive");
+		/*
+		 * Declaration order: r3 evaluated last
+		 */
+		assertRuleCount("adaptive", "delete", 3);
+
+		evaluateUntilReordered("adaptive", "delete", false);
+		assertEquals("Rule['r3']", recorder.newOrders.get(0).get(0));
+		/*
+		 * New order reported for the enclosing Policy
+		 */
+		assertEquals("adaptive", recorder.reorderingPolicyIds.get(0));
+		/*
+		 * r3 evaluated first
+		 */
+		assertRuleCount("adaptive", "delete", 1);
+		assertDecisions("adaptive");
+	}
+
+	@Test
+	public void testReorderingNotifiedToEngineListenerWhenTraced() throws IllegalArgumentException, IOException, URISyntaxException, JAXBException
+	{
+		/*
+		 * The decision trace recorder replaces the engine-level listener in the evaluation context of traced requests, but new orders must still be notified to the latter
+		 */
+		setUp(true);
+		evaluateUntilReordered("adaptive", "delete", true);
+		assertEquals("Rule['r3']", recorder.newOrders.get(0).get(0));
+		assertDecisions("adaptive");
+	}
+
+	@Test
+	public void testDeclarationOrderKeptWithPepActions() throws IllegalArgumentException, IOException, URISyntaxException, JAXBException
+	{
+		setUp(true);
+		for (int i = 0; i < REQUEST_COUNT_WITHOUT_REORDER; i++)
+		{
+			final DecisionResult result = pdp.evaluate(newRequest("pep", "delete"));
+			assertEquals(DecisionType.PERMIT, result.getDecision());
+			assertEquals(1, result.getPepActions().size());
+		}
+
+		assertTrue("Combined Rules with PEP actions reordered", recorder.newOrders.isEmpty());
+		assertRuleCount("pep", "delete", 3);
+		assertDecisions("pep");
+	}
+
+	@Test
+	public void testAdaptiveOrderDisabled() throws IllegalArgumentException, IOException, URISyntaxException, JAXBException
+	{
+		setUp(false);
+		for (int i = 0; i < REQUEST_COUNT_WITHOUT_REORDER; i++)
+		{
+			assertEquals(DecisionType.PERMIT, pdp.evaluate(newRequest("adaptive", "delete")).getDecision());
+		}
+
+		assertTrue("Combined Rules reordered although adaptive order is disabled", recorder.newOrders.isEmpty());
+		assertRuleCount("adaptive", "delete", 3);
+		assertDecisions("adaptive");
+	}
+}
@@ -0,0 +1,209 @@
+/**
+ * Copyright 2012-2018 Thales Services SAS.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.testutil.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Optional;
+
+import javax.xml.bind.JAXBException;
+
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.DecisionType;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.ow2.authzforce.core.pdp.api.AttributeFqns;
+import org.ow2.authzforce.core.pdp.api.DecisionRequest;
+import org.ow2.authzforce.core.pdp.api.DecisionRequestBuilder;
+import org.ow2.authzforce.core.pdp.api.DecisionResult;
+import org.ow2.authzforce.core.pdp.api.policy.PrimaryPolicyMetadata;
+import org.ow2.authzforce.core.pdp.api.value.Bags;
+import org.ow2.authzforce.core.pdp.api.value.StandardDatatypes;
+import org.ow2.authzforce.core.pdp.api.value.StringValue;
+import org.ow2.authzforce.core.pdp.impl.BasePdpEngine;
+import org.ow2.authzforce.core.pdp.impl.DecisionTrace;
+import org.ow2.authzforce.core.pdp.impl.DecisionTrace.ElementEvaluation;
+import org.ow2.authzforce.core.pdp.impl.PdpEngineConfiguration;
+import org.ow2.authzforce.core.pdp.impl.PolicyEvaluationListener.TargetMatchResult;
+import org.ow2.authzforce.core.pdp.testutil.PdpTest;
+import org.ow2.authzforce.core.pdp.testutil.TestUtils;
+
+/**
+ * Test of {@link BasePdpEngine#evaluate(DecisionRequest, java.util.function.Predicate)}, i.e. decision trace capture, in particular that the trace is complete despite the optimizations skipping
+ * some elements (PolicySet flattening, Rule result cache, request-scoped Policy result cache)
+ *
+ */
+public class DecisionTraceTest
+{
+	private static final String TEST_RESOURCES_DIRECTORY_LOCATION = "classpath:engine/DecisionTrace";
+
+	private static BasePdpEngine pdp = null;
+
+	@BeforeClass
+	public static void setUp() throws IllegalArgumentException, IOException, URISyntaxException, JAXBException
+	{
+		final String testResourceLocationPrefix = TEST_RESOURCES_DIRECTORY_LOCATION + "/";
+		final PdpEngineConfiguration pdpEngineConf = TestUtils.newPdpEngineConfiguration(testResourceLocationPrefix + PdpTest.POLICY_FILENAME,
+				testResourceLocationPrefix + PdpTest.REF_POLICIES_DIR_NAME, false, null, null, null);
+		pdp = new BasePdpEngine(pdpEngineConf);
+	}
+
+	@AfterClass
+	public static void tearDown() throws IOException
+	{
+		if (pdp != null)
+		{
+			pdp.close();
+		}
+	}
+
+	private static DecisionRequest newRequest(final String actionId)
+	{
+		final DecisionRequestBuilder<?> requestBuilder = pdp.newRequestBuilder(1, 1);
+		requestBuilder.putNamedAttributeIfAbsent(
+				AttributeFqns.newInstance("urn:oasis:names:tc:xacml:3.0:attribute-category:action", Optional.empty(), "urn:oasis:names:tc:xacml:1.0:action:action-id"),
+				Bags.singletonAttributeBag(StandardDatatypes.STRING, new StringValue(actionId)));
+		return requestBuilder.build(false);
+	}
+
+	private static List<ElementEvaluation> getEvaluations(final DecisionTrace trace, final String element)
+	{
+		final List<ElementEvaluation> evaluations = new ArrayList<>();
+		for (final ElementEvaluation evaluation : trace.getElementEvaluations())
+		{
+			if (evaluation.getElement().equals(element))
+			{
+				evaluations.add(evaluation);
+			}
+		}
+
+		return evaluations;
+	}
+
+	private static List<ElementEvaluation> getRuleEvaluations(final DecisionTrace trace, final String policyId, final String ruleId)
+	{
+		final List<ElementEvaluation> evaluations = new ArrayList<>();
+		for (final ElementEvaluation evaluation : getEvaluations(trace, "Rule['" + ruleId + "']"))
+		{
+			assertTrue("Rule evaluation without enclosing Policy: " + evaluation, evaluation.getEnclosingPolicy().isPresent());
+			final PrimaryPolicyMetadata enclosingPolicy = evaluation.getEnclosingPolicy().get();
+			if (enclosingPolicy.getId().equals(policyId) && enclosingPolicy.getVersion().toString().equals("1.0"))
+			{
+				evaluations.add(evaluation);
+			}
+		}
+
+		return evaluations;
+	}
+
+	@Test
+	public void testRequestNotTraced()
+	{
+		final Entry<DecisionResult, Optional<DecisionTrace>> result = pdp.evaluate(newRequest("read"), request -> false);
+		assertEquals(DecisionType.PERMIT, result.getKey().getDecision());
+		assertFalse("Trace of request rejected by the trace filter", result.getValue().isPresent());
+	}
+
+	@Test
+	public void testNestedPolicySetTraced()
+	{
+		final Entry<DecisionResult, Optional<DecisionTrace>> result = pdp.evaluate(newRequest("read"), request -> true);
+		assertEquals(DecisionType.PERMIT, result.getKey().getDecision());
+		assertTrue("No trace of request accepted by the trace filter", result.getValue().isPresent());
+		final DecisionTrace trace = result.getValue().get();
+		/*
+		 * PolicySet 'nested' would be flattened into 'root' if the request were not traced
+		 */
+		final List<ElementEvaluation> nestedEvaluations = getEvaluations(trace, "PolicySet['nested' v1.0]");
+		assertEquals("Nested PolicySet missing from the trace: " + trace, 1, nestedEvaluations.size());
+		assertEquals(TargetMatchResult.MATCH, nestedEvaluations.get(0).getTargetResult());
+		assertEquals(DecisionType.PERMIT, nestedEvaluations.get(0).getDecision());
+		assertEquals(1, getEvaluations(trace, "PolicySet['root' v1.0]").size());
+	}
+
+	@Test
+	public void testReusedPolicyResultTraced()
+	{
+		final Entry<DecisionResult, Optional<DecisionTrace>> result = pdp.evaluate(newRequest("read"), request -> true);
+		final DecisionTrace trace = result.getValue().get();
+		/*
+		 * Policy 'shared' is referenced twice: evaluated the first time, result reused the second time
+		 */
+		final List<ElementEvaluation> sharedEvaluations = getEvaluations(trace, "Policy['shared' v1.0]");
+		assertEquals("Policy referenced twice not traced twice: " + trace, 2, sharedEvaluations.size());
+		assertFalse(sharedEvaluations.get(0).isResultReused());
+		assertEquals(TargetMatchResult.MATCH, sharedEvaluations.get(0).getTargetResult());
+		assertTrue(sharedEvaluations.get(1).isResultReused());
+		assertEquals(TargetMatchResult.NOT_EVALUATED, sharedEvaluations.get(1).getTargetResult());
+		assertEquals(DecisionType.PERMIT, sharedEvaluations.get(1).getDecision());
+	}
+
+	@Test
+	public void testCachedRuleResultTraced()
+	{
+		/*
+		 * Fill Policy P1's Rule result cache with an untraced request
+		 */
+		assertEquals(DecisionType.DENY, pdp.evaluate(newRequest("delete")).getDecision());
+		final Entry<DecisionResult, Optional<DecisionTrace>> result = pdp.evaluate(newRequest("delete"), request -> true);
+		assertEquals(DecisionType.DENY, result.getKey().getDecision());
+		final DecisionTrace trace = result.getValue().get();
+		/*
+		 * The Rule result cache is bypassed for traced requests, so P1's Rule r1 must be in the trace
+		 */
+		final List<ElementEvaluation> ruleEvaluations = getRuleEvaluations(trace, "P1", "r1");
+		assertEquals("Rule skipped by the Rule result cache missing from the trace: " + trace, 1, ruleEvaluations.size());
+		assertEquals(DecisionType.DENY, ruleEvaluations.get(0).getDecision());
+		/*
+		 * Rule r1 of Policy 'shared' (same RuleId) must not be mistaken for P1's
+		 */
+		for (final ElementEvaluation sharedRuleEvaluation : getRuleEvaluations(trace, "shared", "r1"))
+		{
+			assertEquals(DecisionType.NOT_APPLICABLE, sharedRuleEvaluation.getDecision());
+		}
+	}
+
+	@Test
+	public void testRulesWithSameIdTracedWithEnclosingPolicy()
+	{
+		final Entry<DecisionResult, Optional<DecisionTrace>> result = pdp.evaluate(newRequest("read"), request -> true);
+		assertEquals(DecisionType.PERMIT, result.getKey().getDecision());
+		final DecisionTrace trace = result.getValue().get();
+		/*
+		 * Policies P1 and 'shared' both have a Rule r1: P1's does not match 'read', the other one does
+		 */
+		final List<ElementEvaluation> p1RuleEvaluations = getRuleEvaluations(trace, "P1", "r1");
+		assertEquals("Rule r1 of Policy P1 missing from the trace: " + trace, 1, p1RuleEvaluations.size());
+		assertEquals(TargetMatchResult.NO_MATCH, p1RuleEvaluations.get(0).getTargetResult());
+		assertEquals(DecisionType.NOT_APPLICABLE, p1RuleEvaluations.get(0).getDecision());
+
+		final List<ElementEvaluation> sharedRuleEvaluations = getRuleEvaluations(trace, "shared", "r1");
+		assertEquals("Rule r1 of Policy 'shared' missing from the trace: " + trace, 1, sharedRuleEvaluations.size());
+		assertEquals(TargetMatchResult.MATCH, sharedRuleEvaluations.get(0).getTargetResult());
+		assertEquals(DecisionType.PERMIT, sharedRuleEvaluations.get(0).getDecision());
+		assertTrue("Enclosing Policy missing from: " + sharedRuleEvaluations.get(0), sharedRuleEvaluations.get(0).toString().startsWith("Policy['shared' v1.0]/Rule['r1']"));
+	}
+}
@@ -35,8 +35,10 @@ import org.slf4j.LoggerFactory;
  * 
  */
 @RunWith(Suite.class)
-@SuiteClasses(value = { ConformanceV3FromV2MandatoryTest.class, ConformanceV3FromV2OptionalTest.class, ConformanceV3OthersTest.class, PdpGetStaticApplicablePoliciesTest.class, CustomPdpTest.class,
-		MongoDBRefPolicyProviderTest.class, EmbeddedPdpBasedAuthzInterceptorTest.class, NonRegressionTest.class })
+@SuiteClasses(value = { ConformanceV3FromV2MandatoryTest.class, ConformanceV3FromV2OptionalTest.class, ConformanceV3OthersTest.class, PdpGetStaticApplicablePoliciesTest.class, PdpGetRequiredAttributesTest.class,
+		CustomPdpTest.class, MongoDBRefPolicyProviderTest.class, EmbeddedPdpBasedAuthzInterceptorTest.class, NonRegressionTest.class, PolicyEvaluationMetricsListenerTest.class,
+		DecisionTraceTest.class, PartialEvaluationTest.class, RuleResultCacheTest.class, OnlyOneApplicableIndexTest.class, AdaptiveCombinedElementOrderTest.class, PdpEngineMetricsTest.class,
+		XPathContentCategoriesTest.class, PolicySetFlatteningTest.class })
 public class MainTest
 {
 	/**
@@ -0,0 +1,132 @@
+/**
+ * Copyright 2012-2018 Thales Services SAS.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.testutil.test;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import javax.xml.bind.JAXBException;
+
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.DecisionType;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.ow2.authzforce.core.pdp.api.AttributeFqns;
+import org.ow2.authzforce.core.pdp.api.DecisionRequest;
+import org.ow2.authzforce.core.pdp.api.DecisionRequestBuilder;
+import org.ow2.authzforce.core.pdp.api.value.Bags;
+import org.ow2.authzforce.core.pdp.api.value.StandardDatatypes;
+import org.ow2.authzforce.core.pdp.api.value.StringValue;
+import org.ow2.authzforce.core.pdp.impl.BasePdpEngine;
+import org.ow2.authzforce.core.pdp.impl.PdpEngineConfiguration;
+import org.ow2.authzforce.core.pdp.testutil.PdpTest;
+import org.ow2.authzforce.core.pdp.testutil.TestUtils;
+
+/**
+ * Test of the only-one-applicable policy-combining algorithm with child Policies indexed by the value of their equality-match Target (subject-id), mixed with Policies that are not indexed
+ *
+ */
+public class OnlyOneApplicableIndexTest
+{
+	private static final String TEST_RESOURCES_DIRECTORY_LOCATION = "classpath:engine/OnlyOneApplicableIndex";
+
+	private static BasePdpEngine pdp;
+
+	@BeforeClass
+	public static void setUp() throws IllegalArgumentException, IOException, URISyntaxException, JAXBException
+	{
+		final PdpEngineConfiguration pdpEngineConf = TestUtils.newPdpEngineConfiguration(TEST_RESOURCES_DIRECTORY_LOCATION + "/" + PdpTest.POLICY_FILENAME, null, false, null, null, null);
+		pdp = new BasePdpEngine(pdpEngineConf);
+	}
+
+	@AfterClass
+	public static void tearDown() throws IOException
+	{
+		pdp.close();
+	}
+
+	private static DecisionType evaluate(final String role, final String... subjectIds)
+	{
+		final DecisionRequestBuilder<?> requestBuilder = pdp.newRequestBuilder(1, 2);
+		requestBuilder.putNamedAttributeIfAbsent(
+				AttributeFqns.newInstance("urn:oasis:names:tc:xacml:1.0:subject-category:access-subject", Optional.empty(), "urn:oasis:names:tc:xacml:1.0:subject:subject-id"),
+				Bags.newAttributeBag(StandardDatatypes.STRING, Arrays.stream(subjectIds).map(StringValue::new).collect(Collectors.toList())));
+		if (role != null)
+		{
+			requestBuilder.putNamedAttributeIfAbsent(
+					AttributeFqns.newInstance("urn:oasis:names:tc:xacml:1.0:subject-category:access-subject", Optional.empty(), "urn:oasis:names:tc:xacml:2.0:subject:role"),
+					Bags.singletonAttributeBag(StandardDatatypes.STRING, new StringValue(role)));
+		}
+
+		final DecisionRequest request = requestBuilder.build(false);
+		return pdp.evaluate(request).getDecision();
+	}
+
+	@Test
+	public void testOneIndexedPolicyApplicable()
+	{
+		assertEquals(DecisionType.PERMIT, evaluate(null, "alice"));
+		assertEquals(DecisionType.DENY, evaluate(null, "bob"));
+		assertEquals(DecisionType.NOT_APPLICABLE, evaluate(null, "eve"));
+		assertEquals(DecisionType.PERMIT, evaluate(null, "eve", "carol"));
+	}
+
+	@Test
+	public void testBagMatchingTwoIndexedPolicies()
+	{
+		assertEquals(DecisionType.INDETERMINATE, evaluate(null, "alice", "bob"));
+		assertEquals(DecisionType.INDETERMINATE, evaluate(null, "bob", "eve", "carol"));
+	}
+
+	@Test
+	public void testDuplicateValueInBag()
+	{
+		/*
+		 * Same policy found twice: only one applicable policy
+		 */
+		assertEquals(DecisionType.PERMIT, evaluate(null, "alice", "alice"));
+		assertEquals(DecisionType.DENY, evaluate(null, "bob", "eve", "bob"));
+	}
+
+	@Test
+	public void testIndexedAndNonIndexedPolicies()
+	{
+		/*
+		 * Only a non-indexed policy applicable
+		 */
+		assertEquals(DecisionType.PERMIT, evaluate("admin", "eve"));
+		assertEquals(DecisionType.DENY, evaluate(null, "dave"));
+
+		/*
+		 * Indexed and non-indexed policies applicable
+		 */
+		assertEquals(DecisionType.INDETERMINATE, evaluate("admin", "alice"));
+		assertEquals(DecisionType.INDETERMINATE, evaluate(null, "bob", "dave"));
+
+		/*
+		 * Two non-indexed policies applicable
+		 */
+		assertEquals(DecisionType.INDETERMINATE, evaluate("admin", "dave"));
+	}
+}
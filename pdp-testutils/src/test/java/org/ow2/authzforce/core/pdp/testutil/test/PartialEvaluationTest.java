@@ -0,0 +1,206 @@
+/**
+ * Copyright 2012-2018 Thales Services SAS.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.testutil.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.Set;
+
+import javax.xml.bind.JAXBException;
+
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.DecisionType;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.ow2.authzforce.core.pdp.api.AttributeFqn;
+import org.ow2.authzforce.core.pdp.api.AttributeFqns;
+import org.ow2.authzforce.core.pdp.api.DecisionRequestBuilder;
+import org.ow2.authzforce.core.pdp.api.value.Bags;
+import org.ow2.authzforce.core.pdp.api.value.StandardDatatypes;
+import org.ow2.authzforce.core.pdp.api.value.StringValue;
+import org.ow2.authzforce.core.pdp.impl.BasePdpEngine;
+import org.ow2.authzforce.core.pdp.impl.PartialDecision;
+import org.ow2.authzforce.core.pdp.impl.PartialDecision.ResidualPolicy;
+import org.ow2.authzforce.core.pdp.impl.PartialDecision.ResidualRule;
+import org.ow2.authzforce.core.pdp.impl.PdpEngineConfiguration;
+import org.ow2.authzforce.core.pdp.impl.PolicyEvaluationListener.TargetMatchResult;
+import org.ow2.authzforce.core.pdp.testutil.PdpTest;
+import org.ow2.authzforce.core.pdp.testutil.TestUtils;
+
+/**
+ * Test of {@link BasePdpEngine#evaluatePartially(org.ow2.authzforce.core.pdp.api.DecisionRequest, Set)} with resource attributes unknown
+ *
+ */
+public class PartialEvaluationTest
+{
+	private static final String TEST_RESOURCES_DIRECTORY_LOCATION = "classpath:engine/PartialEvaluation";
+
+	private static final String RESOURCE_CATEGORY = "urn:oasis:names:tc:xacml:3.0:attribute-category:resource";
+
+	private static final Set<String> UNKNOWN_CATEGORIES = Collections.singleton(RESOURCE_CATEGORY);
+
+	private static final AttributeFqn RESOURCE_TYPE = AttributeFqns.newInstance(RESOURCE_CATEGORY, Optional.empty(), "urn:ow2:authzforce:test:resource-type");
+
+	private static final AttributeFqn RESOURCE_OWNER = AttributeFqns.newInstance(RESOURCE_CATEGORY, Optional.empty(), "urn:ow2:authzforce:test:resource-owner");
+
+	private static BasePdpEngine pdp = null;
+
+	@BeforeClass
+	public static void setUp() throws IllegalArgumentException, IOException, URISyntaxException, JAXBException
+	{
+		final PdpEngineConfiguration pdpEngineConf = TestUtils.newPdpEngineConfiguration(TEST_RESOURCES_DIRECTORY_LOCATION + "/" + PdpTest.POLICY_FILENAME, null, false, null, null, null);
+		pdp = new BasePdpEngine(pdpEngineConf);
+	}
+
+	@AfterClass
+	public static void tearDown() throws IOException
+	{
+		if (pdp != null)
+		{
+			pdp.close();
+		}
+	}
+
+	private static PartialDecision evaluatePartially(final String subjectId, final String actionId)
+	{
+		final DecisionRequestBuilder<?> requestBuilder = pdp.newRequestBuilder(2, 2);
+		requestBuilder.putNamedAttributeIfAbsent(
+				AttributeFqns.newInstance("urn:oasis:names:tc:xacml:1.0:subject-category:access-subject", Optional.empty(), "urn:oasis:names:tc:xacml:1.0:subject:subject-id"),
+				Bags.singletonAttributeBag(StandardDatatypes.STRING, new StringValue(subjectId)));
+		requestBuilder.putNamedAttributeIfAbsent(
+				AttributeFqns.newInstance("urn:oasis:names:tc:xacml:3.0:attribute-category:action", Optional.empty(), "urn:oasis:names:tc:xacml:1.0:action:action-id"),
+				Bags.singletonAttributeBag(StandardDatatypes.STRING, new StringValue(actionId)));
+		return pdp.evaluatePartially(requestBuilder.build(false), UNKNOWN_CATEGORIES);
+	}
+
+	private static ResidualPolicy getResidualPolicy(final PartialDecision partialDecision, final String policyId)
+	{
+		for (final ResidualPolicy residualPolicy : partialDecision.getResidualPolicies())
+		{
+			if (residualPolicy.getPolicy().getId().equals(policyId))
+			{
+				return residualPolicy;
+			}
+		}
+
+		return null;
+	}
+
+	@Test
+	public void testDefinite()
+	{
+		final PartialDecision partialDecision = evaluatePartially("nobody", "read");
+		assertTrue(partialDecision.toString(), partialDecision.isDefinite());
+		assertTrue(partialDecision.isFilterable());
+		assertEquals(DecisionType.NOT_APPLICABLE, partialDecision.getResult().getDecision());
+		assertTrue(partialDecision.getResidualPolicies().isEmpty());
+		assertTrue(partialDecision.getResidualRules().isEmpty());
+	}
+
+	@Test
+	public void testUnknownAttributeInTarget()
+	{
+		final PartialDecision partialDecision = evaluatePartially("t", "read");
+		assertFalse(partialDecision.toString(), partialDecision.isDefinite());
+		assertTrue(partialDecision.toString(), partialDecision.isFilterable());
+		assertEquals(Collections.singleton(RESOURCE_TYPE), partialDecision.getUnknownAttributes());
+		/*
+		 * Unknown attributes requested by Targets only, not assigned to any Rule
+		 */
+		assertTrue(partialDecision.toString(), partialDecision.getResidualRules().isEmpty());
+
+		final ResidualPolicy pt1 = getResidualPolicy(partialDecision, "PT1");
+		assertNotNull("Policy with NoMatch Target on unknown attribute missing from the residual: " + partialDecision, pt1);
+		assertEquals(TargetMatchResult.NO_MATCH, pt1.getTargetResult());
+		assertEquals(Collections.singleton(RESOURCE_TYPE), pt1.getTargetUnknownAttributes());
+		assertEquals("urn:oasis:names:tc:xacml:1.0:rule-combining-algorithm:first-applicable", pt1.getCombiningAlgId());
+		assertEquals(Collections.singletonList("r1"), pt1.getSkippedCombinedElementIds());
+		assertEquals(DecisionType.NOT_APPLICABLE, pt1.getDecision());
+
+		final ResidualPolicy pt2 = getResidualPolicy(partialDecision, "PT2");
+		assertNotNull("Policy with Indeterminate Target on unknown attribute missing from the residual: " + partialDecision, pt2);
+		assertEquals(TargetMatchResult.INDETERMINATE, pt2.getTargetResult());
+		assertEquals(Collections.singleton(RESOURCE_TYPE), pt2.getTargetUnknownAttributes());
+		assertTrue(pt2.getSkippedCombinedElementIds().isEmpty());
+
+		/*
+		 * Enclosing PolicySets are part of the residual (combining algorithm), but their Target does not depend on unknown attributes
+		 */
+		final ResidualPolicy st = getResidualPolicy(partialDecision, "ST");
+		assertNotNull(partialDecision.toString(), st);
+		assertEquals(TargetMatchResult.MATCH, st.getTargetResult());
+		assertTrue(st.getTargetUnknownAttributes().isEmpty());
+		assertTrue(st.getSkippedCombinedElementIds().isEmpty());
+		assertNotNull(partialDecision.toString(), getResidualPolicy(partialDecision, "root"));
+		assertNull("PolicySet not depending on unknown attributes in the residual: " + partialDecision, getResidualPolicy(partialDecision, "SC"));
+	}
+
+	@Test
+	public void testUnknownAttributeInCondition()
+	{
+		final PartialDecision partialDecision = evaluatePartially("c", "read");
+		assertFalse(partialDecision.toString(), partialDecision.isDefinite());
+		assertTrue(partialDecision.toString(), partialDecision.isFilterable());
+		assertEquals(DecisionType.INDETERMINATE, partialDecision.getResult().getDecision());
+
+		assertEquals(partialDecision.toString(), 1, partialDecision.getResidualRules().size());
+		final ResidualRule c1 = partialDecision.getResidualRules().get(0);
+		assertEquals("c1", c1.getRuleId());
+		assertEquals("PC", c1.getEnclosingPolicy().get().getId());
+		assertEquals(Collections.singleton(RESOURCE_OWNER), c1.getUnknownAttributes());
+		assertEquals(DecisionType.INDETERMINATE, c1.getDecision());
+
+		/*
+		 * first-applicable stops on the Indeterminate Rule c1, therefore c2 is skipped
+		 */
+		final ResidualPolicy pc = getResidualPolicy(partialDecision, "PC");
+		assertNotNull(partialDecision.toString(), pc);
+		assertTrue(pc.getTargetUnknownAttributes().isEmpty());
+		assertEquals(Collections.singletonList("c2"), pc.getSkippedCombinedElementIds());
+	}
+
+	@Test
+	public void testUnknownAttributeWithDenyOverridesShortCircuit()
+	{
+		final PartialDecision partialDecision = evaluatePartially("d", "delete");
+		assertFalse(partialDecision.toString(), partialDecision.isDefinite());
+		assertTrue(partialDecision.toString(), partialDecision.isFilterable());
+		assertEquals(DecisionType.DENY, partialDecision.getResult().getDecision());
+
+		/*
+		 * d1 depends on unknown attribute, d2 is Deny -> d3 and d4 skipped
+		 */
+		assertEquals(partialDecision.toString(), 1, partialDecision.getResidualRules().size());
+		assertEquals("d1", partialDecision.getResidualRules().get(0).getRuleId());
+		final ResidualPolicy pd = getResidualPolicy(partialDecision, "PD");
+		assertNotNull(partialDecision.toString(), pd);
+		assertEquals("urn:oasis:names:tc:xacml:3.0:rule-combining-algorithm:deny-overrides", pd.getCombiningAlgId());
+		assertEquals(Arrays.asList("d3", "d4"), pd.getSkippedCombinedElementIds());
+		assertEquals(DecisionType.DENY, pd.getDecision());
+	}
+}
@@ -0,0 +1,258 @@
+/**
+ * Copyright 2012-2018 Thales Services SAS.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.testutil.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.URISyntaxException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Optional;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.xml.bind.JAXBException;
+
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.DecisionType;
+
+import org.junit.Test;
+import org.ow2.authzforce.core.pdp.api.AttributeFqns;
+import org.ow2.authzforce.core.pdp.api.DecisionRequest;
+import org.ow2.authzforce.core.pdp.api.DecisionRequestBuilder;
+import org.ow2.authzforce.core.pdp.api.DecisionResult;
+import org.ow2.authzforce.core.pdp.api.IndeterminateEvaluationException;
+import org.ow2.authzforce.core.pdp.api.value.Bags;
+import org.ow2.authzforce.core.pdp.api.value.StandardDatatypes;
+import org.ow2.authzforce.core.pdp.api.value.StringValue;
+import org.ow2.authzforce.core.pdp.impl.BasePdpEngine;
+import org.ow2.authzforce.core.pdp.impl.DefaultEnvironmentProperties;
+import org.ow2.authzforce.core.pdp.impl.JmxPdpEngineMetricsExporter;
+import org.ow2.authzforce.core.pdp.impl.PdpEngineConfiguration;
+import org.ow2.authzforce.core.pdp.impl.PdpEngineMetrics;
+import org.ow2.authzforce.core.pdp.testutil.PdpTest;
+import org.ow2.authzforce.core.pdp.testutil.TestUtils;
+import org.ow2.authzforce.core.pdp.testutil.ext.TestDecisionCache;
+import org.ow2.authzforce.core.xmlns.pdp.Pdp;
+
+/**
+ * Test of {@link PdpEngineMetrics} (enabled with the PDP configuration parameter 'enableMetrics') and {@link JmxPdpEngineMetricsExporter}
+ *
+ */
+public class PdpEngineMetricsTest
+{
+	private static final String TEST_RESOURCES_DIRECTORY_LOCATION = "classpath:engine/PdpEngineMetrics";
+
+	private static final String ATTRIBUTE_PROVIDER_FILENAME = "attribute-provider.xml";
+
+	private static DecisionRequest newRequest(final BasePdpEngine pdp, final String actionId)
+	{
+		final DecisionRequestBuilder<?> requestBuilder = pdp.newRequestBuilder(2, 2);
+		requestBuilder.putNamedAttributeIfAbsent(
+				AttributeFqns.newInstance("urn:oasis:names:tc:xacml:1.0:subject-category:access-subject", Optional.empty(), "urn:oasis:names:tc:xacml:1.0:subject:subject-id"),
+				Bags.singletonAttributeBag(StandardDatatypes.STRING, new StringValue("alice")));
+		requestBuilder.putNamedAttributeIfAbsent(
+				AttributeFqns.newInstance("urn:oasis:names:tc:xacml:3.0:attribute-category:action", Optional.empty(), "urn:oasis:names:tc:xacml:1.0:action:action-id"),
+				Bags.singletonAttributeBag(StandardDatatypes.STRING, new StringValue(actionId)));
+		return requestBuilder.build(false);
+	}
+
+	private static Pdp newPdpConfiguration(final boolean enableMetrics) throws IOException, URISyntaxException, JAXBException
+	{
+		final String testResourceLocationPrefix = TEST_RESOURCES_DIRECTORY_LOCATION + "/";
+		final Pdp pdpJaxbConf = TestUtils.newPdpConfiguration(testResourceLocationPrefix + PdpTest.POLICY_FILENAME, null, false, testResourceLocationPrefix + ATTRIBUTE_PROVIDER_FILENAME, null,
+				null);
+		pdpJaxbConf.setEnableMetrics(enableMetrics);
+		return pdpJaxbConf;
+	}
+
+	private static long sum(final Map<String, Long> counts)
+	{
+		long sum = 0;
+		for (final Long count : counts.values())
+		{
+			sum += count;
+		}
+
+		return sum;
+	}
+
+	@Test
+	public void testMetricsDisabledByDefault() throws IllegalArgumentException, IOException, URISyntaxException, JAXBException
+	{
+		final PdpEngineConfiguration pdpEngineConf = new PdpEngineConfiguration(newPdpConfiguration(false), new DefaultEnvironmentProperties());
+		assertFalse("Metrics enabled although enableMetrics=false", pdpEngineConf.getMetrics().isPresent());
+	}
+
+	@Test
+	public void testCounters() throws IllegalArgumentException, IOException, URISyntaxException, JAXBException, IndeterminateEvaluationException
+	{
+		final PdpEngineConfiguration pdpEngineConf = new PdpEngineConfiguration(newPdpConfiguration(true), new DefaultEnvironmentProperties());
+		assertTrue("Metrics disabled although enableMetrics=true", pdpEngineConf.getMetrics().isPresent());
+		final PdpEngineMetrics metrics = pdpEngineConf.getMetrics().get();
+		try (final BasePdpEngine pdp = new BasePdpEngine(pdpEngineConf))
+		{
+			/*
+			 * read: role provided by the attribute provider -> Permit
+			 */
+			assertEquals(DecisionType.PERMIT, pdp.evaluate(newRequest(pdp, "read")).getDecision());
+			assertEquals(DecisionType.PERMIT, pdp.evaluate(newRequest(pdp, "read")).getDecision());
+			/*
+			 * write: no attribute provider call -> Deny
+			 */
+			assertEquals(DecisionType.DENY, pdp.evaluate(newRequest(pdp, "write")).getDecision());
+			/*
+			 * delete: attribute provider error -> Indeterminate
+			 */
+			assertEquals(DecisionType.INDETERMINATE, pdp.evaluate(newRequest(pdp, "delete")).getDecision());
+			assertEquals(DecisionType.NOT_APPLICABLE, pdp.evaluate(newRequest(pdp, "undefined")).getDecision());
+
+			assertEquals(5, metrics.getIndividualRequestCount());
+			assertEquals(0, metrics.getMultipleRequestCount());
+			assertEquals(2, metrics.getDecisionCount(DecisionType.PERMIT));
+			assertEquals(1, metrics.getDecisionCount(DecisionType.DENY));
+			assertEquals(1, metrics.getDecisionCount(DecisionType.INDETERMINATE));
+			assertEquals(1, metrics.getDecisionCount(DecisionType.NOT_APPLICABLE));
+			final Map<String, Long> indeterminateCountsByStatusCode = metrics.getIndeterminateCountsByStatusCode();
+			assertEquals("Invalid Indeterminate counts by status code: " + indeterminateCountsByStatusCode, 1, indeterminateCountsByStatusCode.size());
+			assertEquals(1, sum(indeterminateCountsByStatusCode));
+			assertEquals(3, metrics.getAttributeProviderCallCount());
+			assertEquals(1, metrics.getAttributeProviderErrorCount());
+			assertEquals(3, metrics.getAttributeProviderLatency().getCount());
+			assertEquals(5, metrics.getIndividualRequestLatency().getCount());
+			assertTrue("Invalid max Individual Decision Request latency", metrics.getIndividualRequestLatency().getMax() > 0);
+			/*
+			 * No decision cache
+			 */
+			assertEquals(0, metrics.getDecisionCacheHitCount());
+			assertEquals(0, metrics.getDecisionCacheMissCount());
+
+			/*
+			 * Multiple Decision Request: each Individual Decision Request is counted
+			 */
+			final Collection<Entry<DecisionRequest, ? extends DecisionResult>> results = pdp.evaluate(Arrays.asList(newRequest(pdp, "read"), newRequest(pdp, "write")));
+			assertEquals(2, results.size());
+			assertEquals(1, metrics.getMultipleRequestCount());
+			assertEquals(1, metrics.getMultipleRequestLatency().getCount());
+			assertEquals(7, metrics.getIndividualRequestCount());
+			assertEquals(3, metrics.getDecisionCount(DecisionType.PERMIT));
+			assertEquals(2, metrics.getDecisionCount(DecisionType.DENY));
+			/*
+			 * Individual Decision Request latency only recorded for requests evaluated one at a time
+			 */
+			assertEquals(5, metrics.getIndividualRequestLatency().getCount());
+		}
+
+		metrics.reset();
+		assertEquals(0, metrics.getIndividualRequestCount());
+		assertEquals(0, metrics.getMultipleRequestCount());
+		assertEquals(0, metrics.getDecisionCount(DecisionType.PERMIT));
+		assertTrue(metrics.getIndeterminateCountsByStatusCode().isEmpty());
+		assertEquals(0, metrics.getAttributeProviderCallCount());
+		assertEquals(0, metrics.getAttributeProviderErrorCount());
+		assertEquals(0, metrics.getIndividualRequestLatency().getCount());
+		assertEquals(0, metrics.getAttributeProviderLatency().getCount());
+	}
+
+	@Test
+	public void testDecisionCacheHitMiss() throws IllegalArgumentException, IOException, URISyntaxException, JAXBException, IndeterminateEvaluationException
+	{
+		final Pdp pdpJaxbConf = newPdpConfiguration(true);
+		final org.ow2.authzforce.core.pdp.testutil.ext.xmlns.TestDecisionCache decisionCacheConf = new org.ow2.authzforce.core.pdp.testutil.ext.xmlns.TestDecisionCache();
+		decisionCacheConf.setId("test");
+		pdpJaxbConf.setDecisionCache(decisionCacheConf);
+		final PdpEngineConfiguration pdpEngineConf = new PdpEngineConfiguration(pdpJaxbConf, new DefaultEnvironmentProperties());
+		assertTrue("Decision cache undefined", pdpEngineConf.getDecisionCache().isPresent());
+		assertTrue("Unexpected decision cache: " + pdpEngineConf.getDecisionCache().get(), pdpEngineConf.getDecisionCache().get() instanceof TestDecisionCache);
+		final PdpEngineMetrics metrics = pdpEngineConf.getMetrics().get();
+		try (final BasePdpEngine pdp = new BasePdpEngine(pdpEngineConf))
+		{
+			final DecisionRequest readRequest = newRequest(pdp, "read");
+			assertEquals(DecisionType.PERMIT, pdp.evaluate(readRequest).getDecision());
+			assertEquals(0, metrics.getDecisionCacheHitCount());
+			assertEquals(1, metrics.getDecisionCacheMissCount());
+			assertEquals(1, metrics.getAttributeProviderCallCount());
+
+			/*
+			 * Same request -> result from cache, no policy evaluation, therefore no attribute provider call
+			 */
+			assertEquals(DecisionType.PERMIT, pdp.evaluate(readRequest).getDecision());
+			assertEquals(1, metrics.getDecisionCacheHitCount());
+			assertEquals(1, metrics.getDecisionCacheMissCount());
+			assertEquals(1, metrics.getAttributeProviderCallCount());
+			assertEquals(2, metrics.getIndividualRequestCount());
+			assertEquals(2, metrics.getDecisionCount(DecisionType.PERMIT));
+
+			/*
+			 * Multiple Decision Request: one lookup per Individual Decision Request
+			 */
+			final DecisionRequest writeRequest = newRequest(pdp, "write");
+			pdp.evaluate(Arrays.asList(readRequest, writeRequest));
+			assertEquals(2, metrics.getDecisionCacheHitCount());
+			assertEquals(2, metrics.getDecisionCacheMissCount());
+			pdp.evaluate(Arrays.asList(readRequest, writeRequest));
+			assertEquals(4, metrics.getDecisionCacheHitCount());
+			assertEquals(2, metrics.getDecisionCacheMissCount());
+			assertEquals(1, metrics.getAttributeProviderCallCount());
+		}
+
+		metrics.reset();
+		assertEquals(0, metrics.getDecisionCacheHitCount());
+		assertEquals(0, metrics.getDecisionCacheMissCount());
+	}
+
+	@Test
+	public void testJmxExporter() throws IllegalArgumentException, IOException, URISyntaxException, JAXBException, JMException
+	{
+		final PdpEngineConfiguration pdpEngineConf = new PdpEngineConfiguration(newPdpConfiguration(true), new DefaultEnvironmentProperties());
+		final PdpEngineMetrics metrics = pdpEngineConf.getMetrics().get();
+		final MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
+		final ObjectName objectName = new ObjectName(JmxPdpEngineMetricsExporter.DEFAULT_OBJECT_NAME);
+		try (final BasePdpEngine pdp = new BasePdpEngine(pdpEngineConf); final JmxPdpEngineMetricsExporter exporter = new JmxPdpEngineMetricsExporter())
+		{
+			exporter.start(metrics);
+			assertTrue("MBean not registered: " + objectName, mbeanServer.isRegistered(objectName));
+
+			assertEquals(DecisionType.PERMIT, pdp.evaluate(newRequest(pdp, "read")).getDecision());
+			assertEquals(DecisionType.INDETERMINATE, pdp.evaluate(newRequest(pdp, "delete")).getDecision());
+
+			/*
+			 * Attributes are read on demand from the metrics
+			 */
+			assertEquals(2L, mbeanServer.getAttribute(objectName, "IndividualRequestCount"));
+			assertEquals(1L, mbeanServer.getAttribute(objectName, "PermitCount"));
+			assertEquals(0L, mbeanServer.getAttribute(objectName, "DenyCount"));
+			assertEquals(1L, mbeanServer.getAttribute(objectName, "IndeterminateCount"));
+			assertEquals(2L, mbeanServer.getAttribute(objectName, "AttributeProviderCallCount"));
+			assertEquals(1L, mbeanServer.getAttribute(objectName, "AttributeProviderErrorCount"));
+			assertEquals(metrics.getIndividualRequestLatency().getMax(), mbeanServer.getAttribute(objectName, "IndividualRequestLatencyMax"));
+
+			mbeanServer.invoke(objectName, "reset", null, null);
+			assertEquals(0, metrics.getIndividualRequestCount());
+			assertEquals(0L, mbeanServer.getAttribute(objectName, "IndividualRequestCount"));
+		}
+
+		assertFalse("MBean still registered after close(): " + objectName, mbeanServer.isRegistered(objectName));
+	}
+}
@@ -0,0 +1,76 @@
+/**
+ * Copyright 2012-2018 Thales Services SAS.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.testutil.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.Optional;
+import java.util.Set;
+
+import javax.xml.bind.JAXBException;
+
+import org.junit.Test;
+import org.ow2.authzforce.core.pdp.api.AttributeFqn;
+import org.ow2.authzforce.core.pdp.api.AttributeFqns;
+import org.ow2.authzforce.core.pdp.api.policy.PrimaryPolicyMetadata;
+import org.ow2.authzforce.core.pdp.impl.BasePdpEngine;
+import org.ow2.authzforce.core.pdp.impl.PdpEngineConfiguration;
+import org.ow2.authzforce.core.pdp.testutil.PdpTest;
+import org.ow2.authzforce.core.pdp.testutil.TestUtils;
+
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Test of {@link BasePdpEngine#getRequiredAttributes()}
+ *
+ */
+public class PdpGetRequiredAttributesTest
+{
+	private static final AttributeFqn SUBJECT_ROLE = AttributeFqns.newInstance("urn:oasis:names:tc:xacml:1.0:subject-category:access-subject", Optional.empty(),
+			"urn:oasis:names:tc:xacml:2.0:subject:role");
+	private static final AttributeFqn RESOURCE_ID = AttributeFqns.newInstance("urn:oasis:names:tc:xacml:3.0:attribute-category:resource", Optional.empty(),
+			"urn:oasis:names:tc:xacml:1.0:resource:resource-id");
+	private static final AttributeFqn ACTION_ID = AttributeFqns.newInstance("urn:oasis:names:tc:xacml:3.0:attribute-category:action", Optional.empty(),
+			"urn:oasis:names:tc:xacml:1.0:action:action-id");
+
+	@Test
+	public void test() throws IllegalArgumentException, IOException, URISyntaxException, JAXBException
+	{
+		final String testResourceLocationPrefix = PdpGetStaticApplicablePoliciesTest.TEST_RESOURCES_DIRECTORY_LOCATION + "/";
+		// Create PDP
+		final PdpEngineConfiguration pdpEngineConf = TestUtils.newPdpEngineConfiguration(testResourceLocationPrefix + PdpTest.POLICY_FILENAME, testResourceLocationPrefix
+				+ PdpTest.REF_POLICIES_DIR_NAME, false, null, null, null);
+		try (final BasePdpEngine pdp = new BasePdpEngine(pdpEngineConf))
+		{
+			final Optional<Set<AttributeFqn>> rootRequiredAttributes = pdp.getRequiredAttributes();
+			assertTrue("No required attributes for statically resolved root policy", rootRequiredAttributes.isPresent());
+			assertEquals("Invalid required attributes for root policy", ImmutableSet.of(SUBJECT_ROLE, RESOURCE_ID, ACTION_ID), rootRequiredAttributes.get());
+
+			for (final PrimaryPolicyMetadata policy : pdp.getApplicablePolicies())
+			{
+				if (policy.getId().equals("PPS:Employee"))
+				{
+					assertEquals("Invalid required attributes for referenced policy " + policy, Optional.of(ImmutableSet.of(RESOURCE_ID, ACTION_ID)), pdp.getRequiredAttributes(policy));
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,151 @@
+/**
+ * Copyright 2012-2018 Thales Services SAS.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.testutil.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Optional;
+
+import javax.xml.bind.JAXBException;
+
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.DecisionType;
+
+import org.junit.Test;
+import org.ow2.authzforce.core.pdp.api.AttributeFqns;
+import org.ow2.authzforce.core.pdp.api.DecisionRequest;
+import org.ow2.authzforce.core.pdp.api.DecisionRequestBuilder;
+import org.ow2.authzforce.core.pdp.api.policy.PrimaryPolicyMetadata;
+import org.ow2.authzforce.core.pdp.api.value.Bags;
+import org.ow2.authzforce.core.pdp.api.value.StandardDatatypes;
+import org.ow2.authzforce.core.pdp.api.value.StringValue;
+import org.ow2.authzforce.core.pdp.impl.BasePdpEngine;
+import org.ow2.authzforce.core.pdp.impl.PdpEngineConfiguration;
+import org.ow2.authzforce.core.pdp.impl.PolicyEvaluationListener;
+import org.ow2.authzforce.core.pdp.impl.PolicyEvaluationMetricsListener;
+import org.ow2.authzforce.core.pdp.impl.StripedCounterPolicyEvaluationMetricsRegistry;
+import org.ow2.authzforce.core.pdp.impl.StripedCounterPolicyEvaluationMetricsRegistry.ElementMetrics;
+import org.ow2.authzforce.core.pdp.testutil.PdpTest;
+import org.ow2.authzforce.core.pdp.testutil.TestUtils;
+
+/**
+ * Test of {@link PolicyEvaluationMetricsListener} with {@link StripedCounterPolicyEvaluationMetricsRegistry}, registered as PDP engine-level {@link PolicyEvaluationListener}
+ *
+ */
+public class PolicyEvaluationMetricsListenerTest
+{
+	private static final String TEST_RESOURCES_DIRECTORY_LOCATION = "classpath:engine/PolicyEvaluationMetrics";
+
+	private static DecisionRequest newRequest(final BasePdpEngine pdp, final String subjectId, final String actionId)
+	{
+		final DecisionRequestBuilder<?> requestBuilder = pdp.newRequestBuilder(2, 2);
+		requestBuilder.putNamedAttributeIfAbsent(
+				AttributeFqns.newInstance("urn:oasis:names:tc:xacml:1.0:subject-category:access-subject", Optional.empty(), "urn:oasis:names:tc:xacml:1.0:subject:subject-id"),
+				Bags.singletonAttributeBag(StandardDatatypes.STRING, new StringValue(subjectId)));
+		requestBuilder.putNamedAttributeIfAbsent(
+				AttributeFqns.newInstance("urn:oasis:names:tc:xacml:3.0:attribute-category:action", Optional.empty(), "urn:oasis:names:tc:xacml:1.0:action:action-id"),
+				Bags.singletonAttributeBag(StandardDatatypes.STRING, new StringValue(actionId)));
+		return requestBuilder.build(false);
+	}
+
+	private static <V> V getByPolicyId(final Map<PrimaryPolicyMetadata, V> valuesByPolicy, final String policyId)
+	{
+		for (final Entry<PrimaryPolicyMetadata, V> entry : valuesByPolicy.entrySet())
+		{
+			if (entry.getKey().getId().equals(policyId))
+			{
+				return entry.getValue();
+			}
+		}
+
+		return null;
+	}
+
+	@Test
+	public void test() throws IllegalArgumentException, IOException, URISyntaxException, JAXBException
+	{
+		final String testResourceLocationPrefix = TEST_RESOURCES_DIRECTORY_LOCATION + "/";
+		final PdpEngineConfiguration pdpEngineConf = TestUtils.newPdpEngineConfiguration(testResourceLocationPrefix + PdpTest.POLICY_FILENAME, null, false, null, null, null);
+		final StripedCounterPolicyEvaluationMetricsRegistry registry = new StripedCounterPolicyEvaluationMetricsRegistry();
+		try (final BasePdpEngine pdp = new BasePdpEngine(pdpEngineConf, new BasePdpEngine.Options.Builder().setPolicyEvaluationListener(new PolicyEvaluationMetricsListener(registry)).build()))
+		{
+			/*
+			 * P1 matches, P1/r1 does not match, P1/r2 applies -> Deny (P2 not evaluated)
+			 */
+			assertEquals(DecisionType.DENY, pdp.evaluate(newRequest(pdp, "alice", "write")).getDecision());
+			/*
+			 * P1 does not match, P2 matches, P2/r1 applies -> Permit
+			 */
+			assertEquals(DecisionType.PERMIT, pdp.evaluate(newRequest(pdp, "bob", "read")).getDecision());
+		}
+
+		final Map<PrimaryPolicyMetadata, ElementMetrics> policyMetrics = registry.getPolicyMetrics();
+		final ElementMetrics rootMetrics = getByPolicyId(policyMetrics, "root");
+		assertNotNull("No metrics for root PolicySet", rootMetrics);
+		assertEquals(2, rootMetrics.getEvaluationCount());
+		assertEquals(2, rootMetrics.getTargetMatchCount());
+
+		final ElementMetrics p1Metrics = getByPolicyId(policyMetrics, "P1");
+		assertNotNull("No metrics for Policy P1", p1Metrics);
+		assertEquals(2, p1Metrics.getEvaluationCount());
+		assertEquals(1, p1Metrics.getTargetMatchCount());
+		assertEquals(1, p1Metrics.getTargetNoMatchCount());
+		assertEquals(0, p1Metrics.getTargetIndeterminateCount());
+
+		final ElementMetrics p2Metrics = getByPolicyId(policyMetrics, "P2");
+		assertNotNull("No metrics for Policy P2", p2Metrics);
+		assertEquals(1, p2Metrics.getEvaluationCount());
+		assertEquals(1, p2Metrics.getTargetMatchCount());
+
+		/*
+		 * Evaluation times of nested elements are included in the enclosing element's
+		 */
+		assertTrue("Invalid cumulative evaluation time of Policy P1", p1Metrics.getCumulativeNanos() > 0);
+		assertTrue("Invalid cumulative evaluation time of Policy P2", p2Metrics.getCumulativeNanos() > 0);
+		assertTrue("Cumulative evaluation time of root PolicySet lower than its children's", rootMetrics.getCumulativeNanos() >= p1Metrics.getCumulativeNanos() + p2Metrics.getCumulativeNanos());
+
+		/*
+		 * Rules with the same RuleId in different Policies must be counted separately
+		 */
+		final Map<PrimaryPolicyMetadata, Map<String, ElementMetrics>> ruleMetrics = registry.getRuleMetrics();
+		final Map<String, ElementMetrics> p1RuleMetrics = getByPolicyId(ruleMetrics, "P1");
+		assertNotNull("No Rule metrics for Policy P1", p1RuleMetrics);
+		assertEquals(1, p1RuleMetrics.get("r1").getEvaluationCount());
+		assertEquals(1, p1RuleMetrics.get("r1").getTargetNoMatchCount());
+		assertEquals(1, p1RuleMetrics.get("r2").getEvaluationCount());
+		assertEquals(1, p1RuleMetrics.get("r2").getTargetMatchCount());
+		assertTrue("Invalid cumulative evaluation time of Rule P1/r2", p1RuleMetrics.get("r2").getCumulativeNanos() > 0);
+
+		final Map<String, ElementMetrics> p2RuleMetrics = getByPolicyId(ruleMetrics, "P2");
+		assertNotNull("No Rule metrics for Policy P2", p2RuleMetrics);
+		assertEquals(1, p2RuleMetrics.get("r1").getEvaluationCount());
+		assertEquals(1, p2RuleMetrics.get("r1").getTargetMatchCount());
+		assertFalse("Rule P2/r2 evaluated although P2/r1 is applicable (first-applicable)", p2RuleMetrics.containsKey("r2"));
+		assertTrue("Invalid cumulative evaluation time of Policy P2 lower than its Rule's", p2Metrics.getCumulativeNanos() >= p2RuleMetrics.get("r1").getCumulativeNanos());
+
+		registry.reset();
+		assertTrue(registry.getPolicyMetrics().isEmpty());
+		assertTrue(registry.getRuleMetrics().isEmpty());
+	}
+}
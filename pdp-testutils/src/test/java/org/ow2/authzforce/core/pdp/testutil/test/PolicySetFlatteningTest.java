@@ -0,0 +1,306 @@
+/**
+ * Copyright 2012-2018 Thales Services SAS.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.testutil.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import javax.xml.bind.JAXBException;
+
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.DecisionType;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+import org.ow2.authzforce.core.pdp.api.AttributeFqns;
+import org.ow2.authzforce.core.pdp.api.DecisionRequest;
+import org.ow2.authzforce.core.pdp.api.DecisionRequestBuilder;
+import org.ow2.authzforce.core.pdp.api.DecisionResult;
+import org.ow2.authzforce.core.pdp.api.PepAction;
+import org.ow2.authzforce.core.pdp.api.policy.PrimaryPolicyMetadata;
+import org.ow2.authzforce.core.pdp.api.value.Bags;
+import org.ow2.authzforce.core.pdp.api.value.StandardDatatypes;
+import org.ow2.authzforce.core.pdp.api.value.StringValue;
+import org.ow2.authzforce.core.pdp.impl.BasePdpEngine;
+import org.ow2.authzforce.core.pdp.impl.PdpEngineConfiguration;
+import org.ow2.authzforce.core.pdp.impl.PolicyEvaluationListener;
+import org.ow2.authzforce.core.pdp.testutil.TestUtils;
+
+/**
+ * Test of the flattening of nested PolicySets with the same policy-combining algorithm, for each combining algorithm supporting it: a PolicySet tree with nested PolicySets that may be flattened
+ * must return the same decisions, PEP actions and applicable policies (except the flattened PolicySets) as the equivalent tree where they are flattened in the XACML document. PolicySets with another
+ * combining algorithm or a Target must not be flattened. Whether a PolicySet is flattened is found out from the Policy(Set) evaluation events notified to an engine-level
+ * {@link PolicyEvaluationListener}.
+ *
+ */
+@RunWith(value = Parameterized.class)
+public class PolicySetFlatteningTest
+{
+	private static final String TEST_RESOURCES_DIRECTORY_LOCATION = "classpath:engine/PolicySetFlattening";
+
+	/**
+	 * Nested PolicySets with the same combining algorithm, without Target, Obligation/Advice or CombinerParameter, that may be flattened into the root PolicySet
+	 */
+	private static final List<String> FLATTENABLE_POLICYSET_IDS = Arrays.asList("nested", "nested2");
+
+	/**
+	 * Possible values of attribute urn:ow2:authzforce:test:flattening:P{i} for each Policy P{i}, respectively NotApplicable, Permit, Deny, Indeterminate{P} and Indeterminate{D}; a value starting
+	 * with "error" is sent with another value to make the Policy's Rule Condition Indeterminate
+	 */
+	private static final List<String> POLICY_RESULTS = Arrays.asList("none", "permit", "deny", "error-permit", "error-deny");
+
+	private static final int POLICY_COUNT = 5;
+
+	/**
+	 * Records the PolicyIds of evaluated Policy(Set)s
+	 */
+	private static final class PolicyEvaluationRecorder implements PolicyEvaluationListener
+	{
+		private final Set<String> evaluatedPolicyIds = ConcurrentHashMap.newKeySet();
+
+		@Override
+		public void policyEvaluated(final PrimaryPolicyMetadata policy, final TargetMatchResult targetResult, final DecisionResult result, final long elapsedNanos)
+		{
+			evaluatedPolicyIds.add(policy.getId());
+		}
+
+		@Override
+		public void ruleEvaluated(final PrimaryPolicyMetadata enclosingPolicy, final String ruleId, final TargetMatchResult targetResult, final ConditionResult conditionResult,
+				final DecisionResult result, final long elapsedNanos)
+		{
+			// not recorded
+		}
+	}
+
+	/**
+	 * Initialize test parameters for each test
+	 *
+	 * @return policy-combining algorithms supporting PolicySet flattening, by short name (name of the test policy files prefix)
+	 */
+	@Parameters(name = "{0}")
+	public static Collection<Object[]> params()
+	{
+		return Arrays.asList(new Object[] { "deny-overrides" }, new Object[] { "ordered-deny-overrides" }, new Object[] { "permit-overrides" }, new Object[] { "ordered-permit-overrides" },
+				new Object[] { "first-applicable" });
+	}
+
+	private final String combiningAlgName;
+
+	private PolicyEvaluationRecorder nestedTreeRecorder;
+	private BasePdpEngine nestedTreePdp;
+	private BasePdpEngine flatTreePdp;
+
+	/**
+	 *
+	 * @param combiningAlgName
+	 *            short name of the policy-combining algorithm of the test PolicySets
+	 */
+	public PolicySetFlatteningTest(final String combiningAlgName)
+	{
+		this.combiningAlgName = combiningAlgName;
+	}
+
+	private BasePdpEngine newPdp(final String treeType, final PolicyEvaluationListener listener) throws IllegalArgumentException, IOException, URISyntaxException, JAXBException
+	{
+		final PdpEngineConfiguration pdpEngineConf = TestUtils.newPdpEngineConfiguration(TEST_RESOURCES_DIRECTORY_LOCATION + "/" + combiningAlgName + "-" + treeType + ".xml", null, false, null, null,
+				null);
+		return new BasePdpEngine(pdpEngineConf, new BasePdpEngine.Options.Builder().setPolicyEvaluationListener(listener).build());
+	}
+
+	@Before
+	public void setUp() throws IllegalArgumentException, IOException, URISyntaxException, JAXBException
+	{
+		nestedTreeRecorder = new PolicyEvaluationRecorder();
+		nestedTreePdp = newPdp("nested", nestedTreeRecorder);
+		flatTreePdp = newPdp("flat", new PolicyEvaluationRecorder());
+	}
+
+	@After
+	public void tearDown() throws IOException
+	{
+		if (nestedTreePdp != null)
+		{
+			nestedTreePdp.close();
+		}
+
+		if (flatTreePdp != null)
+		{
+			flatTreePdp.close();
+		}
+	}
+
+	/**
+	 *
+	 * @param pdp
+	 *            PDP engine
+	 * @param policyResults
+	 *            for each Policy P{i}, one of {@link #POLICY_RESULTS}
+	 * @param returnApplicablePolicyIdList
+	 *            true iff the list of applicable policies is requested
+	 * @return request
+	 */
+	private static DecisionRequest newRequest(final BasePdpEngine pdp, final List<String> policyResults, final boolean returnApplicablePolicyIdList)
+	{
+		final DecisionRequestBuilder<?> requestBuilder = pdp.newRequestBuilder(2, POLICY_COUNT + 1);
+		requestBuilder.putNamedAttributeIfAbsent(
+				AttributeFqns.newInstance("urn:oasis:names:tc:xacml:3.0:attribute-category:action", Optional.empty(), "urn:oasis:names:tc:xacml:1.0:action:action-id"),
+				Bags.singletonAttributeBag(StandardDatatypes.STRING, new StringValue("read")));
+		for (int i = 0; i < policyResults.size(); i++)
+		{
+			final String policyResult = policyResults.get(i);
+			if (policyResult.equals("none"))
+			{
+				continue;
+			}
+
+			final List<StringValue> values = policyResult.startsWith("error") ? Arrays.asList(new StringValue(policyResult), new StringValue("other"))
+					: Arrays.asList(new StringValue(policyResult));
+			requestBuilder.putNamedAttributeIfAbsent(
+					AttributeFqns.newInstance("urn:oasis:names:tc:xacml:3.0:attribute-category:resource", Optional.empty(), "urn:ow2:authzforce:test:flattening:P" + (i + 1)),
+					Bags.newAttributeBag(StandardDatatypes.STRING, values));
+		}
+
+		return requestBuilder.build(returnApplicablePolicyIdList);
+	}
+
+	/**
+	 *
+	 * @return all combinations of {@link #POLICY_RESULTS} for the {@value #POLICY_COUNT} Policies
+	 */
+	private static List<List<String>> getAllPolicyResultCombinations()
+	{
+		List<List<String>> combinations = Collections.singletonList(Collections.<String>emptyList());
+		for (int i = 0; i < POLICY_COUNT; i++)
+		{
+			final List<List<String>> newCombinations = new ArrayList<>();
+			for (final List<String> combination : combinations)
+			{
+				for (final String policyResult : POLICY_RESULTS)
+				{
+					final List<String> newCombination = new ArrayList<>(combination);
+					newCombination.add(policyResult);
+					newCombinations.add(newCombination);
+				}
+			}
+
+			combinations = newCombinations;
+		}
+
+		return combinations;
+	}
+
+	private static List<String> getPepActionIds(final DecisionResult result)
+	{
+		return result.getPepActions().stream().map(PepAction::getId).collect(Collectors.toList());
+	}
+
+	private static List<String> getApplicablePolicies(final DecisionResult result, final boolean excludeFlattenablePolicySets)
+	{
+		return result.getApplicablePolicies().stream().filter(policy -> !excludeFlattenablePolicySets || !FLATTENABLE_POLICYSET_IDS.contains(policy.getId())).map(PrimaryPolicyMetadata::toString)
+				.collect(Collectors.toList());
+	}
+
+	private static void assertSameResult(final String message, final DecisionResult expectedResult, final DecisionResult actualResult)
+	{
+		assertEquals(message, expectedResult.getDecision(), actualResult.getDecision());
+		if (expectedResult.getDecision() == DecisionType.INDETERMINATE)
+		{
+			assertEquals(message, expectedResult.getExtendedIndeterminate(), actualResult.getExtendedIndeterminate());
+		}
+
+		assertEquals(message, getPepActionIds(expectedResult), getPepActionIds(actualResult));
+	}
+
+	@Test
+	public void testSameResultsAsFlatTree()
+	{
+		for (final List<String> policyResults : getAllPolicyResultCombinations())
+		{
+			final String message = combiningAlgName + " with Policy results " + policyResults;
+
+			/*
+			 * Applicable policies not requested: nested PolicySets flattened
+			 */
+			final DecisionResult flatTreeResult = flatTreePdp.evaluate(newRequest(flatTreePdp, policyResults, false));
+			final DecisionResult nestedTreeResult = nestedTreePdp.evaluate(newRequest(nestedTreePdp, policyResults, false));
+			assertSameResult(message, flatTreeResult, nestedTreeResult);
+			assertEquals(message, getApplicablePolicies(flatTreeResult, false), getApplicablePolicies(nestedTreeResult, false));
+
+			/*
+			 * Applicable policies requested: nested PolicySets not flattened, so that they are in the list
+			 */
+			final DecisionResult flatTreeResultWithPolicies = flatTreePdp.evaluate(newRequest(flatTreePdp, policyResults, true));
+			final DecisionResult nestedTreeResultWithPolicies = nestedTreePdp.evaluate(newRequest(nestedTreePdp, policyResults, true));
+			assertSameResult(message, flatTreeResultWithPolicies, nestedTreeResultWithPolicies);
+			assertSameResult(message, nestedTreeResult, nestedTreeResultWithPolicies);
+			assertEquals(message, getApplicablePolicies(flatTreeResultWithPolicies, false), getApplicablePolicies(nestedTreeResultWithPolicies, true));
+		}
+	}
+
+	@Test
+	public void testNestedPolicySetsWithSameAlgorithmFlattened()
+	{
+		/*
+		 * All Policies NotApplicable, so that all combined elements are evaluated
+		 */
+		final List<String> policyResults = Arrays.asList("none", "none", "none", "none", "none");
+		assertEquals(DecisionType.NOT_APPLICABLE, nestedTreePdp.evaluate(newRequest(nestedTreePdp, policyResults, false)).getDecision());
+		for (final String policySetId : FLATTENABLE_POLICYSET_IDS)
+		{
+			assertFalse("PolicySet '" + policySetId + "' not flattened", nestedTreeRecorder.evaluatedPolicyIds.contains(policySetId));
+		}
+
+		assertTrue("Policy P3 of flattened PolicySet 'nested2' not evaluated", nestedTreeRecorder.evaluatedPolicyIds.contains("P3"));
+
+		/*
+		 * Flattening disabled when the applicable policies are requested
+		 */
+		nestedTreePdp.evaluate(newRequest(nestedTreePdp, policyResults, true));
+		assertTrue("PolicySet 'nested' flattened although the applicable policies are requested", nestedTreeRecorder.evaluatedPolicyIds.containsAll(FLATTENABLE_POLICYSET_IDS));
+	}
+
+	@Test
+	public void testNestedPolicySetWithOtherAlgorithmNotFlattened()
+	{
+		nestedTreePdp.evaluate(newRequest(nestedTreePdp, Arrays.asList("none", "none", "none", "none", "none"), false));
+		assertTrue("PolicySet 'mixed' with other combining algorithm flattened", nestedTreeRecorder.evaluatedPolicyIds.contains("mixed"));
+	}
+
+	@Test
+	public void testNestedPolicySetWithTargetNotFlattened()
+	{
+		nestedTreePdp.evaluate(newRequest(nestedTreePdp, Arrays.asList("none", "none", "none", "none", "none"), false));
+		assertTrue("PolicySet 'targeted' with Target flattened", nestedTreeRecorder.evaluatedPolicyIds.contains("targeted"));
+	}
+}
@@ -0,0 +1,214 @@
+/**
+ * Copyright 2012-2018 Thales Services SAS.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.testutil.test;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import javax.xml.bind.JAXBException;
+
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.DecisionType;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.ow2.authzforce.core.pdp.api.AttributeFqns;
+import org.ow2.authzforce.core.pdp.api.DecisionRequest;
+import org.ow2.authzforce.core.pdp.api.DecisionRequestBuilder;
+import org.ow2.authzforce.core.pdp.api.DecisionResult;
+import org.ow2.authzforce.core.pdp.api.policy.PrimaryPolicyMetadata;
+import org.ow2.authzforce.core.pdp.api.value.Bags;
+import org.ow2.authzforce.core.pdp.api.value.DateTimeValue;
+import org.ow2.authzforce.core.pdp.api.value.StandardDatatypes;
+import org.ow2.authzforce.core.pdp.api.value.StringValue;
+import org.ow2.authzforce.core.pdp.impl.BasePdpEngine;
+import org.ow2.authzforce.core.pdp.impl.PdpEngineConfiguration;
+import org.ow2.authzforce.core.pdp.impl.PolicyEvaluationListener;
+import org.ow2.authzforce.core.pdp.testutil.PdpTest;
+import org.ow2.authzforce.core.pdp.testutil.TestUtils;
+
+/**
+ * Test of the Rule result cache of the first-applicable rule-combining algorithm (enabled by Policy CombinerParameter), using the Rule evaluation events notified to an engine-level
+ * {@link PolicyEvaluationListener} to find out whether Rules were evaluated or the result came from the cache
+ *
+ */
+public class RuleResultCacheTest
+{
+	private static final String TEST_RESOURCES_DIRECTORY_LOCATION = "classpath:engine/RuleResultCache";
+
+	/**
+	 * Counts Rule evaluations by PolicyId of the enclosing Policy
+	 */
+	private static final class RuleEvaluationCounter implements PolicyEvaluationListener
+	{
+		private final Map<String, AtomicInteger> countsByPolicyId = new ConcurrentHashMap<>();
+
+		@Override
+		public void policyEvaluated(final PrimaryPolicyMetadata policy, final TargetMatchResult targetResult, final DecisionResult result, final long elapsedNanos)
+		{
+			// not counted
+		}
+
+		@Override
+		public void ruleEvaluated(final PrimaryPolicyMetadata enclosingPolicy, final String ruleId, final TargetMatchResult targetResult, final ConditionResult conditionResult,
+				final DecisionResult result, final long elapsedNanos)
+		{
+			countsByPolicyId.computeIfAbsent(enclosingPolicy.getId(), k -> new AtomicInteger(0)).incrementAndGet();
+		}
+
+		private int getCount(final String policyId)
+		{
+			final AtomicInteger count = countsByPolicyId.get(policyId);
+			return count == null ? 0 : count.get();
+		}
+	}
+
+	private RuleEvaluationCounter ruleEvaluationCounter;
+	private BasePdpEngine pdp;
+
+	@Before
+	public void setUp() throws IllegalArgumentException, IOException, URISyntaxException, JAXBException
+	{
+		final PdpEngineConfiguration pdpEngineConf = TestUtils.newPdpEngineConfiguration(TEST_RESOURCES_DIRECTORY_LOCATION + "/" + PdpTest.POLICY_FILENAME, null, false, null, null, null);
+		ruleEvaluationCounter = new RuleEvaluationCounter();
+		pdp = new BasePdpEngine(pdpEngineConf, new BasePdpEngine.Options.Builder().setPolicyEvaluationListener(ruleEvaluationCounter).build());
+	}
+
+	@After
+	public void tearDown() throws IOException
+	{
+		pdp.close();
+	}
+
+	private DecisionRequestBuilder<?> newRequestBuilder(final String resourceId, final String actionId, final String... subjectIds)
+	{
+		final DecisionRequestBuilder<?> requestBuilder = pdp.newRequestBuilder(4, 4);
+		requestBuilder.putNamedAttributeIfAbsent(
+				AttributeFqns.newInstance("urn:oasis:names:tc:xacml:3.0:attribute-category:resource", Optional.empty(), "urn:oasis:names:tc:xacml:1.0:resource:resource-id"),
+				Bags.singletonAttributeBag(StandardDatatypes.STRING, new StringValue(resourceId)));
+		requestBuilder.putNamedAttributeIfAbsent(
+				AttributeFqns.newInstance("urn:oasis:names:tc:xacml:3.0:attribute-category:action", Optional.empty(), "urn:oasis:names:tc:xacml:1.0:action:action-id"),
+				Bags.singletonAttributeBag(StandardDatatypes.STRING, new StringValue(actionId)));
+		requestBuilder.putNamedAttributeIfAbsent(
+				AttributeFqns.newInstance("urn:oasis:names:tc:xacml:1.0:subject-category:access-subject", Optional.empty(), "urn:oasis:names:tc:xacml:1.0:subject:subject-id"),
+				Bags.newAttributeBag(StandardDatatypes.STRING, Arrays.stream(subjectIds).map(StringValue::new).collect(Collectors.toList())));
+		return requestBuilder;
+	}
+
+	private DecisionRequest newRequest(final String resourceId, final String actionId, final String... subjectIds)
+	{
+		return newRequestBuilder(resourceId, actionId, subjectIds).build(false);
+	}
+
+	private DecisionRequest newDateTimeRequest(final String dateTime)
+	{
+		final DecisionRequestBuilder<?> requestBuilder = newRequestBuilder("datetime", "read", "alice");
+		requestBuilder.putNamedAttributeIfAbsent(
+				AttributeFqns.newInstance("urn:oasis:names:tc:xacml:3.0:attribute-category:environment", Optional.empty(), "urn:ow2:authzforce:test:environment:date-time"),
+				Bags.singletonAttributeBag(StandardDatatypes.DATETIME, new DateTimeValue(dateTime)));
+		return requestBuilder.build(false);
+	}
+
+	@Test
+	public void testCacheHit()
+	{
+		/*
+		 * r1 does not match, r2 applies -> Deny
+		 */
+		assertEquals(DecisionType.DENY, pdp.evaluate(newRequest("cached", "write", "alice")).getDecision());
+		assertEquals(2, ruleEvaluationCounter.getCount("cached"));
+
+		/*
+		 * Same values of the attributes the Rules depend on -> result from the cache
+		 */
+		assertEquals(DecisionType.DENY, pdp.evaluate(newRequest("cached", "write", "alice")).getDecision());
+		assertEquals("Rules evaluated despite cached result", 2, ruleEvaluationCounter.getCount("cached"));
+
+		/*
+		 * Different values -> cache miss
+		 */
+		assertEquals(DecisionType.NOT_APPLICABLE, pdp.evaluate(newRequest("cached", "write", "bob")).getDecision());
+		assertEquals(4, ruleEvaluationCounter.getCount("cached"));
+		assertEquals(DecisionType.PERMIT, pdp.evaluate(newRequest("cached", "read", "alice")).getDecision());
+		assertEquals(5, ruleEvaluationCounter.getCount("cached"));
+
+		assertEquals(DecisionType.NOT_APPLICABLE, pdp.evaluate(newRequest("cached", "write", "bob")).getDecision());
+		assertEquals(DecisionType.PERMIT, pdp.evaluate(newRequest("cached", "read", "alice")).getDecision());
+		assertEquals("Rules evaluated despite cached results", 5, ruleEvaluationCounter.getCount("cached"));
+	}
+
+	private void testCacheDisabled(final String policyId)
+	{
+		for (int i = 1; i <= 2; i++)
+		{
+			assertEquals(DecisionType.DENY, pdp.evaluate(newRequest(policyId, "write", "alice")).getDecision());
+			assertEquals("Rules not evaluated in request #" + i + " although the Rule result cache must be disabled", 2 * i, ruleEvaluationCounter.getCount(policyId));
+		}
+	}
+
+	@Test
+	public void testCacheDisabledByVariableReference()
+	{
+		testCacheDisabled("variable");
+	}
+
+	@Test
+	public void testCacheDisabledByObligation()
+	{
+		testCacheDisabled("obligation");
+	}
+
+	@Test
+	public void testIndeterminateNotCached()
+	{
+		/*
+		 * More than one subject-id: r2's Condition is Indeterminate
+		 */
+		for (int i = 1; i <= 2; i++)
+		{
+			assertEquals(DecisionType.INDETERMINATE, pdp.evaluate(newRequest("cached", "write", "alice", "bob")).getDecision());
+			assertEquals("Rules not evaluated in request #" + i + " although Indeterminate results must not be cached", 2 * i, ruleEvaluationCounter.getCount("cached"));
+		}
+	}
+
+	@Test
+	public void testSameInstantInDifferentTimezones()
+	{
+		/*
+		 * Equal dateTime values (same instant) but different decisions: the cached result of one must not be returned for the other
+		 */
+		assertEquals(DecisionType.PERMIT, pdp.evaluate(newDateTimeRequest("2020-01-01T12:00:00Z")).getDecision());
+		assertEquals(DecisionType.DENY, pdp.evaluate(newDateTimeRequest("2020-01-01T13:00:00+01:00")).getDecision());
+		assertEquals(3, ruleEvaluationCounter.getCount("datetime"));
+
+		/*
+		 * Both results cached
+		 */
+		assertEquals(DecisionType.PERMIT, pdp.evaluate(newDateTimeRequest("2020-01-01T12:00:00Z")).getDecision());
+		assertEquals(DecisionType.DENY, pdp.evaluate(newDateTimeRequest("2020-01-01T13:00:00+01:00")).getDecision());
+		assertEquals("Rules evaluated despite cached results", 3, ruleEvaluationCounter.getCount("datetime"));
+	}
+}
@@ -0,0 +1,131 @@
+/**
+ * Copyright 2012-2018 Thales Services SAS.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.testutil.test;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import javax.xml.bind.JAXBException;
+
+import org.junit.Test;
+import org.ow2.authzforce.core.pdp.api.DecisionRequestPreprocessor;
+import org.ow2.authzforce.core.pdp.api.IndeterminateEvaluationException;
+import org.ow2.authzforce.core.pdp.api.XmlUtils;
+import org.ow2.authzforce.core.pdp.api.io.IndividualXacmlJaxbRequest;
+import org.ow2.authzforce.core.pdp.api.io.PdpEngineInoutAdapter;
+import org.ow2.authzforce.core.pdp.api.io.XacmlJaxbParsingUtils;
+import org.ow2.authzforce.core.pdp.impl.BasePdpEngine;
+import org.ow2.authzforce.core.pdp.impl.PdpEngineConfiguration;
+import org.ow2.authzforce.core.pdp.impl.io.PdpEngineAdapters;
+import org.ow2.authzforce.core.pdp.impl.io.SingleDecisionXacmlJaxbRequestPreprocessor;
+import org.ow2.authzforce.core.pdp.testutil.PdpTest;
+import org.ow2.authzforce.core.pdp.testutil.TestUtils;
+
+import com.google.common.collect.ImmutableSet;
+
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.DecisionType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.Request;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.Response;
+
+/**
+ * Test of {@link BasePdpEngine#getXPathContentCategories()} and of the stripping of the request Content of the other categories by the default XACML/XML request preprocessor
+ *
+ */
+public class XPathContentCategoriesTest
+{
+	private static final String TEST_RESOURCES_DIRECTORY_LOCATION = "classpath:engine/XPathContentCategories";
+	private static final String CONTEXT_SELECTOR_TEST_RESOURCES_DIRECTORY_LOCATION = "classpath:engine/XPathContentCategoriesWithContextSelectorId";
+
+	private static final String SUBJECT_CATEGORY = "urn:oasis:names:tc:xacml:1.0:subject-category:access-subject";
+	private static final String RESOURCE_CATEGORY = "urn:oasis:names:tc:xacml:3.0:attribute-category:resource";
+
+	private static PdpEngineConfiguration newPdpEngineConfiguration(final String testResourcesDirectoryLocation) throws IllegalArgumentException, IOException, JAXBException
+	{
+		return TestUtils.newPdpEngineConfiguration(testResourcesDirectoryLocation + "/" + PdpTest.POLICY_FILENAME, null, true, null, null, null);
+	}
+
+	private static Request newRequest() throws IOException, JAXBException
+	{
+		return TestUtils.createRequest(TEST_RESOURCES_DIRECTORY_LOCATION + "/" + PdpTest.REQUEST_FILENAME, XacmlJaxbParsingUtils.getXacmlParserFactory(false).getInstance());
+	}
+
+	/*
+	 * Categories of the Content kept by the default request preprocessor, as created by PdpEngineAdapters#newXacmlJaxbInoutAdapter(PdpEngineConfiguration)
+	 */
+	private static Set<String> getPreprocessedContentCategories(final PdpEngineConfiguration pdpEngineConf, final Optional<Set<String>> xpathContentCategories)
+			throws IOException, JAXBException, IndeterminateEvaluationException
+	{
+		final DecisionRequestPreprocessor<Request, IndividualXacmlJaxbRequest> preprocessor = new SingleDecisionXacmlJaxbRequestPreprocessor.LaxVariantFactory().getInstance(
+				pdpEngineConf.getAttributeValueFactoryRegistry(), pdpEngineConf.isStrictAttributeIssuerMatchEnabled(), pdpEngineConf.isXpathEnabled(), XmlUtils.SAXON_PROCESSOR,
+				Collections.emptySet(), xpathContentCategories);
+		final List<IndividualXacmlJaxbRequest> individualRequests = preprocessor.process(newRequest(), null);
+		assertEquals(1, individualRequests.size());
+		return individualRequests.get(0).getExtraContentsByCategory().keySet();
+	}
+
+	private static DecisionType evaluate(final PdpEngineConfiguration pdpEngineConf) throws IOException, JAXBException
+	{
+		try (final PdpEngineInoutAdapter<Request, Response> pdp = PdpEngineAdapters.newXacmlJaxbInoutAdapter(pdpEngineConf))
+		{
+			final Response response = pdp.evaluate(newRequest(), null);
+			assertEquals(1, response.getResults().size());
+			return response.getResults().get(0).getDecision();
+		}
+	}
+
+	@Test
+	public void testContentOfUnusedCategoryDropped() throws IllegalArgumentException, IOException, JAXBException, IndeterminateEvaluationException
+	{
+		final PdpEngineConfiguration pdpEngineConf = newPdpEngineConfiguration(TEST_RESOURCES_DIRECTORY_LOCATION);
+		try (final BasePdpEngine pdp = new BasePdpEngine(pdpEngineConf))
+		{
+			final Optional<Set<String>> xpathContentCategories = pdp.getXPathContentCategories();
+			assertEquals("Invalid Content categories used by AttributeSelectors", Optional.of(ImmutableSet.of(RESOURCE_CATEGORY)), xpathContentCategories);
+			assertEquals("Content of unused category (subject) not dropped", ImmutableSet.of(RESOURCE_CATEGORY), getPreprocessedContentCategories(pdpEngineConf, xpathContentCategories));
+		}
+	}
+
+	@Test
+	public void testContentOfUsedCategoryKept() throws IllegalArgumentException, IOException, JAXBException
+	{
+		/*
+		 * The AttributeSelector is MustBePresent: the decision would be Indeterminate (Deny with deny-unless-permit) if the resource Content were dropped
+		 */
+		assertEquals(DecisionType.PERMIT, evaluate(newPdpEngineConfiguration(TEST_RESOURCES_DIRECTORY_LOCATION)));
+	}
+
+	@Test
+	public void testAnyXPathContentCategoryDisablesStripping() throws IllegalArgumentException, IOException, JAXBException, IndeterminateEvaluationException
+	{
+		final PdpEngineConfiguration pdpEngineConf = newPdpEngineConfiguration(CONTEXT_SELECTOR_TEST_RESOURCES_DIRECTORY_LOCATION);
+		try (final BasePdpEngine pdp = new BasePdpEngine(pdpEngineConf))
+		{
+			final Optional<Set<String>> xpathContentCategories = pdp.getXPathContentCategories();
+			assertEquals("Content categories known statically despite ContextSelectorId", Optional.empty(), xpathContentCategories);
+			assertEquals("Content dropped although any category may be used", ImmutableSet.of(SUBJECT_CATEGORY, RESOURCE_CATEGORY),
+					getPreprocessedContentCategories(pdpEngineConf, xpathContentCategories));
+		}
+
+		assertEquals(DecisionType.PERMIT, evaluate(pdpEngineConf));
+	}
+}